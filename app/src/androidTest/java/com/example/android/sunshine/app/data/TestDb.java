@@ -46,6 +46,9 @@ public class TestDb extends AndroidTestCase {
         final HashSet<String> tableNameHashSet = new HashSet<>();
         tableNameHashSet.add(WeatherContract.LocationEntry.TABLE_NAME);
         tableNameHashSet.add(WeatherContract.WeatherEntry.TABLE_NAME);
+        tableNameHashSet.add(WeatherContract.ForecastListEntry.TABLE_NAME);
+        tableNameHashSet.add(WeatherContract.CurrentEntry.TABLE_NAME);
+        tableNameHashSet.add(WeatherContract.SyncRunEntry.TABLE_NAME);
 
         SQLiteDatabase db = new WeatherDbHelper(
                 this.mContext).getWritableDatabase();
@@ -80,6 +83,9 @@ public class TestDb extends AndroidTestCase {
         locationColumnHashSet.add(WeatherContract.LocationEntry.COLUMN_CITY_NAME);
         locationColumnHashSet.add(WeatherContract.LocationEntry.COLUMN_COORD_LAT);
         locationColumnHashSet.add(WeatherContract.LocationEntry.COLUMN_COORD_LONG);
+        locationColumnHashSet.add(WeatherContract.LocationEntry.COLUMN_CITY_ID);
+        locationColumnHashSet.add(WeatherContract.LocationEntry.COLUMN_LAST_FETCHED);
+        locationColumnHashSet.add(WeatherContract.LocationEntry.COLUMN_GEOHASH);
         locationColumnHashSet.add(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING);
 
         int columnNameIndex = c.getColumnIndex("name");
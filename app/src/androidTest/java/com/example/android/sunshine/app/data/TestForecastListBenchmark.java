@@ -0,0 +1,128 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.ForecastListEntry;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.util.Random;
+
+/*
+    Compares the joined weather/location list query with the denormalized forecast_list read
+    at a few thousand locations. Timings are logged under this class' tag; the test only fails
+    if the two reads disagree.
+ */
+public class TestForecastListBenchmark extends AndroidTestCase {
+
+    public static final String LOG_TAG = TestForecastListBenchmark.class.getSimpleName();
+
+    private static final int LOCATIONS = 2000;
+    private static final int DAYS = 14;
+    private static final int QUERIES = 500;
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+
+    private static final String JOIN_QUERY = "SELECT " +
+            WeatherEntry.TABLE_NAME + "." + WeatherEntry._ID + ", " +
+            WeatherEntry.COLUMN_DATE + ", " + WeatherEntry.COLUMN_SHORT_DESC + ", " +
+            WeatherEntry.COLUMN_MAX_TEMP + ", " + WeatherEntry.COLUMN_MIN_TEMP + ", " +
+            LocationEntry.COLUMN_LOCATION_SETTING + ", " + WeatherEntry.COLUMN_WEATHER_ID + ", " +
+            LocationEntry.COLUMN_COORD_LAT + ", " + LocationEntry.COLUMN_COORD_LONG +
+            " FROM " + WeatherEntry.TABLE_NAME + " INNER JOIN " + LocationEntry.TABLE_NAME +
+            " ON " + WeatherEntry.TABLE_NAME + "." + WeatherEntry.COLUMN_LOC_KEY +
+            " = " + LocationEntry.TABLE_NAME + "." + LocationEntry._ID +
+            " WHERE " + LocationEntry.TABLE_NAME + "." + LocationEntry.COLUMN_LOCATION_SETTING + " = ?" +
+            " AND " + WeatherEntry.COLUMN_DATE + " >= ?" +
+            " ORDER BY " + WeatherEntry.COLUMN_DATE + " ASC";
+
+    private static final String FORECAST_LIST_QUERY = "SELECT " +
+            ForecastListEntry._ID + ", " +
+            WeatherEntry.COLUMN_DATE + ", " + WeatherEntry.COLUMN_SHORT_DESC + ", " +
+            WeatherEntry.COLUMN_MAX_TEMP + ", " + WeatherEntry.COLUMN_MIN_TEMP + ", " +
+            LocationEntry.COLUMN_LOCATION_SETTING + ", " + WeatherEntry.COLUMN_WEATHER_ID + ", " +
+            LocationEntry.COLUMN_COORD_LAT + ", " + LocationEntry.COLUMN_COORD_LONG +
+            " FROM " + ForecastListEntry.TABLE_NAME +
+            " WHERE " + LocationEntry.COLUMN_LOCATION_SETTING + " = ?" +
+            " AND " + WeatherEntry.COLUMN_DATE + " >= ?" +
+            " ORDER BY " + WeatherEntry.COLUMN_DATE + " ASC";
+
+    private SQLiteDatabase mDb;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext.deleteDatabase(WeatherDbHelper.DATABASE_NAME);
+        mDb = new WeatherDbHelper(mContext).getWritableDatabase();
+
+        long start = SystemClock.elapsedRealtime();
+        mDb.beginTransaction();
+        try {
+            for (int location = 0; location < LOCATIONS; location++) {
+                ContentValues locationValues = new ContentValues();
+                locationValues.put(LocationEntry.COLUMN_LOCATION_SETTING, "loc" + location);
+                locationValues.put(LocationEntry.COLUMN_CITY_NAME, "City " + location);
+                locationValues.put(LocationEntry.COLUMN_COORD_LAT, location * 0.01);
+                locationValues.put(LocationEntry.COLUMN_COORD_LONG, -location * 0.01);
+                long locationId = mDb.insert(LocationEntry.TABLE_NAME, null, locationValues);
+
+                for (int day = 0; day < DAYS; day++) {
+                    ContentValues weatherValues = TestUtilities.createWeatherValues(locationId);
+                    weatherValues.put(WeatherEntry.COLUMN_DATE, TestUtilities.TEST_DATE + day * DAY_IN_MILLIS);
+                    mDb.insert(WeatherEntry.TABLE_NAME, null, weatherValues);
+                }
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+        Log.i(LOG_TAG, "Inserted " + LOCATIONS + " locations x " + DAYS + " days in "
+                + (SystemClock.elapsedRealtime() - start) + " ms");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mDb.close();
+        mContext.deleteDatabase(WeatherDbHelper.DATABASE_NAME);
+        super.tearDown();
+    }
+
+    public void testJoinVersusForecastList() {
+        assertEquals("Error: forecast_list is not in step with the weather table",
+                LOCATIONS * DAYS, count(ForecastListEntry.TABLE_NAME));
+
+        long joinNanos = runQueries(JOIN_QUERY);
+        long forecastListNanos = runQueries(FORECAST_LIST_QUERY);
+
+        Log.i(LOG_TAG, String.format("%d list queries at %d locations: join %.1f us/query, forecast_list %.1f us/query",
+                QUERIES, LOCATIONS, joinNanos / 1e3 / QUERIES, forecastListNanos / 1e3 / QUERIES));
+    }
+
+    private long runQueries(String sql) {
+        Random random = new Random(42);
+        long total = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            String[] args = {"loc" + random.nextInt(LOCATIONS), Long.toString(TestUtilities.TEST_DATE)};
+            long start = System.nanoTime();
+            Cursor cursor = mDb.rawQuery(sql, args);
+            // getCount() forces the whole window to be filled, as a CursorAdapter would.
+            int rows = cursor.getCount();
+            total += System.nanoTime() - start;
+            cursor.close();
+            assertEquals(DAYS, rows);
+        }
+        return total;
+    }
+
+    private int count(String table) {
+        Cursor cursor = mDb.rawQuery("SELECT COUNT(*) FROM " + table, null);
+        cursor.moveToFirst();
+        int count = cursor.getInt(0);
+        cursor.close();
+        return count;
+    }
+}
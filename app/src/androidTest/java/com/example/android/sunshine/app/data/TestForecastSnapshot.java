@@ -0,0 +1,68 @@
+package com.example.android.sunshine.app.data;
+
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.core.ForecastBatch;
+
+public class TestForecastSnapshot extends AndroidTestCase {
+
+    private static final String[] PROJECTION = {
+            WeatherContract.WeatherEntry.TABLE_NAME + "." + WeatherContract.WeatherEntry._ID,
+            WeatherContract.WeatherEntry.COLUMN_DATE,
+            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.LocationEntry.COLUMN_COORD_LAT,
+            WeatherContract.LocationEntry.COLUMN_COORD_LONG
+    };
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        ForecastSnapshot.delete(mContext);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        ForecastSnapshot.delete(mContext);
+        super.tearDown();
+    }
+
+    public void testReadWithoutSnapshot() {
+        assertNull("Error: Read a snapshot that was never written",
+                ForecastSnapshot.read(mContext, TestUtilities.TEST_LOCATION));
+    }
+
+    public void testWriteAndRead() {
+        ForecastBatch days = TestProvider.createBulkInsertForecastBatch();
+        ForecastSnapshot.write(mContext, TestUtilities.TEST_LOCATION, 64.7488, -147.353, days);
+
+        assertNull("Error: Snapshot was returned for a different location",
+                ForecastSnapshot.read(mContext, "94043"));
+
+        ForecastSnapshot snapshot = ForecastSnapshot.read(mContext, TestUtilities.TEST_LOCATION);
+        assertNotNull("Error: Snapshot could not be read back", snapshot);
+
+        Cursor cursor = snapshot.toCursor(PROJECTION, 0);
+        assertEquals("Error: Snapshot has the wrong number of days", days.size(), cursor.getCount());
+        assertTrue(cursor.moveToFirst());
+        assertEquals(WeatherContract.normalizeDate(TestUtilities.TEST_DATE), cursor.getLong(1));
+        assertEquals("Asteroids", cursor.getString(2));
+        assertEquals(75.0, cursor.getDouble(3));
+        assertEquals(65.0, cursor.getDouble(4));
+        assertEquals(TestUtilities.TEST_LOCATION, cursor.getString(5));
+        assertEquals(321, cursor.getInt(6));
+        assertEquals(64.7488, cursor.getDouble(7));
+        assertTrue("Error: Snapshot cursor has no _id column", cursor.getColumnIndex("_id") != -1);
+        cursor.close();
+
+        // Days before the start date are dropped.
+        long lastDay = days.getDate(days.size() - 1);
+        cursor = snapshot.toCursor(PROJECTION, lastDay);
+        assertEquals(1, cursor.getCount());
+        cursor.close();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.android.sunshine.app.data;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestForecastStore extends AndroidTestCase {
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+
+    static List<ForecastStore.Entry> createEntries(int days) {
+        List<ForecastStore.Entry> entries = new ArrayList<ForecastStore.Entry>(days);
+        // Published out of order on purpose; the store keeps the earliest days.
+        for (int i = days - 1; i >= 0; i--) {
+            entries.add(new ForecastStore.Entry(TestUtilities.TEST_DATE + i * DAY_IN_MILLIS, 800,
+                    "Clear", 20 + i, 10 - i, 50f, 1013f, 3.5f, 90f));
+        }
+        return entries;
+    }
+
+    public void testPublishAndGet() {
+        ForecastStore store = new ForecastStore();
+        final String[] changed = new String[1];
+        store.registerListener(new ForecastStore.Listener() {
+            @Override
+            public void onForecastChanged(String locationSetting) {
+                changed[0] = locationSetting;
+            }
+        });
+
+        store.publish(TestUtilities.TEST_LOCATION, createEntries(3));
+        assertEquals("Error: Listener was not notified", TestUtilities.TEST_LOCATION, changed[0]);
+
+        ForecastStore.Entry entry = store.get(TestUtilities.TEST_LOCATION, TestUtilities.TEST_DATE + DAY_IN_MILLIS);
+        assertNotNull("Error: Published entry not found", entry);
+        assertEquals(21.0, entry.high);
+        assertNull(store.get("94043", TestUtilities.TEST_DATE));
+    }
+
+    public void testStoreIsBounded() {
+        ForecastStore store = new ForecastStore();
+
+        store.publish(TestUtilities.TEST_LOCATION, createEntries(ForecastStore.MAX_DAYS_PER_LOCATION + 5));
+        assertEquals(ForecastStore.MAX_DAYS_PER_LOCATION, store.getAll(TestUtilities.TEST_LOCATION).size());
+        assertNotNull("Error: Earliest day was evicted", store.get(TestUtilities.TEST_LOCATION, TestUtilities.TEST_DATE));
+
+        for (int i = 0; i < ForecastStore.MAX_LOCATIONS; i++) {
+            store.publish("location" + i, createEntries(1));
+        }
+        assertTrue("Error: Least recently used location was kept",
+                store.getAll(TestUtilities.TEST_LOCATION).isEmpty());
+    }
+}
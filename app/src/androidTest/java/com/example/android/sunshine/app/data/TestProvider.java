@@ -16,6 +16,7 @@
 package com.example.android.sunshine.app.data;
 
 import android.content.ComponentName;
+import android.content.ContentProviderClient;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.pm.PackageManager;
@@ -27,8 +28,14 @@ import android.os.Build;
 import android.test.AndroidTestCase;
 import android.util.Log;
 
+import com.example.android.sunshine.app.data.WeatherContract.CurrentEntry;
 import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.SyncRunEntry;
 import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.core.CancellationToken;
+import com.example.android.sunshine.core.CancelledException;
+import com.example.android.sunshine.core.ForecastBatch;
+import com.example.android.sunshine.core.GeoHash;
 
 public class TestProvider extends AndroidTestCase {
 
@@ -40,6 +47,16 @@ public class TestProvider extends AndroidTestCase {
                 null,
                 null
         );
+        mContext.getContentResolver().delete(
+                CurrentEntry.CONTENT_URI,
+                null,
+                null
+        );
+        mContext.getContentResolver().delete(
+                SyncRunEntry.CONTENT_URI,
+                null,
+                null
+        );
         mContext.getContentResolver().delete(
                 LocationEntry.CONTENT_URI,
                 null,
@@ -139,6 +156,80 @@ public class TestProvider extends AndroidTestCase {
         // vnd.android.cursor.dir/com.example.android.sunshine.app/location
         assertEquals("Error: the LocationEntry CONTENT_URI should return LocationEntry.CONTENT_DIR_TYPE",
                 LocationEntry.CONTENT_DIR_TYPE, type);
+
+        // content://com.example.android.sunshine.app/current/94074
+        type = mContext.getContentResolver().getType(CurrentEntry.buildCurrentLocation(testLocation));
+        assertEquals("Error: the CurrentEntry CONTENT_URI with location should return CurrentEntry.CONTENT_ITEM_TYPE",
+                CurrentEntry.CONTENT_ITEM_TYPE, type);
+
+        // content://com.example.android.sunshine.app/sync_run
+        type = mContext.getContentResolver().getType(SyncRunEntry.CONTENT_URI);
+        assertEquals("Error: the SyncRunEntry CONTENT_URI should return SyncRunEntry.CONTENT_DIR_TYPE",
+                SyncRunEntry.CONTENT_DIR_TYPE, type);
+    }
+
+    public void testSyncRunHistoryIsBounded() {
+        int runs = SyncRunEntry.MAX_ROWS + 5;
+        for (int i = 0; i < runs; i++) {
+            ContentValues values = new ContentValues();
+            values.put(SyncRunEntry.COLUMN_STARTED, TestUtilities.TEST_DATE + i);
+            values.put(SyncRunEntry.COLUMN_TRIGGER, "periodic");
+            values.put(SyncRunEntry.COLUMN_LOCATION_SETTING, TestUtilities.TEST_LOCATION);
+            values.put(SyncRunEntry.COLUMN_OUTCOME, "success");
+            values.put(SyncRunEntry.COLUMN_DURATION, 120);
+            values.put(SyncRunEntry.COLUMN_FETCH_DURATION, 100);
+            values.put(SyncRunEntry.COLUMN_PARSE_DURATION, 5);
+            values.put(SyncRunEntry.COLUMN_WRITE_DURATION, 10);
+            values.put(SyncRunEntry.COLUMN_BYTES_RECEIVED, 1500);
+            values.put(SyncRunEntry.COLUMN_ROWS_WRITTEN, 14);
+            mContext.getContentResolver().insert(SyncRunEntry.CONTENT_URI, values);
+        }
+
+        Cursor cursor = mContext.getContentResolver().query(SyncRunEntry.CONTENT_URI,
+                new String[]{SyncRunEntry.COLUMN_STARTED}, null, null, SyncRunEntry.COLUMN_STARTED + " ASC");
+        assertEquals("Error: Sync run history was not trimmed", SyncRunEntry.MAX_ROWS, cursor.getCount());
+        assertTrue(cursor.moveToFirst());
+        assertEquals("Error: The oldest runs were not the ones dropped",
+                TestUtilities.TEST_DATE + runs - SyncRunEntry.MAX_ROWS, cursor.getLong(0));
+        cursor.close();
+    }
+
+    public void testCurrentConditionsReplacePerLocation() {
+        long locationRowId = ContentUris.parseId(mContext.getContentResolver().insert(
+                LocationEntry.CONTENT_URI, TestUtilities.createNorthPoleLocationValues()));
+
+        TestUtilities.TestContentObserver currentObserver = TestUtilities.getTestContentObserver();
+        mContext.getContentResolver().registerContentObserver(
+                CurrentEntry.buildCurrentLocation(TestUtilities.TEST_LOCATION), false, currentObserver);
+
+        ContentValues currentValues = TestUtilities.createCurrentValues(locationRowId);
+        mContext.getContentResolver().insert(CurrentEntry.CONTENT_URI, currentValues);
+        currentObserver.waitForNotificationOrFail();
+        mContext.getContentResolver().unregisterContentObserver(currentObserver);
+
+        // A newer observation replaces the stored one instead of adding a row.
+        currentValues.put(CurrentEntry.COLUMN_DATE, TestUtilities.TEST_DATE + 60 * 60 * 1000);
+        currentValues.put(CurrentEntry.COLUMN_TEMP, 72.5);
+        mContext.getContentResolver().insert(CurrentEntry.CONTENT_URI, currentValues);
+
+        Cursor cursor = mContext.getContentResolver().query(
+                CurrentEntry.buildCurrentLocation(TestUtilities.TEST_LOCATION),
+                null,
+                null,
+                null,
+                null
+        );
+        TestUtilities.validateCursor("testCurrentConditionsReplacePerLocation.  Error validating CurrentEntry.",
+                cursor, currentValues);
+
+        cursor = mContext.getContentResolver().query(CurrentEntry.CONTENT_URI, null, null, null, null);
+        assertEquals("Error: Current conditions were not replaced", 1, cursor.getCount());
+        cursor.close();
+
+        // The daily forecast is stored apart and is left alone.
+        cursor = mContext.getContentResolver().query(WeatherEntry.CONTENT_URI, null, null, null, null);
+        assertEquals(0, cursor.getCount());
+        cursor.close();
     }
 
     public void testBasicWeatherQuery() {
@@ -198,6 +289,28 @@ public class TestProvider extends AndroidTestCase {
         }
     }
 
+    public void testInsertedLocationIsFoundByGeoHashCell() {
+        long locationRowId = ContentUris.parseId(mContext.getContentResolver().insert(
+                LocationEntry.CONTENT_URI, TestUtilities.createNorthPoleLocationValues()));
+
+        String cell = GeoHash.encode(64.75, -147.35, 5);
+        Cursor cursor = mContext.getContentResolver().query(LocationEntry.CONTENT_URI,
+                new String[]{LocationEntry._ID, LocationEntry.COLUMN_GEOHASH},
+                LocationEntry.COLUMN_GEOHASH + " >= ? AND " + LocationEntry.COLUMN_GEOHASH + " < ?",
+                new String[]{cell, GeoHash.endOfCell(cell)}, null);
+        assertTrue("Error: Location was not found in its geohash cell", cursor.moveToFirst());
+        assertEquals(locationRowId, cursor.getLong(0));
+        assertEquals(GeoHash.encode(64.7488, -147.353, GeoHash.MAX_PRECISION), cursor.getString(1));
+        cursor.close();
+
+        String otherCell = GeoHash.encode(37.4056, -122.0775, 5);
+        cursor = mContext.getContentResolver().query(LocationEntry.CONTENT_URI, null,
+                LocationEntry.COLUMN_GEOHASH + " >= ? AND " + LocationEntry.COLUMN_GEOHASH + " < ?",
+                new String[]{otherCell, GeoHash.endOfCell(otherCell)}, null);
+        assertEquals("Error: Location was found in another cell", 0, cursor.getCount());
+        cursor.close();
+    }
+
     public void testUpdateLocation() {
         // Create a new map of values, where column names are the keys
         ContentValues values = TestUtilities.createNorthPoleLocationValues();
@@ -377,6 +490,12 @@ public class TestProvider extends AndroidTestCase {
 
 
     static private final int BULK_INSERT_RECORDS_TO_INSERT = 10;
+
+    // When the replaced windows were fetched, as passed to replaceForecast.
+    static private final long FETCHED_AT = 1419120000000L;
+
+    static private final long DAY_IN_MILLIS = 1000*60*60*24;
+
     static ContentValues[] createBulkInsertWeatherValues(long locationRowId) {
         long currentTestDate = TestUtilities.TEST_DATE;
         long millisecondsInADay = 1000*60*60*24;
@@ -399,6 +518,18 @@ public class TestProvider extends AndroidTestCase {
         return returnContentValues;
     }
 
+    static ForecastBatch createBulkInsertForecastBatch() {
+        long currentTestDate = TestUtilities.TEST_DATE;
+        long millisecondsInADay = 1000*60*60*24;
+        ForecastBatch batch = new ForecastBatch(BULK_INSERT_RECORDS_TO_INSERT);
+
+        for ( int i = 0; i < BULK_INSERT_RECORDS_TO_INSERT; i++, currentTestDate+= millisecondsInADay ) {
+            batch.add(currentTestDate, 1.3 - 0.01 * i, 80 + i, 5.5 + 0.2 * i, 1.1,
+                    75 + i, 65 - i, "Asteroids", 321);
+        }
+        return batch;
+    }
+
     // Student: Uncomment this test after you have completed writing the BulkInsert functionality
     // in your provider.  Note that this test will work with the built-in (default) provider
     // implementation, which just inserts records one-at-a-time, so really do implement the
@@ -466,4 +597,191 @@ public class TestProvider extends AndroidTestCase {
         }
         cursor.close();
     }
+
+    public void testReplaceForecastWritesBatch() throws CancelledException {
+        long locationRowId = ContentUris.parseId(mContext.getContentResolver().insert(
+                LocationEntry.CONTENT_URI, TestUtilities.createNorthPoleLocationValues()));
+        ForecastBatch batch = createBulkInsertForecastBatch();
+
+        TestUtilities.TestContentObserver weatherObserver = TestUtilities.getTestContentObserver();
+        mContext.getContentResolver().registerContentObserver(WeatherEntry.CONTENT_URI, true, weatherObserver);
+
+        // The sync adapter reaches the provider the same way, through its ContentProviderClient.
+        ContentProviderClient client = mContext.getContentResolver().acquireContentProviderClient(WeatherEntry.CONTENT_URI);
+        int insertCount;
+        try {
+            WeatherProvider provider = (WeatherProvider) client.getLocalContentProvider();
+            assertNotNull("Error: WeatherProvider does not run in this process", provider);
+            insertCount = provider.replaceForecast(locationRowId, batch, batch.getDate(0),
+                    batch.getDate(batch.size() - 1) + DAY_IN_MILLIS, FETCHED_AT, CancellationToken.NONE);
+        } finally {
+            client.release();
+        }
+
+        weatherObserver.waitForNotificationOrFail();
+        mContext.getContentResolver().unregisterContentObserver(weatherObserver);
+        assertEquals(BULK_INSERT_RECORDS_TO_INSERT, insertCount);
+
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherEntry.CONTENT_URI,
+                null,
+                null,
+                null,
+                WeatherEntry.COLUMN_DATE + " ASC"
+        );
+        assertEquals(BULK_INSERT_RECORDS_TO_INSERT, cursor.getCount());
+
+        cursor.moveToFirst();
+        for ( int i = 0; i < BULK_INSERT_RECORDS_TO_INSERT; i++, cursor.moveToNext() ) {
+            String error = "testReplaceForecastWritesBatch.  Error validating WeatherEntry " + i;
+            assertEquals(error, locationRowId, cursor.getLong(cursor.getColumnIndex(WeatherEntry.COLUMN_LOC_KEY)));
+            assertEquals(error, WeatherContract.normalizeDate(batch.getDate(i)),
+                    cursor.getLong(cursor.getColumnIndex(WeatherEntry.COLUMN_DATE)));
+            assertEquals(error, batch.getHumidity(i), cursor.getInt(cursor.getColumnIndex(WeatherEntry.COLUMN_HUMIDITY)));
+            assertEquals(error, batch.getPressure(i), cursor.getDouble(cursor.getColumnIndex(WeatherEntry.COLUMN_PRESSURE)));
+            assertEquals(error, batch.getWindSpeed(i), cursor.getDouble(cursor.getColumnIndex(WeatherEntry.COLUMN_WIND_SPEED)));
+            assertEquals(error, batch.getHigh(i), cursor.getDouble(cursor.getColumnIndex(WeatherEntry.COLUMN_MAX_TEMP)));
+            assertEquals(error, batch.getLow(i), cursor.getDouble(cursor.getColumnIndex(WeatherEntry.COLUMN_MIN_TEMP)));
+            assertEquals(error, "Asteroids", cursor.getString(cursor.getColumnIndex(WeatherEntry.COLUMN_SHORT_DESC)));
+            assertEquals(error, 321, cursor.getInt(cursor.getColumnIndex(WeatherEntry.COLUMN_WEATHER_ID)));
+        }
+        cursor.close();
+    }
+
+    public void testCancelledReplaceForecastRollsBackRows() {
+        long locationRowId = ContentUris.parseId(mContext.getContentResolver().insert(
+                LocationEntry.CONTENT_URI, TestUtilities.createNorthPoleLocationValues()));
+        ForecastBatch batch = createBulkInsertForecastBatch();
+
+        // Cancels itself halfway through the rows, as a sync cancelled mid-write would be.
+        CancellationToken cancellation = new CancellationToken() {
+            private int mChecks;
+
+            @Override
+            public void throwIfCancelled() throws CancelledException {
+                if (mChecks++ == BULK_INSERT_RECORDS_TO_INSERT / 2) {
+                    cancel();
+                }
+                super.throwIfCancelled();
+            }
+        };
+
+        ContentProviderClient client = mContext.getContentResolver().acquireContentProviderClient(WeatherEntry.CONTENT_URI);
+        try {
+            WeatherProvider provider = (WeatherProvider) client.getLocalContentProvider();
+            provider.replaceForecast(locationRowId, batch, batch.getDate(0),
+                    batch.getDate(batch.size() - 1) + DAY_IN_MILLIS, FETCHED_AT, cancellation);
+            fail("Error: Cancelled replace completed");
+        } catch (CancelledException expected) {
+            long millis = (System.nanoTime() - cancellation.getCancelledAtNanos()) / 1000000;
+            assertTrue("Error: Insert stopped " + millis + "ms after cancelling", millis < 100);
+        } finally {
+            client.release();
+        }
+
+        Cursor cursor = mContext.getContentResolver().query(WeatherEntry.CONTENT_URI, null, null, null, null);
+        assertEquals("Error: Cancelled replace left rows behind", 0, cursor.getCount());
+        cursor.close();
+    }
+
+    public void testReplaceForecastSwapsWindow() throws CancelledException {
+        long locationRowId = ContentUris.parseId(mContext.getContentResolver().insert(
+                LocationEntry.CONTENT_URI, TestUtilities.createNorthPoleLocationValues()));
+        ForecastBatch previous = createBulkInsertForecastBatch();
+        mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI, createBulkInsertWeatherValues(locationRowId));
+
+        ContentProviderClient client = mContext.getContentResolver().acquireContentProviderClient(WeatherEntry.CONTENT_URI);
+        try {
+            WeatherProvider provider = (WeatherProvider) client.getLocalContentProvider();
+
+            // Days 2 to 4 changed; day 0 is now in the past and the horizon ends before day 6.
+            int writeCount = provider.replaceForecast(locationRowId, createChangedDays(previous, 2, 5),
+                    previous.getDate(1), previous.getDate(6), FETCHED_AT, CancellationToken.NONE);
+            assertEquals(3, writeCount);
+        } finally {
+            client.release();
+        }
+        assertEquals("Error: Location was not stamped with the fetch time", Long.valueOf(FETCHED_AT),
+                queryLastFetched(locationRowId));
+
+        Cursor cursor = mContext.getContentResolver().query(WeatherEntry.CONTENT_URI, null, null, null,
+                WeatherEntry.COLUMN_DATE + " ASC");
+        assertEquals("Error: Window was not trimmed to days 1 to 5", 5, cursor.getCount());
+        for (int i = 1; cursor.moveToNext(); i++) {
+            String error = "testReplaceForecastSwapsWindow.  Error validating WeatherEntry " + i;
+            assertEquals(error, WeatherContract.normalizeDate(previous.getDate(i)),
+                    cursor.getLong(cursor.getColumnIndex(WeatherEntry.COLUMN_DATE)));
+            assertEquals(error, i >= 2 && i < 5 ? 800 : 321,
+                    cursor.getInt(cursor.getColumnIndex(WeatherEntry.COLUMN_WEATHER_ID)));
+        }
+        cursor.close();
+    }
+
+    public void testCancelledReplaceForecastKeepsPreviousWindow() {
+        long locationRowId = ContentUris.parseId(mContext.getContentResolver().insert(
+                LocationEntry.CONTENT_URI, TestUtilities.createNorthPoleLocationValues()));
+        ForecastBatch previous = createBulkInsertForecastBatch();
+        final ForecastBatch changed = createChangedDays(previous, 2, 5);
+        mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI, createBulkInsertWeatherValues(locationRowId));
+
+        // Cancels itself once every row is written and only the commit is left.
+        CancellationToken cancellation = new CancellationToken() {
+            private int mChecks;
+
+            @Override
+            public void throwIfCancelled() throws CancelledException {
+                if (mChecks++ == changed.size()) {
+                    cancel();
+                }
+                super.throwIfCancelled();
+            }
+        };
+
+        ContentProviderClient client = mContext.getContentResolver().acquireContentProviderClient(WeatherEntry.CONTENT_URI);
+        try {
+            WeatherProvider provider = (WeatherProvider) client.getLocalContentProvider();
+            provider.replaceForecast(locationRowId, changed, previous.getDate(1), previous.getDate(6), FETCHED_AT,
+                    cancellation);
+            fail("Error: Cancelled replace completed");
+        } catch (CancelledException expected) {
+        } finally {
+            client.release();
+        }
+
+        Cursor cursor = mContext.getContentResolver().query(WeatherEntry.CONTENT_URI, null, null, null, null);
+        assertEquals("Error: Cancelled replace deleted rows", BULK_INSERT_RECORDS_TO_INSERT, cursor.getCount());
+        while (cursor.moveToNext()) {
+            assertEquals("Error: Cancelled replace changed a row",
+                    321, cursor.getInt(cursor.getColumnIndex(WeatherEntry.COLUMN_WEATHER_ID)));
+        }
+        cursor.close();
+        assertNull("Error: Cancelled replace stamped the location", queryLastFetched(locationRowId));
+    }
+
+    /**
+     * @return the location's last fetch time, or null if it was never stamped.
+     */
+    private Long queryLastFetched(long locationRowId) {
+        Cursor cursor = mContext.getContentResolver().query(LocationEntry.CONTENT_URI,
+                new String[]{LocationEntry.COLUMN_LAST_FETCHED}, LocationEntry._ID + " = ?",
+                new String[]{Long.toString(locationRowId)}, null);
+        try {
+            assertTrue("Error: No location row " + locationRowId, cursor.moveToFirst());
+            return cursor.isNull(0) ? null : cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return the days of batch from up to, not including, to, with a different weather id.
+     */
+    private static ForecastBatch createChangedDays(ForecastBatch batch, int from, int to) {
+        ForecastBatch changed = new ForecastBatch(to - from);
+        for (int i = from; i < to; i++) {
+            changed.add(batch.getDate(i), batch.getPressure(i), batch.getHumidity(i), batch.getWindSpeed(i),
+                    batch.getWindDirection(i), batch.getHigh(i), batch.getLow(i), "Clear", 800);
+        }
+        return changed;
+    }
 }
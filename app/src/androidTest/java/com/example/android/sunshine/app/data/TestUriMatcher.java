@@ -36,6 +36,11 @@ public class TestUriMatcher extends AndroidTestCase {
     private static final Uri TEST_WEATHER_WITH_LOCATION_AND_DATE_DIR = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(LOCATION_QUERY, TEST_DATE);
     // content://com.example.android.sunshine.app/location"
     private static final Uri TEST_LOCATION_DIR = WeatherContract.LocationEntry.CONTENT_URI;
+    // content://com.example.android.sunshine.app/current"
+    private static final Uri TEST_CURRENT_DIR = WeatherContract.CurrentEntry.CONTENT_URI;
+    private static final Uri TEST_CURRENT_WITH_LOCATION = WeatherContract.CurrentEntry.buildCurrentLocation(LOCATION_QUERY);
+    // content://com.example.android.sunshine.app/sync_run"
+    private static final Uri TEST_SYNC_RUN_DIR = WeatherContract.SyncRunEntry.CONTENT_URI;
 
     public void testUriMatcher() {
         UriMatcher testMatcher = WeatherProvider.buildUriMatcher();
@@ -48,5 +53,11 @@ public class TestUriMatcher extends AndroidTestCase {
                 testMatcher.match(TEST_WEATHER_WITH_LOCATION_AND_DATE_DIR), WeatherProvider.WEATHER_WITH_LOCATION_AND_DATE);
         assertEquals("Error: The LOCATION URI was matched incorrectly.",
                 testMatcher.match(TEST_LOCATION_DIR), WeatherProvider.LOCATION);
+        assertEquals("Error: The CURRENT URI was matched incorrectly.",
+                testMatcher.match(TEST_CURRENT_DIR), WeatherProvider.CURRENT);
+        assertEquals("Error: The CURRENT WITH LOCATION URI was matched incorrectly.",
+                testMatcher.match(TEST_CURRENT_WITH_LOCATION), WeatherProvider.CURRENT_WITH_LOCATION);
+        assertEquals("Error: The SYNC RUN URI was matched incorrectly.",
+                testMatcher.match(TEST_SYNC_RUN_DIR), WeatherProvider.SYNC_RUN);
     }
 }
@@ -55,6 +55,20 @@ public class TestUtilities extends AndroidTestCase {
         return weatherValues;
     }
 
+    static ContentValues createCurrentValues(long locationRowId) {
+        ContentValues currentValues = new ContentValues();
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_LOC_KEY, locationRowId);
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_DATE, TEST_DATE);
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_SHORT_DESC, "Asteroids");
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_WEATHER_ID, 321);
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_TEMP, 70.5);
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_HUMIDITY, 1.2);
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_PRESSURE, 1.3);
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_WIND_SPEED, 5.5);
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_DEGREES, 1.1);
+        return currentValues;
+    }
+
     static ContentValues createNorthPoleLocationValues() {
         ContentValues testValues = new ContentValues();
         testValues.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, TEST_LOCATION);
@@ -0,0 +1,75 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.core.RateLimitedException;
+import com.example.android.sunshine.core.TokenBucket;
+
+import java.io.IOException;
+
+public class TestFetchRateLimiter extends AndroidTestCase {
+
+    private static final String PREFS_NAME = "test_rate_limiter";
+    private static final String ENDPOINT = "api.openweathermap.org/data/2.5/weather";
+
+    private SharedPreferences mPrefs;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mPrefs = mContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        mPrefs.edit().clear().commit();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mPrefs.edit().clear().commit();
+        super.tearDown();
+    }
+
+    public void testBackgroundRequestsAreDeferred() throws IOException {
+        FetchRateLimiter limiter = new FetchRateLimiter(mPrefs, 3, 60 * 1000, 1, 0);
+        long throttled = SyncStats.get(FetchRateLimiter.STAT_THROTTLED);
+
+        limiter.acquire(TokenBucket.Priority.BACKGROUND, ENDPOINT);
+        limiter.acquire(TokenBucket.Priority.BACKGROUND, ENDPOINT);
+        try {
+            limiter.acquire(TokenBucket.Priority.BACKGROUND, ENDPOINT);
+            fail("Error: Background request was not throttled");
+        } catch (RateLimitedException e) {
+            assertTrue("Error: Retry time is not in the future", e.getRetryAtMillis() > System.currentTimeMillis());
+        }
+        assertEquals(1, SyncStats.get(FetchRateLimiter.STAT_THROTTLED) - throttled);
+
+        // The reserved token is still there for the user.
+        limiter.acquire(TokenBucket.Priority.USER, ENDPOINT);
+    }
+
+    public void testUserRequestWaitsForShortRefill() throws IOException {
+        FetchRateLimiter limiter = new FetchRateLimiter(mPrefs, 1, 100, 0, 1000);
+        long waited = SyncStats.get(FetchRateLimiter.STAT_THROTTLE_WAIT_MILLIS);
+
+        limiter.acquire(TokenBucket.Priority.USER, ENDPOINT);
+        long start = System.currentTimeMillis();
+        limiter.acquire(TokenBucket.Priority.USER, ENDPOINT);
+
+        assertTrue("Error: User request did not wait for a token", System.currentTimeMillis() - start >= 50);
+        assertTrue(SyncStats.get(FetchRateLimiter.STAT_THROTTLE_WAIT_MILLIS) > waited);
+    }
+
+    public void testStateSurvivesRestart() throws IOException {
+        FetchRateLimiter limiter = new FetchRateLimiter(mPrefs, 2, 60 * 60 * 1000, 0, 0);
+        limiter.acquire(TokenBucket.Priority.USER, ENDPOINT);
+        limiter.acquire(TokenBucket.Priority.USER, ENDPOINT);
+
+        // A new process reads the emptied bucket back instead of starting full.
+        FetchRateLimiter restarted = new FetchRateLimiter(mPrefs, 2, 60 * 60 * 1000, 0, 0);
+        try {
+            restarted.acquire(TokenBucket.Priority.USER, ENDPOINT);
+            fail("Error: Restarted limiter started with a full bucket");
+        } catch (RateLimitedException expected) {
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.ContentProviderClient;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.SharedPreferences;
+import android.content.SyncResult;
+import android.database.Cursor;
+import android.location.Address;
+import android.os.Bundle;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherContract.CurrentEntry;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.SyncRunEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.core.CancellationToken;
+import com.example.android.sunshine.core.Deadline;
+import com.example.android.sunshine.core.TokenBucket;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+
+public class TestSunshineSyncAdapter extends AndroidTestCase {
+
+    private static final String LOCATION = "99705";
+
+    // Neighbouring postal codes in the same geohash cell at the default precision.
+    private static final String NEARBY_LOCATION = "94043";
+    private static final String NEW_LOCATION = "94035";
+    private static final int NEARBY_DAYS = 7;
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        deleteAll();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteAll();
+        super.tearDown();
+    }
+
+    private void deleteAll() {
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(CurrentEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(SyncRunEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+
+        // Last fetch times and geocoding failures are kept per location setting.
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        SharedPreferences.Editor editor = prefs.edit();
+        for (String key : new ArrayList<String>(prefs.getAll().keySet())) {
+            if (key.endsWith("_" + LOCATION) || key.endsWith("_" + NEARBY_LOCATION)
+                    || key.endsWith("_" + NEW_LOCATION)) {
+                editor.remove(key);
+            }
+        }
+        editor.commit();
+    }
+
+    public void testSyncOfCancelledTokenSendsNoRequest() {
+        // A job stopped before its sync left the queue.
+        CancellationToken cancellation = new CancellationToken();
+        cancellation.cancel();
+        long requests = SunshineSyncAdapter.getRequestCount();
+
+        performSync(new SunshineSyncAdapter(mContext, false), LOCATION, SyncClass.HORIZON, cancellation);
+
+        assertEquals("Error: Cancelled sync sent a request", requests, SunshineSyncAdapter.getRequestCount());
+        assertEquals(SyncRun.OUTCOME_CANCELLED, queryLastOutcome());
+    }
+
+    public void testStaleReadSyncRunsAtBackgroundPriority() {
+        Bundle extras = SunshineSyncAdapter.buildExpeditedExtras(LOCATION, false);
+        assertFalse(SunshineSyncAdapter.isManual(extras));
+        assertEquals("Error: Stale read's sync runs at user priority",
+                TokenBucket.Priority.BACKGROUND, SunshineSyncAdapter.getPriority(extras));
+        assertEquals(SyncClass.LIGHT, SyncClass.fromExtras(extras));
+
+        extras = SunshineSyncAdapter.buildExpeditedExtras(LOCATION, true);
+        assertEquals(TokenBucket.Priority.USER, SunshineSyncAdapter.getPriority(extras));
+    }
+
+    public void testGeoHashHitSendsNoRequest() {
+        insertFreshNearbyLocation();
+        long requests = SunshineSyncAdapter.getRequestCount();
+        long hits = SyncStats.get(SunshineSyncAdapter.STAT_GEOHASH_HITS);
+
+        performSync(new SunshineSyncAdapter(mContext, false, new FixedGeocoder(37.4152, -122.0488)),
+                NEW_LOCATION, SyncClass.LIGHT, new CancellationToken());
+
+        assertEquals(SyncRun.OUTCOME_SUCCESS, queryLastOutcome());
+        assertEquals("Error: Location in a fresh cell was not served from it",
+                1, SyncStats.get(SunshineSyncAdapter.STAT_GEOHASH_HITS) - hits);
+        assertEquals("Error: Geohash hit sent a request", requests, SunshineSyncAdapter.getRequestCount());
+
+        Cursor cursor = mContext.getContentResolver().query(WeatherEntry.buildWeatherLocation(NEW_LOCATION),
+                null, null, null, null);
+        assertEquals("Error: Nearby forecast was not shared", NEARBY_DAYS, cursor.getCount());
+        cursor.close();
+        cursor = mContext.getContentResolver().query(CurrentEntry.buildCurrentLocation(NEW_LOCATION),
+                new String[]{CurrentEntry.COLUMN_TEMP}, null, null, null);
+        assertTrue("Error: Nearby current conditions were not shared", cursor.moveToFirst());
+        assertEquals(21.5, cursor.getDouble(0));
+        cursor.close();
+    }
+
+    public void testUnknownSettingIsNotGeocodedAgain() throws IOException {
+        FixedGeocoder geocoder = new FixedGeocoder(Double.NaN, Double.NaN);
+        long skipped = SyncStats.get(SettingGeocoder.STAT_GEOCODE_SKIPPED);
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+
+        assertNull(geocoder.geocode(prefs, NEW_LOCATION, Deadline.NONE, new CancellationToken()));
+        assertNull(geocoder.geocode(prefs, NEW_LOCATION, Deadline.NONE, new CancellationToken()));
+        assertEquals("Error: Unknown setting was looked up again", 1, geocoder.mLookups);
+        assertEquals(1, SyncStats.get(SettingGeocoder.STAT_GEOCODE_SKIPPED) - skipped);
+    }
+
+    public void testFailedGeocodeIsRetried() throws IOException {
+        // Offline on the first lookup.
+        FixedGeocoder geocoder = new FixedGeocoder(37.4152, -122.0488);
+        geocoder.mFailuresLeft = 1;
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+
+        assertNull(geocoder.geocode(prefs, NEW_LOCATION, Deadline.NONE, new CancellationToken()));
+        Address address = geocoder.geocode(prefs, NEW_LOCATION, Deadline.NONE, new CancellationToken());
+        assertNotNull("Error: Setting was not looked up again after a failure", address);
+        assertEquals(2, geocoder.mLookups);
+    }
+
+    /**
+     * Inserts NEARBY_LOCATION, fetched just now, with a week of days from today and its current
+     * conditions.
+     */
+    private void insertFreshNearbyLocation() {
+        long now = System.currentTimeMillis();
+        ContentValues locationValues = new ContentValues();
+        locationValues.put(LocationEntry.COLUMN_LOCATION_SETTING, NEARBY_LOCATION);
+        locationValues.put(LocationEntry.COLUMN_CITY_NAME, "Mountain View");
+        locationValues.put(LocationEntry.COLUMN_COORD_LAT, 37.4056);
+        locationValues.put(LocationEntry.COLUMN_COORD_LONG, -122.0775);
+        locationValues.put(LocationEntry.COLUMN_LAST_FETCHED, now);
+        long locationId = ContentUris.parseId(
+                mContext.getContentResolver().insert(LocationEntry.CONTENT_URI, locationValues));
+
+        ContentValues[] days = new ContentValues[NEARBY_DAYS];
+        for (int i = 0; i < NEARBY_DAYS; i++) {
+            ContentValues day = new ContentValues();
+            day.put(WeatherEntry.COLUMN_LOC_KEY, locationId);
+            day.put(WeatherEntry.COLUMN_DATE, now + i * DAY_IN_MILLIS);
+            day.put(WeatherEntry.COLUMN_DEGREES, 1.1);
+            day.put(WeatherEntry.COLUMN_HUMIDITY, 1.2);
+            day.put(WeatherEntry.COLUMN_PRESSURE, 1.3);
+            day.put(WeatherEntry.COLUMN_MAX_TEMP, 75);
+            day.put(WeatherEntry.COLUMN_MIN_TEMP, 65);
+            day.put(WeatherEntry.COLUMN_SHORT_DESC, "Clear");
+            day.put(WeatherEntry.COLUMN_WIND_SPEED, 5.5);
+            day.put(WeatherEntry.COLUMN_WEATHER_ID, 800);
+            days[i] = day;
+        }
+        mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI, days);
+
+        ContentValues current = new ContentValues();
+        current.put(CurrentEntry.COLUMN_LOC_KEY, locationId);
+        current.put(CurrentEntry.COLUMN_DATE, now);
+        current.put(CurrentEntry.COLUMN_SHORT_DESC, "Clear");
+        current.put(CurrentEntry.COLUMN_WEATHER_ID, 800);
+        current.put(CurrentEntry.COLUMN_TEMP, 21.5);
+        current.put(CurrentEntry.COLUMN_HUMIDITY, 40);
+        current.put(CurrentEntry.COLUMN_PRESSURE, 1013);
+        current.put(CurrentEntry.COLUMN_WIND_SPEED, 3.2);
+        current.put(CurrentEntry.COLUMN_DEGREES, 270);
+        mContext.getContentResolver().insert(CurrentEntry.CONTENT_URI, current);
+    }
+
+    private void performSync(SunshineSyncAdapter adapter, String locationSetting, SyncClass syncClass,
+                             CancellationToken cancellation) {
+        Bundle extras = new Bundle();
+        extras.putString(SunshineSyncAdapter.EXTRA_LOCATION_SETTING, locationSetting);
+        extras.putString(SunshineSyncAdapter.EXTRA_SYNC_CLASS, syncClass.name());
+        ContentProviderClient provider = mContext.getContentResolver()
+                .acquireContentProviderClient(WeatherContract.CONTENT_AUTHORITY);
+        try {
+            adapter.performSync(extras, provider, new SyncResult(), cancellation);
+        } finally {
+            provider.release();
+        }
+    }
+
+    private String queryLastOutcome() {
+        Cursor cursor = mContext.getContentResolver().query(SyncRunEntry.CONTENT_URI,
+                new String[]{SyncRunEntry.COLUMN_OUTCOME}, null, null, SyncRunEntry.COLUMN_STARTED + " DESC");
+        try {
+            assertTrue("Error: Sync run was not saved", cursor.moveToFirst());
+            return cursor.getString(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Puts every setting at the same place without asking the platform Geocoder, or nowhere if
+     * the coordinates are NaN. Fails the first mFailuresLeft lookups as if offline.
+     */
+    private class FixedGeocoder extends SettingGeocoder {
+        private final double mLatitude;
+        private final double mLongitude;
+        volatile int mLookups;
+        volatile int mFailuresLeft;
+
+        FixedGeocoder(double latitude, double longitude) {
+            super(mContext, Executors.newSingleThreadExecutor());
+            mLatitude = latitude;
+            mLongitude = longitude;
+        }
+
+        @Override
+        boolean isPresent() {
+            return true;
+        }
+
+        @Override
+        Address lookup(String locationSetting) throws IOException {
+            mLookups++;
+            if (mFailuresLeft > 0) {
+                mFailuresLeft--;
+                throw new IOException("Service not available");
+            }
+            if (Double.isNaN(mLatitude)) {
+                return null;
+            }
+            Address address = new Address(Locale.US);
+            address.setLatitude(mLatitude);
+            address.setLongitude(mLongitude);
+            return address;
+        }
+    }
+}
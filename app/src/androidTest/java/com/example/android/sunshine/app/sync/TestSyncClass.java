@@ -0,0 +1,71 @@
+package com.example.android.sunshine.app.sync;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.Context;
+import android.os.Bundle;
+import android.test.AndroidTestCase;
+
+public class TestSyncClass extends AndroidTestCase {
+
+    public void testFrameworkSyncsAreLight() {
+        assertEquals(SyncClass.LIGHT, SyncClass.fromExtras(new Bundle()));
+        assertFalse(SyncClass.LIGHT.isHeavy());
+
+        Bundle extras = new Bundle();
+        extras.putString(SunshineSyncAdapter.EXTRA_SYNC_CLASS, SyncClass.HORIZON.name());
+        assertEquals(SyncClass.HORIZON, SyncClass.fromExtras(extras));
+    }
+
+    public void testHeavyClassesAreFoundByJobId() {
+        for (SyncClass syncClass : SyncClass.values()) {
+            if (syncClass.isHeavy()) {
+                assertEquals(syncClass, SyncClass.forJobId(syncClass.getJobId()));
+            }
+        }
+        assertNull(SyncClass.forJobId(0));
+    }
+
+    public void testHorizonWaitsForUnmeteredNetworkChargerAndIdle() {
+        JobInfo job = SyncClass.HORIZON.buildJob(mContext);
+        assertEquals(SyncClass.HORIZON.getJobId(), job.getId());
+        assertEquals(JobInfo.NETWORK_TYPE_UNMETERED, job.getNetworkType());
+        assertTrue(job.isRequireCharging());
+        assertTrue(job.isRequireDeviceIdle());
+        assertTrue(job.isPeriodic());
+        assertEquals(SunshineSyncAdapter.DAILY_REFRESH_INTERVAL * 1000L, job.getIntervalMillis());
+        assertTrue(job.isPersisted());
+    }
+
+    public void testSavedLocationsOnlyWaitForUnmeteredNetwork() {
+        JobInfo job = SyncClass.SAVED_LOCATIONS.buildJob(mContext);
+        assertEquals(JobInfo.NETWORK_TYPE_UNMETERED, job.getNetworkType());
+        assertFalse(job.isRequireCharging());
+        assertFalse(job.isRequireDeviceIdle());
+        assertEquals(SunshineSyncAdapter.CURRENT_REFRESH_INTERVAL * 1000L, job.getIntervalMillis());
+    }
+
+    public void testLightClassHasNoJob() {
+        try {
+            SyncClass.LIGHT.buildJob(mContext);
+            fail("Error: Light class built a job");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    public void testEveryHeavyClassIsScheduled() {
+        SyncJobService.scheduleJobs(mContext);
+
+        JobScheduler scheduler = (JobScheduler) mContext.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        for (SyncClass syncClass : SyncClass.values()) {
+            if (!syncClass.isHeavy()) {
+                continue;
+            }
+            boolean pending = false;
+            for (JobInfo job : scheduler.getAllPendingJobs()) {
+                pending |= job.getId() == syncClass.getJobId();
+            }
+            assertTrue("Error: " + syncClass + " job is not scheduled", pending);
+        }
+    }
+}
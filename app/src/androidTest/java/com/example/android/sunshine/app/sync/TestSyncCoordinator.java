@@ -0,0 +1,97 @@
+package com.example.android.sunshine.app.sync;
+
+import android.test.AndroidTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class TestSyncCoordinator extends AndroidTestCase {
+
+    private static final long DEBOUNCE_MILLIS = 50;
+    private static final String LOCATION = "99705";
+
+    private final List<String> mDispatched = Collections.synchronizedList(new ArrayList<String>());
+    private final List<Boolean> mDispatchedManual = Collections.synchronizedList(new ArrayList<Boolean>());
+    private SyncCoordinator mCoordinator;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDispatched.clear();
+        mDispatchedManual.clear();
+        mCoordinator = new SyncCoordinator(new SyncCoordinator.Dispatcher() {
+            @Override
+            public void dispatch(String locationSetting, boolean manual) {
+                mDispatched.add(locationSetting);
+                mDispatchedManual.add(manual);
+            }
+        }, DEBOUNCE_MILLIS);
+    }
+
+    public void testBurstIsCoalescedIntoOneSync() throws InterruptedException {
+        long requests = SyncStats.get(SyncCoordinator.STAT_REQUESTS);
+        long coalesced = SyncStats.get(SyncCoordinator.STAT_COALESCED);
+
+        SyncCoordinator.SyncTicket ticket = mCoordinator.requestSync(LOCATION);
+        for (int i = 0; i < 4; i++) {
+            assertSame("Error: Burst request was not coalesced", ticket, mCoordinator.requestSync(LOCATION));
+        }
+        Thread.sleep(DEBOUNCE_MILLIS * 4);
+        assertEquals("Error: Expected a single dispatched sync", 1, mDispatched.size());
+
+        // A request made while the sync runs joins it.
+        mCoordinator.onSyncStarted(LOCATION);
+        assertSame(ticket, mCoordinator.requestSync(LOCATION));
+        assertFalse(ticket.isDone());
+
+        mCoordinator.onSyncFinished(LOCATION, true);
+        assertTrue("Error: Ticket was not completed", ticket.await(1, TimeUnit.SECONDS));
+        assertTrue(ticket.isSuccessful());
+        assertEquals(6, SyncStats.get(SyncCoordinator.STAT_REQUESTS) - requests);
+        assertEquals(5, SyncStats.get(SyncCoordinator.STAT_COALESCED) - coalesced);
+
+        Thread.sleep(DEBOUNCE_MILLIS * 4);
+        assertEquals(1, mDispatched.size());
+
+        // Once finished, the next request starts a new sync.
+        assertNotSame(ticket, mCoordinator.requestSync(LOCATION));
+    }
+
+    public void testLocationsAreIndependent() throws InterruptedException {
+        SyncCoordinator.SyncTicket first = mCoordinator.requestSync(LOCATION);
+        SyncCoordinator.SyncTicket second = mCoordinator.requestSync("94043");
+        assertNotSame(first, second);
+
+        Thread.sleep(DEBOUNCE_MILLIS * 4);
+        assertEquals(2, mDispatched.size());
+    }
+
+    public void testPeriodicSyncAbsorbsPendingRequest() throws InterruptedException {
+        SyncCoordinator.SyncTicket ticket = mCoordinator.requestSync(LOCATION);
+        // The framework starts a periodic sync before the debounce window closes.
+        mCoordinator.onSyncStarted(LOCATION);
+        Thread.sleep(DEBOUNCE_MILLIS * 4);
+        assertTrue("Error: Pending request was dispatched anyway", mDispatched.isEmpty());
+
+        mCoordinator.onSyncFinished(LOCATION, false);
+        assertTrue(ticket.isDone());
+        assertFalse(ticket.isSuccessful());
+    }
+
+    public void testRevalidationIsNotDispatchedAsManual() throws InterruptedException {
+        mCoordinator.requestSync(LOCATION, false);
+        Thread.sleep(DEBOUNCE_MILLIS * 4);
+        assertEquals(1, mDispatched.size());
+        assertFalse("Error: Stale read's sync was dispatched as the user's", mDispatchedManual.get(0));
+    }
+
+    public void testUserRequestTurnsPendingRevalidationManual() throws InterruptedException {
+        SyncCoordinator.SyncTicket ticket = mCoordinator.requestSync(LOCATION, false);
+        assertSame(ticket, mCoordinator.requestSync(LOCATION));
+        Thread.sleep(DEBOUNCE_MILLIS * 4);
+        assertEquals(1, mDispatched.size());
+        assertTrue("Error: User request was dispatched as a revalidation", mDispatchedManual.get(0));
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.android.sunshine.app.sync;
+
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract.SyncRunEntry;
+
+import java.util.concurrent.TimeUnit;
+
+public class TestSyncRun extends AndroidTestCase {
+
+    private static final String LOCATION = "99705";
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext.getContentResolver().delete(SyncRunEntry.CONTENT_URI, null, null);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mContext.getContentResolver().delete(SyncRunEntry.CONTENT_URI, null, null);
+        super.tearDown();
+    }
+
+    public void testRunIsSavedWithItsStages() {
+        long before = System.currentTimeMillis();
+        SyncRun run = new SyncRun(SyncRun.TRIGGER_MANUAL, LOCATION);
+        run.addFetch(TimeUnit.MILLISECONDS.toNanos(300), 4000);
+        run.addFetch(TimeUnit.MILLISECONDS.toNanos(200), 1000);
+        run.addParse(TimeUnit.MILLISECONDS.toNanos(7));
+        run.addWrite(TimeUnit.MILLISECONDS.toNanos(20), 14);
+        run.addWrite(TimeUnit.MILLISECONDS.toNanos(5), 1);
+        run.setOutcome(SyncRun.OUTCOME_HTTP_ERROR + 503);
+        run.save(mContext);
+
+        Cursor cursor = mContext.getContentResolver().query(SyncRunEntry.CONTENT_URI, null, null, null, null);
+        assertTrue("Error: Sync run was not saved", cursor.moveToFirst());
+        assertEquals(1, cursor.getCount());
+        assertTrue(cursor.getLong(cursor.getColumnIndex(SyncRunEntry.COLUMN_STARTED)) >= before);
+        assertEquals("manual", cursor.getString(cursor.getColumnIndex(SyncRunEntry.COLUMN_TRIGGER)));
+        assertEquals(LOCATION, cursor.getString(cursor.getColumnIndex(SyncRunEntry.COLUMN_LOCATION_SETTING)));
+        assertEquals("http_503", cursor.getString(cursor.getColumnIndex(SyncRunEntry.COLUMN_OUTCOME)));
+        assertEquals(500, cursor.getLong(cursor.getColumnIndex(SyncRunEntry.COLUMN_FETCH_DURATION)));
+        assertEquals(7, cursor.getLong(cursor.getColumnIndex(SyncRunEntry.COLUMN_PARSE_DURATION)));
+        assertEquals(25, cursor.getLong(cursor.getColumnIndex(SyncRunEntry.COLUMN_WRITE_DURATION)));
+        assertEquals(5000, cursor.getLong(cursor.getColumnIndex(SyncRunEntry.COLUMN_BYTES_RECEIVED)));
+        assertEquals(15, cursor.getInt(cursor.getColumnIndex(SyncRunEntry.COLUMN_ROWS_WRITTEN)));
+        cursor.close();
+    }
+
+    public void testUnfinishedRunIsSavedAsCrashed() {
+        new SyncRun(SyncRun.TRIGGER_PERIODIC, LOCATION).save(mContext);
+
+        Cursor cursor = mContext.getContentResolver().query(SyncRunEntry.CONTENT_URI,
+                new String[]{SyncRunEntry.COLUMN_OUTCOME}, null, null, null);
+        assertTrue(cursor.moveToFirst());
+        assertEquals(SyncRun.OUTCOME_CRASHED, cursor.getString(0));
+        cursor.close();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.android.sunshine.app.sync;
+
+import android.graphics.Bitmap;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+
+import java.util.concurrent.Executor;
+
+public class TestWeatherNotifier extends AndroidTestCase {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    public void testInSampleSizeKeepsIconAtLeastRequestedSize() {
+        assertEquals(1, WeatherNotifier.calculateInSampleSize(64, 64, 64, 64));
+        assertEquals(1, WeatherNotifier.calculateInSampleSize(100, 100, 64, 64));
+        assertEquals(2, WeatherNotifier.calculateInSampleSize(128, 128, 64, 64));
+        assertEquals(4, WeatherNotifier.calculateInSampleSize(512, 300, 64, 64));
+    }
+
+    public void testLargeIconIsRightSizedAndCached() {
+        WeatherNotifier notifier = new WeatherNotifier(mContext, DIRECT);
+        int width = mContext.getResources().getDimensionPixelSize(android.R.dimen.notification_large_icon_width);
+        int height = mContext.getResources().getDimensionPixelSize(android.R.dimen.notification_large_icon_height);
+        long decodes = SyncStats.get(WeatherNotifier.STAT_ICON_DECODES);
+
+        int artResource = Utility.getArtResourceForWeatherCondition(800);
+        Bitmap icon = notifier.getLargeIcon(artResource);
+        assertEquals(width, icon.getWidth());
+        assertEquals(height, icon.getHeight());
+
+        assertSame("Error: Large icon was decoded again", icon, notifier.getLargeIcon(artResource));
+        assertEquals(1, SyncStats.get(WeatherNotifier.STAT_ICON_DECODES) - decodes);
+    }
+
+    public void testArtResourcesAreDistinctCacheEntries() {
+        WeatherNotifier notifier = new WeatherNotifier(mContext, DIRECT);
+        assertNotSame(notifier.getLargeIcon(R.drawable.art_clear), notifier.getLargeIcon(R.drawable.art_rain));
+    }
+}
@@ -19,13 +19,15 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import com.example.android.sunshine.app.data.ForecastStore;
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
 
 /**
  * A placeholder fragment containing a simple view.
  */
-public class DetailFragment extends Fragment implements LoaderManager.LoaderCallbacks<Cursor> {
+public class DetailFragment extends Fragment implements LoaderManager.LoaderCallbacks<Cursor>,
+        ForecastStore.Listener {
 
     private static final String LOG_TAG = DetailFragment.class.getSimpleName();
 
@@ -128,10 +130,49 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
 
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
-        getLoaderManager().initLoader(DETAIL_LOADER, null, this);
+        if (!bindFromStore()) {
+            getLoaderManager().initLoader(DETAIL_LOADER, null, this);
+        }
         super.onActivityCreated(savedInstanceState);
     }
 
+    @Override
+    public void onStart() {
+        super.onStart();
+        ForecastStore.getInstance().registerListener(this);
+    }
+
+    @Override
+    public void onStop() {
+        ForecastStore.getInstance().unregisterListener(this);
+        super.onStop();
+    }
+
+    /**
+     * Shows the day from the ForecastStore if the list has already read it.
+     *
+     * @return false if the day isn't in the store and has to be queried with our own loader.
+     */
+    private boolean bindFromStore() {
+        if (mUri == null) {
+            return false;
+        }
+        ForecastStore.Entry entry = ForecastStore.getInstance().get(
+                WeatherEntry.getLocationSettingFromUri(mUri), WeatherEntry.getDateFromUri(mUri));
+        if (entry == null) {
+            return false;
+        }
+        bindEntry(entry);
+        return true;
+    }
+
+    @Override
+    public void onForecastChanged(String locationSetting) {
+        if (mUri != null && locationSetting.equals(WeatherEntry.getLocationSettingFromUri(mUri))) {
+            bindFromStore();
+        }
+    }
+
     @Override
     public Loader<Cursor> onCreateLoader(int id, Bundle args) {
         if (mUri != null) {
@@ -152,52 +193,49 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
     @Override
     public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
         if (data != null && data.moveToFirst()) {
-            // Read weather condition ID from cursor
-            int weatherId = data.getInt(COL_WEATHER_CONDITION_ID);
-            int weatherImgResource = Utility.getArtResourceForWeatherCondition(weatherId);
-            // Use placeholder Image
-            mIconView.setImageResource(weatherImgResource);
-
-            // Read date from cursor and update views for day of week and date
-            long date = data.getLong(COL_WEATHER_DATE);
-            String friendlyDateText = Utility.getDayName(getActivity(), date);
-            String dateText = Utility.getFormattedMonthDay(getActivity(), date);
-            mFriendlyDateView.setText(friendlyDateText);
-            mDateView.setText(dateText);
-
-            // Read description from cursor and update view
-            String description = data.getString(COL_WEATHER_DESC);
-            mDescriptionView.setText(description);
-
-            double high = data.getDouble(COL_WEATHER_MAX_TEMP);
-            String highString = Utility.formatTemperature(getActivity(), high);
-            mHighTempView.setText(highString);
-
-            // Read low temperature from cursor and update view
-            double low = data.getDouble(COL_WEATHER_MIN_TEMP);
-            String lowString = Utility.formatTemperature(getActivity(), low);
-            mLowTempView.setText(lowString);
-
-            // Read humidity from cursor and update view
-            float humidity = data.getFloat(COL_WEATHER_HUMIDITY);
-            mHumidityView.setText(getActivity().getString(R.string.format_humidity, humidity));
-
-            // Read wind speed and direction from cursor and update view
-            float windSpeedStr = data.getFloat(COL_WEATHER_WIND_SPEED);
-            float windDirStr = data.getFloat(COL_WEATHER_DEGREES);
-            mWindView.setText(Utility.getFormattedWind(getActivity(), windSpeedStr, windDirStr));
-
-            // Read pressure from cursor and update view
-            float pressure = data.getFloat(COL_WEATHER_PRESSURE);
-            mPressureView.setText(getActivity().getString(R.string.format_pressure, pressure));
-
-            // We still need this for the share intent
-            mForecast = String.format("%s - %s - %s/%s", dateText, description, high, low);
-
-            // If onCreateOptionsMenu has already happened, we need to update the share intent now.
-            if (mShareActionProvider != null) {
-                mShareActionProvider.setShareIntent(createShareForecastIntent());
-            }
+            bindEntry(new ForecastStore.Entry(data.getLong(COL_WEATHER_DATE),
+                                              data.getInt(COL_WEATHER_CONDITION_ID),
+                                              data.getString(COL_WEATHER_DESC),
+                                              data.getDouble(COL_WEATHER_MAX_TEMP),
+                                              data.getDouble(COL_WEATHER_MIN_TEMP),
+                                              data.getFloat(COL_WEATHER_HUMIDITY),
+                                              data.getFloat(COL_WEATHER_PRESSURE),
+                                              data.getFloat(COL_WEATHER_WIND_SPEED),
+                                              data.getFloat(COL_WEATHER_DEGREES)));
+        }
+    }
+
+    private void bindEntry(ForecastStore.Entry entry) {
+        // Read weather condition ID and update the icon
+        int weatherImgResource = Utility.getArtResourceForWeatherCondition(entry.weatherId);
+        mIconView.setImageResource(weatherImgResource);
+
+        // Update views for day of week and date
+        String friendlyDateText = Utility.getDayName(getActivity(), entry.date);
+        String dateText = Utility.getFormattedMonthDay(getActivity(), entry.date);
+        mFriendlyDateView.setText(friendlyDateText);
+        mDateView.setText(dateText);
+
+        mDescriptionView.setText(entry.description);
+
+        String highString = Utility.formatTemperature(getActivity(), entry.high);
+        mHighTempView.setText(highString);
+
+        String lowString = Utility.formatTemperature(getActivity(), entry.low);
+        mLowTempView.setText(lowString);
+
+        mHumidityView.setText(getActivity().getString(R.string.format_humidity, entry.humidity));
+
+        mWindView.setText(Utility.getFormattedWind(getActivity(), entry.windSpeed, entry.degrees));
+
+        mPressureView.setText(getActivity().getString(R.string.format_pressure, entry.pressure));
+
+        // We still need this for the share intent
+        mForecast = String.format("%s - %s - %s/%s", dateText, entry.description, entry.high, entry.low);
+
+        // If onCreateOptionsMenu has already happened, we need to update the share intent now.
+        if (mShareActionProvider != null) {
+            mShareActionProvider.setShareIntent(createShareForecastIntent());
         }
     }
 
@@ -211,7 +249,12 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
             long date = WeatherContract.WeatherEntry.getDateFromUri(uri);
             Uri updatedUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(newLocation, date);
             mUri = updatedUri;
-            getLoaderManager().restartLoader(DETAIL_LOADER, null, this);
+            if (bindFromStore()) {
+                // A loader left on the old location's uri would bind its day over this one.
+                getLoaderManager().destroyLoader(DETAIL_LOADER);
+            } else {
+                getLoaderManager().restartLoader(DETAIL_LOADER, null, this);
+            }
         }
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.example.android.sunshine.app;
 
 import android.content.Context;
 import android.database.Cursor;
+import android.os.Trace;
 import android.support.v4.widget.CursorAdapter;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -29,16 +30,44 @@ public class ForecastAdapter extends CursorAdapter {
     private final int VIEW_TYPE_TODAY = 0;
     private final int VIEW_TYPE_FUTURE_DAY = 1;
     private boolean mUseTodayLayout = false;
+    private ListPerfMonitor mPerfMonitor;
+
+    // Latest current conditions for the location, merged into today's row. mCurrentDate is the
+    // normalized day they were observed on, 0 when there are none.
+    private long mCurrentDate = 0;
+    private String mCurrentDescription;
+    private double mCurrentTemp;
 
     public ForecastAdapter(Context context, Cursor c, int flags) {
         super(context, c, flags);
     }
 
+    /**
+     * Records the cost of every newView and bindView call in monitor, or stops recording if
+     * monitor is null.
+     */
+    public void setPerfMonitor(ListPerfMonitor monitor) {
+        mPerfMonitor = monitor;
+    }
+
     /*
         Remember that these views are reused as needed.
      */
     @Override
     public View newView(Context context, Cursor cursor, ViewGroup parent) {
+        Trace.beginSection("ForecastAdapter.newView");
+        long start = System.nanoTime();
+        try {
+            return inflateView(context, cursor, parent);
+        } finally {
+            if (mPerfMonitor != null) {
+                mPerfMonitor.recordNewView(System.nanoTime() - start);
+            }
+            Trace.endSection();
+        }
+    }
+
+    private View inflateView(Context context, Cursor cursor, ViewGroup parent) {
         int viewType = getItemViewType(cursor.getPosition());
         int layoutId = viewType == VIEW_TYPE_TODAY ? R.layout.list_item_forecast_today : R.layout
                 .list_item_forecast;
@@ -50,6 +79,23 @@ public class ForecastAdapter extends CursorAdapter {
         return view;
     }
 
+    /**
+     * Merges the current conditions in current, a single CurrentEntry row read with
+     * {@link ForecastFragment#CURRENT_COLUMNS}, into today's row. A null or empty cursor clears
+     * them. The cursor is not kept.
+     */
+    public void setCurrentConditions(Cursor current) {
+        if (current != null && current.moveToFirst()) {
+            mCurrentDate = WeatherContract.normalizeDate(current.getLong(ForecastFragment.COL_CURRENT_DATE));
+            mCurrentDescription = current.getString(ForecastFragment.COL_CURRENT_DESC);
+            mCurrentTemp = current.getDouble(ForecastFragment.COL_CURRENT_TEMP);
+        } else {
+            mCurrentDate = 0;
+            mCurrentDescription = null;
+        }
+        notifyDataSetChanged();
+    }
+
     public void setUseTodayLayout(boolean useTodayLayout) {
         mUseTodayLayout = useTodayLayout;
     }
@@ -69,6 +115,19 @@ public class ForecastAdapter extends CursorAdapter {
      */
     @Override
     public void bindView(View view, Context context, Cursor cursor) {
+        Trace.beginSection("ForecastAdapter.bindView");
+        long start = System.nanoTime();
+        try {
+            bindForecast(view, context, cursor);
+        } finally {
+            if (mPerfMonitor != null) {
+                mPerfMonitor.recordBind(System.nanoTime() - start);
+            }
+            Trace.endSection();
+        }
+    }
+
+    private void bindForecast(View view, Context context, Cursor cursor) {
         ViewHolder viewHolder = (ViewHolder) view.getTag();
         int viewType = getItemViewType(cursor.getPosition());
         // Read weather icon ID from cursor
@@ -92,6 +151,12 @@ public class ForecastAdapter extends CursorAdapter {
 
         // Read weather forecast from cursor
         String description = cursor.getString(ForecastFragment.COL_WEATHER_DESC);
+        if (cursor.getPosition() == 0 && dateInMillis == mCurrentDate) {
+            // Today's forecast is refreshed less often than the current conditions, which
+            // describe right now better.
+            description = context.getString(R.string.format_current_conditions, mCurrentDescription,
+                                             Utility.formatTemperature(context, mCurrentTemp));
+        }
         // Find TextView and set weather forecast on it
         viewHolder.descriptionView.setText(description);
 
@@ -6,11 +6,16 @@ import android.content.SharedPreferences;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.preference.PreferenceManager;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.LoaderManager;
 import android.support.v4.content.CursorLoader;
 import android.support.v4.content.Loader;
+import android.support.v7.app.ActionBar;
+import android.support.v7.app.AppCompatActivity;
+import android.text.format.DateUtils;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -18,9 +23,16 @@ import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.ListView;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.android.sunshine.app.data.ForecastSnapshot;
+import com.example.android.sunshine.app.data.ForecastStore;
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 
@@ -32,8 +44,10 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
     private final String LOG_TAG = ForecastFragment.class.getSimpleName();
     private ForecastAdapter mForecastAdapter;
     private SharedPreferences sharedPreferences;
+    // List queries are answered from the denormalized forecast list table, so the columns
+    // don't need to be qualified with a table name.
     private static final String[] FORECAST_COLUMNS = {
-            WeatherContract.WeatherEntry.TABLE_NAME + "." + WeatherContract.WeatherEntry._ID,
+            WeatherContract.WeatherEntry._ID,
             WeatherContract.WeatherEntry.COLUMN_DATE,
             WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
             WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
@@ -41,7 +55,14 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
             WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
             WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
             WeatherContract.LocationEntry.COLUMN_COORD_LAT,
-            WeatherContract.LocationEntry.COLUMN_COORD_LONG
+            WeatherContract.LocationEntry.COLUMN_COORD_LONG,
+            // The detail columns are read here too so DetailFragment can be served from the
+            // ForecastStore instead of querying the same rows again.
+            WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
+            WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+            WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherContract.WeatherEntry.COLUMN_DEGREES,
+            WeatherContract.LocationEntry.COLUMN_LAST_FETCHED
     };
 
     static final int COL_WEATHER_ID = 0;
@@ -53,17 +74,58 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
     static final int COL_WEATHER_CONDITION_ID = 6;
     static final int COL_COORD_LAT = 7;
     static final int COL_COORD_LONG = 8;
+    static final int COL_WEATHER_HUMIDITY = 9;
+    static final int COL_WEATHER_PRESSURE = 10;
+    static final int COL_WEATHER_WIND_SPEED = 11;
+    static final int COL_WEATHER_DEGREES = 12;
+    static final int COL_LAST_FETCHED = 13;
+
+    // Current conditions are stored apart from the daily forecast and merged into today's row.
+    static final String[] CURRENT_COLUMNS = {
+            WeatherContract.CurrentEntry.TABLE_NAME + "." + WeatherContract.CurrentEntry._ID,
+            WeatherContract.CurrentEntry.COLUMN_DATE,
+            WeatherContract.CurrentEntry.COLUMN_SHORT_DESC,
+            WeatherContract.CurrentEntry.COLUMN_TEMP
+    };
+
+    static final int COL_CURRENT_DATE = 1;
+    static final int COL_CURRENT_DESC = 2;
+    static final int COL_CURRENT_TEMP = 3;
+
+    private static final int FORECAST_LOADER = 0;
+    private static final int CURRENT_LOADER = 1;
 
     private int mPosition = ListView.INVALID_POSITION;
     private ListView mListView;
     private static final String SELECTED_KEY = "selected_position";
 
+    // Used to measure the time from fragment creation to the first frame with forecast rows,
+    // and whether those rows came from the snapshot file or from the database.
+    private long mCreateTime;
+    private boolean mShowingSnapshot = false;
+    private boolean mLoadLogged = false;
+
+    // When the forecast on screen was fetched, 0 if unknown.
+    private long mFetchedAt = 0;
+
+    // How long to keep measuring frames after a new cursor has been swapped in.
+    private static final long SWAP_TRACKING_MILLIS = 1000;
+    private final ListPerfMonitor mPerfMonitor = new ListPerfMonitor("ForecastList");
+    private boolean mScrolling = false;
+    private final Runnable mStopSwapTracking = new Runnable() {
+        @Override
+        public void run() {
+            stopPerfTracking("loader swap");
+        }
+    };
+
     public ForecastFragment() {
     }
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        mCreateTime = SystemClock.elapsedRealtime();
         setHasOptionsMenu(true);
     }
 
@@ -71,7 +133,8 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
     public void onActivityCreated(Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
 
-        getLoaderManager().initLoader(0, null, this);
+        getLoaderManager().initLoader(FORECAST_LOADER, null, this);
+        getLoaderManager().initLoader(CURRENT_LOADER, null, this);
     }
 
     @Override
@@ -80,6 +143,13 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
         sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
     }
 
+    @Override
+    public void onResume() {
+        super.onResume();
+        // The age shown when the forecast loaded has grown since.
+        showDataAge();
+    }
+
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
@@ -91,6 +161,26 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
         mForecastAdapter = new ForecastAdapter(getContext(), null, 0);
         mListView = (ListView) rootView.findViewById(R.id.listview_forecast);
         mListView.setAdapter(mForecastAdapter);
+        mForecastAdapter.setPerfMonitor(mPerfMonitor);
+        mListView.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+                mScrolling = scrollState != SCROLL_STATE_IDLE;
+                if (!mScrolling) {
+                    stopPerfTracking("scroll");
+                } else {
+                    mListView.removeCallbacks(mStopSwapTracking);
+                    mPerfMonitor.startTracking();
+                }
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount,
+                                 int totalItemCount) {
+            }
+        });
+        showSnapshot();
+        logFirstPaint();
         mListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
             @Override
             public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
@@ -146,6 +236,10 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
     @Override
     public Loader<Cursor> onCreateLoader(int id, Bundle args) {
         String locationSetting = Utility.getPreferredLocation(getContext());
+        if (id == CURRENT_LOADER) {
+            return new CursorLoader(getContext(), WeatherContract.CurrentEntry.buildCurrentLocation(locationSetting),
+                                    CURRENT_COLUMNS, null, null, null);
+        }
         String sortOrder = WeatherContract.WeatherEntry.COLUMN_DATE + " ASC";
         Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(locationSetting,
                                                                                                    System.currentTimeMillis());
@@ -155,20 +249,159 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
 
     @Override
     public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
-        mForecastAdapter.swapCursor(data);
-        if (mPosition != ListView.INVALID_POSITION) {
-            mListView.smoothScrollToPosition(mPosition);
+        if (loader.getId() == CURRENT_LOADER) {
+            mForecastAdapter.setCurrentConditions(data);
+            return;
+        }
+        Trace.beginSection("ForecastFragment.onLoadFinished");
+        try {
+            if (!mLoadLogged) {
+                mLoadLogged = true;
+                Log.d(LOG_TAG, "Forecast cursor loaded " + (SystemClock.elapsedRealtime() - mCreateTime) + " ms after create");
+            }
+            Cursor previous = mForecastAdapter.swapCursor(data);
+            if (mShowingSnapshot && previous != null) {
+                // The loader doesn't own the snapshot cursor, so close it ourselves.
+                previous.close();
+            }
+            mShowingSnapshot = false;
+            publishToStore(data);
+            revalidate(data);
+            if (mPosition != ListView.INVALID_POSITION) {
+                mListView.smoothScrollToPosition(mPosition);
+            }
+        } finally {
+            Trace.endSection();
+        }
+        // Measure the frames that follow the swap, unless a scroll is already being measured.
+        if (!mScrolling) {
+            mPerfMonitor.startTracking();
+            mListView.removeCallbacks(mStopSwapTracking);
+            mListView.postDelayed(mStopSwapTracking, SWAP_TRACKING_MILLIS);
         }
     }
 
     @Override
     public void onLoaderReset(Loader<Cursor> loader) {
-        mForecastAdapter.swapCursor(null);
+        if (loader.getId() == CURRENT_LOADER) {
+            mForecastAdapter.setCurrentConditions(null);
+            return;
+        }
+        Cursor previous = mForecastAdapter.swapCursor(null);
+        if (mShowingSnapshot && previous != null) {
+            // The loader doesn't own the snapshot cursor, so close it ourselves.
+            previous.close();
+        }
+        mShowingSnapshot = false;
+    }
+
+    @Override
+    public void onDestroyView() {
+        mListView.removeCallbacks(mStopSwapTracking);
+        stopPerfTracking("destroy");
+        super.onDestroyView();
+    }
+
+    /**
+     * Stops frame tracking and logs what was measured since the last summary, if any frame was.
+     */
+    private void stopPerfTracking(String reason) {
+        mPerfMonitor.stopTracking();
+        if (mPerfMonitor.getFrameCount() > 0) {
+            Log.d(LOG_TAG, mPerfMonitor.getSummary() + " (" + reason + ")");
+        }
+        mPerfMonitor.reset();
+    }
+
+    /**
+     * Hands the rows we just loaded to the ForecastStore so the detail view can use them.
+     */
+    private void publishToStore(Cursor data) {
+        if (data == null || !data.moveToFirst()) {
+            return;
+        }
+        String locationSetting = data.getString(COL_LOCATION_SETTING);
+        List<ForecastStore.Entry> entries = new ArrayList<ForecastStore.Entry>(data.getCount());
+        do {
+            entries.add(new ForecastStore.Entry(data.getLong(COL_WEATHER_DATE),
+                                                data.getInt(COL_WEATHER_CONDITION_ID),
+                                                data.getString(COL_WEATHER_DESC),
+                                                data.getDouble(COL_WEATHER_MAX_TEMP),
+                                                data.getDouble(COL_WEATHER_MIN_TEMP),
+                                                data.getFloat(COL_WEATHER_HUMIDITY),
+                                                data.getFloat(COL_WEATHER_PRESSURE),
+                                                data.getFloat(COL_WEATHER_WIND_SPEED),
+                                                data.getFloat(COL_WEATHER_DEGREES)));
+        } while (data.moveToNext());
+        // leave the cursor where the adapter expects to find it
+        data.moveToPosition(-1);
+        ForecastStore.getInstance().publish(locationSetting, entries);
+    }
+
+    /**
+     * Shows how old the loaded forecast is and, if it is stale, has it fetched again in the
+     * background. The loaded rows stay on screen either way; the loader swaps in the new ones
+     * when the sync stores them.
+     */
+    private void revalidate(Cursor data) {
+        long fetchedAt = 0;
+        if (data != null && data.moveToFirst()) {
+            fetchedAt = data.isNull(COL_LAST_FETCHED) ? 0 : data.getLong(COL_LAST_FETCHED);
+            // leave the cursor where the adapter expects to find it
+            data.moveToPosition(-1);
+        }
+        mFetchedAt = fetchedAt;
+        SunshineSyncAdapter.revalidateIfStale(getContext(), Utility.getPreferredLocation(getContext()), fetchedAt);
+        showDataAge();
+    }
+
+    private void showDataAge() {
+        ActionBar actionBar = ((AppCompatActivity) getActivity()).getSupportActionBar();
+        if (actionBar == null) {
+            return;
+        }
+        if (mFetchedAt <= 0) {
+            actionBar.setSubtitle(null);
+            return;
+        }
+        CharSequence age = DateUtils.getRelativeTimeSpanString(mFetchedAt, System.currentTimeMillis(),
+                                                               DateUtils.MINUTE_IN_MILLIS);
+        actionBar.setSubtitle(getString(R.string.format_data_age, age));
+    }
+
+    /**
+     * Fills the list from the snapshot file written by the last sync, so the first frame does not
+     * wait for the CursorLoader. The loader's cursor replaces it in onLoadFinished.
+     */
+    private void showSnapshot() {
+        if (mForecastAdapter.getCursor() != null) {
+            return;
+        }
+        ForecastSnapshot snapshot = ForecastSnapshot.read(getContext(), Utility.getPreferredLocation(getContext()));
+        if (snapshot != null) {
+            mForecastAdapter.swapCursor(snapshot.toCursor(FORECAST_COLUMNS, System.currentTimeMillis()));
+            mShowingSnapshot = true;
+        }
+    }
+
+    private void logFirstPaint() {
+        mListView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                if (mListView.getChildCount() > 0) {
+                    mListView.getViewTreeObserver().removeOnPreDrawListener(this);
+                    Log.d(LOG_TAG, "First forecast paint " + (SystemClock.elapsedRealtime() - mCreateTime)
+                            + " ms after create, from " + (mShowingSnapshot ? "snapshot" : "database"));
+                }
+                return true;
+            }
+        });
     }
 
     public void onLocationChanged() {
         updateWeather();
-        getLoaderManager().restartLoader(0, null, this);
+        getLoaderManager().restartLoader(FORECAST_LOADER, null, this);
+        getLoaderManager().restartLoader(CURRENT_LOADER, null, this);
     }
 
     public void setUseTodayLayout(boolean mTwoPane) {
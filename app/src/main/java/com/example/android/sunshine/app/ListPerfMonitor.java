@@ -0,0 +1,124 @@
+package com.example.android.sunshine.app;
+
+import android.view.Choreographer;
+
+import java.util.Locale;
+
+/**
+ * Collects UI cost for a list: how long the adapter spends in newView/bindView, and, while
+ * tracking is on (scrolling, or just after a new cursor was swapped in), how long each frame took
+ * and how many vsync intervals were missed.
+ *
+ * All methods must be called on the main thread.
+ */
+public class ListPerfMonitor implements Choreographer.FrameCallback {
+
+    // One vsync interval at 60Hz.
+    private static final long FRAME_BUDGET_NANOS = 1000000000L / 60;
+    // Frames a little over the budget are vsync jitter, not a missed vsync.
+    private static final long JANK_THRESHOLD_NANOS = FRAME_BUDGET_NANOS * 3 / 2;
+
+    private final String mName;
+
+    private boolean mTracking = false;
+    private long mLastFrameNanos = 0;
+
+    private int mFrames;
+    private long mTotalFrameNanos;
+    private long mMaxFrameNanos;
+    private int mJankyFrames;
+    private int mDroppedFrames;
+
+    private int mBinds;
+    private long mTotalBindNanos;
+    private long mMaxBindNanos;
+
+    private int mNewViews;
+    private long mTotalNewViewNanos;
+
+    public ListPerfMonitor(String name) {
+        mName = name;
+    }
+
+    public void startTracking() {
+        if (!mTracking) {
+            mTracking = true;
+            mLastFrameNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    public void stopTracking() {
+        if (mTracking) {
+            mTracking = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mTracking) {
+            return;
+        }
+        if (mLastFrameNanos != 0) {
+            long frameNanos = frameTimeNanos - mLastFrameNanos;
+            mFrames++;
+            mTotalFrameNanos += frameNanos;
+            mMaxFrameNanos = Math.max(mMaxFrameNanos, frameNanos);
+            if (frameNanos > JANK_THRESHOLD_NANOS) {
+                mJankyFrames++;
+                mDroppedFrames += (int) Math.round((double) frameNanos / FRAME_BUDGET_NANOS) - 1;
+            }
+        }
+        mLastFrameNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    public void recordBind(long nanos) {
+        mBinds++;
+        mTotalBindNanos += nanos;
+        mMaxBindNanos = Math.max(mMaxBindNanos, nanos);
+    }
+
+    public void recordNewView(long nanos) {
+        mNewViews++;
+        mTotalNewViewNanos += nanos;
+    }
+
+    /**
+     * @return the number of frames measured since the last reset
+     */
+    public int getFrameCount() {
+        return mFrames;
+    }
+
+    public void reset() {
+        mFrames = 0;
+        mTotalFrameNanos = 0;
+        mMaxFrameNanos = 0;
+        mJankyFrames = 0;
+        mDroppedFrames = 0;
+        mBinds = 0;
+        mTotalBindNanos = 0;
+        mMaxBindNanos = 0;
+        mNewViews = 0;
+        mTotalNewViewNanos = 0;
+    }
+
+    /**
+     * @return a one line summary of everything recorded since the last reset, e.g. for logcat.
+     */
+    public String getSummary() {
+        return String.format(Locale.US,
+                "%s: frames=%d avg=%.2fms max=%.2fms janky=%d dropped=%d | binds=%d avg=%.1fus max=%.1fus | newViews=%d avg=%.1fus",
+                mName,
+                mFrames, average(mTotalFrameNanos, mFrames) / 1e6, mMaxFrameNanos / 1e6,
+                mJankyFrames, mDroppedFrames,
+                mBinds, average(mTotalBindNanos, mBinds) / 1e3, mMaxBindNanos / 1e3,
+                mNewViews, average(mTotalNewViewNanos, mNewViews) / 1e3);
+    }
+
+    private static double average(long total, int count) {
+        return count == 0 ? 0 : (double) total / count;
+    }
+}
@@ -8,6 +8,8 @@ import android.preference.Preference;
 import android.preference.PreferenceFragment;
 import android.util.Log;
 
+import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
+
 import java.util.Map;
 
 /**
@@ -57,6 +59,17 @@ public class SettingsFragment extends PreferenceFragment implements SharedPrefer
      */
     @Override
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+        if (key.equals(getString(R.string.pref_forecast_days_key))) {
+            // The length applies to the current location; fetch the days it adds right away.
+            String days = sharedPreferences.getString(key, getString(R.string.pref_forecast_days_default));
+            Utility.setForecastDays(getActivity(), Utility.getPreferredLocation(getActivity()), days);
+            SunshineSyncAdapter.syncImmediately(getActivity());
+        } else if (key.equals(getString(R.string.pref_location_key))) {
+            // Show the length the new location was given, if any.
+            ListPreference forecastDays = (ListPreference) findPreference(getString(R.string.pref_forecast_days_key));
+            forecastDays.setValue(Integer.toString(
+                    Utility.getForecastDays(getActivity(), Utility.getPreferredLocation(getActivity()))));
+        }
         updatePref(findPreference(key), key);
     }
 
@@ -5,6 +5,10 @@ import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 import android.text.format.Time;
 
+import com.example.android.sunshine.core.UnitSystem;
+import com.example.android.sunshine.core.WeatherCondition;
+import com.example.android.sunshine.core.Wind;
+
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -16,6 +20,25 @@ public class Utility {
                                context.getString(R.string.pref_location_default));
     }
 
+    /**
+     * @return how many days of forecast to keep for locationSetting. Each location remembers
+     * the length it was last given, other locations use the forecast length preference.
+     */
+    public static int getForecastDays(Context context, String locationSetting) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String key = context.getString(R.string.pref_forecast_days_key);
+        String days = prefs.getString(key + "_" + locationSetting,
+                                      prefs.getString(key, context.getString(R.string.pref_forecast_days_default)));
+        return Integer.parseInt(days);
+    }
+
+    public static void setForecastDays(Context context, String locationSetting, String days) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        prefs.edit()
+             .putString(context.getString(R.string.pref_forecast_days_key) + "_" + locationSetting, days)
+             .apply();
+    }
+
     public static boolean isMetric(Context context) {
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
         return prefs.getString(context.getString(R.string.pref_temp_key),
@@ -23,11 +46,13 @@ public class Utility {
                     .equals(context.getString(R.string.pref_temp_metric));
     }
 
+    public static UnitSystem getUnitSystem(Context context) {
+        return isMetric(context) ? UnitSystem.METRIC : UnitSystem.IMPERIAL;
+    }
+
     public static String formatTemperature(Context context, double temperature) {
-        if (!isMetric(context)) {
-            temperature = (temperature * 1.8) + 32;
-        }
-        return String.format(context.getString(R.string.format_temperature), temperature);
+        return String.format(context.getString(R.string.format_temperature),
+                             getUnitSystem(context).temperature(temperature));
     }
 
     static String formatDate(long dateInMillis) {
@@ -125,36 +150,11 @@ public class Utility {
     }
 
     public static String getFormattedWind(Context context, float windSpeed, float degrees) {
-        int windFormat;
-        if (Utility.isMetric(context)) {
-            windFormat = R.string.format_wind_kmh;
-        } else {
-            windFormat = R.string.format_wind_mph;
-            windSpeed = .621371192237334f * windSpeed;
-        }
-
-        // From wind direction in degrees, determine compass direction as a string (e.g NW)
-        // You know what's fun, writing really long if/else statements with tons of possible
-        // conditions.  Seriously, try it!
-        String direction = "Unknown";
-        if (degrees >= 337.5 || degrees < 22.5) {
-            direction = "N";
-        } else if (degrees >= 22.5 && degrees < 67.5) {
-            direction = "NE";
-        } else if (degrees >= 67.5 && degrees < 112.5) {
-            direction = "E";
-        } else if (degrees >= 112.5 && degrees < 157.5) {
-            direction = "SE";
-        } else if (degrees >= 157.5 && degrees < 202.5) {
-            direction = "S";
-        } else if (degrees >= 202.5 && degrees < 247.5) {
-            direction = "SW";
-        } else if (degrees >= 247.5 && degrees < 292.5) {
-            direction = "W";
-        } else if (degrees >= 292.5 && degrees < 337.5) {
-            direction = "NW";
-        }
-        return String.format(context.getString(windFormat), windSpeed, direction);
+        UnitSystem unitSystem = getUnitSystem(context);
+        int windFormat = unitSystem == UnitSystem.METRIC ? R.string.format_wind_kmh : R.string.format_wind_mph;
+        return String.format(context.getString(windFormat),
+                             unitSystem.windSpeed(windSpeed),
+                             Wind.getCompassDirection(degrees));
     }
 
     /**
@@ -164,30 +164,27 @@ public class Utility {
      * @return resource id for the corresponding icon. -1 if no relation is found.
      */
     public static int getIconResourceForWeatherCondition(int weatherId) {
-        // Based on weather code data found at:
-        // http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
-        if (weatherId >= 200 && weatherId <= 232) {
-            return R.drawable.ic_storm;
-        } else if (weatherId >= 300 && weatherId <= 321) {
-            return R.drawable.ic_light_rain;
-        } else if (weatherId >= 500 && weatherId <= 504) {
-            return R.drawable.ic_rain;
-        } else if (weatherId == 511) {
-            return R.drawable.ic_snow;
-        } else if (weatherId >= 520 && weatherId <= 531) {
-            return R.drawable.ic_rain;
-        } else if (weatherId >= 600 && weatherId <= 622) {
-            return R.drawable.ic_snow;
-        } else if (weatherId >= 701 && weatherId <= 761) {
-            return R.drawable.ic_fog;
-        } else if (weatherId == 761 || weatherId == 781) {
-            return R.drawable.ic_storm;
-        } else if (weatherId == 800) {
-            return R.drawable.ic_clear;
-        } else if (weatherId == 801) {
-            return R.drawable.ic_light_clouds;
-        } else if (weatherId >= 802 && weatherId <= 804) {
-            return R.drawable.ic_cloudy;
+        WeatherCondition condition = WeatherCondition.fromWeatherId(weatherId);
+        if (condition == null) {
+            return -1;
+        }
+        switch (condition) {
+            case STORM:
+                return R.drawable.ic_storm;
+            case LIGHT_RAIN:
+                return R.drawable.ic_light_rain;
+            case RAIN:
+                return R.drawable.ic_rain;
+            case SNOW:
+                return R.drawable.ic_snow;
+            case FOG:
+                return R.drawable.ic_fog;
+            case CLEAR:
+                return R.drawable.ic_clear;
+            case LIGHT_CLOUDS:
+                return R.drawable.ic_light_clouds;
+            case CLOUDS:
+                return R.drawable.ic_cloudy;
         }
         return -1;
     }
@@ -199,31 +196,28 @@ public class Utility {
      * @return resource id for the corresponding image. -1 if no relation is found.
      */
     public static int getArtResourceForWeatherCondition(int weatherId) {
-        // Based on weather code data found at:
-        // http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
-        if (weatherId >= 200 && weatherId <= 232) {
-            return R.drawable.art_storm;
-        } else if (weatherId >= 300 && weatherId <= 321) {
-            return R.drawable.art_light_rain;
-        } else if (weatherId >= 500 && weatherId <= 504) {
-            return R.drawable.art_rain;
-        } else if (weatherId == 511) {
-            return R.drawable.art_snow;
-        } else if (weatherId >= 520 && weatherId <= 531) {
-            return R.drawable.art_rain;
-        } else if (weatherId >= 600 && weatherId <= 622) {
-            return R.drawable.art_rain;
-        } else if (weatherId >= 701 && weatherId <= 761) {
-            return R.drawable.art_fog;
-        } else if (weatherId == 761 || weatherId == 781) {
-            return R.drawable.art_storm;
-        } else if (weatherId == 800) {
-            return R.drawable.art_clear;
-        } else if (weatherId == 801) {
-            return R.drawable.art_light_clouds;
-        } else if (weatherId >= 802 && weatherId <= 804) {
-            return R.drawable.art_clouds;
+        WeatherCondition condition = WeatherCondition.fromWeatherId(weatherId);
+        if (condition == null) {
+            return -1;
+        }
+        switch (condition) {
+            case STORM:
+                return R.drawable.art_storm;
+            case LIGHT_RAIN:
+                return R.drawable.art_light_rain;
+            case RAIN:
+                return R.drawable.art_rain;
+            case SNOW:
+                return R.drawable.art_snow;
+            case FOG:
+                return R.drawable.art_fog;
+            case CLEAR:
+                return R.drawable.art_clear;
+            case LIGHT_CLOUDS:
+                return R.drawable.art_light_clouds;
+            case CLOUDS:
+                return R.drawable.art_clouds;
         }
         return -1;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,248 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.provider.BaseColumns;
+import android.util.Log;
+
+import com.example.android.sunshine.core.ForecastBatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * A compact binary copy of the preferred location's display-ready forecast, written by the
+ * sync adapter next to the database. ForecastFragment maps it on launch so the list can be
+ * drawn before the CursorLoader has opened weather.db and run the joined query.
+ *
+ * Layout (big endian):
+ * <pre>
+ *   int    MAGIC
+ *   int    VERSION
+ *   string location setting
+ *   double latitude
+ *   double longitude
+ *   int    day count
+ *   day count x { long date, int weather id, double max, double min, string description }
+ * </pre>
+ * where a string is an int byte length followed by UTF-8 bytes.
+ */
+public class ForecastSnapshot {
+
+    private static final String LOG_TAG = ForecastSnapshot.class.getSimpleName();
+
+    static final String FILE_NAME = "forecast_snapshot.bin";
+
+    // Bump VERSION whenever the layout above changes; readers ignore files from other versions.
+    private static final int MAGIC = 0x534e5348; // "SNSH"
+    private static final int VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String mLocationSetting;
+    private final double mLatitude;
+    private final double mLongitude;
+    private final long[] mDates;
+    private final int[] mWeatherIds;
+    private final double[] mMaxTemps;
+    private final double[] mMinTemps;
+    private final String[] mDescriptions;
+
+    private ForecastSnapshot(String locationSetting, double latitude, double longitude, int days) {
+        mLocationSetting = locationSetting;
+        mLatitude = latitude;
+        mLongitude = longitude;
+        mDates = new long[days];
+        mWeatherIds = new int[days];
+        mMaxTemps = new double[days];
+        mMinTemps = new double[days];
+        mDescriptions = new String[days];
+    }
+
+    /**
+     * Replaces the snapshot file with the given days. The file is written to a temporary
+     * name and renamed into place so a reader never maps a half-written snapshot.
+     *
+     * @param context Context used to locate the app's files directory
+     * @param locationSetting The location setting the days belong to
+     * @param lat the latitude of the city
+     * @param lon the longitude of the city
+     * @param days The parsed forecast, ordered by date
+     */
+    public static void write(Context context, String locationSetting, double lat, double lon,
+                             ForecastBatch days) {
+        byte[] locationBytes = locationSetting.getBytes(UTF_8);
+        byte[][] descriptionBytes = new byte[days.size()][];
+        int size = 4 + 4 + 4 + locationBytes.length + 8 + 8 + 4;
+        for (int i = 0; i < days.size(); i++) {
+            String description = days.getDescription(i);
+            descriptionBytes[i] = (description == null ? "" : description).getBytes(UTF_8);
+            size += 8 + 4 + 8 + 8 + 4 + descriptionBytes[i].length;
+        }
+
+        File target = new File(context.getFilesDir(), FILE_NAME);
+        File temp = new File(context.getFilesDir(), FILE_NAME + ".tmp");
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(temp, "rw");
+            file.setLength(size);
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(locationBytes.length);
+            buffer.put(locationBytes);
+            buffer.putDouble(lat);
+            buffer.putDouble(lon);
+            buffer.putInt(days.size());
+            for (int i = 0; i < days.size(); i++) {
+                buffer.putLong(WeatherContract.normalizeDate(days.getDate(i)));
+                buffer.putInt(days.getWeatherId(i));
+                buffer.putDouble(days.getHigh(i));
+                buffer.putDouble(days.getLow(i));
+                buffer.putInt(descriptionBytes[i].length);
+                buffer.put(descriptionBytes[i]);
+            }
+            buffer.force();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error writing forecast snapshot", e);
+            temp.delete();
+            return;
+        } finally {
+            closeQuietly(file);
+        }
+
+        if (!temp.renameTo(target)) {
+            Log.e(LOG_TAG, "Unable to move forecast snapshot into place");
+            temp.delete();
+        }
+    }
+
+    /**
+     * Maps the snapshot file, if any, and returns its contents.
+     *
+     * @return the snapshot for locationSetting, or null if there is none, it belongs to another
+     * location or it was written by a different snapshot version.
+     */
+    public static ForecastSnapshot read(Context context, String locationSetting) {
+        File source = new File(context.getFilesDir(), FILE_NAME);
+        if (!source.exists()) {
+            return null;
+        }
+
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(source, "r");
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            String snapshotLocation = getString(buffer);
+            if (!snapshotLocation.equals(locationSetting)) {
+                return null;
+            }
+            double lat = buffer.getDouble();
+            double lon = buffer.getDouble();
+            int days = buffer.getInt();
+
+            ForecastSnapshot snapshot = new ForecastSnapshot(snapshotLocation, lat, lon, days);
+            for (int i = 0; i < days; i++) {
+                snapshot.mDates[i] = buffer.getLong();
+                snapshot.mWeatherIds[i] = buffer.getInt();
+                snapshot.mMaxTemps[i] = buffer.getDouble();
+                snapshot.mMinTemps[i] = buffer.getDouble();
+                snapshot.mDescriptions[i] = getString(buffer);
+            }
+            return snapshot;
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Ignoring unreadable forecast snapshot", e);
+            return null;
+        } catch (RuntimeException e) {
+            // A truncated or corrupt snapshot is not worth more than a log line; the
+            // CursorLoader will fill the list shortly anyway.
+            Log.w(LOG_TAG, "Ignoring corrupt forecast snapshot", e);
+            return null;
+        } finally {
+            closeQuietly(file);
+        }
+    }
+
+    public static void delete(Context context) {
+        new File(context.getFilesDir(), FILE_NAME).delete();
+    }
+
+    /**
+     * Builds a cursor over the days starting at startDate, shaped like a WeatherEntry query with
+     * the given projection, so it can be handed to the same adapter as the real loader cursor.
+     * Columns may be qualified with a table name ("weather._id"); unknown columns are null.
+     */
+    public Cursor toCursor(String[] projection, long startDate) {
+        String[] columnNames = new String[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            columnNames[i] = projection[i].substring(projection[i].lastIndexOf('.') + 1);
+        }
+
+        long normalizedStartDate = WeatherContract.normalizeDate(startDate);
+        MatrixCursor cursor = new MatrixCursor(columnNames, mDates.length);
+        for (int day = 0; day < mDates.length; day++) {
+            if (mDates[day] < normalizedStartDate) {
+                continue;
+            }
+            Object[] row = new Object[columnNames.length];
+            for (int i = 0; i < columnNames.length; i++) {
+                row[i] = getValue(columnNames[i], day);
+            }
+            cursor.addRow(row);
+        }
+        return cursor;
+    }
+
+    public String getLocationSetting() {
+        return mLocationSetting;
+    }
+
+    private Object getValue(String column, int day) {
+        if (BaseColumns._ID.equals(column)) {
+            // The snapshot has no row ids, but the date is unique per location.
+            return mDates[day];
+        } else if (WeatherContract.WeatherEntry.COLUMN_DATE.equals(column)) {
+            return mDates[day];
+        } else if (WeatherContract.WeatherEntry.COLUMN_WEATHER_ID.equals(column)) {
+            return mWeatherIds[day];
+        } else if (WeatherContract.WeatherEntry.COLUMN_MAX_TEMP.equals(column)) {
+            return mMaxTemps[day];
+        } else if (WeatherContract.WeatherEntry.COLUMN_MIN_TEMP.equals(column)) {
+            return mMinTemps[day];
+        } else if (WeatherContract.WeatherEntry.COLUMN_SHORT_DESC.equals(column)) {
+            return mDescriptions[day];
+        } else if (WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING.equals(column)) {
+            return mLocationSetting;
+        } else if (WeatherContract.LocationEntry.COLUMN_COORD_LAT.equals(column)) {
+            return mLatitude;
+        } else if (WeatherContract.LocationEntry.COLUMN_COORD_LONG.equals(column)) {
+            return mLongitude;
+        }
+        return null;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void closeQuietly(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Error closing forecast snapshot", e);
+            }
+        }
+    }
+}
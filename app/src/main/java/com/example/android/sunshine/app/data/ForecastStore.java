@@ -0,0 +1,142 @@
+package com.example.android.sunshine.app.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide, in-memory copy of the forecast rows most recently read from the provider, keyed
+ * by location setting and normalized date.
+ *
+ * ForecastFragment publishes every cursor its loader delivers, so the database is read once per
+ * change. DetailFragment looks its day up here first and only falls back to its own
+ * CursorLoader on a miss.
+ *
+ * The store is bounded: it keeps the first {@link #MAX_DAYS_PER_LOCATION} days of the
+ * {@link #MAX_LOCATIONS} most recently used locations and drops the rest.
+ */
+public class ForecastStore {
+
+    /**
+     * Notified on the publishing thread (the main thread for loader callbacks) whenever the
+     * forecast for a location is replaced.
+     */
+    public interface Listener {
+        void onForecastChanged(String locationSetting);
+    }
+
+    /**
+     * One day of forecast for one location, with every field the list and detail views show.
+     */
+    public static class Entry {
+        public final long date;
+        public final int weatherId;
+        public final String description;
+        public final double high;
+        public final double low;
+        public final float humidity;
+        public final float pressure;
+        public final float windSpeed;
+        public final float degrees;
+
+        public Entry(long date, int weatherId, String description, double high, double low,
+                     float humidity, float pressure, float windSpeed, float degrees) {
+            this.date = date;
+            this.weatherId = weatherId;
+            this.description = description;
+            this.high = high;
+            this.low = low;
+            this.humidity = humidity;
+            this.pressure = pressure;
+            this.windSpeed = windSpeed;
+            this.degrees = degrees;
+        }
+    }
+
+    static final int MAX_LOCATIONS = 3;
+    static final int MAX_DAYS_PER_LOCATION = 16;
+
+    private static ForecastStore sInstance;
+
+    // Access-ordered so that the eldest entry is the least recently used location.
+    private final Map<String, Map<Long, Entry>> mForecasts =
+            new LinkedHashMap<String, Map<Long, Entry>>(MAX_LOCATIONS + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Map<Long, Entry>> eldest) {
+                    return size() > MAX_LOCATIONS;
+                }
+            };
+    private final List<Listener> mListeners = new CopyOnWriteArrayList<Listener>();
+
+    public static synchronized ForecastStore getInstance() {
+        if (sInstance == null) {
+            sInstance = new ForecastStore();
+        }
+        return sInstance;
+    }
+
+    ForecastStore() {
+    }
+
+    /**
+     * Replaces everything known about locationSetting with entries and notifies listeners. Only
+     * the earliest {@link #MAX_DAYS_PER_LOCATION} days are kept.
+     */
+    public void publish(String locationSetting, List<Entry> entries) {
+        List<Entry> sorted = new ArrayList<Entry>(entries);
+        Collections.sort(sorted, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry lhs, Entry rhs) {
+                return lhs.date < rhs.date ? -1 : (lhs.date == rhs.date ? 0 : 1);
+            }
+        });
+        int days = Math.min(sorted.size(), MAX_DAYS_PER_LOCATION);
+        Map<Long, Entry> byDate = new HashMap<Long, Entry>(days * 2);
+        for (int i = 0; i < days; i++) {
+            byDate.put(sorted.get(i).date, sorted.get(i));
+        }
+        synchronized (this) {
+            mForecasts.put(locationSetting, byDate);
+        }
+        for (Listener listener : mListeners) {
+            listener.onForecastChanged(locationSetting);
+        }
+    }
+
+    /**
+     * @param date A date normalized with {@link WeatherContract#normalizeDate(long)}
+     * @return the entry for that day, or null if it has not been published.
+     */
+    public synchronized Entry get(String locationSetting, long date) {
+        Map<Long, Entry> byDate = mForecasts.get(locationSetting);
+        return byDate == null ? null : byDate.get(date);
+    }
+
+    /**
+     * @return a copy of the published entries for locationSetting, in no particular order.
+     */
+    public synchronized List<Entry> getAll(String locationSetting) {
+        Map<Long, Entry> byDate = mForecasts.get(locationSetting);
+        if (byDate == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<Entry>(byDate.values());
+    }
+
+    public synchronized void clear() {
+        mForecasts.clear();
+    }
+
+    public void registerListener(Listener listener) {
+        mListeners.add(listener);
+    }
+
+    public void unregisterListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+}
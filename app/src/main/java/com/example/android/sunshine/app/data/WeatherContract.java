@@ -19,7 +19,10 @@ import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.net.Uri;
 import android.provider.BaseColumns;
-import android.text.format.Time;
+
+import com.example.android.sunshine.core.SunshineDates;
+
+import java.util.TimeZone;
 
 /**
  * Defines table and column names for the weather database.
@@ -42,15 +45,13 @@ public class WeatherContract {
     // At least, let's hope not.  Don't be that dev, reader.  Don't be that dev.
     public static final String PATH_WEATHER = "weather";
     public static final String PATH_LOCATION = "location";
+    public static final String PATH_CURRENT = "current";
+    public static final String PATH_SYNC_RUN = "sync_run";
 
     // To make it easy to query for the exact date, we normalize all dates that go into
-    // the database to the start of the the Julian day at UTC.
+    // the database to the start of their Julian day in the device's time zone.
     public static long normalizeDate(long startDate) {
-        // normalize the start date to the beginning of the (UTC) day
-        Time time = new Time();
-        time.set(startDate);
-        int julianDay = Time.getJulianDay(startDate, time.gmtoff);
-        return time.setJulianDay(julianDay);
+        return SunshineDates.normalizeDate(startDate, TimeZone.getDefault());
     }
 
     /*
@@ -72,6 +73,18 @@ public class WeatherContract {
         public static final String COLUMN_COORD_LAT = "coord_lat";
         public static final String COLUMN_COORD_LONG = "coord_long";
 
+        // Openweathermap's id for the city, which lets several locations be fetched in one
+        // request. Null until the API has returned it.
+        public static final String COLUMN_CITY_ID = "city_id";
+
+        // When the daily forecast of this location was last stored, in milliseconds since the
+        // epoch, whether or not any day changed. Null until the first sync.
+        public static final String COLUMN_LAST_FETCHED = "last_fetched";
+
+        // The GeoHash of the coordinates at GeoHash.MAX_PRECISION, filled in by the provider on
+        // insert. Locations whose hashes share a prefix lie in the same cell.
+        public static final String COLUMN_GEOHASH = "geohash";
+
         public static final Uri CONTENT_URI =
                 BASE_CONTENT_URI.buildUpon().appendPath(PATH_LOCATION).build();
 
@@ -85,6 +98,105 @@ public class WeatherContract {
         }
     }
 
+    /*
+        Inner class that defines the table contents of the forecast list table. This is a
+        denormalized copy of weather joined with location, kept up to date by triggers on both
+        tables, so that list queries by location setting don't need the join. It has every
+        WeatherEntry and LocationEntry column except the location _ID; its _ID is the weather _ID.
+        It is read through WeatherEntry URIs and never written directly.
+     */
+    public static final class ForecastListEntry implements BaseColumns {
+        public static final String TABLE_NAME = "forecast_list";
+    }
+
+    /*
+        Inner class that defines the table contents of the current conditions table. Current
+        conditions are refreshed more often than the daily forecast and stored apart from it,
+        one row per location, replaced on every fetch.
+     */
+    public static final class CurrentEntry implements BaseColumns {
+
+        public static final String TABLE_NAME = "current";
+
+        // Column with the foreign key into the location table, unique.
+        public static final String COLUMN_LOC_KEY = "location_id";
+        // When the conditions were observed, in milliseconds since the epoch. Not normalized.
+        public static final String COLUMN_DATE = "observed";
+        public static final String COLUMN_WEATHER_ID = "weather_id";
+        public static final String COLUMN_SHORT_DESC = "short_desc";
+        // Current temperature, in Celsius like the forecast temperatures.
+        public static final String COLUMN_TEMP = "temp";
+        public static final String COLUMN_HUMIDITY = "humidity";
+        public static final String COLUMN_PRESSURE = "pressure";
+        public static final String COLUMN_WIND_SPEED = "wind";
+        public static final String COLUMN_DEGREES = "degrees";
+
+        public static final Uri CONTENT_URI =
+                BASE_CONTENT_URI.buildUpon().appendPath(PATH_CURRENT).build();
+
+        public static final String CONTENT_DIR_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_CURRENT;
+        public static final String CONTENT_ITEM_TYPE =
+                ContentResolver.CURSOR_ITEM_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_CURRENT;
+
+        public static Uri buildCurrentUri(long id) {
+            return ContentUris.withAppendedId(CONTENT_URI, id);
+        }
+
+        public static Uri buildCurrentLocation(String locationSetting) {
+            return CONTENT_URI.buildUpon().appendPath(locationSetting).build();
+        }
+
+        public static String getLocationSettingFromUri(Uri uri) {
+            return uri.getPathSegments().get(1);
+        }
+    }
+
+    /*
+        Inner class that defines the table contents of the sync run table: one row per run of the
+        sync adapter, for analysing sync behaviour from a pulled database. Only the latest
+        MAX_ROWS runs are kept; every insert drops the oldest beyond that.
+     */
+    public static final class SyncRunEntry implements BaseColumns {
+
+        public static final String TABLE_NAME = "sync_run";
+
+        public static final int MAX_ROWS = 200;
+
+        // When the run started, in milliseconds since the epoch.
+        public static final String COLUMN_STARTED = "started";
+        // What asked for the run, "manual" or "periodic".
+        public static final String COLUMN_TRIGGER = "trigger";
+        // The location the run was for; current conditions of other saved locations may have
+        // been refreshed too.
+        public static final String COLUMN_LOCATION_SETTING = "location_setting";
+        // How the run ended: "success", "cancelled", "deadline_exceeded", "http_" + the status
+        // code, and so on.
+        public static final String COLUMN_OUTCOME = "outcome";
+
+        // Wall time of the whole run, and the parts of it spent in each stage, in milliseconds.
+        // Fetching includes retries and waits for the rate limiter.
+        public static final String COLUMN_DURATION = "duration";
+        public static final String COLUMN_FETCH_DURATION = "fetch_duration";
+        public static final String COLUMN_PARSE_DURATION = "parse_duration";
+        public static final String COLUMN_WRITE_DURATION = "write_duration";
+
+        // Response bytes read off the network, compressed if the server gzipped them.
+        public static final String COLUMN_BYTES_RECEIVED = "bytes_received";
+        // Weather and current conditions rows written.
+        public static final String COLUMN_ROWS_WRITTEN = "rows_written";
+
+        public static final Uri CONTENT_URI =
+                BASE_CONTENT_URI.buildUpon().appendPath(PATH_SYNC_RUN).build();
+
+        public static final String CONTENT_DIR_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_SYNC_RUN;
+
+        public static Uri buildSyncRunUri(long id) {
+            return ContentUris.withAppendedId(CONTENT_URI, id);
+        }
+    }
+
     /* Inner class that defines the table contents of the weather table */
     public static final class WeatherEntry implements BaseColumns {
 
@@ -19,7 +19,10 @@ import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+import com.example.android.sunshine.app.data.WeatherContract.CurrentEntry;
+import com.example.android.sunshine.app.data.WeatherContract.ForecastListEntry;
 import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.SyncRunEntry;
 import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
 
 /**
@@ -28,7 +31,7 @@ import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
 public class WeatherDbHelper extends SQLiteOpenHelper {
 
     // If you change the database schema, you must increment the database version.
-    private static final int DATABASE_VERSION = 2;
+    private static final int DATABASE_VERSION = 8;
 
     static final String DATABASE_NAME = "weather.db";
 
@@ -43,9 +46,16 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
                 LocationEntry.COLUMN_LOCATION_SETTING + " TEXT UNIQUE NOT NULL, " +
                 LocationEntry.COLUMN_CITY_NAME + " TEXT NOT NULL, " +
                 LocationEntry.COLUMN_COORD_LAT + " REAL NOT NULL, " +
-                LocationEntry.COLUMN_COORD_LONG + " REAL NOT NULL " +
+                LocationEntry.COLUMN_COORD_LONG + " REAL NOT NULL, " +
+                LocationEntry.COLUMN_CITY_ID + " INTEGER, " +
+                LocationEntry.COLUMN_LAST_FETCHED + " INTEGER, " +
+                LocationEntry.COLUMN_GEOHASH + " TEXT " +
                 ");";
 
+        // Lets "geohash >= cell AND geohash < end of cell" find the locations in a cell.
+        final String SQL_CREATE_LOCATION_GEOHASH_INDEX = "CREATE INDEX location_geohash ON " +
+                LocationEntry.TABLE_NAME + " (" + LocationEntry.COLUMN_GEOHASH + ");";
+
         final String SQL_CREATE_WEATHER_TABLE = "CREATE TABLE " + WeatherEntry.TABLE_NAME + " (" +
                 // Why AutoIncrement here, and not above?
                 // Unique keys will be auto-generated in either case.  But for weather
@@ -77,8 +87,144 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
                 " UNIQUE (" + WeatherEntry.COLUMN_DATE + ", " +
                 WeatherEntry.COLUMN_LOC_KEY + ") ON CONFLICT REPLACE);";
 
+        final String SQL_CREATE_CURRENT_TABLE = "CREATE TABLE " + CurrentEntry.TABLE_NAME + " (" +
+                CurrentEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                CurrentEntry.COLUMN_LOC_KEY + " INTEGER NOT NULL, " +
+                CurrentEntry.COLUMN_DATE + " INTEGER NOT NULL, " +
+                CurrentEntry.COLUMN_SHORT_DESC + " TEXT NOT NULL, " +
+                CurrentEntry.COLUMN_WEATHER_ID + " INTEGER NOT NULL, " +
+                CurrentEntry.COLUMN_TEMP + " REAL NOT NULL, " +
+                CurrentEntry.COLUMN_HUMIDITY + " REAL NOT NULL, " +
+                CurrentEntry.COLUMN_PRESSURE + " REAL NOT NULL, " +
+                CurrentEntry.COLUMN_WIND_SPEED + " REAL NOT NULL, " +
+                CurrentEntry.COLUMN_DEGREES + " REAL NOT NULL, " +
+                " FOREIGN KEY (" + CurrentEntry.COLUMN_LOC_KEY + ") REFERENCES " +
+                LocationEntry.TABLE_NAME + " (" + LocationEntry._ID + "), " +
+                // Only the latest observation is kept: a new one replaces the old row.
+                " UNIQUE (" + CurrentEntry.COLUMN_LOC_KEY + ") ON CONFLICT REPLACE);";
+
+        final String SQL_CREATE_SYNC_RUN_TABLE = "CREATE TABLE " + SyncRunEntry.TABLE_NAME + " (" +
+                // AUTOINCREMENT keeps ids in insertion order, which trimming the history relies on.
+                SyncRunEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                SyncRunEntry.COLUMN_STARTED + " INTEGER NOT NULL, " +
+                SyncRunEntry.COLUMN_TRIGGER + " TEXT NOT NULL, " +
+                SyncRunEntry.COLUMN_LOCATION_SETTING + " TEXT, " +
+                SyncRunEntry.COLUMN_OUTCOME + " TEXT NOT NULL, " +
+                SyncRunEntry.COLUMN_DURATION + " INTEGER NOT NULL, " +
+                SyncRunEntry.COLUMN_FETCH_DURATION + " INTEGER NOT NULL, " +
+                SyncRunEntry.COLUMN_PARSE_DURATION + " INTEGER NOT NULL, " +
+                SyncRunEntry.COLUMN_WRITE_DURATION + " INTEGER NOT NULL, " +
+                SyncRunEntry.COLUMN_BYTES_RECEIVED + " INTEGER NOT NULL, " +
+                SyncRunEntry.COLUMN_ROWS_WRITTEN + " INTEGER NOT NULL);";
+
         sqLiteDatabase.execSQL(SQL_CREATE_LOCATION_TABLE);
+        sqLiteDatabase.execSQL(SQL_CREATE_LOCATION_GEOHASH_INDEX);
         sqLiteDatabase.execSQL(SQL_CREATE_WEATHER_TABLE);
+        sqLiteDatabase.execSQL(SQL_CREATE_CURRENT_TABLE);
+        sqLiteDatabase.execSQL(SQL_CREATE_SYNC_RUN_TABLE);
+        createForecastListTable(sqLiteDatabase);
+    }
+
+    /**
+     * Creates the denormalized forecast list table and the triggers that keep it in step with
+     * the weather and location tables. Because they are triggers, every write to the base tables
+     * updates the forecast list in the same transaction.
+     */
+    private void createForecastListTable(SQLiteDatabase sqLiteDatabase) {
+        final String SQL_CREATE_FORECAST_LIST_TABLE = "CREATE TABLE " + ForecastListEntry.TABLE_NAME + " (" +
+                ForecastListEntry._ID + " INTEGER PRIMARY KEY, " +
+                WeatherEntry.COLUMN_LOC_KEY + " INTEGER NOT NULL, " +
+                WeatherEntry.COLUMN_DATE + " INTEGER NOT NULL, " +
+                WeatherEntry.COLUMN_SHORT_DESC + " TEXT NOT NULL, " +
+                WeatherEntry.COLUMN_WEATHER_ID + " INTEGER NOT NULL, " +
+                WeatherEntry.COLUMN_MIN_TEMP + " REAL NOT NULL, " +
+                WeatherEntry.COLUMN_MAX_TEMP + " REAL NOT NULL, " +
+                WeatherEntry.COLUMN_HUMIDITY + " REAL NOT NULL, " +
+                WeatherEntry.COLUMN_PRESSURE + " REAL NOT NULL, " +
+                WeatherEntry.COLUMN_WIND_SPEED + " REAL NOT NULL, " +
+                WeatherEntry.COLUMN_DEGREES + " REAL NOT NULL, " +
+                LocationEntry.COLUMN_LOCATION_SETTING + " TEXT NOT NULL, " +
+                LocationEntry.COLUMN_CITY_NAME + " TEXT NOT NULL, " +
+                LocationEntry.COLUMN_COORD_LAT + " REAL NOT NULL, " +
+                LocationEntry.COLUMN_COORD_LONG + " REAL NOT NULL, " +
+                LocationEntry.COLUMN_LAST_FETCHED + " INTEGER, " +
+                // Mirrors the weather table: a replaced weather row replaces its copy here too.
+                " UNIQUE (" + WeatherEntry.COLUMN_DATE + ", " +
+                WeatherEntry.COLUMN_LOC_KEY + ") ON CONFLICT REPLACE);";
+
+        // Lets "location_setting = ? AND date >= ? ORDER BY date" be answered from the index
+        // alone, already in display order.
+        final String SQL_CREATE_FORECAST_LIST_INDEX = "CREATE INDEX forecast_list_location_date ON " +
+                ForecastListEntry.TABLE_NAME + " (" +
+                LocationEntry.COLUMN_LOCATION_SETTING + ", " + WeatherEntry.COLUMN_DATE + ");";
+
+        final String weatherColumns = WeatherEntry.COLUMN_LOC_KEY + ", " +
+                WeatherEntry.COLUMN_DATE + ", " +
+                WeatherEntry.COLUMN_SHORT_DESC + ", " +
+                WeatherEntry.COLUMN_WEATHER_ID + ", " +
+                WeatherEntry.COLUMN_MIN_TEMP + ", " +
+                WeatherEntry.COLUMN_MAX_TEMP + ", " +
+                WeatherEntry.COLUMN_HUMIDITY + ", " +
+                WeatherEntry.COLUMN_PRESSURE + ", " +
+                WeatherEntry.COLUMN_WIND_SPEED + ", " +
+                WeatherEntry.COLUMN_DEGREES;
+        final String locationColumns = LocationEntry.COLUMN_LOCATION_SETTING + ", " +
+                LocationEntry.COLUMN_CITY_NAME + ", " +
+                LocationEntry.COLUMN_COORD_LAT + ", " +
+                LocationEntry.COLUMN_COORD_LONG + ", " +
+                LocationEntry.COLUMN_LAST_FETCHED;
+
+        // INSERT OR REPLACE INTO forecast_list (_id, <weather columns>, <location columns>)
+        // SELECT new._id, new.<weather columns>, <location columns> FROM location WHERE _id = new.location_id
+        final String insertNewWeatherRow = "INSERT OR REPLACE INTO " + ForecastListEntry.TABLE_NAME +
+                " (" + ForecastListEntry._ID + ", " + weatherColumns + ", " + locationColumns + ")" +
+                " SELECT new." + WeatherEntry._ID + ", " +
+                "new." + weatherColumns.replace(", ", ", new.") + ", " + locationColumns +
+                " FROM " + LocationEntry.TABLE_NAME +
+                " WHERE " + LocationEntry._ID + " = new." + WeatherEntry.COLUMN_LOC_KEY + ";";
+
+        final String SQL_CREATE_WEATHER_INSERT_TRIGGER = "CREATE TRIGGER weather_insert_forecast_list" +
+                " AFTER INSERT ON " + WeatherEntry.TABLE_NAME + " BEGIN " +
+                insertNewWeatherRow +
+                " END;";
+
+        final String SQL_CREATE_WEATHER_UPDATE_TRIGGER = "CREATE TRIGGER weather_update_forecast_list" +
+                " AFTER UPDATE ON " + WeatherEntry.TABLE_NAME + " BEGIN " +
+                "DELETE FROM " + ForecastListEntry.TABLE_NAME +
+                " WHERE " + ForecastListEntry._ID + " = old." + WeatherEntry._ID + "; " +
+                insertNewWeatherRow +
+                " END;";
+
+        final String SQL_CREATE_WEATHER_DELETE_TRIGGER = "CREATE TRIGGER weather_delete_forecast_list" +
+                " AFTER DELETE ON " + WeatherEntry.TABLE_NAME + " BEGIN " +
+                "DELETE FROM " + ForecastListEntry.TABLE_NAME +
+                " WHERE " + ForecastListEntry._ID + " = old." + WeatherEntry._ID + ";" +
+                " END;";
+
+        final String SQL_CREATE_LOCATION_UPDATE_TRIGGER = "CREATE TRIGGER location_update_forecast_list" +
+                " AFTER UPDATE ON " + LocationEntry.TABLE_NAME + " BEGIN " +
+                "UPDATE " + ForecastListEntry.TABLE_NAME + " SET " +
+                LocationEntry.COLUMN_LOCATION_SETTING + " = new." + LocationEntry.COLUMN_LOCATION_SETTING + ", " +
+                LocationEntry.COLUMN_CITY_NAME + " = new." + LocationEntry.COLUMN_CITY_NAME + ", " +
+                LocationEntry.COLUMN_COORD_LAT + " = new." + LocationEntry.COLUMN_COORD_LAT + ", " +
+                LocationEntry.COLUMN_COORD_LONG + " = new." + LocationEntry.COLUMN_COORD_LONG + ", " +
+                LocationEntry.COLUMN_LAST_FETCHED + " = new." + LocationEntry.COLUMN_LAST_FETCHED +
+                " WHERE " + WeatherEntry.COLUMN_LOC_KEY + " = new." + LocationEntry._ID + ";" +
+                " END;";
+
+        final String SQL_CREATE_LOCATION_DELETE_TRIGGER = "CREATE TRIGGER location_delete_forecast_list" +
+                " AFTER DELETE ON " + LocationEntry.TABLE_NAME + " BEGIN " +
+                "DELETE FROM " + ForecastListEntry.TABLE_NAME +
+                " WHERE " + WeatherEntry.COLUMN_LOC_KEY + " = old." + LocationEntry._ID + ";" +
+                " END;";
+
+        sqLiteDatabase.execSQL(SQL_CREATE_FORECAST_LIST_TABLE);
+        sqLiteDatabase.execSQL(SQL_CREATE_FORECAST_LIST_INDEX);
+        sqLiteDatabase.execSQL(SQL_CREATE_WEATHER_INSERT_TRIGGER);
+        sqLiteDatabase.execSQL(SQL_CREATE_WEATHER_UPDATE_TRIGGER);
+        sqLiteDatabase.execSQL(SQL_CREATE_WEATHER_DELETE_TRIGGER);
+        sqLiteDatabase.execSQL(SQL_CREATE_LOCATION_UPDATE_TRIGGER);
+        sqLiteDatabase.execSQL(SQL_CREATE_LOCATION_DELETE_TRIGGER);
     }
 
     @Override
@@ -91,6 +237,9 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
         // should be your top priority before modifying this method.
         sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + LocationEntry.TABLE_NAME);
         sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + WeatherEntry.TABLE_NAME);
+        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + ForecastListEntry.TABLE_NAME);
+        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + CurrentEntry.TABLE_NAME);
+        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + SyncRunEntry.TABLE_NAME);
         onCreate(sqLiteDatabase);
     }
 }
@@ -17,13 +17,24 @@ package com.example.android.sunshine.app.data;
 
 import android.annotation.TargetApi;
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
 
+import com.example.android.sunshine.core.CancellationToken;
+import com.example.android.sunshine.core.CancelledException;
+import com.example.android.sunshine.core.ForecastBatch;
+import com.example.android.sunshine.core.GeoHash;
+
+import java.util.ArrayList;
+
 public class WeatherProvider extends ContentProvider {
 
     // The URI Matcher used by this content provider.
@@ -34,6 +45,9 @@ public class WeatherProvider extends ContentProvider {
     static final int WEATHER_WITH_LOCATION = 101;
     static final int WEATHER_WITH_LOCATION_AND_DATE = 102;
     static final int LOCATION = 300;
+    static final int CURRENT = 400;
+    static final int CURRENT_WITH_LOCATION = 401;
+    static final int SYNC_RUN = 500;
 
     private static final SQLiteQueryBuilder sWeatherByLocationSettingQueryBuilder;
 
@@ -51,16 +65,33 @@ public class WeatherProvider extends ContentProvider {
                         "." + WeatherContract.LocationEntry._ID);
     }
 
-    //location.location_setting = ?
-    private static final String sLocationSettingSelection =
-            WeatherContract.LocationEntry.TABLE_NAME+
-                    "." + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ? ";
+    private static final SQLiteQueryBuilder sCurrentByLocationSettingQueryBuilder;
 
-    //location.location_setting = ? AND date >= ?
-    private static final String sLocationSettingWithStartDateSelection =
-            WeatherContract.LocationEntry.TABLE_NAME+
-                    "." + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ? AND " +
-                    WeatherContract.WeatherEntry.COLUMN_DATE + " >= ? ";
+    static {
+        sCurrentByLocationSettingQueryBuilder = new SQLiteQueryBuilder();
+
+        //current INNER JOIN location ON current.location_id = location._id
+        sCurrentByLocationSettingQueryBuilder.setTables(
+                WeatherContract.CurrentEntry.TABLE_NAME + " INNER JOIN " +
+                        WeatherContract.LocationEntry.TABLE_NAME +
+                        " ON " + WeatherContract.CurrentEntry.TABLE_NAME +
+                        "." + WeatherContract.CurrentEntry.COLUMN_LOC_KEY +
+                        " = " + WeatherContract.LocationEntry.TABLE_NAME +
+                        "." + WeatherContract.LocationEntry._ID);
+    }
+
+    private static final String sInsertWeatherSql = "INSERT INTO " + WeatherContract.WeatherEntry.TABLE_NAME + " (" +
+            WeatherContract.WeatherEntry.COLUMN_LOC_KEY + ", " +
+            WeatherContract.WeatherEntry.COLUMN_DATE + ", " +
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID + ", " +
+            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC + ", " +
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP + ", " +
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP + ", " +
+            WeatherContract.WeatherEntry.COLUMN_HUMIDITY + ", " +
+            WeatherContract.WeatherEntry.COLUMN_PRESSURE + ", " +
+            WeatherContract.WeatherEntry.COLUMN_WIND_SPEED + ", " +
+            WeatherContract.WeatherEntry.COLUMN_DEGREES +
+            ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
     //location.location_setting = ? AND date = ?
     private static final String sLocationSettingAndDaySelection =
@@ -68,6 +99,22 @@ public class WeatherProvider extends ContentProvider {
                     "." + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ? AND " +
                     WeatherContract.WeatherEntry.COLUMN_DATE + " = ? ";
 
+    //location.location_setting = ?
+    private static final String sLocationSettingSelection =
+            WeatherContract.LocationEntry.TABLE_NAME +
+                    "." + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ? ";
+
+    //forecast_list.location_setting = ?
+    private static final String sForecastListLocationSettingSelection =
+            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ? ";
+
+    //forecast_list.location_setting = ? AND date >= ?
+    private static final String sForecastListLocationSettingWithStartDateSelection =
+            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ? AND " +
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " >= ? ";
+
+    // List queries read the denormalized forecast_list table, which already carries the
+    // location columns, instead of joining weather with location.
     private Cursor getWeatherByLocationSetting(Uri uri, String[] projection, String sortOrder) {
         String locationSetting = WeatherContract.WeatherEntry.getLocationSettingFromUri(uri);
         long startDate = WeatherContract.WeatherEntry.getStartDateFromUri(uri);
@@ -76,14 +123,14 @@ public class WeatherProvider extends ContentProvider {
         String selection;
 
         if (startDate == 0) {
-            selection = sLocationSettingSelection;
+            selection = sForecastListLocationSettingSelection;
             selectionArgs = new String[]{locationSetting};
         } else {
-            selection = sLocationSettingWithStartDateSelection;
+            selection = sForecastListLocationSettingWithStartDateSelection;
             selectionArgs = new String[]{locationSetting, Long.toString(startDate)};
         }
 
-        return sWeatherByLocationSettingQueryBuilder.query(mOpenHelper.getReadableDatabase(),
+        return mOpenHelper.getReadableDatabase().query(WeatherContract.ForecastListEntry.TABLE_NAME,
                 projection,
                 selection,
                 selectionArgs,
@@ -108,6 +155,19 @@ public class WeatherProvider extends ContentProvider {
         );
     }
 
+    private Cursor getCurrentByLocationSetting(Uri uri, String[] projection, String sortOrder) {
+        String locationSetting = WeatherContract.CurrentEntry.getLocationSettingFromUri(uri);
+
+        return sCurrentByLocationSettingQueryBuilder.query(mOpenHelper.getReadableDatabase(),
+                projection,
+                sLocationSettingSelection,
+                new String[]{locationSetting},
+                null,
+                null,
+                sortOrder
+        );
+    }
+
     static UriMatcher buildUriMatcher() {
         UriMatcher uriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
 
@@ -115,6 +175,9 @@ public class WeatherProvider extends ContentProvider {
         uriMatcher.addURI(WeatherContract.CONTENT_AUTHORITY, WeatherContract.PATH_WEATHER + "/*", WEATHER_WITH_LOCATION);
         uriMatcher.addURI(WeatherContract.CONTENT_AUTHORITY, WeatherContract.PATH_WEATHER + "/*/#", WEATHER_WITH_LOCATION_AND_DATE);
         uriMatcher.addURI(WeatherContract.CONTENT_AUTHORITY, WeatherContract.PATH_LOCATION, LOCATION);
+        uriMatcher.addURI(WeatherContract.CONTENT_AUTHORITY, WeatherContract.PATH_CURRENT, CURRENT);
+        uriMatcher.addURI(WeatherContract.CONTENT_AUTHORITY, WeatherContract.PATH_CURRENT + "/*", CURRENT_WITH_LOCATION);
+        uriMatcher.addURI(WeatherContract.CONTENT_AUTHORITY, WeatherContract.PATH_SYNC_RUN, SYNC_RUN);
 
         return uriMatcher;
     }
@@ -140,6 +203,12 @@ public class WeatherProvider extends ContentProvider {
                 return WeatherContract.WeatherEntry.CONTENT_DIR_TYPE;
             case LOCATION:
                 return WeatherContract.LocationEntry.CONTENT_DIR_TYPE;
+            case CURRENT_WITH_LOCATION:
+                return WeatherContract.CurrentEntry.CONTENT_ITEM_TYPE;
+            case CURRENT:
+                return WeatherContract.CurrentEntry.CONTENT_DIR_TYPE;
+            case SYNC_RUN:
+                return WeatherContract.SyncRunEntry.CONTENT_DIR_TYPE;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
@@ -175,6 +244,25 @@ public class WeatherProvider extends ContentProvider {
                                               projection, selection, selectionArgs, null, null, sortOrder);
                 break;
             }
+            // "current/*"
+            case CURRENT_WITH_LOCATION: {
+                retCursor = getCurrentByLocationSetting(uri, projection, sortOrder);
+                break;
+            }
+            // "current"
+            case CURRENT: {
+                retCursor = mOpenHelper.getReadableDatabase()
+                                       .query(WeatherContract.CurrentEntry.TABLE_NAME,
+                                              projection, selection, selectionArgs, null, null, sortOrder);
+                break;
+            }
+            // "sync_run"
+            case SYNC_RUN: {
+                retCursor = mOpenHelper.getReadableDatabase()
+                                       .query(WeatherContract.SyncRunEntry.TABLE_NAME,
+                                              projection, selection, selectionArgs, null, null, sortOrder);
+                break;
+            }
 
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
@@ -203,13 +291,26 @@ public class WeatherProvider extends ContentProvider {
                 break;
             }
             case LOCATION:
-                long _id = db.insert(WeatherContract.LocationEntry.TABLE_NAME, null, values);
+                long _id = db.insert(WeatherContract.LocationEntry.TABLE_NAME, null, withGeoHash(values));
                 if (_id > 0) {
                     returnUri = WeatherContract.LocationEntry.buildLocationUri(_id);
                 } else {
                     throw new android.database.SQLException("Failed to insert row into " + uri);
                 }
                 break;
+            case CURRENT: {
+                long _id = db.insert(WeatherContract.CurrentEntry.TABLE_NAME, null, values);
+                if (_id > 0) {
+                    returnUri = WeatherContract.CurrentEntry.buildCurrentUri(_id);
+                } else {
+                    throw new android.database.SQLException("Failed to insert row into " + uri);
+                }
+                break;
+            }
+            case SYNC_RUN: {
+                returnUri = WeatherContract.SyncRunEntry.buildSyncRunUri(insertSyncRun(db, values));
+                break;
+            }
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
@@ -229,6 +330,12 @@ public class WeatherProvider extends ContentProvider {
             case LOCATION:
                 rowsDeleted = db.delete(WeatherContract.LocationEntry.TABLE_NAME, selection, selectionArgs);
                 break;
+            case CURRENT:
+                rowsDeleted = db.delete(WeatherContract.CurrentEntry.TABLE_NAME, selection, selectionArgs);
+                break;
+            case SYNC_RUN:
+                rowsDeleted = db.delete(WeatherContract.SyncRunEntry.TABLE_NAME, selection, selectionArgs);
+                break;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
@@ -241,6 +348,29 @@ public class WeatherProvider extends ContentProvider {
         return rowsDeleted;
     }
 
+    /**
+     * Inserts a sync run and, in the same transaction, drops the runs older than the latest
+     * {@link WeatherContract.SyncRunEntry#MAX_ROWS}.
+     *
+     * @return the row id of the run
+     */
+    private static long insertSyncRun(SQLiteDatabase db, ContentValues values) {
+        long _id;
+        db.beginTransaction();
+        try {
+            _id = db.insert(WeatherContract.SyncRunEntry.TABLE_NAME, null, values);
+            if (_id <= 0) {
+                throw new android.database.SQLException("Failed to insert sync run");
+            }
+            db.delete(WeatherContract.SyncRunEntry.TABLE_NAME, WeatherContract.SyncRunEntry._ID + " <= ?",
+                    new String[]{Long.toString(_id - WeatherContract.SyncRunEntry.MAX_ROWS)});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return _id;
+    }
+
     private void normalizeDate(ContentValues values) {
         // normalize the date value
         if (values.containsKey(WeatherContract.WeatherEntry.COLUMN_DATE)) {
@@ -262,6 +392,9 @@ public class WeatherProvider extends ContentProvider {
             case LOCATION:
                 rowsUpdated = db.update(WeatherContract.LocationEntry.TABLE_NAME, values, selection, selectionArgs);
                 break;
+            case CURRENT:
+                rowsUpdated = db.update(WeatherContract.CurrentEntry.TABLE_NAME, values, selection, selectionArgs);
+                break;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
@@ -300,6 +433,120 @@ public class WeatherProvider extends ContentProvider {
         }
     }
 
+    /**
+     * The sync adapter's write of a fetched forecast window: stores the days of batch, which may
+     * be only those that changed, and deletes the days of the location outside
+     * [keepFrom, keepUntil), all in one transaction. Days before keepFrom are deleted for every
+     * location, so old days of locations no longer synced don't pile up. The location is stamped
+     * with fetchedAt in the same transaction, so the stamp always dates the stored window. The
+     * days are bound straight into a compiled statement, not a ContentValues each.
+     *
+     * Readers see either the previous window or the new one, never a mix, and a sync that
+     * fails or is cancelled part way leaves the previous window as it was. Only callable
+     * in-process, through ContentProviderClient.getLocalContentProvider(); otherwise the same
+     * writes go through {@link #applyBatch(ArrayList)}, which is also a single transaction.
+     *
+     * @param keepFrom the start of the first day to keep, normalized like any other date
+     * @param keepUntil the start of the first day past the location's horizon
+     * @param fetchedAt when the window was fetched, in milliseconds since the epoch
+     * @return the number of rows written
+     * @throws CancelledException if cancellation was cancelled before the transaction committed
+     */
+    public int replaceForecast(long locationId, ForecastBatch batch, long keepFrom, long keepUntil,
+                               long fetchedAt, CancellationToken cancellation) throws CancelledException {
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        int returnCount;
+        db.beginTransaction();
+        try {
+            returnCount = insertForecast(db, locationId, batch, cancellation);
+            db.delete(WeatherContract.WeatherEntry.TABLE_NAME,
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " < ?",
+                    new String[]{Long.toString(WeatherContract.normalizeDate(keepFrom))});
+            db.delete(WeatherContract.WeatherEntry.TABLE_NAME,
+                    WeatherContract.WeatherEntry.COLUMN_LOC_KEY + " = ? AND " +
+                            WeatherContract.WeatherEntry.COLUMN_DATE + " >= ?",
+                    new String[]{Long.toString(locationId), Long.toString(WeatherContract.normalizeDate(keepUntil))});
+            ContentValues stamp = new ContentValues();
+            stamp.put(WeatherContract.LocationEntry.COLUMN_LAST_FETCHED, fetchedAt);
+            db.update(WeatherContract.LocationEntry.TABLE_NAME, stamp,
+                    WeatherContract.LocationEntry._ID + " = ?", new String[]{Long.toString(locationId)});
+            cancellation.throwIfCancelled();
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        getContext().getContentResolver().notifyChange(WeatherContract.WeatherEntry.CONTENT_URI, null);
+        return returnCount;
+    }
+
+    /**
+     * @return a copy of the location values with the geohash derived from their coordinates,
+     * or values itself if they bring their own or have no coordinates.
+     */
+    private static ContentValues withGeoHash(ContentValues values) {
+        Double lat = values.getAsDouble(WeatherContract.LocationEntry.COLUMN_COORD_LAT);
+        Double lon = values.getAsDouble(WeatherContract.LocationEntry.COLUMN_COORD_LONG);
+        if (values.containsKey(WeatherContract.LocationEntry.COLUMN_GEOHASH) || lat == null || lon == null) {
+            return values;
+        }
+        ContentValues withGeoHash = new ContentValues(values);
+        withGeoHash.put(WeatherContract.LocationEntry.COLUMN_GEOHASH, GeoHash.encode(lat, lon, GeoHash.MAX_PRECISION));
+        return withGeoHash;
+    }
+
+    /**
+     * Binds the days of batch into a compiled insert, checking cancellation before each row.
+     * The caller holds the transaction.
+     */
+    private static int insertForecast(SQLiteDatabase db, long locationId, ForecastBatch batch,
+                                      CancellationToken cancellation) throws CancelledException {
+        int returnCount = 0;
+        SQLiteStatement insert = db.compileStatement(sInsertWeatherSql);
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                cancellation.throwIfCancelled();
+                insert.bindLong(1, locationId);
+                insert.bindLong(2, WeatherContract.normalizeDate(batch.getDate(i)));
+                insert.bindLong(3, batch.getWeatherId(i));
+                String description = batch.getDescription(i);
+                if (description == null) {
+                    insert.bindNull(4);
+                } else {
+                    insert.bindString(4, description);
+                }
+                insert.bindDouble(5, batch.getLow(i));
+                insert.bindDouble(6, batch.getHigh(i));
+                insert.bindDouble(7, batch.getHumidity(i));
+                insert.bindDouble(8, batch.getPressure(i));
+                insert.bindDouble(9, batch.getWindSpeed(i));
+                insert.bindDouble(10, batch.getWindDirection(i));
+                if (insert.executeInsert() != -1) {
+                    returnCount++;
+                }
+            }
+        } finally {
+            insert.close();
+        }
+        return returnCount;
+    }
+
+    /**
+     * Applies operations in a single transaction, so a batch is stored whole or not at all.
+     */
+    @Override
+    public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentProviderResult[] results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+            return results;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
     // You do not need to call this method. This is a method specifically to assist the testing
     // framework in running smoothly. You can read more at:
     // http://developer.android.com/reference/android/content/ContentProvider.html#shutdown()
@@ -0,0 +1,105 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import com.example.android.sunshine.core.RateLimitedException;
+import com.example.android.sunshine.core.TokenBucket;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * The one {@link TokenBucket} that every request to the weather API passes through, whichever
+ * sync path makes it. Every install shares the same API key, so each one keeps its own request
+ * rate well under the key's quota.
+ *
+ * The bucket is saved to SharedPreferences after every request, so a restarted process, which
+ * the sync framework does freely, doesn't start with a full bucket.
+ *
+ * A user request that would get a token within {@link #MAX_USER_WAIT_MILLIS} waits for it.
+ * Anything else is refused with a {@link RateLimitedException} saying when to try again, and the
+ * sync adapter defers the sync until then.
+ */
+public class FetchRateLimiter {
+
+    private static final String LOG_TAG = FetchRateLimiter.class.getSimpleName();
+
+    // A burst of 30 requests, then one every 30 seconds.
+    static final int CAPACITY = 30;
+    static final long REFILL_MILLIS = 30 * 1000;
+    static final int USER_RESERVED_TOKENS = 5;
+    static final long MAX_USER_WAIT_MILLIS = 10 * 1000;
+
+    private static final String PREF_TOKENS = "rate_limit_tokens";
+    private static final String PREF_UPDATED_AT = "rate_limit_updated_at";
+
+    public static final String STAT_THROTTLED = "fetch_throttled";
+    public static final String STAT_THROTTLED_USER = "fetch_throttled_user";
+    public static final String STAT_THROTTLE_WAIT_MILLIS = "fetch_throttle_wait_millis";
+
+    private static FetchRateLimiter sInstance;
+
+    private final SharedPreferences mPrefs;
+    private final TokenBucket mBucket;
+    private final long mMaxUserWaitMillis;
+
+    public static synchronized FetchRateLimiter getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new FetchRateLimiter(PreferenceManager.getDefaultSharedPreferences(context),
+                    CAPACITY, REFILL_MILLIS, USER_RESERVED_TOKENS, MAX_USER_WAIT_MILLIS);
+        }
+        return sInstance;
+    }
+
+    FetchRateLimiter(SharedPreferences prefs, int capacity, long refillMillis, int reservedTokens,
+                     long maxUserWaitMillis) {
+        mPrefs = prefs;
+        mBucket = new TokenBucket(capacity, refillMillis, reservedTokens,
+                prefs.getFloat(PREF_TOKENS, capacity), prefs.getLong(PREF_UPDATED_AT, 0));
+        mMaxUserWaitMillis = maxUserWaitMillis;
+    }
+
+    /**
+     * Takes a token for one request to endpoint, waiting for it if the request is the user's
+     * and the wait is short.
+     *
+     * @throws RateLimitedException if no token is available to priority soon enough
+     * @throws InterruptedIOException if the thread was interrupted while waiting
+     */
+    public void acquire(TokenBucket.Priority priority, String endpoint) throws IOException {
+        long now = System.currentTimeMillis();
+        while (!mBucket.tryAcquire(priority, now)) {
+            long waitMillis = mBucket.getRetryAtMillis(priority, now) - now;
+            if (priority != TokenBucket.Priority.USER || waitMillis > mMaxUserWaitMillis) {
+                SyncStats.increment(STAT_THROTTLED);
+                if (priority == TokenBucket.Priority.USER) {
+                    SyncStats.increment(STAT_THROTTLED_USER);
+                }
+                save();
+                throw new RateLimitedException(endpoint, now + waitMillis);
+            }
+
+            Log.d(LOG_TAG, "Waiting " + waitMillis + "ms for a request token");
+            SyncStats.add(STAT_THROTTLE_WAIT_MILLIS, waitMillis);
+            try {
+                Thread.sleep(waitMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a request token");
+            }
+            now = System.currentTimeMillis();
+        }
+        save();
+    }
+
+    private void save() {
+        long now = System.currentTimeMillis();
+        mPrefs.edit()
+              .putFloat(PREF_TOKENS, (float) mBucket.getTokens(now))
+              .putLong(PREF_UPDATED_AT, mBucket.getUpdatedAtMillis())
+              .apply();
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.location.Address;
+import android.location.Geocoder;
+import android.util.Log;
+
+import com.example.android.sunshine.core.CancellationToken;
+import com.example.android.sunshine.core.Deadline;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Resolves a location setting, e.g. a postal code, to coordinates with the platform
+ * {@link Geocoder}, so that a location can be placed in its geohash cell before anything about
+ * it has been fetched.
+ *
+ * The Geocoder blocks on the network, so the lookup runs on a thread of its own and the sync
+ * waits for it no longer than {@link #TIMEOUT_MILLIS}, what is left of the sync's deadline, or
+ * until the sync is cancelled. A setting the Geocoder answered for but could not place is
+ * remembered and never looked up again; it is fetched like any other location instead. A lookup
+ * that failed or timed out, e.g. while offline, is tried again next sync.
+ */
+class SettingGeocoder {
+
+    private static final String LOG_TAG = SettingGeocoder.class.getSimpleName();
+
+    static final long TIMEOUT_MILLIS = 5 * 1000;
+
+    // Per location setting, set once the Geocoder found no coordinates for it.
+    private static final String PREF_GEOCODE_FAILED = "geocode_failed_";
+
+    // Lookups that failed or found nothing, and settings not looked up because they had found
+    // nothing before.
+    static final String STAT_GEOCODE_FAILURES = "geohash_geocode_failures";
+    static final String STAT_GEOCODE_SKIPPED = "geohash_geocode_skipped";
+
+    private static SettingGeocoder sInstance;
+
+    private final Context mContext;
+    // A lookup that never returns keeps its thread, so lookups don't queue behind one another.
+    private final ExecutorService mExecutor;
+
+    static synchronized SettingGeocoder getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new SettingGeocoder(context.getApplicationContext(), Executors.newCachedThreadPool());
+        }
+        return sInstance;
+    }
+
+    SettingGeocoder(Context context, ExecutorService executor) {
+        mContext = context;
+        mExecutor = executor;
+    }
+
+    /**
+     * @return where locationSetting is, or null if there is no Geocoder, the lookup failed, or
+     * it found nothing, in this sync or an earlier one
+     * @throws com.example.android.sunshine.core.CancelledException if cancellation was cancelled
+     * @throws com.example.android.sunshine.core.DeadlineExceededException if deadline passed
+     * while waiting for the lookup
+     * @throws InterruptedIOException if the thread was interrupted while waiting
+     */
+    Address geocode(SharedPreferences prefs, final String locationSetting, Deadline deadline,
+                    CancellationToken cancellation) throws IOException {
+        if (!isPresent()) {
+            return null;
+        }
+        String failedKey = PREF_GEOCODE_FAILED + locationSetting;
+        if (prefs.getBoolean(failedKey, false)) {
+            SyncStats.increment(STAT_GEOCODE_SKIPPED);
+            return null;
+        }
+        cancellation.throwIfCancelled();
+
+        final Future<Address> lookup = mExecutor.submit(new Callable<Address>() {
+            @Override
+            public Address call() throws IOException {
+                return lookup(locationSetting);
+            }
+        });
+        CancellationToken.Listener listener = new CancellationToken.Listener() {
+            @Override
+            public void onCancel() {
+                lookup.cancel(true);
+            }
+        };
+        cancellation.addListener(listener);
+        Address address = null;
+        try {
+            long timeout = Math.min(TIMEOUT_MILLIS, deadline.getRemainingMillis(System.currentTimeMillis()));
+            address = lookup.get(timeout, TimeUnit.MILLISECONDS);
+        } catch (CancellationException e) {
+            // Only the token cancels the lookup.
+            cancellation.throwIfCancelled();
+        } catch (InterruptedException e) {
+            lookup.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while geocoding " + locationSetting);
+        } catch (TimeoutException e) {
+            lookup.cancel(true);
+            deadline.check(System.currentTimeMillis());
+            // Slow rather than unknown: try it again next sync.
+            SyncStats.increment(STAT_GEOCODE_FAILURES);
+            Log.w(LOG_TAG, "Timed out geocoding " + locationSetting);
+            return null;
+        } catch (ExecutionException e) {
+            // Offline or the backend is unavailable: try it again next sync.
+            SyncStats.increment(STAT_GEOCODE_FAILURES);
+            Log.w(LOG_TAG, "Unable to geocode " + locationSetting, e.getCause());
+            return null;
+        } finally {
+            cancellation.removeListener(listener);
+        }
+        cancellation.throwIfCancelled();
+
+        if (address == null || !address.hasLatitude() || !address.hasLongitude()) {
+            SyncStats.increment(STAT_GEOCODE_FAILURES);
+            prefs.edit().putBoolean(failedKey, true).apply();
+            return null;
+        }
+        return address;
+    }
+
+    boolean isPresent() {
+        return Geocoder.isPresent();
+    }
+
+    /**
+     * Looks locationSetting up, blocking on the network.
+     *
+     * @return the best match, or null if there is none
+     */
+    Address lookup(String locationSetting) throws IOException {
+        List<Address> addresses = new Geocoder(mContext, Locale.getDefault()).getFromLocationName(locationSetting, 1);
+        return addresses == null || addresses.isEmpty() ? null : addresses.get(0);
+    }
+}
@@ -2,417 +2,1057 @@ package com.example.android.sunshine.app.sync;
 
 import android.accounts.Account;
 import android.accounts.AccountManager;
-import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.content.AbstractThreadedSyncAdapter;
 import android.content.ContentProviderClient;
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
-import android.content.Intent;
+import android.content.OperationApplicationException;
 import android.content.SharedPreferences;
 import android.content.SyncRequest;
 import android.content.SyncResult;
-import android.content.res.Resources;
 import android.database.Cursor;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.database.DatabaseUtils;
+import android.location.Address;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.RemoteException;
 import android.preference.PreferenceManager;
-import android.support.v4.app.NotificationCompat;
-import android.support.v4.app.TaskStackBuilder;
-import android.text.format.Time;
 import android.util.Log;
 
 import com.example.android.sunshine.app.BuildConfig;
-import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.ForecastSnapshot;
 import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherProvider;
+
+import com.example.android.sunshine.core.CancellationToken;
+import com.example.android.sunshine.core.CancelledException;
+import com.example.android.sunshine.core.CircuitBreaker;
+import com.example.android.sunshine.core.CityGroups;
+import com.example.android.sunshine.core.CircuitOpenException;
+import com.example.android.sunshine.core.CurrentConditions;
+import com.example.android.sunshine.core.Deadline;
+import com.example.android.sunshine.core.DeadlineExceededException;
+import com.example.android.sunshine.core.FetchRetrier;
+import com.example.android.sunshine.core.ForecastBatch;
+import com.example.android.sunshine.core.ForecastDiff;
+import com.example.android.sunshine.core.ForecastHttpClient;
+import com.example.android.sunshine.core.ForecastParseException;
+import com.example.android.sunshine.core.ForecastParser;
+import com.example.android.sunshine.core.ForecastWindow;
+import com.example.android.sunshine.core.FreshnessPolicy;
+import com.example.android.sunshine.core.GeoHash;
+import com.example.android.sunshine.core.HedgedFetcher;
+import com.example.android.sunshine.core.HttpStatusException;
+import com.example.android.sunshine.core.LatencyTracker;
+import com.example.android.sunshine.core.OwmCurrentConditionsParser;
+import com.example.android.sunshine.core.OwmForecastParser;
+import com.example.android.sunshine.core.ParsedForecast;
+import com.example.android.sunshine.core.RateLimitedException;
+import com.example.android.sunshine.core.RefreshSchedule;
+import com.example.android.sunshine.core.RefreshTier;
+import com.example.android.sunshine.core.ResponseTooLargeException;
+import com.example.android.sunshine.core.RetryPolicy;
+import com.example.android.sunshine.core.SunshineDates;
+import com.example.android.sunshine.core.TokenBucket;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.util.Vector;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
 
 public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
     public final String LOG_TAG = SunshineSyncAdapter.class.getSimpleName();
-    // Interval at which to sync with the weather, in seconds.
-    // 60 seconds (1 minute) * 180 = 3 hours
-    public static final int SYNC_INTERVAL = 60 * 180;
+    // Intervals at which each refresh tier is fetched, in seconds. Current conditions are small
+    // and change within hours; the daily forecast is larger and changes slowly.
+    // 60 seconds (1 minute) * 180 = 3 hours, * 720 = 12 hours
+    public static final int CURRENT_REFRESH_INTERVAL = 60 * 180;
+    public static final int DAILY_REFRESH_INTERVAL = 60 * 720;
+    // Periodic syncs run at the shortest tier interval and fetch whichever tiers are due.
+    public static final int SYNC_INTERVAL = Math.min(CURRENT_REFRESH_INTERVAL, DAILY_REFRESH_INTERVAL);
     public static final int SYNC_FLEXTIME = SYNC_INTERVAL/3;
-    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
-    private static final int WEATHER_NOTIFICATION_ID = 3004;
 
+    // Sync extra naming the location to fetch; periodic syncs use the preferred location.
+    static final String EXTRA_LOCATION_SETTING = "location_setting";
+    // Sync extra naming the SyncClass to run; syncs started by the framework are light.
+    static final String EXTRA_SYNC_CLASS = "sync_class";
+
+
+    // Every location the current tier keeps fresh.
+    private static final String[] SAVED_LOCATIONS_PROJECTION = new String[] {
+            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
+            WeatherContract.LocationEntry.COLUMN_CITY_ID
+    };
+
+    // these indices must match the projection
+    private static final int INDEX_SAVED_LOCATION_SETTING = 0;
+    private static final int INDEX_SAVED_CITY_ID = 1;
+
+    // Locations in a new location's geohash cell that might share their forecast with it.
+    private static final String[] NEARBY_LOCATIONS_PROJECTION = new String[] {
+            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING,
+            WeatherContract.LocationEntry.COLUMN_CITY_NAME,
+            WeatherContract.LocationEntry.COLUMN_CITY_ID,
+            WeatherContract.LocationEntry.COLUMN_LAST_FETCHED
+    };
+
+    // these indices must match the projection
+    private static final int INDEX_NEARBY_LOCATION_SETTING = 0;
+    private static final int INDEX_NEARBY_CITY_NAME = 1;
+    private static final int INDEX_NEARBY_CITY_ID = 2;
+    private static final int INDEX_NEARBY_LAST_FETCHED = 3;
+
+    // The current conditions a nearby location shares along with its forecast.
+    private static final String[] SHARED_CURRENT_COLUMNS = new String[] {
+            WeatherContract.CurrentEntry.COLUMN_DATE,
+            WeatherContract.CurrentEntry.COLUMN_SHORT_DESC,
+            WeatherContract.CurrentEntry.COLUMN_WEATHER_ID,
+            WeatherContract.CurrentEntry.COLUMN_TEMP,
+            WeatherContract.CurrentEntry.COLUMN_HUMIDITY,
+            WeatherContract.CurrentEntry.COLUMN_PRESSURE,
+            WeatherContract.CurrentEntry.COLUMN_WIND_SPEED,
+            WeatherContract.CurrentEntry.COLUMN_DEGREES
+    };
 
-    private static final String[] NOTIFY_WEATHER_PROJECTION = new String[] {
-            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+    // Read back to tell which fetched days actually changed.
+    private static final String[] STORED_DAYS_PROJECTION = new String[] {
+            WeatherContract.WeatherEntry.COLUMN_DATE,
+            WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+            WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
+            WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherContract.WeatherEntry.COLUMN_DEGREES,
             WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
             WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
-            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC
+            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID
     };
 
     // these indices must match the projection
-    private static final int INDEX_WEATHER_ID = 0;
-    private static final int INDEX_MAX_TEMP = 1;
-    private static final int INDEX_MIN_TEMP = 2;
-    private static final int INDEX_SHORT_DESC = 3;
+    private static final int INDEX_STORED_DATE = 0;
+    private static final int INDEX_STORED_PRESSURE = 1;
+    private static final int INDEX_STORED_HUMIDITY = 2;
+    private static final int INDEX_STORED_WIND_SPEED = 3;
+    private static final int INDEX_STORED_DEGREES = 4;
+    private static final int INDEX_STORED_MAX_TEMP = 5;
+    private static final int INDEX_STORED_MIN_TEMP = 6;
+    private static final int INDEX_STORED_SHORT_DESC = 7;
+    private static final int INDEX_STORED_WEATHER_ID = 8;
+
+    // Days near today whose values are still being revised, requested on every daily sync once
+    // the stored forecast reaches the end of the location's horizon.
+    private static final int REFRESH_DAYS = 7;
+
+    // However slow the network, a sync gives up after this long and is retried later.
+    private static final long SYNC_DEADLINE_MILLIS = 60 * 1000;
+
+    private static final int HEDGE_LATENCY_WINDOW = 50;
+    private static final int HEDGE_MIN_SAMPLES = 10;
+    private static final double HEDGE_PERCENTILE = 95;
+    private static final long HEDGE_DEFAULT_DELAY_MILLIS = 3 * 1000;
+    private static final long HEDGE_MIN_DELAY_MILLIS = 250;
+
+    // Retries within one sync for transient failures; the sync framework backs off between syncs.
+    private static final int MAX_FETCH_ATTEMPTS = 3;
+    private static final long RETRY_BASE_DELAY_MILLIS = 2 * 1000;
+    private static final long RETRY_MAX_DELAY_MILLIS = 16 * 1000;
+
+    // Consecutive failed requests after which an endpoint is left alone for a while.
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    private static final long CIRCUIT_OPEN_MILLIS = 15 * 60 * 1000;
+
+    public static final String STAT_FETCH_ATTEMPTS = "fetch_attempts";
+    public static final String STAT_CIRCUIT_OPEN = "fetch_circuit_open";
+    public static final String STAT_FETCH_BYTES = "fetch_bytes_received";
+    // Suffixed with the tier name, e.g. "fetch_bytes_received_daily".
+    public static final String STAT_TIER_FETCHES = "fetches_";
+    public static final String STAT_TIER_BYTES = "fetch_bytes_received_";
+    public static final String STAT_DAYS_WRITTEN = "forecast_days_written";
+    public static final String STAT_DAYS_UNCHANGED = "forecast_days_unchanged";
+
+    // Requests hedged with a second request, and hedges that answered first.
+    public static final String STAT_HEDGED = "fetch_hedged";
+    public static final String STAT_HEDGE_WINS = "fetch_hedge_wins";
+    // Syncs that ran out of time, and time spent in syncs.
+    public static final String STAT_DEADLINE_EXCEEDED = "sync_deadline_exceeded";
+    public static final String STAT_SYNC_MILLIS = "sync_millis";
+    // Suffixed with the run's trigger, e.g. "sync_runs_job_horizon".
+    public static final String STAT_TRIGGER_RUNS = "sync_runs_";
+    public static final String STAT_TRIGGER_MILLIS = "sync_millis_";
+    // Light syncs that left the end of the horizon to the horizon job.
+    public static final String STAT_HORIZON_DEFERRED = "forecast_horizon_deferred";
+    // Syncs the framework cancelled, and how long in all they took to stop once it had.
+    public static final String STAT_CANCELLED = "sync_cancelled";
+    public static final String STAT_CANCEL_STOP_MILLIS = "sync_cancel_stop_millis";
+
+    // Forecast reads by how fresh the stored forecast was; all but the fresh ones revalidate it.
+    public static final String STAT_READS_FRESH = "reads_fresh";
+    public static final String STAT_READS_STALE = "reads_stale";
+    public static final String STAT_READS_MISSING = "reads_missing";
+
+    // New locations looked up in their geohash cell once geocoded, and those served from a nearby
+    // location's forecast.
+    public static final String STAT_GEOHASH_LOOKUPS = "geohash_lookups";
+    public static final String STAT_GEOHASH_HITS = "geohash_hits";
+
+    // Current conditions fetched through the group endpoint, in requests and in locations served.
+    public static final String STAT_GROUP_FETCHES = "current_group_fetches";
+    public static final String STAT_GROUPED_LOCATIONS = "current_grouped_locations";
+
+    // The location query parameter of the single-location endpoints.
+    private static final String QUERY_PARAM = "q";
+
+    // Per location and tier, when that tier was last stored, in milliseconds since the epoch.
+    private static final String PREF_LAST_FETCH = "last_fetch_";
+
+    // Shared by every fetch so that requests reuse kept-alive connections.
+    private static final ForecastHttpClient sHttpClient = new ForecastHttpClient();
+
+    // A request still unanswered after the 95th percentile of recent latencies is hedged with a
+    // second one; the first answer wins.
+    private static final HedgedFetcher sHedgedFetcher = new HedgedFetcher(Executors.newCachedThreadPool(),
+            new LatencyTracker(HEDGE_LATENCY_WINDOW, HEDGE_MIN_SAMPLES), HEDGE_PERCENTILE,
+            HEDGE_DEFAULT_DELAY_MILLIS, HEDGE_MIN_DELAY_MILLIS);
+
+    // Shared with the adapter SyncJobService runs, which calls the same endpoints.
+    private static final Map<String, CircuitBreaker> sCircuitBreakers = new HashMap<String, CircuitBreaker>();
+
+    private static final RefreshSchedule sRefreshSchedule = new RefreshSchedule(
+            CURRENT_REFRESH_INTERVAL * 1000L, DAILY_REFRESH_INTERVAL * 1000L);
+
+    // A forecast the periodic sync should have replaced by now, even running a whole sync late,
+    // is stale.
+    private static final FreshnessPolicy sFreshnessPolicy = new FreshnessPolicy(
+            (DAILY_REFRESH_INTERVAL + SYNC_INTERVAL) * 1000L);
+
+    private final ForecastParser mForecastParser = new OwmForecastParser();
+    private final OwmCurrentConditionsParser mCurrentParser = new OwmCurrentConditionsParser();
+    private final RetryPolicy mRetryPolicy = new RetryPolicy(MAX_FETCH_ATTEMPTS,
+            RETRY_BASE_DELAY_MILLIS, RETRY_MAX_DELAY_MILLIS, new Random());
+
+    // The running sync's token, null between syncs. Set on the sync thread, cancelled from the
+    // thread that calls onSyncCanceled.
+    private volatile CancellationToken mCancellation;
+
+    // The running sync's record, null between syncs. Only touched on the sync thread.
+    private SyncRun mRun;
+
+    // Whether the running sync stored its location's forecast from a nearby location's, which
+    // leaves nothing of that location to fetch. Only touched on the sync thread.
+    private boolean mSharedNearby;
+
+    private final SettingGeocoder mGeocoder;
 
     public SunshineSyncAdapter(Context context, boolean autoInitialize) {
+        this(context, autoInitialize, SettingGeocoder.getInstance(context));
+    }
+
+    SunshineSyncAdapter(Context context, boolean autoInitialize, SettingGeocoder geocoder) {
         super(context, autoInitialize);
+        mGeocoder = geocoder;
     }
 
+    /**
+     * Stops the running sync, e.g. because the user turned sync off or the network went away.
+     *
+     * The default implementation only interrupts the sync thread, which wakes it from backoff
+     * and waits for a hedge but not from a socket read, a parse or a database write. The sync's
+     * token reaches those: the read is disconnected, the parse stops before the next day, and a
+     * forecast write stops before the next row and rolls back.
+     */
     @Override
-    public void onPerformSync(Account account, Bundle extras, String authority, ContentProviderClient provider, SyncResult syncResult) {
-        Log.d(LOG_TAG, "Starting sync");
-        String locationQuery = Utility.getPreferredLocation(getContext());
-
-        // These two need to be declared outside the try/catch
-        // so that they can be closed in the finally block.
-        HttpURLConnection urlConnection = null;
-        BufferedReader reader = null;
+    public void onSyncCanceled() {
+        CancellationToken cancellation = mCancellation;
+        if (cancellation != null) {
+            Log.d(LOG_TAG, "Cancelling sync");
+            cancellation.cancel();
+        }
+        super.onSyncCanceled();
+    }
 
-        // Will contain the raw JSON response as a string.
-        String forecastJsonStr = null;
+    @Override
+    public void onPerformSync(Account account, Bundle extras, String authority, ContentProviderClient provider, SyncResult syncResult) {
+        performSync(extras, provider, syncResult, new CancellationToken());
+    }
 
-        String format = "json";
-        String units = "metric";
-        int numDays = 14;
+    /**
+     * Runs one sync, stopping early once cancellation is cancelled. The sync framework's syncs
+     * are cancelled through onSyncCanceled; a {@link SyncJobService} job brings a token of its
+     * own, so that stopping the job cancels that job's sync and no other.
+     */
+    void performSync(Bundle extras, ContentProviderClient provider, SyncResult syncResult,
+                     CancellationToken cancellation) {
+        Log.d(LOG_TAG, "Starting sync");
+        String locationQuery = extras.getString(EXTRA_LOCATION_SETTING);
+        if (locationQuery == null) {
+            locationQuery = Utility.getPreferredLocation(getContext());
+        }
+        boolean successful = false;
+
+        // A sync someone asked for refreshes everything; periodic syncs only fetch the tiers
+        // whose interval has passed, and only the work of their class.
+        boolean manual = isManual(extras);
+        SyncClass syncClass = SyncClass.fromExtras(extras);
+        boolean light = manual || syncClass == SyncClass.LIGHT;
+        boolean horizon = manual || syncClass == SyncClass.HORIZON;
+        boolean savedLocations = manual || syncClass == SyncClass.SAVED_LOCATIONS;
+
+        // Only a light sync serves the requests SyncCoordinator coalesces; a heavy job may not
+        // fetch what they asked for.
+        SyncCoordinator coordinator = light ? SyncCoordinator.getInstance(getContext()) : null;
+        if (coordinator != null) {
+            coordinator.onSyncStarted(locationQuery);
+        }
+        TokenBucket.Priority priority = getPriority(extras);
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(getContext());
+        long now = System.currentTimeMillis();
+        Deadline deadline = Deadline.after(SYNC_DEADLINE_MILLIS, now);
+        mCancellation = cancellation;
+        String trigger = manual ? SyncRun.TRIGGER_MANUAL
+                : syncClass.isHeavy() ? SyncRun.TRIGGER_JOB + syncClass.name().toLowerCase(Locale.US)
+                : SyncRun.TRIGGER_PERIODIC;
+        SyncRun run = new SyncRun(trigger, locationQuery);
+        mRun = run;
+        mSharedNearby = false;
 
         try {
-            // Construct the URL for the OpenWeatherMap query
-            // Possible parameters are avaiable at OWM's forecast API page, at
-            // http://openweathermap.org/API#forecast
-            final String FORECAST_BASE_URL =
-                    "http://api.openweathermap.org/data/2.5/forecast/daily?";
-            final String QUERY_PARAM = "q";
-            final String FORMAT_PARAM = "mode";
-            final String UNITS_PARAM = "units";
-            final String DAYS_PARAM = "cnt";
-            final String APPID_PARAM = "APPID";
-
-            Uri builtUri = Uri.parse(FORECAST_BASE_URL).buildUpon()
-                              .appendQueryParameter(QUERY_PARAM, locationQuery)
-                              .appendQueryParameter(FORMAT_PARAM, format)
-                              .appendQueryParameter(UNITS_PARAM, units)
-                              .appendQueryParameter(DAYS_PARAM, Integer.toString(numDays))
-                              .appendQueryParameter(APPID_PARAM, BuildConfig.OPEN_WEATHER_MAP_API_KEY)
-                              .build();
-
-            URL url = new URL(builtUri.toString());
-
-            // Create the request to OpenWeatherMap, and open the connection
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
-
-            // Read the input stream into a String
-            InputStream inputStream = urlConnection.getInputStream();
-            StringBuffer buffer = new StringBuffer();
-            if (inputStream == null) {
-                // Nothing to do.
-                return;
-            }
-            reader = new BufferedReader(new InputStreamReader(inputStream));
-
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Since it's JSON, adding a newline isn't necessary (it won't affect parsing)
-                // But it does make debugging a *lot* easier if you print out the completed
-                // buffer for debugging.
-                buffer.append(line + "\n");
+            // The horizon job always looks: whether the stored days reach the end of the
+            // horizon doesn't depend on when they were fetched.
+            if (horizon || (light && sRefreshSchedule.isDue(RefreshTier.DAILY,
+                    getLastFetch(prefs, RefreshTier.DAILY, locationQuery), now))) {
+                if (!syncDailyForecast(prefs, locationQuery, provider, light, horizon, priority, deadline,
+                                       cancellation, now)) {
+                    run.setOutcome(SyncRun.OUTCOME_EMPTY_RESPONSE);
+                    return;
+                }
             }
-
-            if (buffer.length() == 0) {
-                // Stream was empty.  No point in parsing.
+            // A location served from a nearby one got that location's current conditions too.
+            if ((light || savedLocations) && !syncCurrentConditions(prefs, locationQuery, manual, savedLocations,
+                    mSharedNearby, priority, deadline, cancellation, now)) {
+                run.setOutcome(SyncRun.OUTCOME_EMPTY_RESPONSE);
                 return;
             }
-            forecastJsonStr = buffer.toString();
-            getWeatherDataFromJson(forecastJsonStr, locationQuery);
+            successful = true;
+            run.setOutcome(SyncRun.OUTCOME_SUCCESS);
+        } catch (CancelledException e) {
+            // Not an error: whoever cancelled the sync will ask for another when it wants one.
+            long stopMillis = (System.nanoTime() - cancellation.getCancelledAtNanos()) / 1000000;
+            Log.d(LOG_TAG, "Sync cancelled, stopped after " + stopMillis + "ms");
+            SyncStats.increment(STAT_CANCELLED);
+            SyncStats.add(STAT_CANCEL_STOP_MILLIS, stopMillis);
+            run.setOutcome(SyncRun.OUTCOME_CANCELLED);
+        } catch (DeadlineExceededException e) {
+            // The network is too slow right now; a soft error has the framework try again later.
+            Log.w(LOG_TAG, e.getMessage());
+            SyncStats.increment(STAT_DEADLINE_EXCEEDED);
+            syncResult.stats.numIoExceptions++;
+            run.setOutcome(SyncRun.OUTCOME_DEADLINE_EXCEEDED);
+        } catch (RateLimitedException e) {
+            // Over our share of the API quota. Defer rather than drop: the soft error makes the
+            // framework run the sync again, and not before a token is available.
+            Log.w(LOG_TAG, e.getMessage());
+            syncResult.stats.numIoExceptions++;
+            syncResult.delayUntil = e.getRetryAtMillis() / 1000;
+            run.setOutcome(SyncRun.OUTCOME_RATE_LIMITED);
+        } catch (CircuitOpenException e) {
+            // The API has been failing; don't let the framework retry before the breaker allows it.
+            Log.w(LOG_TAG, e.getMessage());
+            SyncStats.increment(STAT_CIRCUIT_OPEN);
+            syncResult.delayUntil = e.getRetryAtMillis() / 1000;
+            run.setOutcome(SyncRun.OUTCOME_CIRCUIT_OPEN);
+        } catch (HttpStatusException e) {
+            Log.e(LOG_TAG, "Error ", e);
+            run.setOutcome(SyncRun.OUTCOME_HTTP_ERROR + e.getStatusCode());
+            if (e.isRetryable()) {
+                syncResult.stats.numIoExceptions++;
+            } else if (e.getStatusCode() == HttpURLConnection.HTTP_UNAUTHORIZED
+                    || e.getStatusCode() == HttpURLConnection.HTTP_FORBIDDEN) {
+                syncResult.stats.numAuthExceptions++;
+            } else {
+                // The request itself was rejected, retrying it won't help.
+                syncResult.stats.numParseExceptions++;
+            }
+        } catch (ResponseTooLargeException e) {
+            Log.e(LOG_TAG, "Error ", e);
+            syncResult.stats.numParseExceptions++;
+            run.setOutcome(SyncRun.OUTCOME_RESPONSE_TOO_LARGE);
         } catch (IOException e) {
             Log.e(LOG_TAG, "Error ", e);
-            // If the code didn't successfully get the weather data, there's no point in attempting
-            // to parse it.
-        } catch (JSONException e) {
+            // A soft error: the sync framework will retry later with its own backoff.
+            syncResult.stats.numIoExceptions++;
+            run.setOutcome(SyncRun.OUTCOME_IO_ERROR);
+        } catch (ForecastParseException e) {
             Log.e(LOG_TAG, e.getMessage(), e);
-            e.printStackTrace();
+            syncResult.stats.numParseExceptions++;
+            run.setOutcome(SyncRun.OUTCOME_PARSE_ERROR);
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
+            mCancellation = null;
+            mRun = null;
+            run.save(getContext());
+            long millis = System.currentTimeMillis() - now;
+            SyncStats.add(STAT_SYNC_MILLIS, millis);
+            SyncStats.increment(STAT_TRIGGER_RUNS + trigger);
+            SyncStats.add(STAT_TRIGGER_MILLIS + trigger, millis);
+            if (coordinator != null) {
+                coordinator.onSyncFinished(locationQuery, successful);
             }
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (final IOException e) {
-                    Log.e(LOG_TAG, "Error closing stream", e);
+        }
+    }
+
+    private static URL buildDailyUrl(String locationQuery, int numDays) throws IOException {
+        // Construct the URL for the OpenWeatherMap query
+        // Possible parameters are avaiable at OWM's forecast API page, at
+        // http://openweathermap.org/API#forecast
+        final String FORECAST_BASE_URL =
+                "http://api.openweathermap.org/data/2.5/forecast/daily?";
+        final String DAYS_PARAM = "cnt";
+
+        Map<String, String> params = new LinkedHashMap<String, String>();
+        params.put(QUERY_PARAM, locationQuery);
+        params.put(DAYS_PARAM, Integer.toString(numDays));
+        return buildUrl(FORECAST_BASE_URL, params);
+    }
+
+    private static URL buildCurrentUrl(String locationQuery) throws IOException {
+        // http://openweathermap.org/current
+        final String CURRENT_BASE_URL =
+                "http://api.openweathermap.org/data/2.5/weather?";
+
+        return buildUrl(CURRENT_BASE_URL, Collections.singletonMap(QUERY_PARAM, locationQuery));
+    }
+
+    private static URL buildGroupUrl(long[] cityIds) throws IOException {
+        // http://openweathermap.org/current#severalid
+        final String GROUP_BASE_URL =
+                "http://api.openweathermap.org/data/2.5/group?";
+        final String IDS_PARAM = "id";
+
+        return buildUrl(GROUP_BASE_URL, Collections.singletonMap(IDS_PARAM, CityGroups.toIdParam(cityIds)));
+    }
+
+    private static URL buildUrl(String baseUrl, Map<String, String> params) throws IOException {
+        final String FORMAT_PARAM = "mode";
+        final String UNITS_PARAM = "units";
+        final String APPID_PARAM = "APPID";
+
+        String format = "json";
+        String units = "metric";
+
+        Uri.Builder builder = Uri.parse(baseUrl).buildUpon();
+        for (Map.Entry<String, String> param : params.entrySet()) {
+            builder.appendQueryParameter(param.getKey(), param.getValue());
+        }
+        builder.appendQueryParameter(FORMAT_PARAM, format)
+               .appendQueryParameter(UNITS_PARAM, units);
+        builder.appendQueryParameter(APPID_PARAM, BuildConfig.OPEN_WEATHER_MAP_API_KEY);
+        return new URL(builder.build().toString());
+    }
+
+    /**
+     * Downloads url with retries behind its endpoint's circuit breaker and the shared
+     * {@link FetchRateLimiter}, counting attempts and bytes both overall and for tier.
+     *
+     * Each attempt is hedged: if it is slow, a second request goes to the hedge host and the
+     * first answer wins. Nothing waits past deadline, and cancellation abandons both requests.
+     *
+     * @return the response body
+     * @throws CancelledException if cancellation was cancelled, whatever the fetch was doing
+     */
+    private String fetch(RefreshTier tier, final URL url, final TokenBucket.Priority priority,
+                         final Deadline deadline, final CancellationToken cancellation) throws IOException {
+        FetchRetrier retrier = new FetchRetrier(mRetryPolicy, FetchRetrier.SYSTEM_CLOCK);
+        final CircuitBreaker breaker = getCircuitBreaker(url);
+        final FetchRateLimiter rateLimiter = FetchRateLimiter.getInstance(getContext());
+        final URL hedgeUrl = getHedgeUrl(url);
+        long start = System.nanoTime();
+        long bytesBefore = sHttpClient.getBytesReceived();
+        long hedgesBefore = sHedgedFetcher.getHedgeCount();
+        long hedgeWinsBefore = sHedgedFetcher.getHedgeWinCount();
+        try {
+            return retrier.execute(breaker, deadline, new FetchRetrier.Attempt<String>() {
+                @Override
+                public String run() throws IOException {
+                    cancellation.throwIfCancelled();
+                    // Every attempt, retries included, counts against the API quota.
+                    rateLimiter.acquire(priority, breaker.getEndpoint());
+                    long remaining = deadline.getRemainingMillis(System.currentTimeMillis());
+                    final ForecastHttpClient.Call hedgeCall = sHttpClient.newCall(hedgeUrl, remaining, cancellation);
+                    HedgedFetcher.Request<String> hedge = new HedgedFetcher.Request<String>() {
+                        @Override
+                        public String execute() throws IOException {
+                            // Hedges are extra load: they never wait for or use up the user's tokens.
+                            rateLimiter.acquire(TokenBucket.Priority.BACKGROUND, breaker.getEndpoint());
+                            return hedgeCall.execute();
+                        }
+
+                        @Override
+                        public void cancel() {
+                            hedgeCall.cancel();
+                        }
+                    };
+                    return sHedgedFetcher.fetch(sHttpClient.newCall(url, remaining, cancellation), hedge, remaining);
                 }
+            });
+        } catch (InterruptedIOException e) {
+            // onSyncCanceled also interrupts this thread, e.g. out of a backoff or a wait for a
+            // token, which surfaces as a plain InterruptedIOException.
+            cancellation.throwIfCancelled();
+            throw e;
+        } finally {
+            long bytes = sHttpClient.getBytesReceived() - bytesBefore;
+            String tierName = tier.name().toLowerCase(Locale.US);
+            SyncStats.add(STAT_FETCH_ATTEMPTS, retrier.getAttempts());
+            SyncStats.add(STAT_FETCH_BYTES, bytes);
+            SyncStats.increment(STAT_TIER_FETCHES + tierName);
+            SyncStats.add(STAT_TIER_BYTES + tierName, bytes);
+            SyncStats.add(STAT_HEDGED, sHedgedFetcher.getHedgeCount() - hedgesBefore);
+            SyncStats.add(STAT_HEDGE_WINS, sHedgedFetcher.getHedgeWinCount() - hedgeWinsBefore);
+            mRun.addFetch(System.nanoTime() - start, bytes);
+        }
+    }
+
+    /**
+     * @return url on the hedge host, or url itself if there is none.
+     */
+    private static URL getHedgeUrl(URL url) throws IOException {
+        if (BuildConfig.OPEN_WEATHER_MAP_HEDGE_HOST.isEmpty()) {
+            return url;
+        }
+        return new URL(url.getProtocol(), BuildConfig.OPEN_WEATHER_MAP_HEDGE_HOST, url.getPort(), url.getFile());
+    }
+
+    private static long getLastFetch(SharedPreferences prefs, RefreshTier tier, String locationSetting) {
+        return prefs.getLong(PREF_LAST_FETCH + tier.name() + "_" + locationSetting, 0);
+    }
+
+    private static void setLastFetch(SharedPreferences prefs, RefreshTier tier, String locationSetting,
+                                     long fetchedAt) {
+        prefs.edit().putLong(PREF_LAST_FETCH + tier.name() + "_" + locationSetting, fetchedAt).apply();
+    }
+
+    /**
+     * @return the requests sent by every sync of this process so far, hedges and retries included
+     */
+    static long getRequestCount() {
+        return sHttpClient.getRequestCount();
+    }
+
+    /**
+     * @return the data the current tier configuration downloads per day, estimated from the
+     * average response size of each tier so far in this process, or 0 until both have been
+     * fetched.
+     */
+    static double getEstimatedBytesPerDay() {
+        long[] averages = new long[RefreshTier.values().length];
+        for (RefreshTier tier : RefreshTier.values()) {
+            String tierName = tier.name().toLowerCase(Locale.US);
+            long fetches = SyncStats.get(STAT_TIER_FETCHES + tierName);
+            if (fetches == 0) {
+                return 0;
             }
+            averages[tier.ordinal()] = SyncStats.get(STAT_TIER_BYTES + tierName) / fetches;
+        }
+        return sRefreshSchedule.getBytesPerDay(averages[RefreshTier.CURRENT.ordinal()],
+                                               averages[RefreshTier.DAILY.ordinal()]);
+    }
+
+    private static synchronized CircuitBreaker getCircuitBreaker(URL url) {
+        String endpoint = url.getHost() + url.getPath();
+        CircuitBreaker breaker = sCircuitBreakers.get(endpoint);
+        if (breaker == null) {
+            breaker = new CircuitBreaker(endpoint, CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_OPEN_MILLIS);
+            sCircuitBreakers.put(endpoint, breaker);
         }
-        return;
+        return breaker;
     }
 
     /**
-     * Take the String representing the complete forecast in JSON Format and
-     * pull out the data we need to construct the Strings needed for the wireframes.
+     * Fetches the daily forecast of locationSetting and stores the days that are new or changed.
      *
-     * Fortunately parsing is easy:  constructor takes the JSON string and converts it
-     * into an Object hierarchy for us.
+     * Only as many days as the location's {@link ForecastWindow} asks for are requested: the
+     * whole horizon when the stored days don't reach its end, otherwise just the near term.
+     * Days beyond the horizon, e.g. after it was shortened, and days before today are deleted.
+     *
+     * The whole horizon is only requested when horizon is set; otherwise the near term is, and
+     * the rest waits for the {@link SyncClass#HORIZON} job. Without nearTerm nothing is requested
+     * unless the horizon needs it.
+     *
+     * The new and changed days and the deletions are swapped in together, in one transaction,
+     * so a crash, a failure or a cancel leaves the previous forecast intact and nothing reading
+     * the forecast sees half of each.
+     *
+     * @return false if the response was empty
      */
-    private void getWeatherDataFromJson(String forecastJsonStr,
-                                        String locationSetting)
-            throws JSONException {
+    private boolean syncDailyForecast(SharedPreferences prefs, String locationSetting,
+                                      ContentProviderClient provider, boolean nearTerm, boolean horizon,
+                                      TokenBucket.Priority priority, Deadline deadline,
+                                      CancellationToken cancellation, long now)
+            throws IOException, ForecastParseException {
+
+        // OWM returns daily forecasts based upon the local time of the city that is being
+        // asked for, which means that we need to know the GMT offset to translate this data
+        // properly.
+
+        // Since this data is also sent in-order and the first day is always the
+        // current day, we're going to take advantage of that to get a nice
+        // normalized date for all of our weather.
+        TimeZone timeZone = TimeZone.getDefault();
+
+        // we start at the day returned by local time. Otherwise this is a mess.
+        int julianStartDay = SunshineDates.getJulianDay(System.currentTimeMillis(), timeZone);
+
+        ForecastWindow window = new ForecastWindow(Utility.getForecastDays(getContext(), locationSetting),
+                                                   REFRESH_DAYS);
+        long horizonEnd = SunshineDates.getStartOfJulianDay(julianStartDay + window.getHorizonDays(), timeZone);
+        ForecastBatch stored = queryStoredDays(provider, locationSetting, julianStartDay, horizonEnd, timeZone);
+        if (stored.size() == 0 && shareNearbyForecast(prefs, locationSetting, provider, julianStartDay, horizonEnd,
+                                                       timeZone, deadline, cancellation)) {
+            mSharedNearby = true;
+            return true;
+        }
+        int numDays = window.getDaysToRequest(stored, julianStartDay, timeZone);
+        if (numDays > window.getRefreshDays() && !horizon) {
+            // The long request can wait for an unmetered network and a charger.
+            numDays = window.getRefreshDays();
+            SyncStats.increment(STAT_HORIZON_DEFERRED);
+        } else if (numDays <= window.getRefreshDays() && !nearTerm) {
+            // The stored days reach the end of the horizon already.
+            return true;
+        }
 
-        // Now we have a String representing the complete forecast in JSON Format.
-        // Fortunately parsing is easy:  constructor takes the JSON string and converts it
-        // into an Object hierarchy for us.
+        String forecastJsonStr = fetch(RefreshTier.DAILY, buildDailyUrl(locationSetting, numDays), priority,
+                                       deadline, cancellation);
+        if (forecastJsonStr == null) {
+            // Stream was empty.  No point in parsing.
+            return false;
+        }
 
-        // These are the names of the JSON objects that need to be extracted.
+        long parseStart = System.nanoTime();
+        ParsedForecast forecast = mForecastParser.parse(forecastJsonStr, julianStartDay, timeZone, cancellation);
+        mRun.addParse(System.nanoTime() - parseStart);
+        cancellation.throwIfCancelled();
+
+        long locationId = addLocation(locationSetting, forecast.cityId, forecast.cityName,
+                                      forecast.latitude, forecast.longitude);
+
+        // Only write what the stored forecast doesn't already say.
+        ForecastDiff diff = ForecastDiff.compare(stored, forecast.days);
+        ForecastBatch changed = diff.getChanged();
+        SyncStats.add(STAT_DAYS_WRITTEN, changed.size());
+        SyncStats.add(STAT_DAYS_UNCHANGED, diff.getUnchangedCount());
+
+        // add to database, dropping old days so we don't build up an endless history and the
+        // days past this location's horizon
+        if ( forecast.days.size() > 0 ) {
+            long writeStart = System.nanoTime();
+            replaceForecast(provider, locationId, changed,
+                            SunshineDates.getStartOfJulianDay(julianStartDay, timeZone), horizonEnd, now,
+                            cancellation);
+            mRun.addWrite(System.nanoTime() - writeStart, changed.size());
+
+            boolean preferred = locationSetting.equals(Utility.getPreferredLocation(getContext()));
+            // Keep the cold-start snapshot in step with what we just stored. It holds a single
+            // location, so after switching back to one whose days haven't changed it still holds
+            // the other and has to be written anyway.
+            if (preferred && (changed.size() > 0
+                    || ForecastSnapshot.read(getContext(), locationSetting) == null)) {
+                ForecastSnapshot.write(getContext(), locationSetting, forecast.latitude, forecast.longitude,
+                                       diff.getMerged());
+            }
 
-        // Location information
-        final String OWM_CITY = "city";
-        final String OWM_CITY_NAME = "name";
-        final String OWM_COORD = "coord";
+            // The first fetched day is today; notify from it rather than read it back.
+            if (preferred) {
+                WeatherNotifier.getInstance(getContext()).notifyIfDue(forecast.days.getDay(0));
+            }
+        }
 
-        // Location coordinate
-        final String OWM_LATITUDE = "lat";
-        final String OWM_LONGITUDE = "lon";
+        setLastFetch(prefs, RefreshTier.DAILY, locationSetting, now);
+        Log.d(LOG_TAG, "Sync Complete. " + forecast.days.size() + " fetched, " + changed.size() + " written");
+        return true;
+    }
 
-        // Weather information.  Each day's forecast info is an element of the "list" array.
-        final String OWM_LIST = "list";
+    /**
+     * Stores the forecast of a location with none from a nearby location instead of fetching
+     * it. locationSetting is geocoded on the device, and if its {@link GeoHash} cell of
+     * {@link BuildConfig#GEOHASH_PRECISION} characters holds a location whose forecast is still
+     * fresh, that forecast is copied to it, stamped with the time it was fetched rather than now
+     * so that it goes stale when the original does. The nearby location's current conditions are
+     * copied along with it, stamped the same way, so nothing about the new location is fetched.
+     *
+     * @return true if a nearby forecast was stored; false if there is none, or the setting
+     * could not be geocoded, and the forecast needs fetching.
+     */
+    private boolean shareNearbyForecast(SharedPreferences prefs, String locationSetting,
+                                        ContentProviderClient provider, int julianStartDay, long horizonEnd,
+                                        TimeZone timeZone, Deadline deadline, CancellationToken cancellation)
+            throws IOException {
+        Address address = mGeocoder.geocode(prefs, locationSetting, deadline, cancellation);
+        if (address == null) {
+            return false;
+        }
+        SyncStats.increment(STAT_GEOHASH_LOOKUPS);
 
-        final String OWM_PRESSURE = "pressure";
-        final String OWM_HUMIDITY = "humidity";
-        final String OWM_WINDSPEED = "speed";
-        final String OWM_WIND_DIRECTION = "deg";
+        String cell = GeoHash.encode(address.getLatitude(), address.getLongitude(), BuildConfig.GEOHASH_PRECISION);
+        long now = System.currentTimeMillis();
+        Cursor cursor;
+        try {
+            cursor = provider.query(WeatherContract.LocationEntry.CONTENT_URI,
+                    NEARBY_LOCATIONS_PROJECTION,
+                    WeatherContract.LocationEntry.COLUMN_GEOHASH + " >= ? AND " +
+                            WeatherContract.LocationEntry.COLUMN_GEOHASH + " < ? AND " +
+                            WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " != ? AND " +
+                            WeatherContract.LocationEntry.COLUMN_LAST_FETCHED + " IS NOT NULL",
+                    new String[]{cell, GeoHash.endOfCell(cell), locationSetting},
+                    WeatherContract.LocationEntry.COLUMN_LAST_FETCHED + " DESC");
+        } catch (RemoteException e) {
+            throw new IOException("Weather provider died while looking for nearby locations", e);
+        }
+        if (cursor == null) {
+            return false;
+        }
+        try {
+            while (cursor.moveToNext()) {
+                long fetchedAt = cursor.getLong(INDEX_NEARBY_LAST_FETCHED);
+                if (sFreshnessPolicy.evaluate(fetchedAt, now) != FreshnessPolicy.Freshness.FRESH) {
+                    continue;
+                }
+                String nearbySetting = cursor.getString(INDEX_NEARBY_LOCATION_SETTING);
+                ForecastBatch days = queryStoredDays(provider, nearbySetting, julianStartDay, horizonEnd, timeZone);
+                if (days.size() == 0) {
+                    continue;
+                }
+                cancellation.throwIfCancelled();
+
+                long cityId = cursor.isNull(INDEX_NEARBY_CITY_ID) ? 0 : cursor.getLong(INDEX_NEARBY_CITY_ID);
+                long locationId = addLocation(locationSetting, cityId, cursor.getString(INDEX_NEARBY_CITY_NAME),
+                                              address.getLatitude(), address.getLongitude());
+                long writeStart = System.nanoTime();
+                replaceForecast(provider, locationId, days, SunshineDates.getStartOfJulianDay(julianStartDay, timeZone),
+                                horizonEnd, fetchedAt, cancellation);
+                mRun.addWrite(System.nanoTime() - writeStart, days.size());
+                ForecastSnapshot.write(getContext(), locationSetting, address.getLatitude(), address.getLongitude(),
+                                       days);
+                setLastFetch(prefs, RefreshTier.DAILY, locationSetting, fetchedAt);
+                shareCurrentConditions(prefs, provider, nearbySetting, locationSetting, locationId);
+
+                SyncStats.increment(STAT_GEOHASH_HITS);
+                Log.d(LOG_TAG, "Shared the forecast of " + nearbySetting + " with " + locationSetting
+                        + " in cell " + cell + ", hit rate " + getGeoHashHitRate());
+                return true;
+            }
+        } finally {
+            cursor.close();
+        }
+        Log.d(LOG_TAG, "No fresh forecast in cell " + cell + " for " + locationSetting
+                + ", hit rate " + getGeoHashHitRate());
+        return false;
+    }
+
+    /**
+     * Copies the stored current conditions of nearbySetting, if it has any, to the location
+     * locationId, along with the time they were fetched.
+     */
+    private void shareCurrentConditions(SharedPreferences prefs, ContentProviderClient provider,
+                                        String nearbySetting, String locationSetting, long locationId)
+            throws IOException {
+        long start = System.nanoTime();
+        try {
+            Cursor cursor = provider.query(WeatherContract.CurrentEntry.buildCurrentLocation(nearbySetting),
+                    SHARED_CURRENT_COLUMNS, null, null, null);
+            if (cursor == null) {
+                return;
+            }
+            ContentValues currentValues = new ContentValues();
+            try {
+                if (!cursor.moveToFirst()) {
+                    return;
+                }
+                DatabaseUtils.cursorRowToContentValues(cursor, currentValues);
+            } finally {
+                cursor.close();
+            }
+            currentValues.put(WeatherContract.CurrentEntry.COLUMN_LOC_KEY, locationId);
+            provider.insert(WeatherContract.CurrentEntry.CONTENT_URI, currentValues);
+        } catch (RemoteException e) {
+            throw new IOException("Weather provider died while sharing current conditions", e);
+        }
+        mRun.addWrite(System.nanoTime() - start, 1);
 
-        // All temperatures are children of the "temp" object.
-        final String OWM_TEMPERATURE = "temp";
-        final String OWM_MAX = "max";
-        final String OWM_MIN = "min";
+        long fetchedAt = getLastFetch(prefs, RefreshTier.CURRENT, nearbySetting);
+        if (fetchedAt > 0) {
+            setLastFetch(prefs, RefreshTier.CURRENT, locationSetting, fetchedAt);
+        }
+    }
 
-        final String OWM_WEATHER = "weather";
-        final String OWM_DESCRIPTION = "main";
-        final String OWM_WEATHER_ID = "id";
+    /**
+     * @return the share of new locations served from a nearby location's forecast so far in this
+     * process, or 0 before the first.
+     */
+    static double getGeoHashHitRate() {
+        long lookups = SyncStats.get(STAT_GEOHASH_LOOKUPS);
+        return lookups == 0 ? 0 : (double) SyncStats.get(STAT_GEOHASH_HITS) / lookups;
+    }
 
+    /**
+     * @return the stored days of locationSetting from julianStartDay up to, not including,
+     * horizonEnd, in date order.
+     */
+    private ForecastBatch queryStoredDays(ContentProviderClient provider, String locationSetting,
+                                          int julianStartDay, long horizonEnd, TimeZone timeZone)
+            throws IOException {
+        Uri storedUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(locationSetting,
+                SunshineDates.getStartOfJulianDay(julianStartDay, timeZone));
+        Cursor cursor;
+        try {
+            cursor = provider.query(storedUri, STORED_DAYS_PROJECTION, null, null,
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        } catch (RemoteException e) {
+            throw new IOException("Weather provider died while reading the stored forecast", e);
+        }
+        if (cursor == null) {
+            return new ForecastBatch(0);
+        }
+        ForecastBatch stored = new ForecastBatch(cursor.getCount());
         try {
-            JSONObject forecastJson = new JSONObject(forecastJsonStr);
-            JSONArray weatherArray = forecastJson.getJSONArray(OWM_LIST);
-
-            JSONObject cityJson = forecastJson.getJSONObject(OWM_CITY);
-            String cityName = cityJson.getString(OWM_CITY_NAME);
-
-            JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
-            double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
-            double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
-
-            long locationId = addLocation(locationSetting, cityName, cityLatitude, cityLongitude);
-
-            // Insert the new weather information into the database
-            Vector<ContentValues> cVVector = new Vector<ContentValues>(weatherArray.length());
-
-            // OWM returns daily forecasts based upon the local time of the city that is being
-            // asked for, which means that we need to know the GMT offset to translate this data
-            // properly.
-
-            // Since this data is also sent in-order and the first day is always the
-            // current day, we're going to take advantage of that to get a nice
-            // normalized UTC date for all of our weather.
-
-            Time dayTime = new Time();
-            dayTime.setToNow();
-
-            // we start at the day returned by local time. Otherwise this is a mess.
-            int julianStartDay = Time.getJulianDay(System.currentTimeMillis(), dayTime.gmtoff);
-
-            // now we work exclusively in UTC
-            dayTime = new Time();
-
-            for(int i = 0; i < weatherArray.length(); i++) {
-                // These are the values that will be collected.
-                long dateTime;
-                double pressure;
-                int humidity;
-                double windSpeed;
-                double windDirection;
-
-                double high;
-                double low;
-
-                String description;
-                int weatherId;
-
-                // Get the JSON object representing the day
-                JSONObject dayForecast = weatherArray.getJSONObject(i);
-
-                // Cheating to convert this to UTC time, which is what we want anyhow
-                dateTime = dayTime.setJulianDay(julianStartDay+i);
-
-                pressure = dayForecast.getDouble(OWM_PRESSURE);
-                humidity = dayForecast.getInt(OWM_HUMIDITY);
-                windSpeed = dayForecast.getDouble(OWM_WINDSPEED);
-                windDirection = dayForecast.getDouble(OWM_WIND_DIRECTION);
-
-                // Description is in a child array called "weather", which is 1 element long.
-                // That element also contains a weather code.
-                JSONObject weatherObject =
-                        dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
-                description = weatherObject.getString(OWM_DESCRIPTION);
-                weatherId = weatherObject.getInt(OWM_WEATHER_ID);
-
-                // Temperatures are in a child object called "temp".  Try not to name variables
-                // "temp" when working with temperature.  It confuses everybody.
-                JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
-                high = temperatureObject.getDouble(OWM_MAX);
-                low = temperatureObject.getDouble(OWM_MIN);
-
-                ContentValues weatherValues = new ContentValues();
-
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE, dateTime);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, humidity);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, pressure);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, windSpeed);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, windDirection);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, high);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, low);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, description);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, weatherId);
-
-                cVVector.add(weatherValues);
+            while (cursor.moveToNext() && cursor.getLong(INDEX_STORED_DATE) < horizonEnd) {
+                stored.add(cursor.getLong(INDEX_STORED_DATE),
+                           cursor.getDouble(INDEX_STORED_PRESSURE),
+                           cursor.getInt(INDEX_STORED_HUMIDITY),
+                           cursor.getDouble(INDEX_STORED_WIND_SPEED),
+                           cursor.getDouble(INDEX_STORED_DEGREES),
+                           cursor.getDouble(INDEX_STORED_MAX_TEMP),
+                           cursor.getDouble(INDEX_STORED_MIN_TEMP),
+                           cursor.getString(INDEX_STORED_SHORT_DESC),
+                           cursor.getInt(INDEX_STORED_WEATHER_ID));
             }
+        } finally {
+            cursor.close();
+        }
+        return stored;
+    }
 
-            int inserted = 0;
-            // add to database
-            if ( cVVector.size() > 0 ) {
-                ContentValues[] cvArray = new ContentValues[cVVector.size()];
-                cVVector.toArray(cvArray);
-                getContext().getContentResolver().bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, cvArray);
+    /**
+     * Stores days, deletes the location's days outside [keepFrom, keepUntil) and stamps the
+     * location with fetchedAt in a single transaction, through WeatherProvider's columnar path
+     * when the provider runs in this process, which it does unless the manifest changes.
+     * Otherwise falls back to one ContentProviderOperation per write, applied as one batch,
+     * which can only be cancelled before it starts.
+     *
+     * @throws IOException if the provider's process died during the batch
+     */
+    private void replaceForecast(ContentProviderClient provider, long locationId, ForecastBatch days,
+                                 long keepFrom, long keepUntil, long fetchedAt, CancellationToken cancellation)
+            throws IOException {
+        if (provider != null && provider.getLocalContentProvider() instanceof WeatherProvider) {
+            ((WeatherProvider) provider.getLocalContentProvider())
+                    .replaceForecast(locationId, days, keepFrom, keepUntil, fetchedAt, cancellation);
+            return;
+        }
 
-                // delete old data so we don't build up an endless history
-                getContext().getContentResolver()
-                            .delete(WeatherContract.WeatherEntry.CONTENT_URI,
-                                    WeatherContract.WeatherEntry.COLUMN_DATE + " <= ?",
-                                    new String[]{Long.toString(dayTime.setJulianDay(julianStartDay - 1))});
+        ArrayList<ContentProviderOperation> operations = new ArrayList<ContentProviderOperation>(days.size() + 3);
+        for (int i = 0; i < days.size(); i++) {
+            operations.add(ContentProviderOperation.newInsert(WeatherContract.WeatherEntry.CONTENT_URI)
+                    .withValue(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId)
+                    .withValue(WeatherContract.WeatherEntry.COLUMN_DATE, days.getDate(i))
+                    .withValue(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, days.getHumidity(i))
+                    .withValue(WeatherContract.WeatherEntry.COLUMN_PRESSURE, days.getPressure(i))
+                    .withValue(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, days.getWindSpeed(i))
+                    .withValue(WeatherContract.WeatherEntry.COLUMN_DEGREES, days.getWindDirection(i))
+                    .withValue(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, days.getHigh(i))
+                    .withValue(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, days.getLow(i))
+                    .withValue(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, days.getDescription(i))
+                    .withValue(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, days.getWeatherId(i))
+                    .build());
+        }
+        operations.add(ContentProviderOperation.newDelete(WeatherContract.WeatherEntry.CONTENT_URI)
+                .withSelection(WeatherContract.WeatherEntry.COLUMN_DATE + " < ?",
+                        new String[]{Long.toString(keepFrom)})
+                .build());
+        operations.add(ContentProviderOperation.newDelete(WeatherContract.WeatherEntry.CONTENT_URI)
+                .withSelection(WeatherContract.WeatherEntry.COLUMN_LOC_KEY + " = ? AND " +
+                                WeatherContract.WeatherEntry.COLUMN_DATE + " >= ?",
+                        new String[]{Long.toString(locationId), Long.toString(keepUntil)})
+                .build());
+        operations.add(ContentProviderOperation.newUpdate(WeatherContract.LocationEntry.CONTENT_URI)
+                .withValue(WeatherContract.LocationEntry.COLUMN_LAST_FETCHED, fetchedAt)
+                .withSelection(WeatherContract.LocationEntry._ID + " = ?",
+                        new String[]{Long.toString(locationId)})
+                .build());
+
+        cancellation.throwIfCancelled();
+        try {
+            getContext().getContentResolver().applyBatch(WeatherContract.CONTENT_AUTHORITY, operations);
+        } catch (RemoteException e) {
+            throw new IOException("Weather provider died while storing the forecast", e);
+        } catch (OperationApplicationException e) {
+            throw new IOException("Weather provider refused the forecast", e);
+        }
+    }
 
-                notifyWeather();
+    /**
+     * Fetches the current conditions of every saved location, that is every row of the location
+     * table, whose current tier is due, and of locationSetting when the sync is manual. Without
+     * allLocations only locationSetting is fetched; the others are left to the
+     * {@link SyncClass#SAVED_LOCATIONS} job.
+     *
+     * Locations whose city id is known are fetched {@link CityGroups#MAX_CITIES} to a request
+     * through the group endpoint, and the response is split back into one write per location.
+     * The rest, e.g. a location that was never fetched before, take one request each.
+     *
+     * Once cancellation is cancelled no more locations are written; those already written keep
+     * their new conditions.
+     *
+     * @param skipSetting leaves locationSetting out, even when the sync is manual
+     * @return false if a response was empty
+     */
+    private boolean syncCurrentConditions(SharedPreferences prefs, String locationSetting, boolean manual,
+                                          boolean allLocations, boolean skipSetting,
+                                          TokenBucket.Priority priority, Deadline deadline,
+                                          CancellationToken cancellation, long now)
+            throws IOException, ForecastParseException {
+        // Several settings, e.g. a postal code and a city name, can resolve to the same city.
+        Map<Long, List<String>> settingsByCityId = new LinkedHashMap<Long, List<String>>();
+        List<String> ungrouped = new ArrayList<String>();
+
+        boolean includesSetting = false;
+        Cursor cursor = allLocations ? getContext().getContentResolver().query(
+                WeatherContract.LocationEntry.CONTENT_URI, SAVED_LOCATIONS_PROJECTION, null, null, null) : null;
+        if (cursor != null) {
+            try {
+                while (cursor.moveToNext()) {
+                    String setting = cursor.getString(INDEX_SAVED_LOCATION_SETTING);
+                    boolean isSetting = setting.equals(locationSetting);
+                    includesSetting |= isSetting;
+                    if (isSetting && skipSetting) {
+                        continue;
+                    }
+                    if (!(isSetting && manual) && !sRefreshSchedule.isDue(RefreshTier.CURRENT,
+                            getLastFetch(prefs, RefreshTier.CURRENT, setting), now)) {
+                        continue;
+                    }
+                    long cityId = cursor.isNull(INDEX_SAVED_CITY_ID) ? 0 : cursor.getLong(INDEX_SAVED_CITY_ID);
+                    if (cityId <= 0) {
+                        ungrouped.add(setting);
+                        continue;
+                    }
+                    List<String> settings = settingsByCityId.get(cityId);
+                    if (settings == null) {
+                        settings = new ArrayList<String>(1);
+                        settingsByCityId.put(cityId, settings);
+                    }
+                    settings.add(setting);
+                }
+            } finally {
+                cursor.close();
             }
+        }
+        if (!includesSetting && !skipSetting && (manual || sRefreshSchedule.isDue(RefreshTier.CURRENT,
+                getLastFetch(prefs, RefreshTier.CURRENT, locationSetting), now))) {
+            ungrouped.add(locationSetting);
+        }
 
-            Log.d(LOG_TAG, "Sync Complete. " + cVVector.size() + " Inserted");
+        for (String setting : ungrouped) {
+            String currentJsonStr = fetch(RefreshTier.CURRENT, buildCurrentUrl(setting), priority, deadline,
+                                          cancellation);
+            if (currentJsonStr == null) {
+                return false;
+            }
+            long parseStart = System.nanoTime();
+            CurrentConditions current = mCurrentParser.parse(currentJsonStr);
+            mRun.addParse(System.nanoTime() - parseStart);
+            cancellation.throwIfCancelled();
+            storeCurrentConditions(current, setting);
+            setLastFetch(prefs, RefreshTier.CURRENT, setting, now);
+        }
 
-        } catch (JSONException e) {
-            Log.e(LOG_TAG, e.getMessage(), e);
-            e.printStackTrace();
-        }
-    }
-
-    private void notifyWeather() {
-        Context context = getContext();
-        //checking the last update and notify if it' the first of the day
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-        String displayNotificationsKey = context.getString(R.string.pref_enable_notifications_key);
-        boolean displayNotifications = prefs.getBoolean(displayNotificationsKey,
-                                                        Boolean.parseBoolean(context.getString(R.string.pref_enable_notifications_default)));
-
-        if ( displayNotifications ) {
-
-            String lastNotificationKey = context.getString(R.string.pref_last_notification);
-            long lastSync = prefs.getLong(lastNotificationKey, 0);
-
-            if (System.currentTimeMillis() - lastSync >= DAY_IN_MILLIS) {
-                // Last sync was more than 1 day ago, let's send a notification with the weather.
-                String locationQuery = Utility.getPreferredLocation(context);
-
-                Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(locationQuery, System.currentTimeMillis());
-
-                // we'll query our contentProvider, as always
-                Cursor cursor = context.getContentResolver().query(weatherUri, NOTIFY_WEATHER_PROJECTION, null, null, null);
-
-                if (cursor.moveToFirst()) {
-                    int weatherId = cursor.getInt(INDEX_WEATHER_ID);
-                    double high = cursor.getDouble(INDEX_MAX_TEMP);
-                    double low = cursor.getDouble(INDEX_MIN_TEMP);
-                    String desc = cursor.getString(INDEX_SHORT_DESC);
-
-                    int iconId = Utility.getIconResourceForWeatherCondition(weatherId);
-                    Resources resources = context.getResources();
-                    Bitmap largeIcon = BitmapFactory.decodeResource(resources,
-                                                                    Utility.getArtResourceForWeatherCondition(weatherId));
-                    String title = context.getString(R.string.app_name);
-
-                    // Define the text of the forecast.
-                    String contentText = String.format(context.getString(R.string.format_notification),
-                                                       desc,
-                                                       Utility.formatTemperature(context, high),
-                                                       Utility.formatTemperature(context, low));
-
-                    // NotificationCompatBuilder is a very convenient way to build backward-compatible
-                    // notifications.  Just throw in some data.
-                    NotificationCompat.Builder mBuilder =
-                            new NotificationCompat.Builder(getContext())
-                                    .setColor(resources.getColor(R.color.sunshine_light_blue))
-                                    .setSmallIcon(iconId)
-                                    .setLargeIcon(largeIcon)
-                                    .setContentTitle(title)
-                                    .setContentText(contentText);
-
-                    // Make something interesting happen when the user clicks on the notification.
-                    // In this case, opening the app is sufficient.
-                    Intent resultIntent = new Intent(context, MainActivity.class);
-
-                    // The stack builder object will contain an artificial back stack for the
-                    // started Activity.
-                    // This ensures that navigating backward from the Activity leads out of
-                    // your application to the Home screen.
-                    TaskStackBuilder stackBuilder = TaskStackBuilder.create(context);
-                    stackBuilder.addNextIntent(resultIntent);
-                    PendingIntent resultPendingIntent =
-                            stackBuilder.getPendingIntent(
-                                    0,
-                                    PendingIntent.FLAG_UPDATE_CURRENT
-                            );
-                    mBuilder.setContentIntent(resultPendingIntent);
-
-                    NotificationManager mNotificationManager =
-                            (NotificationManager) getContext().getSystemService(Context.NOTIFICATION_SERVICE);
-                    // WEATHER_NOTIFICATION_ID allows you to update the notification later on.
-                    mNotificationManager.notify(WEATHER_NOTIFICATION_ID, mBuilder.build());
-
-                    //refreshing last sync
-                    SharedPreferences.Editor editor = prefs.edit();
-                    editor.putLong(lastNotificationKey, System.currentTimeMillis());
-                    editor.commit();
+        long[] cityIds = new long[settingsByCityId.size()];
+        int index = 0;
+        for (Long cityId : settingsByCityId.keySet()) {
+            cityIds[index++] = cityId;
+        }
+        for (long[] group : CityGroups.split(cityIds, CityGroups.MAX_CITIES)) {
+            String groupJsonStr = fetch(RefreshTier.CURRENT, buildGroupUrl(group), priority, deadline,
+                                        cancellation);
+            if (groupJsonStr == null) {
+                return false;
+            }
+            SyncStats.increment(STAT_GROUP_FETCHES);
+            long parseStart = System.nanoTime();
+            List<CurrentConditions> groupConditions = mCurrentParser.parseGroup(groupJsonStr, cancellation);
+            mRun.addParse(System.nanoTime() - parseStart);
+            for (CurrentConditions current : groupConditions) {
+                cancellation.throwIfCancelled();
+                List<String> settings = settingsByCityId.get(current.cityId);
+                if (settings == null) {
+                    continue;
+                }
+                for (String setting : settings) {
+                    storeCurrentConditions(current, setting);
+                    setLastFetch(prefs, RefreshTier.CURRENT, setting, now);
+                    SyncStats.increment(STAT_GROUPED_LOCATIONS);
                 }
-                cursor.close();
             }
         }
+        return true;
+    }
+
+    /**
+     * Replaces the stored current conditions of locationSetting. They live in their own table,
+     * next to the daily forecast, and the list merges them into today's row.
+     */
+    private void storeCurrentConditions(CurrentConditions current, String locationSetting) {
+        long start = System.nanoTime();
+        long locationId = addLocation(locationSetting, current.cityId, current.cityName,
+                                      current.latitude, current.longitude);
+
+        ContentValues currentValues = new ContentValues();
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_LOC_KEY, locationId);
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_DATE, current.observedAt);
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_SHORT_DESC, current.description);
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_WEATHER_ID, current.weatherId);
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_TEMP, current.temperature);
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_HUMIDITY, current.humidity);
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_PRESSURE, current.pressure);
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_WIND_SPEED, current.windSpeed);
+        currentValues.put(WeatherContract.CurrentEntry.COLUMN_DEGREES, current.windDirection);
+        getContext().getContentResolver().insert(WeatherContract.CurrentEntry.CONTENT_URI, currentValues);
+        mRun.addWrite(System.nanoTime() - start, 1);
+
+        Log.d(LOG_TAG, "Current conditions stored, about "
+                + Math.round(getEstimatedBytesPerDay()) + " bytes/day at the current refresh intervals");
     }
 
     /**
      * Helper method to handle insertion of a new location in the weather database.
      *
      * @param locationSetting The location string used to request updates from the server.
+     * @param cityId the service's id for the city, 0 if unknown
      * @param cityName A human-readable city name, e.g "Mountain View"
      * @param lat the latitude of the city
      * @param lon the longitude of the city
      * @return the row ID of the added location.
      */
-    long addLocation(String locationSetting, String cityName, double lat, double lon) {
+    long addLocation(String locationSetting, long cityId, String cityName, double lat, double lon) {
         long locationId;
 
         // First, check if the location with this city name exists in the db
         Cursor locationCursor = getContext().getContentResolver().query(
                 WeatherContract.LocationEntry.CONTENT_URI,
-                new String[]{WeatherContract.LocationEntry._ID},
+                new String[]{WeatherContract.LocationEntry._ID, WeatherContract.LocationEntry.COLUMN_CITY_ID},
                 WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
                 new String[]{locationSetting},
                 null);
@@ -420,6 +1060,15 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
         if (locationCursor.moveToFirst()) {
             int locationIdIndex = locationCursor.getColumnIndex(WeatherContract.LocationEntry._ID);
             locationId = locationCursor.getLong(locationIdIndex);
+
+            // Remember the city id once the service tells us, so the location can join group fetches.
+            int cityIdIndex = locationCursor.getColumnIndex(WeatherContract.LocationEntry.COLUMN_CITY_ID);
+            if (cityId > 0 && locationCursor.getLong(cityIdIndex) != cityId) {
+                ContentValues cityIdValues = new ContentValues();
+                cityIdValues.put(WeatherContract.LocationEntry.COLUMN_CITY_ID, cityId);
+                getContext().getContentResolver().update(WeatherContract.LocationEntry.CONTENT_URI, cityIdValues,
+                        WeatherContract.LocationEntry._ID + " = ?", new String[]{Long.toString(locationId)});
+            }
         } else {
             // Now that the content provider is set up, inserting rows of data is pretty simple.
             // First create a ContentValues object to hold the data you want to insert.
@@ -431,6 +1080,9 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
             locationValues.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
             locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT, lat);
             locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, lon);
+            if (cityId > 0) {
+                locationValues.put(WeatherContract.LocationEntry.COLUMN_CITY_ID, cityId);
+            }
 
             // Finally, insert location data into the database.
             Uri insertedUri = getContext().getContentResolver().insert(
@@ -467,15 +1119,78 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
     }
 
     /**
-     * Helper method to have the sync adapter sync immediately
+     * Helper method to have the sync adapter sync the preferred location soon. Overlapping
+     * requests are coalesced into one sync by {@link SyncCoordinator}.
      * @param context The context used to access the account service
+     * @return the ticket of the sync that will serve this request
+     */
+    public static SyncCoordinator.SyncTicket syncImmediately(Context context) {
+        return SyncCoordinator.getInstance(context).requestSync(Utility.getPreferredLocation(context));
+    }
+
+    /**
+     * Called whenever the forecast of locationSetting, stamped with fetchedAt, is shown. The
+     * forecast is shown as it is either way; one that is stale or was never fetched is also
+     * fetched again in the background, through {@link SyncCoordinator} so that repeated reads
+     * share one sync.
+     *
+     * @param fetchedAt the location's {@link WeatherContract.LocationEntry#COLUMN_LAST_FETCHED},
+     * 0 if it has none
+     * @return how fresh the shown forecast is
+     */
+    public static FreshnessPolicy.Freshness revalidateIfStale(Context context, String locationSetting,
+                                                              long fetchedAt) {
+        FreshnessPolicy.Freshness freshness = sFreshnessPolicy.evaluate(fetchedAt, System.currentTimeMillis());
+        if (freshness == FreshnessPolicy.Freshness.FRESH) {
+            SyncStats.increment(STAT_READS_FRESH);
+            return freshness;
+        }
+        SyncStats.increment(freshness == FreshnessPolicy.Freshness.STALE ? STAT_READS_STALE : STAT_READS_MISSING);
+        // Nobody asked for this one: it mustn't spend the user's tokens or the heavy work.
+        SyncCoordinator.getInstance(context).requestSync(locationSetting, false);
+        return freshness;
+    }
+
+    /**
+     * Asks the sync framework for an expedited sync of locationSetting right away. Only
+     * {@link SyncCoordinator} should call this; everything else goes through syncImmediately.
+     *
+     * @param manual true for a sync the user asked for, false for a background revalidation
      */
-    public static void syncImmediately(Context context) {
+    static void requestExpeditedSync(Context context, String locationSetting, boolean manual) {
+        ContentResolver.requestSync(getSyncAccount(context),
+                                    context.getString(R.string.content_authority),
+                                    buildExpeditedExtras(locationSetting, manual));
+    }
+
+    /**
+     * @return the extras of an expedited sync of locationSetting. A manual one does the work of
+     * every class at user priority; otherwise it is a light sync at background priority, which
+     * only fetches the near-term daily forecast and current conditions of locationSetting, and
+     * only the tiers that are due.
+     */
+    static Bundle buildExpeditedExtras(String locationSetting, boolean manual) {
         Bundle bundle = new Bundle();
         bundle.putBoolean(ContentResolver.SYNC_EXTRAS_EXPEDITED, true);
-        bundle.putBoolean(ContentResolver.SYNC_EXTRAS_MANUAL, true);
-        ContentResolver.requestSync(getSyncAccount(context),
-                                    context.getString(R.string.content_authority), bundle);
+        if (manual) {
+            bundle.putBoolean(ContentResolver.SYNC_EXTRAS_MANUAL, true);
+        } else {
+            bundle.putString(EXTRA_SYNC_CLASS, SyncClass.LIGHT.name());
+        }
+        bundle.putString(EXTRA_LOCATION_SETTING, locationSetting);
+        return bundle;
+    }
+
+    static boolean isManual(Bundle extras) {
+        return extras.getBoolean(ContentResolver.SYNC_EXTRAS_MANUAL, false);
+    }
+
+    /**
+     * @return the priority a sync with these extras fetches at: only a sync the user asked for
+     * may use the tokens reserved for the user
+     */
+    static TokenBucket.Priority getPriority(Bundle extras) {
+        return isManual(extras) ? TokenBucket.Priority.USER : TokenBucket.Priority.BACKGROUND;
     }
 
     /**
@@ -536,5 +1251,6 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
 
     public static void initializeSyncAdapter(Context context) {
         getSyncAccount(context);
+        SyncJobService.scheduleJobs(context);
     }
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+package com.example.android.sunshine.app.sync;
+
+import android.app.job.JobInfo;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Bundle;
+
+/**
+ * The work a sync does, split by how much it costs.
+ *
+ * Light work runs on the sync adapter's periodic sync, whatever the network. Heavy work runs as
+ * a periodic {@link SyncJobService} job that waits for the network, charger and idle device it
+ * is worth spending them on. A manual sync does the work of every class at once.
+ */
+public enum SyncClass {
+
+    // The near-term daily forecast and the current conditions of the preferred location.
+    LIGHT,
+
+    // The days past the near term, one long request once a day as the horizon moves on.
+    HORIZON(3101, SunshineSyncAdapter.DAILY_REFRESH_INTERVAL * 1000L,
+            JobInfo.NETWORK_TYPE_UNMETERED, true, true),
+
+    // The current conditions of every saved location, not just the preferred one.
+    SAVED_LOCATIONS(3102, SunshineSyncAdapter.CURRENT_REFRESH_INTERVAL * 1000L,
+            JobInfo.NETWORK_TYPE_UNMETERED, false, false);
+
+    private static final int NO_JOB = 0;
+
+    private final int mJobId;
+    private final long mPeriodMillis;
+    private final int mNetworkType;
+    private final boolean mRequiresCharging;
+    private final boolean mRequiresDeviceIdle;
+
+    SyncClass() {
+        this(NO_JOB, 0, JobInfo.NETWORK_TYPE_ANY, false, false);
+    }
+
+    SyncClass(int jobId, long periodMillis, int networkType, boolean requiresCharging,
+              boolean requiresDeviceIdle) {
+        mJobId = jobId;
+        mPeriodMillis = periodMillis;
+        mNetworkType = networkType;
+        mRequiresCharging = requiresCharging;
+        mRequiresDeviceIdle = requiresDeviceIdle;
+    }
+
+    /**
+     * @return whether this class runs as a job rather than on the periodic sync
+     */
+    public boolean isHeavy() {
+        return mJobId != NO_JOB;
+    }
+
+    public int getJobId() {
+        return mJobId;
+    }
+
+    /**
+     * @return the persisted periodic job that runs this class, under its constraints
+     */
+    JobInfo buildJob(Context context) {
+        if (!isHeavy()) {
+            throw new IllegalStateException(this + " runs on the periodic sync");
+        }
+        return new JobInfo.Builder(mJobId, new ComponentName(context, SyncJobService.class))
+                .setPeriodic(mPeriodMillis)
+                .setRequiredNetworkType(mNetworkType)
+                .setRequiresCharging(mRequiresCharging)
+                .setRequiresDeviceIdle(mRequiresDeviceIdle)
+                .setPersisted(true)
+                .build();
+    }
+
+    /**
+     * @return the heavy class run by jobId, or null if it isn't one of ours
+     */
+    static SyncClass forJobId(int jobId) {
+        for (SyncClass syncClass : values()) {
+            if (syncClass.isHeavy() && syncClass.mJobId == jobId) {
+                return syncClass;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the class named by the sync's extras; syncs the framework starts are light
+     */
+    static SyncClass fromExtras(Bundle extras) {
+        String name = extras.getString(SunshineSyncAdapter.EXTRA_SYNC_CLASS);
+        return name == null ? LIGHT : valueOf(name);
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sits in front of the sync framework so that at most one fetch per location is pending or in
+ * flight at a time.
+ *
+ * A request first waits {@link #DEBOUNCE_MILLIS} so that a burst (refresh, location change and
+ * account creation can all fire together) becomes one sync. Requests made while that sync is
+ * pending or running join it instead of starting another, and every caller gets the same
+ * {@link SyncTicket} to await. Periodic syncs report in through {@link #onSyncStarted(String)}
+ * too, so requests made during one of those are absorbed as well.
+ *
+ * A request is either the user's, which refreshes everything at user priority, or a background
+ * revalidation of a stale read, which runs as a light sync. A user request joining a
+ * revalidation that hasn't been dispatched yet turns it into a user sync.
+ */
+public class SyncCoordinator {
+
+    private static final String LOG_TAG = SyncCoordinator.class.getSimpleName();
+
+    static final long DEBOUNCE_MILLIS = 500;
+
+    // A requested sync that never started (no network, sync disabled...) stops absorbing
+    // new requests after this long, so a later request gets a fresh one.
+    static final long STALE_MILLIS = 60 * 1000;
+
+    public static final String STAT_REQUESTS = "sync_requests";
+    public static final String STAT_COALESCED = "sync_requests_coalesced";
+    public static final String STAT_DISPATCHED = "sync_requests_dispatched";
+    public static final String STAT_FETCHES = "sync_fetches";
+
+    /**
+     * Hands a debounced request over to the sync framework.
+     */
+    interface Dispatcher {
+        /**
+         * @param manual whether the user asked for the sync, rather than a stale read
+         */
+        void dispatch(String locationSetting, boolean manual);
+    }
+
+    /**
+     * The shared outcome of one sync. Completed once, when the sync it stands for finishes.
+     */
+    public static class SyncTicket {
+        private final CountDownLatch mDone = new CountDownLatch(1);
+        private volatile boolean mSuccessful;
+
+        final String mLocationSetting;
+        final long mCreatedAt = SystemClock.elapsedRealtime();
+        boolean mManual;
+        boolean mDispatched;
+        boolean mStarted;
+        Runnable mDispatchRunnable;
+
+        SyncTicket(String locationSetting, boolean manual) {
+            mLocationSetting = locationSetting;
+            mManual = manual;
+        }
+
+        /**
+         * Blocks until the sync finishes or the timeout expires. Never call this on the main
+         * thread.
+         *
+         * @return true if the sync finished within the timeout.
+         */
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            return mDone.await(timeout, unit);
+        }
+
+        public boolean isDone() {
+            return mDone.getCount() == 0;
+        }
+
+        /**
+         * @return true if the sync finished and stored a new forecast.
+         */
+        public boolean isSuccessful() {
+            return mSuccessful;
+        }
+
+        void complete(boolean successful) {
+            mSuccessful = successful;
+            mDone.countDown();
+        }
+    }
+
+    private static SyncCoordinator sInstance;
+
+    private final Dispatcher mDispatcher;
+    private final long mDebounceMillis;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, SyncTicket> mTickets = new HashMap<String, SyncTicket>();
+
+    public static synchronized SyncCoordinator getInstance(final Context context) {
+        if (sInstance == null) {
+            final Context appContext = context.getApplicationContext();
+            sInstance = new SyncCoordinator(new Dispatcher() {
+                @Override
+                public void dispatch(String locationSetting, boolean manual) {
+                    SunshineSyncAdapter.requestExpeditedSync(appContext, locationSetting, manual);
+                }
+            }, DEBOUNCE_MILLIS);
+        }
+        return sInstance;
+    }
+
+    SyncCoordinator(Dispatcher dispatcher, long debounceMillis) {
+        mDispatcher = dispatcher;
+        mDebounceMillis = debounceMillis;
+    }
+
+    /**
+     * Asks for the forecast of locationSetting to be fetched soon, on the user's behalf.
+     *
+     * @return the ticket of the sync that will serve this request, shared with every other
+     * request it was coalesced with.
+     */
+    public SyncTicket requestSync(String locationSetting) {
+        return requestSync(locationSetting, true);
+    }
+
+    /**
+     * As {@link #requestSync(String)}, but manual false asks for a background revalidation
+     * instead: a light sync at background priority that fetches only the tiers that are due.
+     */
+    public synchronized SyncTicket requestSync(String locationSetting, boolean manual) {
+        SyncStats.increment(STAT_REQUESTS);
+
+        SyncTicket ticket = mTickets.get(locationSetting);
+        if (ticket != null && !ticket.mStarted && ticket.mDispatched
+                && SystemClock.elapsedRealtime() - ticket.mCreatedAt > STALE_MILLIS) {
+            Log.d(LOG_TAG, "Sync for " + locationSetting + " never started, requesting a new one");
+            ticket.complete(false);
+            ticket = null;
+        }
+        if (ticket != null) {
+            SyncStats.increment(STAT_COALESCED);
+            if (manual && !ticket.mDispatched && !ticket.mStarted) {
+                ticket.mManual = true;
+            }
+            return ticket;
+        }
+
+        final SyncTicket created = new SyncTicket(locationSetting, manual);
+        created.mDispatchRunnable = new Runnable() {
+            @Override
+            public void run() {
+                dispatch(created);
+            }
+        };
+        mTickets.put(locationSetting, created);
+        mHandler.postDelayed(created.mDispatchRunnable, mDebounceMillis);
+        return created;
+    }
+
+    private void dispatch(SyncTicket ticket) {
+        boolean manual;
+        synchronized (this) {
+            // The sync may have been started by the framework in the meantime, or replaced.
+            if (ticket.mStarted || ticket.mDispatched || mTickets.get(ticket.mLocationSetting) != ticket) {
+                return;
+            }
+            ticket.mDispatched = true;
+            manual = ticket.mManual;
+        }
+        SyncStats.increment(STAT_DISPATCHED);
+        mDispatcher.dispatch(ticket.mLocationSetting, manual);
+    }
+
+    /**
+     * Called by the sync adapter before it fetches locationSetting, whatever triggered the sync.
+     */
+    public synchronized void onSyncStarted(String locationSetting) {
+        SyncStats.increment(STAT_FETCHES);
+
+        SyncTicket ticket = mTickets.get(locationSetting);
+        if (ticket == null) {
+            ticket = new SyncTicket(locationSetting, false);
+            mTickets.put(locationSetting, ticket);
+        } else if (ticket.mDispatchRunnable != null) {
+            mHandler.removeCallbacks(ticket.mDispatchRunnable);
+        }
+        ticket.mStarted = true;
+    }
+
+    /**
+     * Called by the sync adapter once it is done with locationSetting, successfully or not.
+     */
+    public void onSyncFinished(String locationSetting, boolean successful) {
+        SyncTicket ticket;
+        synchronized (this) {
+            ticket = mTickets.get(locationSetting);
+            if (ticket == null || !ticket.mStarted) {
+                return;
+            }
+            mTickets.remove(locationSetting);
+        }
+        ticket.complete(successful);
+        Log.d(LOG_TAG, "Sync for " + locationSetting + " finished, " + SyncStats.dump());
+    }
+}
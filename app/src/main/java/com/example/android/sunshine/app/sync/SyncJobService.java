@@ -0,0 +1,170 @@
+package com.example.android.sunshine.app.sync;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ContentProviderClient;
+import android.content.Context;
+import android.content.SyncResult;
+import android.os.Bundle;
+import android.util.Log;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.core.CancellationToken;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Runs the heavy {@link SyncClass}es as JobScheduler jobs, so that they wait for an unmetered
+ * network, a charger or an idle device instead of running whenever the periodic sync does.
+ *
+ * A job runs the same {@link SunshineSyncAdapter#performSync} as the sync framework, on its
+ * own adapter and one job at a time. A job whose sync ends in a soft error asks to be
+ * rescheduled with JobScheduler's backoff; a job stopped because its constraints no longer hold
+ * cancels its sync through the job's own token, whether the sync is running yet or still
+ * queued behind another job.
+ */
+public class SyncJobService extends JobService {
+
+    private static final String LOG_TAG = SyncJobService.class.getSimpleName();
+
+    // Suffixed with the class name, e.g. "sync_jobs_started_horizon".
+    public static final String STAT_JOBS_STARTED = "sync_jobs_started_";
+    public static final String STAT_JOBS_STOPPED = "sync_jobs_stopped_";
+    public static final String STAT_JOBS_RESCHEDULED = "sync_jobs_rescheduled_";
+
+    private static final Object sSyncAdapterLock = new Object();
+    private static SunshineSyncAdapter sSyncAdapter = null;
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+
+    private final Map<Integer, Job> mJobs = new HashMap<Integer, Job>();
+
+    // A started job's sync and the token that cancels it.
+    private static class Job {
+        final FutureTask<Void> task;
+        final CancellationToken cancellation;
+
+        Job(FutureTask<Void> task, CancellationToken cancellation) {
+            this.task = task;
+            this.cancellation = cancellation;
+        }
+    }
+
+    /**
+     * Schedules every heavy class's job that isn't pending already. Scheduling a pending job
+     * again would restart its period, so this is safe to call on every launch.
+     */
+    public static void scheduleJobs(Context context) {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        for (SyncClass syncClass : SyncClass.values()) {
+            if (!syncClass.isHeavy() || isPending(scheduler, syncClass.getJobId())) {
+                continue;
+            }
+            if (scheduler.schedule(syncClass.buildJob(context)) != JobScheduler.RESULT_SUCCESS) {
+                Log.w(LOG_TAG, "Unable to schedule the " + syncClass + " sync job");
+            }
+        }
+    }
+
+    private static boolean isPending(JobScheduler scheduler, int jobId) {
+        for (JobInfo job : scheduler.getAllPendingJobs()) {
+            if (job.getId() == jobId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        synchronized (sSyncAdapterLock) {
+            if (sSyncAdapter == null) {
+                sSyncAdapter = new SunshineSyncAdapter(getApplicationContext(), false);
+            }
+        }
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        final SyncClass syncClass = SyncClass.forJobId(params.getJobId());
+        if (syncClass == null) {
+            Log.w(LOG_TAG, "Unknown job " + params.getJobId());
+            return false;
+        }
+        SyncStats.increment(STAT_JOBS_STARTED + getStatName(syncClass));
+
+        final CancellationToken cancellation = new CancellationToken();
+        FutureTask<Void> task = new FutureTask<Void>(new Runnable() {
+            @Override
+            public void run() {
+                boolean reschedule = runSync(syncClass, cancellation);
+                synchronized (mJobs) {
+                    if (mJobs.remove(params.getJobId()) == null) {
+                        // Stopped: JobScheduler already decided what happens next.
+                        return;
+                    }
+                }
+                if (reschedule) {
+                    SyncStats.increment(STAT_JOBS_RESCHEDULED + getStatName(syncClass));
+                }
+                jobFinished(params, reschedule);
+            }
+        }, null);
+        synchronized (mJobs) {
+            mJobs.put(params.getJobId(), new Job(task, cancellation));
+        }
+        sExecutor.execute(task);
+        return true;
+    }
+
+    /**
+     * @return whether the sync failed softly and should be retried
+     */
+    private boolean runSync(SyncClass syncClass, CancellationToken cancellation) {
+        String authority = getString(R.string.content_authority);
+        ContentProviderClient provider = getContentResolver().acquireContentProviderClient(authority);
+        if (provider == null) {
+            Log.w(LOG_TAG, "No provider for " + authority);
+            return true;
+        }
+        Bundle extras = new Bundle();
+        extras.putString(SunshineSyncAdapter.EXTRA_SYNC_CLASS, syncClass.name());
+        SyncResult result = new SyncResult();
+        try {
+            sSyncAdapter.performSync(extras, provider, result, cancellation);
+        } finally {
+            provider.release();
+        }
+        return result.hasSoftError();
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        Job job;
+        synchronized (mJobs) {
+            job = mJobs.remove(params.getJobId());
+        }
+        if (job == null) {
+            return false;
+        }
+        SyncClass syncClass = SyncClass.forJobId(params.getJobId());
+        Log.d(LOG_TAG, "Stopping the " + syncClass + " sync job");
+        SyncStats.increment(STAT_JOBS_STOPPED + getStatName(syncClass));
+        job.cancellation.cancel();
+        // Wakes the sync from a backoff or a wait for a hedge.
+        job.task.cancel(true);
+        // Run it again once its constraints hold again.
+        return true;
+    }
+
+    private static String getStatName(SyncClass syncClass) {
+        return syncClass.name().toLowerCase(Locale.US);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.android.sunshine.app.sync;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.SQLException;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.SyncRunEntry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What one run of {@link SunshineSyncAdapter} did: how long each stage took, how much it
+ * downloaded and wrote, and how it ended. Saved as a {@link SyncRunEntry} row when the run ends.
+ *
+ * Only used on the sync thread.
+ */
+class SyncRun {
+
+    private static final String LOG_TAG = SyncRun.class.getSimpleName();
+
+    static final String TRIGGER_MANUAL = "manual";
+    static final String TRIGGER_PERIODIC = "periodic";
+    // Followed by the heavy sync class, e.g. "job_horizon".
+    static final String TRIGGER_JOB = "job_";
+
+    static final String OUTCOME_SUCCESS = "success";
+    static final String OUTCOME_EMPTY_RESPONSE = "empty_response";
+    static final String OUTCOME_CANCELLED = "cancelled";
+    static final String OUTCOME_DEADLINE_EXCEEDED = "deadline_exceeded";
+    static final String OUTCOME_RATE_LIMITED = "rate_limited";
+    static final String OUTCOME_CIRCUIT_OPEN = "circuit_open";
+    // Followed by the status code, e.g. "http_503".
+    static final String OUTCOME_HTTP_ERROR = "http_";
+    static final String OUTCOME_RESPONSE_TOO_LARGE = "response_too_large";
+    static final String OUTCOME_IO_ERROR = "io_error";
+    static final String OUTCOME_PARSE_ERROR = "parse_error";
+    // Left in place when the run dies of an unexpected exception.
+    static final String OUTCOME_CRASHED = "crashed";
+
+    private final String mTrigger;
+    private final String mLocationSetting;
+    private final long mStartedAt;
+    private final long mStartNanos;
+
+    private String mOutcome = OUTCOME_CRASHED;
+    private long mFetchNanos;
+    private long mParseNanos;
+    private long mWriteNanos;
+    private long mBytesReceived;
+    private int mRowsWritten;
+
+    SyncRun(String trigger, String locationSetting) {
+        mTrigger = trigger;
+        mLocationSetting = locationSetting;
+        mStartedAt = System.currentTimeMillis();
+        mStartNanos = System.nanoTime();
+    }
+
+    void addFetch(long nanos, long bytesReceived) {
+        mFetchNanos += nanos;
+        mBytesReceived += bytesReceived;
+    }
+
+    void addParse(long nanos) {
+        mParseNanos += nanos;
+    }
+
+    void addWrite(long nanos, int rows) {
+        mWriteNanos += nanos;
+        mRowsWritten += rows;
+    }
+
+    void setOutcome(String outcome) {
+        mOutcome = outcome;
+    }
+
+    ContentValues toContentValues() {
+        ContentValues values = new ContentValues();
+        values.put(SyncRunEntry.COLUMN_STARTED, mStartedAt);
+        values.put(SyncRunEntry.COLUMN_TRIGGER, mTrigger);
+        values.put(SyncRunEntry.COLUMN_LOCATION_SETTING, mLocationSetting);
+        values.put(SyncRunEntry.COLUMN_OUTCOME, mOutcome);
+        values.put(SyncRunEntry.COLUMN_DURATION, toMillis(System.nanoTime() - mStartNanos));
+        values.put(SyncRunEntry.COLUMN_FETCH_DURATION, toMillis(mFetchNanos));
+        values.put(SyncRunEntry.COLUMN_PARSE_DURATION, toMillis(mParseNanos));
+        values.put(SyncRunEntry.COLUMN_WRITE_DURATION, toMillis(mWriteNanos));
+        values.put(SyncRunEntry.COLUMN_BYTES_RECEIVED, mBytesReceived);
+        values.put(SyncRunEntry.COLUMN_ROWS_WRITTEN, mRowsWritten);
+        return values;
+    }
+
+    /**
+     * Adds the run to the history. A failure is only logged: losing a diagnostics row must not
+     * fail the sync.
+     */
+    void save(Context context) {
+        try {
+            context.getContentResolver().insert(SyncRunEntry.CONTENT_URI, toContentValues());
+        } catch (SQLException e) {
+            Log.w(LOG_TAG, "Unable to record sync run", e);
+        }
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
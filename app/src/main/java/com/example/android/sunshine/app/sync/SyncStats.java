@@ -0,0 +1,56 @@
+package com.example.android.sunshine.app.sync;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide named counters for the sync path, e.g. how many syncs were requested and how
+ * many actually went to the network. Counters start at zero when the process starts and are
+ * only meant for logging and tests.
+ */
+public final class SyncStats {
+
+    private static final ConcurrentMap<String, AtomicLong> sCounters =
+            new ConcurrentHashMap<String, AtomicLong>();
+
+    private SyncStats() {
+    }
+
+    public static long increment(String name) {
+        return add(name, 1);
+    }
+
+    public static long add(String name, long delta) {
+        AtomicLong counter = sCounters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = sCounters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter.addAndGet(delta);
+    }
+
+    public static long get(String name) {
+        AtomicLong counter = sCounters.get(name);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * @return every counter as "name=value", sorted by name, for logcat.
+     */
+    public static String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<String, AtomicLong>(sCounters).entrySet()) {
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            builder.append(entry.getKey()).append('=').append(entry.getValue().get());
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.android.sunshine.app.sync;
+
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.preference.PreferenceManager;
+import android.support.v4.app.NotificationCompat;
+import android.support.v4.app.TaskStackBuilder;
+import android.util.LruCache;
+
+import com.example.android.sunshine.app.MainActivity;
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.core.DayForecast;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posts the once-a-day notification with today's forecast.
+ *
+ * The sync adapter hands over the day it just parsed, so nothing is read back from the provider,
+ * and the notification is built on the notifier's own thread instead of the sync thread. Large
+ * icons are decoded at the size the notification shows them, not the art's full size, and kept
+ * in a small cache since there are only a handful of them. The time of the last notification is
+ * saved with apply(), which doesn't wait for the disk.
+ */
+public class WeatherNotifier {
+
+    private static final int WEATHER_NOTIFICATION_ID = 3004;
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+
+    // Enough for every weather art at the large icon size of an xxxhdpi screen.
+    private static final int ICON_CACHE_BYTES = 1024 * 1024;
+
+    public static final String STAT_NOTIFICATIONS = "notifications_posted";
+    // Time spent building and posting notifications, on the notifier's thread.
+    public static final String STAT_NOTIFY_MILLIS = "notify_millis";
+    public static final String STAT_ICON_DECODES = "notification_icon_decodes";
+
+    private static WeatherNotifier sInstance;
+
+    private final Context mContext;
+    private final Executor mExecutor;
+    private final int mIconWidth;
+    private final int mIconHeight;
+    private final LruCache<Integer, Bitmap> mLargeIcons = new LruCache<Integer, Bitmap>(ICON_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(Integer artResource, Bitmap icon) {
+            return icon.getByteCount();
+        }
+    };
+
+    public static synchronized WeatherNotifier getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WeatherNotifier(context.getApplicationContext(), Executors.newSingleThreadExecutor());
+        }
+        return sInstance;
+    }
+
+    WeatherNotifier(Context context, Executor executor) {
+        mContext = context;
+        mExecutor = executor;
+        Resources resources = context.getResources();
+        mIconWidth = resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width);
+        mIconHeight = resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height);
+    }
+
+    /**
+     * Notifies today's forecast if notifications are on and none was posted in the last day.
+     * Returns straight away; the notification is built and posted on the notifier's thread.
+     */
+    public void notifyIfDue(final DayForecast today) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                if (notifyNow(today)) {
+                    SyncStats.increment(STAT_NOTIFICATIONS);
+                }
+                SyncStats.add(STAT_NOTIFY_MILLIS, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        });
+    }
+
+    /**
+     * @return whether a notification was posted
+     */
+    boolean notifyNow(DayForecast today) {
+        Context context = mContext;
+        //checking the last update and notify if it' the first of the day
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String displayNotificationsKey = context.getString(R.string.pref_enable_notifications_key);
+        boolean displayNotifications = prefs.getBoolean(displayNotificationsKey,
+                Boolean.parseBoolean(context.getString(R.string.pref_enable_notifications_default)));
+        if (!displayNotifications) {
+            return false;
+        }
+
+        String lastNotificationKey = context.getString(R.string.pref_last_notification);
+        long lastSync = prefs.getLong(lastNotificationKey, 0);
+        if (System.currentTimeMillis() - lastSync < DAY_IN_MILLIS) {
+            return false;
+        }
+
+        // Last sync was more than 1 day ago, let's send a notification with the weather.
+        int iconId = Utility.getIconResourceForWeatherCondition(today.weatherId);
+        Resources resources = context.getResources();
+        Bitmap largeIcon = getLargeIcon(Utility.getArtResourceForWeatherCondition(today.weatherId));
+        String title = context.getString(R.string.app_name);
+
+        // Define the text of the forecast.
+        String contentText = String.format(context.getString(R.string.format_notification),
+                                           today.description,
+                                           Utility.formatTemperature(context, today.high),
+                                           Utility.formatTemperature(context, today.low));
+
+        // NotificationCompatBuilder is a very convenient way to build backward-compatible
+        // notifications.  Just throw in some data.
+        NotificationCompat.Builder builder =
+                new NotificationCompat.Builder(context)
+                        .setColor(resources.getColor(R.color.sunshine_light_blue))
+                        .setSmallIcon(iconId)
+                        .setLargeIcon(largeIcon)
+                        .setContentTitle(title)
+                        .setContentText(contentText);
+
+        // Make something interesting happen when the user clicks on the notification.
+        // In this case, opening the app is sufficient, with a back stack that leads out of the
+        // app to the Home screen.
+        Intent resultIntent = new Intent(context, MainActivity.class);
+        TaskStackBuilder stackBuilder = TaskStackBuilder.create(context);
+        stackBuilder.addNextIntent(resultIntent);
+        PendingIntent resultPendingIntent = stackBuilder.getPendingIntent(0, PendingIntent.FLAG_UPDATE_CURRENT);
+        builder.setContentIntent(resultPendingIntent);
+
+        NotificationManager notificationManager =
+                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        // WEATHER_NOTIFICATION_ID allows you to update the notification later on.
+        notificationManager.notify(WEATHER_NOTIFICATION_ID, builder.build());
+
+        //refreshing last sync
+        prefs.edit().putLong(lastNotificationKey, System.currentTimeMillis()).apply();
+        return true;
+    }
+
+    /**
+     * @return artResource decoded at the large icon size, from the cache when it was decoded
+     * before.
+     */
+    Bitmap getLargeIcon(int artResource) {
+        Bitmap icon = mLargeIcons.get(artResource);
+        if (icon != null) {
+            return icon;
+        }
+
+        Resources resources = mContext.getResources();
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, artResource, options);
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, mIconWidth, mIconHeight);
+        options.inJustDecodeBounds = false;
+        Bitmap decoded = BitmapFactory.decodeResource(resources, artResource, options);
+        SyncStats.increment(STAT_ICON_DECODES);
+
+        icon = Bitmap.createScaledBitmap(decoded, mIconWidth, mIconHeight, true);
+        if (icon != decoded) {
+            decoded.recycle();
+        }
+        mLargeIcons.put(artResource, icon);
+        return icon;
+    }
+
+    /**
+     * @return the largest power of two to subsample a width by height image by that still
+     * leaves it at least reqWidth by reqHeight.
+     */
+    static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        while (width / (inSampleSize * 2) >= reqWidth && height / (inSampleSize * 2) >= reqHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentValues;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/*
+    Generates locations and daily forecasts with plausible values, for filling the database at
+    sizes the hand-written TestUtilities rows cannot reach. The same seed always produces the
+    same data.
+
+    Latitudes cluster where people live, temperatures follow the season for the latitude with
+    day-to-day persistence, and the weather condition is derived from humidity and temperature,
+    so the weather_id and short_desc columns have realistic cardinality.
+ */
+public class SyntheticForecastData {
+
+    static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+
+    private final Random mRandom;
+
+    public SyntheticForecastData(long seed) {
+        mRandom = new Random(seed);
+    }
+
+    /**
+     * @return the location setting used for the index'th location, a five digit postal code.
+     */
+    public static String locationSetting(int index) {
+        return String.format(Locale.US, "%05d", index);
+    }
+
+    /**
+     * @return the normalized date of the day'th day after startDate, safe across DST changes.
+     */
+    public static long dayDate(long startDate, int day) {
+        return WeatherContract.normalizeDate(startDate + day * DAY_IN_MILLIS + DAY_IN_MILLIS / 2);
+    }
+
+    public ContentValues createLocation(int index) {
+        double lat = Math.max(-65, Math.min(65, 30 + mRandom.nextGaussian() * 18));
+        if (mRandom.nextInt(10) < 2) {
+            lat = -lat;
+        }
+        double lon = mRandom.nextDouble() * 360 - 180;
+
+        ContentValues values = new ContentValues();
+        values.put(LocationEntry.COLUMN_LOCATION_SETTING, locationSetting(index));
+        values.put(LocationEntry.COLUMN_CITY_NAME, "City " + index);
+        values.put(LocationEntry.COLUMN_COORD_LAT, lat);
+        values.put(LocationEntry.COLUMN_COORD_LONG, lon);
+        return values;
+    }
+
+    /**
+     * @param locationId the row id returned when inserting the location
+     * @param lat the latitude of that location, which sets the climate
+     * @param startDate date of the first day, see {@link #dayDate(long, int)}
+     * @return one row per day, ready for bulkInsert
+     */
+    public ContentValues[] createWeather(long locationId, double lat, long startDate, int days) {
+        ContentValues[] rows = new ContentValues[days];
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+        double anomaly = 0;
+        double pressure = 1013;
+        for (int day = 0; day < days; day++) {
+            long date = dayDate(startDate, day);
+            calendar.setTimeInMillis(date);
+            int dayOfYear = calendar.get(Calendar.DAY_OF_YEAR);
+
+            // Warmest in late July up north and late January down south.
+            double season = Math.cos(2 * Math.PI * (dayOfYear - 200) / 365.0) * (lat >= 0 ? 1 : -1);
+            double mean = 27 - 0.4 * Math.abs(lat) + 0.3 * Math.abs(lat) * season;
+            anomaly = 0.7 * anomaly + mRandom.nextGaussian() * 2.5;
+            double high = mean + 4 + anomaly;
+            double low = high - 5 - Math.abs(mRandom.nextGaussian() * 3);
+
+            pressure = 1013 + 0.8 * (pressure - 1013) + mRandom.nextGaussian() * 4;
+            double humidity = Math.max(15, Math.min(100, 65 + mRandom.nextGaussian() * 18));
+            // Rayleigh distributed, which is how wind speeds tend to look.
+            double windSpeed = 3 * Math.sqrt(-2 * Math.log(1 - mRandom.nextDouble()));
+            // Mostly westerly.
+            double degrees = (270 + mRandom.nextGaussian() * 70 + 360) % 360;
+
+            int weatherId = weatherId(humidity, low);
+
+            ContentValues values = new ContentValues();
+            values.put(WeatherEntry.COLUMN_LOC_KEY, locationId);
+            values.put(WeatherEntry.COLUMN_DATE, date);
+            values.put(WeatherEntry.COLUMN_HUMIDITY, Math.round(humidity));
+            values.put(WeatherEntry.COLUMN_PRESSURE, pressure);
+            values.put(WeatherEntry.COLUMN_WIND_SPEED, windSpeed);
+            values.put(WeatherEntry.COLUMN_DEGREES, degrees);
+            values.put(WeatherEntry.COLUMN_MAX_TEMP, high);
+            values.put(WeatherEntry.COLUMN_MIN_TEMP, low);
+            values.put(WeatherEntry.COLUMN_SHORT_DESC, description(weatherId));
+            values.put(WeatherEntry.COLUMN_WEATHER_ID, weatherId);
+            rows[day] = values;
+        }
+        return rows;
+    }
+
+    private int weatherId(double humidity, double low) {
+        int roll = mRandom.nextInt(100);
+        if (roll < 3) {
+            return 211;
+        } else if (roll < 4) {
+            return 741;
+        } else if (humidity > 85) {
+            if (low < 0) {
+                return roll < 60 ? 600 : 601;
+            }
+            return roll < 50 ? 500 : (roll < 85 ? 501 : 502);
+        } else if (humidity > 70) {
+            return roll < 50 ? 803 : 804;
+        }
+        return roll < 70 ? 800 : 801;
+    }
+
+    private static String description(int weatherId) {
+        switch (weatherId) {
+            case 211:
+                return "Thunderstorm";
+            case 741:
+                return "Fog";
+            case 500:
+                return "Light Rain";
+            case 501:
+            case 502:
+                return "Rain";
+            case 600:
+            case 601:
+                return "Snow";
+            case 800:
+                return "Clear";
+            case 801:
+                return "Few Clouds";
+            default:
+                return "Clouds";
+        }
+    }
+}
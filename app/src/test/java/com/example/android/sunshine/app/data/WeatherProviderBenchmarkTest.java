@@ -0,0 +1,198 @@
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+
+import com.example.android.sunshine.app.BuildConfig;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/*
+    Fills WeatherProvider with synthetic data in steps and, at each step, reports bulkInsert
+    throughput, query latency for every URI type and the database file size. Delete cost is
+    measured once the database is full.
+
+    The default scale keeps the unit test run short. For the full 1,000 locations x 365 days run
+
+        ./gradlew :app:testDebugUnitTest -Dsunshine.benchmark.scale=full
+
+    Results are printed to standard output; the test only fails if the provider returns the
+    wrong number of rows.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class WeatherProviderBenchmarkTest {
+
+    private static final int QUERIES = 200;
+
+    // 2015-01-01 UTC.
+    private static final long START_DATE = 1420070400000L;
+
+    private Context mContext;
+    private WeatherProvider mProvider;
+
+    private int[] mLocationSteps;
+    private int mDays;
+
+    private long[] mLocationIds;
+    private double[] mLatitudes;
+
+    @Before
+    public void setUp() {
+        if ("full".equals(System.getProperty("sunshine.benchmark.scale"))) {
+            mLocationSteps = new int[] {100, 250, 500, 1000};
+            mDays = 365;
+        } else {
+            mLocationSteps = new int[] {10, 25, 50};
+            mDays = 30;
+        }
+
+        mContext = RuntimeEnvironment.application;
+        mContext.deleteDatabase(WeatherDbHelper.DATABASE_NAME);
+        mProvider = new WeatherProvider();
+        // Sets the context and calls onCreate().
+        mProvider.attachInfo(mContext, null);
+    }
+
+    @After
+    public void tearDown() {
+        mProvider.shutdown();
+        mContext.deleteDatabase(WeatherDbHelper.DATABASE_NAME);
+    }
+
+    @Test
+    public void benchmarkGrowingDatabase() {
+        int maxLocations = mLocationSteps[mLocationSteps.length - 1];
+        mLocationIds = new long[maxLocations];
+        mLatitudes = new double[maxLocations];
+        SyntheticForecastData data = new SyntheticForecastData(42);
+
+        int inserted = 0;
+        for (int locations : mLocationSteps) {
+            int added = locations - inserted;
+            long insertNanos = 0;
+            for (; inserted < locations; inserted++) {
+                ContentValues location = data.createLocation(inserted);
+                mLatitudes[inserted] = location.getAsDouble(LocationEntry.COLUMN_COORD_LAT);
+                mLocationIds[inserted] = ContentUris.parseId(mProvider.insert(LocationEntry.CONTENT_URI, location));
+
+                ContentValues[] weather = data.createWeather(mLocationIds[inserted], mLatitudes[inserted], START_DATE, mDays);
+                long start = System.nanoTime();
+                int rows = mProvider.bulkInsert(WeatherEntry.CONTENT_URI, weather);
+                insertNanos += System.nanoTime() - start;
+                assertEquals(mDays, rows);
+            }
+            report("%d locations x %d days: bulkInsert %.0f rows/s, database %.1f MB",
+                    locations, mDays, added * mDays / (insertNanos / 1e9), databaseBytes() / (1024.0 * 1024.0));
+
+            benchmarkQueries(locations);
+        }
+
+        benchmarkDeletes(maxLocations);
+    }
+
+    private void benchmarkQueries(int locations) {
+        Random random = new Random(7);
+        long[] list = new long[QUERIES];
+        long[] detail = new long[QUERIES];
+        long[] weather = new long[QUERIES];
+        long[] location = new long[QUERIES];
+        int week = Math.min(7, mDays - 1);
+
+        for (int i = 0; i < QUERIES; i++) {
+            int index = random.nextInt(locations);
+            String setting = SyntheticForecastData.locationSetting(index);
+            long date = SyntheticForecastData.dayDate(START_DATE, random.nextInt(mDays));
+            long weekAgo = SyntheticForecastData.dayDate(START_DATE, mDays - 1 - week);
+
+            list[i] = timeQuery(WeatherEntry.buildWeatherLocationWithStartDate(setting, weekAgo),
+                    null, null, week + 1);
+            detail[i] = timeQuery(WeatherEntry.buildWeatherLocationWithDate(setting, date),
+                    null, null, 1);
+            weather[i] = timeQuery(WeatherEntry.CONTENT_URI,
+                    WeatherEntry.COLUMN_LOC_KEY + " = ?", new String[] {Long.toString(mLocationIds[index])}, mDays);
+            location[i] = timeQuery(LocationEntry.CONTENT_URI,
+                    LocationEntry.COLUMN_LOCATION_SETTING + " = ?", new String[] {setting}, 1);
+        }
+
+        reportLatency("  weather/*?date (list)", list);
+        reportLatency("  weather/*/# (detail)", detail);
+        reportLatency("  weather", weather);
+        reportLatency("  location", location);
+    }
+
+    private long timeQuery(Uri uri, String selection, String[] selectionArgs, int expectedRows) {
+        long start = System.nanoTime();
+        Cursor cursor = mProvider.query(uri, null, selection, selectionArgs, null);
+        // getCount() forces the whole window to be filled, as a CursorAdapter would.
+        int rows = cursor.getCount();
+        long nanos = System.nanoTime() - start;
+        cursor.close();
+        assertEquals("Error: Unexpected row count for " + uri, expectedRows, rows);
+        return nanos;
+    }
+
+    private void benchmarkDeletes(int locations) {
+        // What the sync adapter does every run: drop the days before today, here the first half.
+        long cutoff = SyntheticForecastData.dayDate(START_DATE, mDays / 2 - 1);
+        long start = System.nanoTime();
+        int deleted = mProvider.delete(WeatherEntry.CONTENT_URI,
+                WeatherEntry.COLUMN_DATE + " <= ?", new String[] {Long.toString(cutoff)});
+        long nanos = System.nanoTime() - start;
+        assertEquals(locations * (mDays / 2), deleted);
+        report("delete old days: %d rows in %.1f ms (%.1f us/row)", deleted, nanos / 1e6, nanos / 1e3 / deleted);
+
+        // Removing a location and its forecast, one at a time.
+        int removed = Math.min(locations, 50);
+        start = System.nanoTime();
+        for (int i = 0; i < removed; i++) {
+            String[] args = {Long.toString(mLocationIds[i])};
+            mProvider.delete(WeatherEntry.CONTENT_URI, WeatherEntry.COLUMN_LOC_KEY + " = ?", args);
+            mProvider.delete(LocationEntry.CONTENT_URI, LocationEntry._ID + " = ?", args);
+        }
+        nanos = System.nanoTime() - start;
+        report("delete location: %.2f ms per location, database %.1f MB",
+                nanos / 1e6 / removed, databaseBytes() / (1024.0 * 1024.0));
+
+        Cursor cursor = mProvider.query(LocationEntry.CONTENT_URI, null, null, null, null);
+        assertEquals(locations - removed, cursor.getCount());
+        cursor.close();
+    }
+
+    private long databaseBytes() {
+        long bytes = mContext.getDatabasePath(WeatherDbHelper.DATABASE_NAME).length();
+        assertTrue("Error: Database file not found", bytes > 0);
+        return bytes;
+    }
+
+    private static void reportLatency(String label, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        report("%s: p50 %.1f us, p95 %.1f us, max %.1f us", label,
+                sorted[sorted.length / 2] / 1e3, sorted[sorted.length * 95 / 100] / 1e3,
+                sorted[sorted.length - 1] / 1e3);
+    }
+
+    private static void report(String format, Object... args) {
+        System.out.println(WeatherProviderBenchmarkTest.class.getSimpleName() + ": "
+                + String.format(Locale.US, format, args));
+    }
+}
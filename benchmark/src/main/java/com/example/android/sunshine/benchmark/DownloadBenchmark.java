@@ -0,0 +1,82 @@
+package com.example.android.sunshine.benchmark;
+
+import com.example.android.sunshine.core.BufferPool;
+import com.example.android.sunshine.core.ForecastHttpClient;
+import com.example.android.sunshine.core.ResponseBuffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning the response stream into the String handed to the parser: the original
+ * readLine()/StringBuffer loop against reading into a pooled ResponseBuffer. The stream is in
+ * memory so only buffering is measured.
+ *
+ * Run with the GC profiler to see bytes allocated per fetch (gc.alloc.rate.norm):
+ *
+ *   ./gradlew :benchmark:jmh -PjmhArgs='-prof gc Download'
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DownloadBenchmark {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Param({"7", "14", "16"})
+    public int days;
+
+    private final BufferPool mPool = new BufferPool(1, 16 * 1024, 64 * 1024);
+    private byte[] mPayload;
+
+    @Setup
+    public void setUp() {
+        mPayload = ForecastPayloads.dailyForecast(days, 1).getBytes(UTF_8);
+    }
+
+    @Benchmark
+    public String readLines() throws IOException {
+        InputStream inputStream = new ByteArrayInputStream(mPayload);
+        StringBuffer buffer = new StringBuffer();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            buffer.append(line + "\n");
+        }
+        reader.close();
+        return buffer.toString();
+    }
+
+    @Benchmark
+    public String pooledBuffer() throws IOException {
+        InputStream inputStream = new ByteArrayInputStream(mPayload);
+        ResponseBuffer buffer = mPool.acquire();
+        try {
+            buffer.readFrom(inputStream, ForecastHttpClient.DEFAULT_MAX_RESPONSE_BYTES);
+            // The parser still needs one String; this is the only copy made.
+            return buffer.decode(UTF_8);
+        } finally {
+            mPool.release(buffer);
+        }
+    }
+}
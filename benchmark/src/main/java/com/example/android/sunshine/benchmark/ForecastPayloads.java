@@ -0,0 +1,105 @@
+package com.example.android.sunshine.benchmark;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Builds synthetic OpenWeatherMap daily forecast and current weather responses shaped like the
+ * real ones, with plausible values, so the ingestion path can be benchmarked without the network.
+ */
+public final class ForecastPayloads {
+
+    private static final int[] WEATHER_IDS = {200, 301, 500, 511, 521, 601, 741, 800, 801, 803};
+    private static final String[] WEATHER_MAINS = {
+            "Thunderstorm", "Drizzle", "Rain", "Rain", "Rain", "Snow", "Fog", "Clear", "Clouds", "Clouds"};
+
+    private ForecastPayloads() {
+    }
+
+    /**
+     * @param days number of entries in the "list" array
+     * @param seed varies the city and the values, so different seeds give different payloads
+     * @return the response body, formatted over several lines like the real service does
+     */
+    public static String dailyForecast(int days, long seed) {
+        Random random = new Random(seed);
+        StringBuilder json = new StringBuilder(300 + days * 260);
+        double lat = random.nextDouble() * 140 - 70;
+        double lon = random.nextDouble() * 360 - 180;
+        json.append(String.format(Locale.US,
+                "{\"city\":{\"id\":%d,\"name\":\"City %d\",\"coord\":{\"lon\":%.6f,\"lat\":%.6f},"
+                        + "\"country\":\"US\",\"population\":0},\n\"cod\":\"200\",\"message\":0.0123,\"cnt\":%d,\"list\":[\n",
+                cityId(seed), seed, lon, lat, days));
+
+        long dt = 1419105600L;
+        double base = 25 - Math.abs(lat) / 3;
+        for (int day = 0; day < days; day++, dt += 86400) {
+            double min = base + random.nextGaussian() * 4;
+            double max = min + 3 + random.nextDouble() * 10;
+            int weather = random.nextInt(WEATHER_IDS.length);
+            if (day > 0) {
+                json.append(",\n");
+            }
+            json.append(String.format(Locale.US,
+                    "{\"dt\":%d,\"temp\":{\"day\":%.2f,\"min\":%.2f,\"max\":%.2f,\"night\":%.2f,\"eve\":%.2f,\"morn\":%.2f},"
+                            + "\"pressure\":%.2f,\"humidity\":%d,"
+                            + "\"weather\":[{\"id\":%d,\"main\":\"%s\",\"description\":\"%s\",\"icon\":\"10d\"}],"
+                            + "\"speed\":%.2f,\"deg\":%d,\"clouds\":%d}",
+                    dt, (min + max) / 2, min, max, min + 1, max - 1, min + 2,
+                    990 + random.nextDouble() * 40, 20 + random.nextInt(80),
+                    WEATHER_IDS[weather], WEATHER_MAINS[weather], WEATHER_MAINS[weather].toLowerCase(Locale.US),
+                    Math.abs(random.nextGaussian() * 5), random.nextInt(360), random.nextInt(100)));
+        }
+        json.append("\n]}\n");
+        return json.toString();
+    }
+
+    /**
+     * @param seed varies the city and the values, as for {@link #dailyForecast(int, long)}
+     * @return a current weather response body
+     */
+    public static String currentConditions(long seed) {
+        Random random = new Random(seed);
+        double lat = random.nextDouble() * 140 - 70;
+        double lon = random.nextDouble() * 360 - 180;
+        double temp = 25 - Math.abs(lat) / 3 + random.nextGaussian() * 4;
+        int weather = random.nextInt(WEATHER_IDS.length);
+        return String.format(Locale.US,
+                "{\"coord\":{\"lon\":%.2f,\"lat\":%.2f},"
+                        + "\"weather\":[{\"id\":%d,\"main\":\"%s\",\"description\":\"%s\",\"icon\":\"10d\"}],"
+                        + "\"base\":\"stations\",\"main\":{\"temp\":%.2f,\"pressure\":%d,\"humidity\":%d,"
+                        + "\"temp_min\":%.2f,\"temp_max\":%.2f},\"visibility\":10000,"
+                        + "\"wind\":{\"speed\":%.2f,\"deg\":%d},\"clouds\":{\"all\":%d},\"dt\":1419120000,"
+                        + "\"sys\":{\"type\":1,\"id\":%d,\"message\":0.0123,\"country\":\"US\","
+                        + "\"sunrise\":1419089000,\"sunset\":1419124000},"
+                        + "\"id\":%d,\"name\":\"City %d\",\"cod\":200}\n",
+                lon, lat, WEATHER_IDS[weather], WEATHER_MAINS[weather], WEATHER_MAINS[weather].toLowerCase(Locale.US),
+                temp, 990 + random.nextInt(40), 20 + random.nextInt(80), temp - 2, temp + 2,
+                Math.abs(random.nextGaussian() * 5), random.nextInt(360), random.nextInt(100),
+                random.nextInt(5000), cityId(seed), seed);
+    }
+
+    /**
+     * @param seeds one seed per city, as for {@link #currentConditions(long)}
+     * @return a group response body listing the current weather of every city in order
+     */
+    public static String currentGroup(long[] seeds) {
+        StringBuilder json = new StringBuilder(30 + seeds.length * 520);
+        json.append("{\"cnt\":").append(seeds.length).append(",\"list\":[");
+        for (int i = 0; i < seeds.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(currentConditions(seeds[i]).trim());
+        }
+        json.append("]}\n");
+        return json.toString();
+    }
+
+    /**
+     * @return the city id the responses built from seed carry.
+     */
+    public static long cityId(long seed) {
+        return 5000000 + seed;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.android.sunshine.benchmark;
+
+import com.example.android.sunshine.core.CityGroups;
+import com.example.android.sunshine.core.CurrentConditions;
+import com.example.android.sunshine.core.ForecastHttpClient;
+import com.example.android.sunshine.core.ForecastParseException;
+import com.example.android.sunshine.core.OwmCurrentConditionsParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshes the current conditions of every saved location against a loopback server, either
+ * one request per location or {@link CityGroups#MAX_CITIES} locations per group request, the
+ * way the sync adapter's current tier does. Each operation fetches and decodes every location
+ * once; the requests and bytes per refresh are printed at the end of each trial.
+ *
+ * Loopback requests cost almost nothing, so latencyMillis holds every response back to stand
+ * in for the round trip of a mobile network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupFetchBenchmark {
+
+    @Param({"10", "100", "500"})
+    public int locations;
+
+    @Param({"single", "grouped"})
+    public String mode;
+
+    @Param({"0", "20"})
+    public long latencyMillis;
+
+    private LocalForecastServer mServer;
+    private List<URL> mUrls;
+    private ForecastHttpClient mClient;
+    private OwmCurrentConditionsParser mParser;
+    private long mRefreshes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mServer = new LocalForecastServer(ForecastPayloads.dailyForecast(14, 1));
+        mServer.serve("/data/2.5/weather", new LocalForecastServer.Responder() {
+            @Override
+            public String respond(String query) {
+                // q=<seed>&...
+                return ForecastPayloads.currentConditions(Long.parseLong(query.substring(2, query.indexOf('&'))));
+            }
+        });
+        mServer.serve("/data/2.5/group", new LocalForecastServer.Responder() {
+            @Override
+            public String respond(String query) {
+                // id=<city id>,<city id>...&...
+                String[] ids = query.substring(3, query.indexOf('&')).split("%2C|,");
+                long[] seeds = new long[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    seeds[i] = Long.parseLong(ids[i]) - ForecastPayloads.cityId(0);
+                }
+                return ForecastPayloads.currentGroup(seeds);
+            }
+        });
+        mServer.setLatencyMillis(latencyMillis);
+
+        mUrls = new ArrayList<URL>();
+        if ("single".equals(mode)) {
+            for (int i = 0; i < locations; i++) {
+                mUrls.add(mServer.getUrl("/data/2.5/weather?q=" + i + "&mode=json&units=metric"));
+            }
+        } else {
+            long[] cityIds = new long[locations];
+            for (int i = 0; i < locations; i++) {
+                cityIds[i] = ForecastPayloads.cityId(i);
+            }
+            for (long[] group : CityGroups.split(cityIds, CityGroups.MAX_CITIES)) {
+                mUrls.add(mServer.getUrl("/data/2.5/group?id=" + CityGroups.toIdParam(group)
+                        + "&mode=json&units=metric"));
+            }
+        }
+        mClient = new ForecastHttpClient();
+        mParser = new OwmCurrentConditionsParser();
+        mRefreshes = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println(String.format(Locale.US, "%d locations, %s, %d ms: %.1f requests/refresh, %.0f bytes/refresh",
+                locations, mode, latencyMillis, (double) mServer.getRequestCount() / mRefreshes,
+                (double) mServer.getBytesSent() / mRefreshes));
+        mServer.stop();
+    }
+
+    @Benchmark
+    public double refreshAll() throws IOException, ForecastParseException {
+        double sum = 0;
+        boolean single = "single".equals(mode);
+        for (URL url : mUrls) {
+            String body = mClient.get(url);
+            if (single) {
+                sum += mParser.parse(body).temperature;
+            } else {
+                for (CurrentConditions current : mParser.parseGroup(body)) {
+                    sum += current.temperature;
+                }
+            }
+        }
+        mRefreshes++;
+        return sum;
+    }
+}
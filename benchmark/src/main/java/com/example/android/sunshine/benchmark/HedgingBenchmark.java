@@ -0,0 +1,122 @@
+package com.example.android.sunshine.benchmark;
+
+import com.example.android.sunshine.core.Deadline;
+import com.example.android.sunshine.core.DeadlineExceededException;
+import com.example.android.sunshine.core.ForecastHttpClient;
+import com.example.android.sunshine.core.HedgedFetcher;
+import com.example.android.sunshine.core.LatencyTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sync latency against a loopback server whose responses take LATENCY_MILLIS, except a random
+ * TAIL_PROBABILITY of them which take TAIL_MILLIS more. A sync is the two requests of a periodic
+ * sync, the daily forecast then the current conditions, made one after the other.
+ *
+ * The modes are how each request is made:
+ * - plain: once, with the default timeouts;
+ * - deadline: once, with the sync cut off after DEADLINE_MILLIS (the failures are counted);
+ * - hedged: through a HedgedFetcher, which sends a second request once the first has taken the
+ *   95th percentile of recent latencies, and takes whichever answers first.
+ *
+ * Sample time mode reports the p50 and p99 of the sync latency. The extra requests hedging
+ * costs are printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class HedgingBenchmark {
+
+    private static final long LATENCY_MILLIS = 10;
+    private static final double TAIL_PROBABILITY = 0.02;
+    private static final long TAIL_MILLIS = 1000;
+    private static final long DEADLINE_MILLIS = 300;
+
+    @Param({"plain", "deadline", "hedged"})
+    public String mode;
+
+    private LocalForecastServer mServer;
+    private URL mDailyUrl;
+    private URL mCurrentUrl;
+    private ForecastHttpClient mClient;
+    private ExecutorService mExecutor;
+    private HedgedFetcher mHedgedFetcher;
+    private long mSyncs;
+    private long mFailures;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mServer = new LocalForecastServer(ForecastPayloads.dailyForecast(14, 1));
+        mServer.serve("/data/2.5/weather", ForecastPayloads.currentConditions(1));
+        mServer.setLatencyMillis(LATENCY_MILLIS);
+        mServer.setTailLatency(TAIL_PROBABILITY, TAIL_MILLIS);
+        mDailyUrl = mServer.getUrl("/data/2.5/forecast/daily?q=94043&mode=json&units=metric&cnt=14");
+        mCurrentUrl = mServer.getUrl("/data/2.5/weather?q=94043&mode=json&units=metric");
+
+        mClient = new ForecastHttpClient();
+        mExecutor = Executors.newCachedThreadPool();
+        // As in the sync adapter, with a minimum delay suited to a 10ms network.
+        mHedgedFetcher = new HedgedFetcher(mExecutor, new LatencyTracker(50, 10), 95, 3000, 2 * LATENCY_MILLIS);
+        mSyncs = 0;
+        mFailures = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println(String.format(Locale.US,
+                "%s: %.3f requests/sync, %.3f hedges/sync, %.3f hedge wins/sync, %.2f%% syncs failed",
+                mode, (double) mServer.getRequestCount() / mSyncs,
+                (double) mHedgedFetcher.getHedgeCount() / mSyncs,
+                (double) mHedgedFetcher.getHedgeWinCount() / mSyncs, 100.0 * mFailures / mSyncs));
+        mExecutor.shutdownNow();
+        mServer.stop();
+    }
+
+    @Benchmark
+    public int sync() throws IOException {
+        mSyncs++;
+        Deadline deadline = "deadline".equals(mode)
+                ? Deadline.after(DEADLINE_MILLIS, System.currentTimeMillis()) : Deadline.NONE;
+        try {
+            return fetch(mDailyUrl, deadline).length() + fetch(mCurrentUrl, deadline).length();
+        } catch (DeadlineExceededException e) {
+            mFailures++;
+            return 0;
+        } catch (SocketTimeoutException e) {
+            mFailures++;
+            return 0;
+        }
+    }
+
+    private String fetch(URL url, Deadline deadline) throws IOException {
+        long remaining = deadline.getRemainingMillis(System.currentTimeMillis());
+        deadline.check(System.currentTimeMillis());
+        if ("hedged".equals(mode)) {
+            return mHedgedFetcher.fetch(mClient.newCall(url, remaining), mClient.newCall(url, remaining), remaining);
+        }
+        return mClient.newCall(url, remaining).execute();
+    }
+}
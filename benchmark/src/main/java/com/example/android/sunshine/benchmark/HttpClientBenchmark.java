@@ -0,0 +1,92 @@
+package com.example.android.sunshine.benchmark;
+
+import com.example.android.sunshine.core.ForecastHttpClient;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetching one forecast from a loopback server: the original per-sync HttpURLConnection that is
+ * disconnected afterwards and never asks for gzip, against ForecastHttpClient.
+ *
+ * Loopback hides most of the TCP setup cost that keep-alive saves on a real network, so the
+ * connection and byte counts printed at the end of each trial matter as much as the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpClientBenchmark {
+
+    @Param({"7", "16"})
+    public int days;
+
+    private LocalForecastServer mServer;
+    private URL mUrl;
+    private ForecastHttpClient mClient;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mServer = new LocalForecastServer(ForecastPayloads.dailyForecast(days, 1));
+        mUrl = mServer.getUrl("/data/2.5/forecast/daily?q=94043&mode=json&units=metric&cnt=" + days);
+        mClient = new ForecastHttpClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println(String.format(Locale.US, "%d requests, %d connections, %.0f bytes/request",
+                mServer.getRequestCount(), mServer.getConnectionCount(),
+                (double) mServer.getBytesSent() / mServer.getRequestCount()));
+        mServer.stop();
+    }
+
+    @Benchmark
+    public String legacyDownload() throws IOException {
+        HttpURLConnection urlConnection = (HttpURLConnection) mUrl.openConnection();
+        BufferedReader reader = null;
+        try {
+            urlConnection.setRequestMethod("GET");
+            urlConnection.connect();
+            InputStream inputStream = urlConnection.getInputStream();
+            StringBuffer buffer = new StringBuffer();
+            reader = new BufferedReader(new InputStreamReader(inputStream));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                buffer.append(line + "\n");
+            }
+            return buffer.toString();
+        } finally {
+            urlConnection.disconnect();
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+
+    @Benchmark
+    public String forecastHttpClient() throws IOException {
+        return mClient.get(mUrl);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.android.sunshine.benchmark;
+
+import com.example.android.sunshine.core.ForecastParseException;
+import com.example.android.sunshine.core.ForecastParser;
+import com.example.android.sunshine.core.OwmForecastParser;
+import com.example.android.sunshine.core.SunshineDates;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding daily forecast responses with OwmForecastParser, one response per location.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonDecodeBenchmark {
+
+    @Param({"7", "14", "16"})
+    public int days;
+
+    @Param({"1", "10", "100"})
+    public int locations;
+
+    private final ForecastParser mParser = new OwmForecastParser();
+    private final TimeZone mTimeZone = TimeZone.getTimeZone("America/Los_Angeles");
+    private String[] mPayloads;
+    private int mJulianStartDay;
+
+    @Setup
+    public void setUp() {
+        mPayloads = new String[locations];
+        for (int i = 0; i < locations; i++) {
+            mPayloads[i] = ForecastPayloads.dailyForecast(days, i);
+        }
+        mJulianStartDay = SunshineDates.getJulianDay(System.currentTimeMillis(), mTimeZone);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws ForecastParseException {
+        for (String payload : mPayloads) {
+            blackhole.consume(mParser.parse(payload, mJulianStartDay, mTimeZone));
+        }
+    }
+}
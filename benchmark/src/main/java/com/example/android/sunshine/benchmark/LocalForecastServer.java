@@ -0,0 +1,178 @@
+package com.example.android.sunshine.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Loopback stand-in for the forecast API serving one synthetic daily forecast, gzipped when the
+ * client asks for it. Other responses can be served under their own paths with
+ * {@link #serve(String, String)}, or built from the query with {@link #serve(String, Responder)}.
+ * Counts requests, bytes sent and connections so benchmarks can report them, and can hold every
+ * response back by a fixed delay to stand in for network round trips, plus a much longer one
+ * for a fraction of responses to give latency a tail.
+ */
+public class LocalForecastServer {
+
+    /**
+     * Builds the response body for a request's query string. Called once per distinct query;
+     * bodies are cached.
+     */
+    public interface Responder {
+        String respond(String query);
+    }
+
+    private final HttpServer mServer;
+
+    private final AtomicLong mRequests = new AtomicLong();
+    private final AtomicLong mBytesSent = new AtomicLong();
+    private volatile long mLatencyMillis;
+    private volatile double mTailProbability;
+    private volatile long mTailMillis;
+    private final AtomicLong mTailResponses = new AtomicLong();
+    private final Set<InetSocketAddress> mConnections =
+            Collections.synchronizedSet(new HashSet<InetSocketAddress>());
+
+    public LocalForecastServer(String body) throws IOException {
+        // Without this, Nagle's algorithm and delayed ACKs add ~40ms to every response on a
+        // kept-alive connection, because the server writes headers and body separately.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serve("/", body);
+        // Enough threads that responses held back in the tail don't queue the others.
+        mServer.setExecutor(Executors.newFixedThreadPool(16));
+        mServer.start();
+    }
+
+    /**
+     * Serves body for every request whose path starts with path.
+     */
+    public void serve(String path, String body) throws IOException {
+        final Body encoded = new Body(body);
+        mServer.createContext(path, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, encoded);
+            }
+        });
+    }
+
+    /**
+     * Serves whatever responder builds from the query, for every request whose path starts
+     * with path.
+     */
+    public void serve(String path, final Responder responder) {
+        final ConcurrentMap<String, Body> bodies = new ConcurrentHashMap<String, Body>();
+        mServer.createContext(path, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String query = exchange.getRequestURI().getRawQuery();
+                Body body = bodies.get(query);
+                if (body == null) {
+                    body = new Body(responder.respond(query));
+                    bodies.put(query, body);
+                }
+                respond(exchange, body);
+            }
+        });
+    }
+
+    /**
+     * Delays every response from now on by latencyMillis, roughly one round trip of the network
+     * being simulated.
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        mLatencyMillis = latencyMillis;
+    }
+
+    /**
+     * Delays a random fraction, probability, of responses from now on by another tailMillis.
+     */
+    public void setTailLatency(double probability, long tailMillis) {
+        mTailProbability = probability;
+        mTailMillis = tailMillis;
+    }
+
+    private void respond(HttpExchange exchange, Body encoded) throws IOException {
+        mRequests.incrementAndGet();
+        mConnections.add(exchange.getRemoteAddress());
+        long latencyMillis = mLatencyMillis;
+        if (mTailProbability > 0 && ThreadLocalRandom.current().nextDouble() < mTailProbability) {
+            mTailResponses.incrementAndGet();
+            latencyMillis += mTailMillis;
+        }
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        byte[] body = encoded.mPlain;
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            body = encoded.mGzip;
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        mBytesSent.addAndGet(body.length);
+        exchange.sendResponseHeaders(200, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+
+    public URL getUrl(String path) throws IOException {
+        return new URL("http", "127.0.0.1", mServer.getAddress().getPort(), path);
+    }
+
+    public long getRequestCount() {
+        return mRequests.get();
+    }
+
+    public long getTailResponseCount() {
+        return mTailResponses.get();
+    }
+
+    public long getBytesSent() {
+        return mBytesSent.get();
+    }
+
+    public int getConnectionCount() {
+        return mConnections.size();
+    }
+
+    public void stop() {
+        mServer.stop(0);
+    }
+
+    private static class Body {
+        final byte[] mPlain;
+        final byte[] mGzip;
+
+        Body(String body) throws IOException {
+            mPlain = body.getBytes(Charset.forName("UTF-8"));
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+            gzip.write(mPlain);
+            gzip.close();
+            mGzip = compressed.toByteArray();
+        }
+    }
+}
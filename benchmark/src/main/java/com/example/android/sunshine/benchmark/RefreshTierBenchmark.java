@@ -0,0 +1,101 @@
+package com.example.android.sunshine.benchmark;
+
+import com.example.android.sunshine.core.ForecastHttpClient;
+import com.example.android.sunshine.core.RefreshSchedule;
+import com.example.android.sunshine.core.RefreshTier;
+import com.example.android.sunshine.core.SunshineDates;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One simulated day of periodic syncs against a loopback server, per refresh tier
+ * configuration. Each operation runs every sync of the day through the same RefreshSchedule
+ * the sync adapter uses, fetching whichever tiers are due, so the bytes per day printed at the
+ * end of each trial are what the configuration costs on the wire (gzipped, bodies only).
+ *
+ * The configuration is "current minutes:daily minutes"; a current interval of 0 is the original
+ * setup, the daily forecast alone on every sync.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RefreshTierBenchmark {
+
+    private static final long MINUTE_IN_MILLIS = 60 * 1000;
+    private static final int FORECAST_DAYS = 14;
+
+    @Param({"0:180", "180:720", "60:720", "60:360"})
+    public String tiers;
+
+    private LocalForecastServer mServer;
+    private URL mDailyUrl;
+    private URL mCurrentUrl;
+    private ForecastHttpClient mClient;
+    private RefreshSchedule mSchedule;
+    private boolean mCurrentTier;
+    private long mDays;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String[] intervals = tiers.split(":");
+        long currentMillis = Long.parseLong(intervals[0]) * MINUTE_IN_MILLIS;
+        long dailyMillis = Long.parseLong(intervals[1]) * MINUTE_IN_MILLIS;
+        mCurrentTier = currentMillis > 0;
+        mSchedule = new RefreshSchedule(mCurrentTier ? currentMillis : dailyMillis, dailyMillis);
+
+        mServer = new LocalForecastServer(ForecastPayloads.dailyForecast(FORECAST_DAYS, 1));
+        mServer.serve("/data/2.5/weather", ForecastPayloads.currentConditions(1));
+        mDailyUrl = mServer.getUrl("/data/2.5/forecast/daily?q=94043&mode=json&units=metric&cnt=" + FORECAST_DAYS);
+        mCurrentUrl = mServer.getUrl("/data/2.5/weather?q=94043&mode=json&units=metric");
+        mClient = new ForecastHttpClient();
+        mDays = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println(String.format(Locale.US, "%s: %.1f requests/day, %.0f bytes/day",
+                tiers, (double) mServer.getRequestCount() / mDays, (double) mServer.getBytesSent() / mDays));
+        mServer.stop();
+    }
+
+    @Benchmark
+    public int syncOneDay() throws IOException {
+        long lastCurrent = 0;
+        long lastDaily = 0;
+        int fetched = 0;
+        // Start well after the epoch so that a last fetch of 0 means "never".
+        long start = 100 * SunshineDates.DAY_IN_MILLIS;
+        for (long now = start; now < start + SunshineDates.DAY_IN_MILLIS; now += mSchedule.getSyncIntervalMillis()) {
+            if (mSchedule.isDue(RefreshTier.DAILY, lastDaily, now)) {
+                fetched += mClient.get(mDailyUrl).length();
+                lastDaily = now;
+            }
+            if (mCurrentTier && mSchedule.isDue(RefreshTier.CURRENT, lastCurrent, now)) {
+                fetched += mClient.get(mCurrentUrl).length();
+                lastCurrent = now;
+            }
+        }
+        mDays++;
+        return fetched;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.android.sunshine.benchmark;
+
+import com.example.android.sunshine.core.ForecastBatch;
+import com.example.android.sunshine.core.ForecastParseException;
+import com.example.android.sunshine.core.OwmForecastParser;
+import com.example.android.sunshine.core.ParsedForecast;
+import com.example.android.sunshine.core.SunshineDates;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Everything between the parser and bulkInsert: normalizing dates and building one row per day
+ * for every location.
+ *
+ * android.content.ContentValues is a thin wrapper around a HashMap&lt;String, Object&gt;, so rows
+ * are built as such maps here, with the same keys and boxing as SunshineSyncAdapter's
+ * fallback path. bindBatch is the path WeatherProvider.replaceForecast takes instead:
+ * primitive columns bound straight into one reused, compiled statement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowBuildingBenchmark {
+
+    // Column names from WeatherContract.WeatherEntry, which lives in the Android app.
+    static final String COLUMN_LOC_KEY = "location_id";
+    static final String COLUMN_DATE = "date";
+    static final String COLUMN_WEATHER_ID = "weather_id";
+    static final String COLUMN_SHORT_DESC = "short_desc";
+    static final String COLUMN_MIN_TEMP = "min";
+    static final String COLUMN_MAX_TEMP = "max";
+    static final String COLUMN_HUMIDITY = "humidity";
+    static final String COLUMN_PRESSURE = "pressure";
+    static final String COLUMN_WIND_SPEED = "wind";
+    static final String COLUMN_DEGREES = "degrees";
+
+    @Param({"7", "14", "16"})
+    public int days;
+
+    @Param({"1", "10", "100"})
+    public int locations;
+
+    private final TimeZone mTimeZone = TimeZone.getTimeZone("America/Los_Angeles");
+    private List<ParsedForecast> mForecasts;
+    private int mJulianStartDay;
+
+    @Setup
+    public void setUp() throws ForecastParseException {
+        mJulianStartDay = SunshineDates.getJulianDay(System.currentTimeMillis(), mTimeZone);
+        mForecasts = new ArrayList<ParsedForecast>(locations);
+        OwmForecastParser parser = new OwmForecastParser();
+        for (int i = 0; i < locations; i++) {
+            mForecasts.add(parser.parse(ForecastPayloads.dailyForecast(days, i), mJulianStartDay, mTimeZone));
+        }
+    }
+
+    @Benchmark
+    public void normalizeDates(Blackhole blackhole) {
+        for (int location = 0; location < locations; location++) {
+            for (int day = 0; day < days; day++) {
+                blackhole.consume(SunshineDates.getStartOfJulianDay(mJulianStartDay + day, mTimeZone));
+            }
+        }
+    }
+
+    @Benchmark
+    public void buildRows(Blackhole blackhole) {
+        for (int location = 0; location < locations; location++) {
+            ParsedForecast forecast = mForecasts.get(location);
+            ForecastBatch batch = forecast.days;
+            Vector<Map<String, Object>> rows = new Vector<Map<String, Object>>(batch.size());
+            for (int day = 0; day < batch.size(); day++) {
+                Map<String, Object> values = new HashMap<String, Object>(8);
+                values.put(COLUMN_LOC_KEY, (long) location);
+                values.put(COLUMN_DATE, batch.getDate(day));
+                values.put(COLUMN_HUMIDITY, batch.getHumidity(day));
+                values.put(COLUMN_PRESSURE, batch.getPressure(day));
+                values.put(COLUMN_WIND_SPEED, batch.getWindSpeed(day));
+                values.put(COLUMN_DEGREES, batch.getWindDirection(day));
+                values.put(COLUMN_MAX_TEMP, batch.getHigh(day));
+                values.put(COLUMN_MIN_TEMP, batch.getLow(day));
+                values.put(COLUMN_SHORT_DESC, batch.getDescription(day));
+                values.put(COLUMN_WEATHER_ID, batch.getWeatherId(day));
+                rows.add(values);
+            }
+            // bulkInsert takes an array, so the sync adapter copies the Vector into one
+            blackhole.consume(rows.toArray(new Map[rows.size()]));
+        }
+    }
+
+    @Benchmark
+    public void bindBatch(Blackhole blackhole) {
+        BoundStatement insert = new BoundStatement(10);
+        for (int location = 0; location < locations; location++) {
+            ForecastBatch batch = mForecasts.get(location).days;
+            for (int day = 0; day < batch.size(); day++) {
+                insert.bindLong(1, location);
+                insert.bindLong(2, batch.getDate(day));
+                insert.bindLong(3, batch.getWeatherId(day));
+                insert.bindString(4, batch.getDescription(day));
+                insert.bindDouble(5, batch.getLow(day));
+                insert.bindDouble(6, batch.getHigh(day));
+                insert.bindDouble(7, batch.getHumidity(day));
+                insert.bindDouble(8, batch.getPressure(day));
+                insert.bindDouble(9, batch.getWindSpeed(day));
+                insert.bindDouble(10, batch.getWindDirection(day));
+                insert.execute(blackhole);
+            }
+        }
+    }
+
+    /**
+     * Stands in for android.database.sqlite.SQLiteStatement: typed, one-based bind slots that
+     * are reused for every row.
+     */
+    static final class BoundStatement {
+        private final long[] mLongs;
+        private final double[] mDoubles;
+        private final String[] mStrings;
+
+        BoundStatement(int parameters) {
+            mLongs = new long[parameters + 1];
+            mDoubles = new double[parameters + 1];
+            mStrings = new String[parameters + 1];
+        }
+
+        void bindLong(int index, long value) {
+            mLongs[index] = value;
+        }
+
+        void bindDouble(int index, double value) {
+            mDoubles[index] = value;
+        }
+
+        void bindString(int index, String value) {
+            mStrings[index] = value;
+        }
+
+        void execute(Blackhole blackhole) {
+            blackhole.consume(mLongs);
+            blackhole.consume(mDoubles);
+            blackhole.consume(mStrings);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.android.sunshine.core;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a few {@link ResponseBuffer}s around so that every fetch does not allocate and grow
+ * its own. Buffers that grew past maxRetainedCapacity are dropped instead of pooled, so one
+ * unusually large response does not pin its memory forever.
+ */
+public class BufferPool {
+
+    private final int mMaxPooled;
+    private final int mInitialCapacity;
+    private final int mMaxRetainedCapacity;
+    private final ArrayDeque<ResponseBuffer> mBuffers = new ArrayDeque<ResponseBuffer>();
+
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+
+    public BufferPool(int maxPooled, int initialCapacity, int maxRetainedCapacity) {
+        mMaxPooled = maxPooled;
+        mInitialCapacity = initialCapacity;
+        mMaxRetainedCapacity = maxRetainedCapacity;
+    }
+
+    public ResponseBuffer acquire() {
+        ResponseBuffer buffer;
+        synchronized (mBuffers) {
+            buffer = mBuffers.pollFirst();
+        }
+        if (buffer == null) {
+            mMisses.incrementAndGet();
+            return new ResponseBuffer(mInitialCapacity);
+        }
+        mHits.incrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Returns buffer to the pool. It must not be used afterwards.
+     */
+    public void release(ResponseBuffer buffer) {
+        if (buffer.capacity() > mMaxRetainedCapacity) {
+            return;
+        }
+        buffer.clear();
+        synchronized (mBuffers) {
+            if (mBuffers.size() < mMaxPooled) {
+                mBuffers.addFirst(buffer);
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return mHits.get();
+    }
+
+    public long getMissCount() {
+        return mMisses.get();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.android.sunshine.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lets one thread ask the work another thread is doing, e.g. a sync, to stop early.
+ *
+ * Cancellation is cooperative: each stage of the work checks {@link #throwIfCancelled()} at
+ * points where stopping is safe, e.g. between parsed days or inserted rows. A stage that blocks,
+ * like a network read, registers a {@link Listener} that unblocks it instead.
+ *
+ * A token is cancelled at most once and stays cancelled. It is thread safe.
+ */
+public class CancellationToken {
+
+    /**
+     * Never cancelled; for work that can't be.
+     */
+    public static final CancellationToken NONE = new CancellationToken() {
+        @Override
+        public void cancel() {
+            throw new UnsupportedOperationException("CancellationToken.NONE can't be cancelled");
+        }
+    };
+
+    /**
+     * Called once, on the cancelling thread, when the token is cancelled.
+     */
+    public interface Listener {
+        void onCancel();
+    }
+
+    private final List<Listener> mListeners = new ArrayList<Listener>();
+    private volatile boolean mCancelled;
+    private long mCancelledAtNanos;
+
+    /**
+     * Cancels the token and runs its listeners. Does nothing if it is already cancelled.
+     */
+    public void cancel() {
+        List<Listener> listeners;
+        synchronized (this) {
+            if (mCancelled) {
+                return;
+            }
+            mCancelledAtNanos = System.nanoTime();
+            mCancelled = true;
+            listeners = new ArrayList<Listener>(mListeners);
+            mListeners.clear();
+        }
+        for (Listener listener : listeners) {
+            listener.onCancel();
+        }
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * @throws CancelledException if the token has been cancelled
+     */
+    public void throwIfCancelled() throws CancelledException {
+        if (mCancelled) {
+            throw new CancelledException();
+        }
+    }
+
+    /**
+     * Has listener run when the token is cancelled, straight away if it already is.
+     */
+    public void addListener(Listener listener) {
+        synchronized (this) {
+            if (!mCancelled) {
+                mListeners.add(listener);
+                return;
+            }
+        }
+        listener.onCancel();
+    }
+
+    public synchronized void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * @return the System.nanoTime() at which the token was cancelled, e.g. to measure how long
+     * the work took to stop; 0 if it hasn't been.
+     */
+    public synchronized long getCancelledAtNanos() {
+        return mCancelledAtNanos;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.android.sunshine.core;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Thrown by work that stopped because its {@link CancellationToken} was cancelled. Nothing went
+ * wrong, so it is neither retried nor counted as a failure.
+ */
+public class CancelledException extends InterruptedIOException {
+
+    public CancelledException() {
+        super("Cancelled");
+    }
+}
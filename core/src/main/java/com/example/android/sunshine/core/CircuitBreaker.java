@@ -0,0 +1,95 @@
+package com.example.android.sunshine.core;
+
+/**
+ * Stops requests to an endpoint that keeps failing.
+ *
+ * After {@link #getFailureThreshold()} consecutive failures the breaker opens and refuses
+ * requests for the open period. Then it lets a single trial request through (half open): success
+ * closes it again, failure reopens it for another period.
+ *
+ * Times are passed in rather than read from the system clock so the breaker can be tested.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String mEndpoint;
+    private final int mFailureThreshold;
+    private final long mOpenMillis;
+
+    private int mConsecutiveFailures;
+    private long mOpenedAt;
+    private boolean mOpen;
+    private boolean mTrialInFlight;
+
+    public CircuitBreaker(String endpoint, int failureThreshold, long openMillis) {
+        mEndpoint = endpoint;
+        mFailureThreshold = failureThreshold;
+        mOpenMillis = openMillis;
+    }
+
+    public String getEndpoint() {
+        return mEndpoint;
+    }
+
+    public int getFailureThreshold() {
+        return mFailureThreshold;
+    }
+
+    public synchronized State getState(long nowMillis) {
+        if (!mOpen) {
+            return State.CLOSED;
+        }
+        return nowMillis - mOpenedAt >= mOpenMillis ? State.HALF_OPEN : State.OPEN;
+    }
+
+    /**
+     * @return true if a request may be made now. When half open only the first caller gets
+     * true until its outcome is recorded.
+     */
+    public synchronized boolean allowRequest(long nowMillis) {
+        switch (getState(nowMillis)) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (mTrialInFlight) {
+                    return false;
+                }
+                mTrialInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return when the breaker will next let a request through.
+     */
+    public synchronized long getRetryAtMillis() {
+        return mOpen ? mOpenedAt + mOpenMillis : 0;
+    }
+
+    public synchronized void recordSuccess() {
+        mConsecutiveFailures = 0;
+        mOpen = false;
+        mTrialInFlight = false;
+    }
+
+    /**
+     * The request was abandoned by the caller, which says nothing about the endpoint.
+     */
+    public synchronized void recordCancelled() {
+        mTrialInFlight = false;
+    }
+
+    public synchronized void recordFailure(long nowMillis) {
+        mConsecutiveFailures++;
+        if (mTrialInFlight || mConsecutiveFailures >= mFailureThreshold) {
+            mOpen = true;
+            mOpenedAt = nowMillis;
+        }
+        mTrialInFlight = false;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.android.sunshine.core;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of making a request while the endpoint's {@link CircuitBreaker} is open.
+ */
+public class CircuitOpenException extends IOException {
+
+    private final long mRetryAtMillis;
+
+    public CircuitOpenException(String endpoint, long retryAtMillis) {
+        super("Circuit open for " + endpoint);
+        mRetryAtMillis = retryAtMillis;
+    }
+
+    /**
+     * @return the wall clock time at which the breaker will let a trial request through.
+     */
+    public long getRetryAtMillis() {
+        return mRetryAtMillis;
+    }
+}
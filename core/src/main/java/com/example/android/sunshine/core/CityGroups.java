@@ -0,0 +1,50 @@
+package com.example.android.sunshine.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits cities into the groups of OpenWeatherMap's group endpoint, see
+ * http://openweathermap.org/current#severalid, which returns the current weather of up to
+ * {@link #MAX_CITIES} cities, given by id, in one response.
+ *
+ * Only current weather can be fetched this way; daily forecasts still take one request per
+ * city.
+ */
+public class CityGroups {
+
+    public static final int MAX_CITIES = 20;
+
+    private CityGroups() {
+    }
+
+    /**
+     * @return cityIds in order, in groups of at most maxPerGroup.
+     */
+    public static List<long[]> split(long[] cityIds, int maxPerGroup) {
+        if (maxPerGroup <= 0) {
+            throw new IllegalArgumentException("Groups must hold at least one city");
+        }
+        List<long[]> groups = new ArrayList<long[]>((cityIds.length + maxPerGroup - 1) / maxPerGroup);
+        for (int start = 0; start < cityIds.length; start += maxPerGroup) {
+            long[] group = new long[Math.min(maxPerGroup, cityIds.length - start)];
+            System.arraycopy(cityIds, start, group, 0, group.length);
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * @return the value of the id parameter that asks for group, e.g. "524901,703448".
+     */
+    public static String toIdParam(long[] group) {
+        StringBuilder param = new StringBuilder(group.length * 8);
+        for (int i = 0; i < group.length; i++) {
+            if (i > 0) {
+                param.append(',');
+            }
+            param.append(group[i]);
+        }
+        return param.toString();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.android.sunshine.core;
+
+/**
+ * The conditions observed at a location at one point in time, as opposed to a day's forecast.
+ */
+public class CurrentConditions {
+    // The service's id for the city, 0 if it didn't send one.
+    public final long cityId;
+    public final String cityName;
+    public final double latitude;
+    public final double longitude;
+    // When the service observed these conditions, in milliseconds since the epoch.
+    public final long observedAt;
+    public final double temperature;
+    public final int humidity;
+    public final double pressure;
+    public final double windSpeed;
+    public final double windDirection;
+    public final String description;
+    public final int weatherId;
+
+    public CurrentConditions(long cityId, String cityName, double latitude, double longitude, long observedAt,
+                             double temperature, int humidity, double pressure, double windSpeed,
+                             double windDirection, String description, int weatherId) {
+        this.cityId = cityId;
+        this.cityName = cityName;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.observedAt = observedAt;
+        this.temperature = temperature;
+        this.humidity = humidity;
+        this.pressure = pressure;
+        this.windSpeed = windSpeed;
+        this.windDirection = windDirection;
+        this.description = description;
+        this.weatherId = weatherId;
+    }
+}
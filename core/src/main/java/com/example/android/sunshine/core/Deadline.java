@@ -0,0 +1,50 @@
+package com.example.android.sunshine.core;
+
+/**
+ * A point in time by which a piece of work, e.g. a whole sync, must be done. Every request made
+ * on its behalf gets at most the time that is left.
+ *
+ * Times are passed in, on the same clock as {@link FetchRetrier.Clock}, so deadlines can be
+ * tested.
+ */
+public class Deadline {
+
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    private final long mAtMillis;
+
+    public Deadline(long atMillis) {
+        mAtMillis = atMillis;
+    }
+
+    public static Deadline after(long millis, long nowMillis) {
+        return new Deadline(nowMillis + millis);
+    }
+
+    public long getAtMillis() {
+        return mAtMillis;
+    }
+
+    /**
+     * @return how long is left, never negative; Long.MAX_VALUE for {@link #NONE}.
+     */
+    public long getRemainingMillis(long nowMillis) {
+        if (this == NONE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, mAtMillis - nowMillis);
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return getRemainingMillis(nowMillis) == 0;
+    }
+
+    /**
+     * @throws DeadlineExceededException if the deadline has passed
+     */
+    public void check(long nowMillis) throws DeadlineExceededException {
+        if (isExpired(nowMillis)) {
+            throw new DeadlineExceededException(nowMillis - mAtMillis);
+        }
+    }
+}
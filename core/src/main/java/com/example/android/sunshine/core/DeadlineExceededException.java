@@ -0,0 +1,13 @@
+package com.example.android.sunshine.core;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a {@link Deadline} passed before the work it bounds was done.
+ */
+public class DeadlineExceededException extends IOException {
+
+    public DeadlineExceededException(long overdueMillis) {
+        super("Deadline exceeded by " + overdueMillis + "ms");
+    }
+}
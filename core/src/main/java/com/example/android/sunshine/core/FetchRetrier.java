@@ -0,0 +1,146 @@
+package com.example.android.sunshine.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Runs a network fetch under a {@link RetryPolicy} and a {@link CircuitBreaker}.
+ *
+ * I/O errors and retryable HTTP statuses are retried after the policy's backoff and count as
+ * failures for the breaker. Other HTTP statuses and oversized responses mean the server is up
+ * but the request will keep failing, so they are thrown straight away and do not trip the
+ * breaker. Neither does a {@link RateLimitedException}: the attempt was never sent. Nor does a
+ * {@link CancelledException}, which is thrown straight away.
+ */
+public class FetchRetrier {
+
+    /**
+     * One attempt at the fetch.
+     */
+    public interface Attempt<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Source of time and waiting, replaced in tests.
+     */
+    public interface Clock {
+        long currentTimeMillis();
+
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+            Thread.sleep(millis);
+        }
+    };
+
+    private final RetryPolicy mPolicy;
+    private final Clock mClock;
+
+    private int mAttempts;
+
+    public FetchRetrier(RetryPolicy policy, Clock clock) {
+        mPolicy = policy;
+        mClock = clock;
+    }
+
+    /**
+     * @return the result of the first successful attempt
+     * @throws CircuitOpenException if the breaker refused the request, before or between attempts
+     * @throws InterruptedIOException if the thread was interrupted while backing off
+     * @throws IOException the last failure once attempts are exhausted, or a non-retryable one
+     */
+    public <T> T execute(CircuitBreaker breaker, Attempt<T> attempt) throws IOException {
+        return execute(breaker, Deadline.NONE, attempt);
+    }
+
+    /**
+     * As {@link #execute(CircuitBreaker, Attempt)}, but gives up once deadline has passed, or
+     * when backing off would take past it. Attempts are expected to keep to the deadline too,
+     * e.g. with timeouts no longer than the time that is left.
+     *
+     * @throws DeadlineExceededException if deadline had passed before an attempt
+     */
+    public <T> T execute(CircuitBreaker breaker, Deadline deadline, Attempt<T> attempt) throws IOException {
+        mAttempts = 0;
+        IOException lastFailure = null;
+        for (int retry = 0; ; retry++) {
+            if (retry > 0) {
+                long delay = mPolicy.getDelayMillis(retry);
+                if (delay >= deadline.getRemainingMillis(mClock.currentTimeMillis())) {
+                    throw lastFailure;
+                }
+                try {
+                    mClock.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while backing off");
+                }
+            }
+            deadline.check(mClock.currentTimeMillis());
+            if (!breaker.allowRequest(mClock.currentTimeMillis())) {
+                throw new CircuitOpenException(breaker.getEndpoint(), breaker.getRetryAtMillis());
+            }
+
+            mAttempts++;
+            try {
+                T result = attempt.run();
+                breaker.recordSuccess();
+                return result;
+            } catch (HttpStatusException e) {
+                if (!e.isRetryable()) {
+                    breaker.recordSuccess();
+                    throw e;
+                }
+                breaker.recordFailure(mClock.currentTimeMillis());
+                if (retry + 1 >= mPolicy.getMaxAttempts()) {
+                    throw e;
+                }
+                lastFailure = e;
+            } catch (ResponseTooLargeException e) {
+                breaker.recordSuccess();
+                throw e;
+            } catch (RateLimitedException e) {
+                mAttempts--;
+                breaker.recordCancelled();
+                throw e;
+            } catch (CancelledException e) {
+                breaker.recordCancelled();
+                throw e;
+            } catch (DeadlineExceededException e) {
+                // The sync ran out of time, which says nothing about the endpoint.
+                breaker.recordCancelled();
+                throw e;
+            } catch (IOException e) {
+                if (e instanceof InterruptedIOException && Thread.currentThread().isInterrupted()) {
+                    // Cancelled rather than failed (a timeout is also an InterruptedIOException).
+                    breaker.recordCancelled();
+                    throw e;
+                }
+                breaker.recordFailure(mClock.currentTimeMillis());
+                if (retry + 1 >= mPolicy.getMaxAttempts()) {
+                    throw e;
+                }
+                lastFailure = e;
+            } catch (RuntimeException e) {
+                breaker.recordFailure(mClock.currentTimeMillis());
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return how many attempts the last {@link #execute} made.
+     */
+    public int getAttempts() {
+        return mAttempts;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.android.sunshine.core;
+
+import java.util.Arrays;
+
+/**
+ * The days of a forecast stored column by column in primitive arrays, so that decoding and
+ * writing a forecast does not box every field of every day.
+ *
+ * Days are kept in the order they were added, which for a parsed response is date order.
+ */
+public class ForecastBatch {
+
+    private int mSize;
+    private long[] mDates;
+    private double[] mPressures;
+    private int[] mHumidities;
+    private double[] mWindSpeeds;
+    private double[] mWindDirections;
+    private double[] mHighs;
+    private double[] mLows;
+    private String[] mDescriptions;
+    private int[] mWeatherIds;
+
+    public ForecastBatch(int capacity) {
+        mDates = new long[capacity];
+        mPressures = new double[capacity];
+        mHumidities = new int[capacity];
+        mWindSpeeds = new double[capacity];
+        mWindDirections = new double[capacity];
+        mHighs = new double[capacity];
+        mLows = new double[capacity];
+        mDescriptions = new String[capacity];
+        mWeatherIds = new int[capacity];
+    }
+
+    public void add(long date, double pressure, int humidity, double windSpeed, double windDirection,
+                    double high, double low, String description, int weatherId) {
+        if (mSize == mDates.length) {
+            grow(Math.max(4, mSize * 2));
+        }
+        mDates[mSize] = date;
+        mPressures[mSize] = pressure;
+        mHumidities[mSize] = humidity;
+        mWindSpeeds[mSize] = windSpeed;
+        mWindDirections[mSize] = windDirection;
+        mHighs[mSize] = high;
+        mLows[mSize] = low;
+        mDescriptions[mSize] = description;
+        mWeatherIds[mSize] = weatherId;
+        mSize++;
+    }
+
+    /**
+     * Appends a copy of the index'th day of other.
+     */
+    public void add(ForecastBatch other, int index) {
+        other.checkIndex(index);
+        add(other.mDates[index], other.mPressures[index], other.mHumidities[index], other.mWindSpeeds[index],
+                other.mWindDirections[index], other.mHighs[index], other.mLows[index], other.mDescriptions[index],
+                other.mWeatherIds[index]);
+    }
+
+    /**
+     * @return true if the index'th day has exactly the same date and values as the otherIndex'th
+     * day of other.
+     */
+    public boolean isSameDay(int index, ForecastBatch other, int otherIndex) {
+        checkIndex(index);
+        other.checkIndex(otherIndex);
+        String description = mDescriptions[index];
+        return mDates[index] == other.mDates[otherIndex]
+                && mPressures[index] == other.mPressures[otherIndex]
+                && mHumidities[index] == other.mHumidities[otherIndex]
+                && mWindSpeeds[index] == other.mWindSpeeds[otherIndex]
+                && mWindDirections[index] == other.mWindDirections[otherIndex]
+                && mHighs[index] == other.mHighs[otherIndex]
+                && mLows[index] == other.mLows[otherIndex]
+                && mWeatherIds[index] == other.mWeatherIds[otherIndex]
+                && (description == null ? other.mDescriptions[otherIndex] == null
+                                        : description.equals(other.mDescriptions[otherIndex]));
+    }
+
+    private void grow(int capacity) {
+        mDates = Arrays.copyOf(mDates, capacity);
+        mPressures = Arrays.copyOf(mPressures, capacity);
+        mHumidities = Arrays.copyOf(mHumidities, capacity);
+        mWindSpeeds = Arrays.copyOf(mWindSpeeds, capacity);
+        mWindDirections = Arrays.copyOf(mWindDirections, capacity);
+        mHighs = Arrays.copyOf(mHighs, capacity);
+        mLows = Arrays.copyOf(mLows, capacity);
+        mDescriptions = Arrays.copyOf(mDescriptions, capacity);
+        mWeatherIds = Arrays.copyOf(mWeatherIds, capacity);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public void clear() {
+        Arrays.fill(mDescriptions, 0, mSize, null);
+        mSize = 0;
+    }
+
+    public long getDate(int index) {
+        checkIndex(index);
+        return mDates[index];
+    }
+
+    public double getPressure(int index) {
+        checkIndex(index);
+        return mPressures[index];
+    }
+
+    public int getHumidity(int index) {
+        checkIndex(index);
+        return mHumidities[index];
+    }
+
+    public double getWindSpeed(int index) {
+        checkIndex(index);
+        return mWindSpeeds[index];
+    }
+
+    public double getWindDirection(int index) {
+        checkIndex(index);
+        return mWindDirections[index];
+    }
+
+    public double getHigh(int index) {
+        checkIndex(index);
+        return mHighs[index];
+    }
+
+    public double getLow(int index) {
+        checkIndex(index);
+        return mLows[index];
+    }
+
+    public String getDescription(int index) {
+        checkIndex(index);
+        return mDescriptions[index];
+    }
+
+    public int getWeatherId(int index) {
+        checkIndex(index);
+        return mWeatherIds[index];
+    }
+
+    /**
+     * @return a copy of one day as an object, for code that is not on the bulk path.
+     */
+    public DayForecast getDay(int index) {
+        checkIndex(index);
+        return new DayForecast(mDates[index], mPressures[index], mHumidities[index], mWindSpeeds[index],
+                mWindDirections[index], mHighs[index], mLows[index], mDescriptions[index], mWeatherIds[index]);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + mSize);
+        }
+    }
+}
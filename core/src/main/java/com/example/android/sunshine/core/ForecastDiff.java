@@ -0,0 +1,72 @@
+package com.example.android.sunshine.core;
+
+/**
+ * Compares a freshly fetched forecast with the days already stored for the same location, so
+ * that only new and changed days need to be written.
+ */
+public class ForecastDiff {
+
+    private final ForecastBatch mChanged;
+    private final ForecastBatch mMerged;
+    private final int mUnchangedCount;
+
+    private ForecastDiff(ForecastBatch changed, ForecastBatch merged, int unchangedCount) {
+        mChanged = changed;
+        mMerged = merged;
+        mUnchangedCount = unchangedCount;
+    }
+
+    /**
+     * @param stored the stored days, in date order
+     * @param fetched the fetched days, in date order, with dates normalized like stored ones
+     */
+    public static ForecastDiff compare(ForecastBatch stored, ForecastBatch fetched) {
+        ForecastBatch changed = new ForecastBatch(fetched.size());
+        ForecastBatch merged = new ForecastBatch(Math.max(stored.size(), fetched.size()));
+        int unchanged = 0;
+
+        int s = 0;
+        int f = 0;
+        while (s < stored.size() || f < fetched.size()) {
+            if (f == fetched.size()
+                    || (s < stored.size() && stored.getDate(s) < fetched.getDate(f))) {
+                // A stored day the fetch did not cover, e.g. beyond a shorter request.
+                merged.add(stored, s++);
+            } else if (s == stored.size() || fetched.getDate(f) < stored.getDate(s)) {
+                changed.add(fetched, f);
+                merged.add(fetched, f++);
+            } else {
+                if (fetched.isSameDay(f, stored, s)) {
+                    unchanged++;
+                } else {
+                    changed.add(fetched, f);
+                }
+                merged.add(fetched, f++);
+                s++;
+            }
+        }
+        return new ForecastDiff(changed, merged, unchanged);
+    }
+
+    /**
+     * @return the fetched days that are not stored yet or whose values differ, in date order.
+     */
+    public ForecastBatch getChanged() {
+        return mChanged;
+    }
+
+    /**
+     * @return what will be stored once the changed days are written: every stored and fetched
+     * day, fetched values winning, in date order.
+     */
+    public ForecastBatch getMerged() {
+        return mMerged;
+    }
+
+    /**
+     * @return how many fetched days were already stored with the same values.
+     */
+    public int getUnchangedCount() {
+        return mUnchangedCount;
+    }
+}
@@ -0,0 +1,306 @@
+package com.example.android.sunshine.core;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Makes the GET requests of the forecast fetch stage.
+ *
+ * Connections are left to HttpURLConnection's keep-alive pool: bodies are always read to the end
+ * and closed, and the connection is only disconnected when it cannot be reused, so consecutive
+ * requests (one per location) skip TCP setup. Responses are requested gzipped, every request has
+ * connect and read timeouts, and bodies above a size cap are refused.
+ *
+ * Bodies are read straight into pooled {@link ResponseBuffer}s. One instance is meant to be
+ * shared by every fetch; it is thread safe.
+ *
+ * A request that may have to be abandoned, e.g. the losing side of a {@link HedgedFetcher}, is
+ * made through a {@link Call}, which can be cancelled from another thread and can be given less
+ * time than the default timeouts.
+ */
+public class ForecastHttpClient {
+
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 15 * 1000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 20 * 1000;
+    // A 16 day forecast is around 5KB uncompressed.
+    public static final int DEFAULT_MAX_RESPONSE_BYTES = 512 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 8 * 1024;
+    // The API's error bodies are a line of JSON; anything longer isn't worth reading to keep the
+    // connection.
+    private static final int MAX_ERROR_BODY_BYTES = 4 * 1024;
+
+    private final int mConnectTimeoutMillis;
+    private final int mReadTimeoutMillis;
+    private final int mMaxResponseBytes;
+
+    // Enough for a 16 day forecast without growing; a few fetches may run at once.
+    private final BufferPool mBufferPool = new BufferPool(4, 16 * 1024, 64 * 1024);
+
+    private final AtomicLong mRequests = new AtomicLong();
+    private final AtomicLong mBytesReceived = new AtomicLong();
+    private final AtomicLong mBytesDecoded = new AtomicLong();
+
+    public ForecastHttpClient() {
+        this(DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS, DEFAULT_MAX_RESPONSE_BYTES);
+    }
+
+    public ForecastHttpClient(int connectTimeoutMillis, int readTimeoutMillis, int maxResponseBytes) {
+        mConnectTimeoutMillis = connectTimeoutMillis;
+        mReadTimeoutMillis = readTimeoutMillis;
+        mMaxResponseBytes = maxResponseBytes;
+    }
+
+    /**
+     * @return the response body decoded as UTF-8, or null if it was empty
+     * @see #fetch(URL, ResponseBuffer)
+     */
+    public String get(URL url) throws IOException {
+        return newCall(url, Long.MAX_VALUE).execute();
+    }
+
+    /**
+     * @param timeoutMillis caps the connect and read timeouts of the request, e.g. to what is
+     *                      left of a deadline
+     */
+    public Call newCall(URL url, long timeoutMillis) {
+        return newCall(url, timeoutMillis, CancellationToken.NONE);
+    }
+
+    /**
+     * As {@link #newCall(URL, long)}, for a request that is also cancelled with cancellation.
+     */
+    public Call newCall(URL url, long timeoutMillis, CancellationToken cancellation) {
+        return new Call(url, timeoutMillis, cancellation);
+    }
+
+    /**
+     * Reads the response body into buffer, decompressed but otherwise untouched.
+     *
+     * @return the length of the body
+     * @throws HttpStatusException if the server did not answer 200 OK
+     * @throws ResponseTooLargeException if the body is over the size cap
+     * @throws java.net.SocketTimeoutException if connecting or reading timed out
+     */
+    public int fetch(URL url, ResponseBuffer buffer) throws IOException {
+        return fetch(url, buffer, mConnectTimeoutMillis, mReadTimeoutMillis, null);
+    }
+
+    private int fetch(URL url, ResponseBuffer buffer, int connectTimeoutMillis, int readTimeoutMillis, Call call)
+            throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis);
+        // Setting this ourselves means decompressing ourselves, on every platform.
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        if (call != null) {
+            call.attach(connection);
+        }
+        mRequests.incrementAndGet();
+
+        boolean reusable = false;
+        try {
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                // Reading a short error body lets the connection go back to the pool.
+                reusable = drain(connection.getErrorStream(), MAX_ERROR_BODY_BYTES);
+                throw new HttpStatusException(status, connection.getResponseMessage());
+            }
+
+            String contentLength = connection.getHeaderField("Content-Length");
+            if (contentLength != null && parseLong(contentLength) > mMaxResponseBytes) {
+                throw new ResponseTooLargeException(mMaxResponseBytes);
+            }
+
+            CountingInputStream wire = new CountingInputStream(connection.getInputStream());
+            InputStream body = "gzip".equalsIgnoreCase(connection.getContentEncoding())
+                    ? new GZIPInputStream(wire, BUFFER_SIZE) : wire;
+            try {
+                buffer.readFrom(body, mMaxResponseBytes);
+                reusable = true;
+                mBytesDecoded.addAndGet(buffer.length());
+                return buffer.length();
+            } finally {
+                mBytesReceived.addAndGet(wire.getCount());
+                body.close();
+            }
+        } finally {
+            if (!reusable) {
+                // Half read or failed: don't hand the connection to the next request.
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * One GET request that another thread may cancel, directly or through its
+     * {@link CancellationToken}. Cancelling disconnects the connection, which makes a blocked
+     * connect or read fail straight away.
+     */
+    public final class Call implements HedgedFetcher.Request<String>, CancellationToken.Listener {
+        private final URL mUrl;
+        private final long mTimeoutMillis;
+        private final CancellationToken mCancellation;
+
+        private HttpURLConnection mConnection;
+        private boolean mCancelled;
+
+        Call(URL url, long timeoutMillis, CancellationToken cancellation) {
+            mUrl = url;
+            mTimeoutMillis = timeoutMillis;
+            mCancellation = cancellation;
+        }
+
+        /**
+         * @return the response body decoded as UTF-8, or null if it was empty
+         * @throws CancelledException if the call's token was cancelled
+         * @throws InterruptedIOException if the call itself was cancelled
+         * @see #fetch(URL, ResponseBuffer)
+         */
+        @Override
+        public String execute() throws IOException {
+            // Zero means no timeout to HttpURLConnection, so never go below a millisecond.
+            int timeout = (int) Math.max(1, Math.min(Integer.MAX_VALUE, mTimeoutMillis));
+            mCancellation.addListener(this);
+            ResponseBuffer buffer = mBufferPool.acquire();
+            try {
+                return fetch(mUrl, buffer, Math.min(mConnectTimeoutMillis, timeout),
+                             Math.min(mReadTimeoutMillis, timeout), this) == 0
+                        ? null : buffer.decode(UTF_8);
+            } catch (IOException e) {
+                mCancellation.throwIfCancelled();
+                if (isCancelled()) {
+                    throw new InterruptedIOException("Cancelled request to " + mUrl.getHost() + mUrl.getPath());
+                }
+                throw e;
+            } finally {
+                mCancellation.removeListener(this);
+                mBufferPool.release(buffer);
+            }
+        }
+
+        @Override
+        public void onCancel() {
+            cancel();
+        }
+
+        @Override
+        public void cancel() {
+            HttpURLConnection connection;
+            synchronized (this) {
+                mCancelled = true;
+                connection = mConnection;
+            }
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+
+        public synchronized boolean isCancelled() {
+            return mCancelled;
+        }
+
+        void attach(HttpURLConnection connection) throws InterruptedIOException {
+            synchronized (this) {
+                if (!mCancelled) {
+                    mConnection = connection;
+                    return;
+                }
+            }
+            throw new InterruptedIOException("Cancelled request to " + mUrl.getHost() + mUrl.getPath());
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Reads and discards in, giving up once more than maxBytes were read.
+     *
+     * @return whether in was read to the end
+     */
+    private static boolean drain(InputStream in, int maxBytes) throws IOException {
+        if (in == null) {
+            return true;
+        }
+        try {
+            byte[] buffer = new byte[1024];
+            int total = 0;
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+                if (total > maxBytes) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            in.close();
+        }
+    }
+
+    public BufferPool getBufferPool() {
+        return mBufferPool;
+    }
+
+    public long getRequestCount() {
+        return mRequests.get();
+    }
+
+    /**
+     * @return body bytes read off the network, compressed if the server gzipped them.
+     */
+    public long getBytesReceived() {
+        return mBytesReceived.get();
+    }
+
+    /**
+     * @return body bytes after decompression.
+     */
+    public long getBytesDecoded() {
+        return mBytesDecoded.get();
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long mCount;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                mCount++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            int read = super.read(buffer, offset, count);
+            if (read > 0) {
+                mCount += read;
+            }
+            return read;
+        }
+
+        long getCount() {
+            return mCount;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.android.sunshine.core;
+
+/**
+ * Thrown when a forecast response can't be decoded.
+ */
+public class ForecastParseException extends Exception {
+
+    public ForecastParseException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.android.sunshine.core;
+
+import java.util.TimeZone;
+
+/**
+ * Decodes a daily forecast response.
+ */
+public interface ForecastParser {
+
+    /**
+     * The service returns daily forecasts in order and the first day is always the current day,
+     * so days are dated from julianStartDay onwards, each at the start of its day in timeZone.
+     *
+     * @param forecastJson the complete response body
+     * @param julianStartDay the Julian day of the first forecast day
+     * @param timeZone the time zone the dates are normalized in
+     */
+    ParsedForecast parse(String forecastJson, int julianStartDay, TimeZone timeZone)
+            throws ForecastParseException;
+
+    /**
+     * As {@link #parse(String, int, TimeZone)}, giving up between days once cancellation is
+     * cancelled.
+     *
+     * @throws CancelledException if cancellation was cancelled before the last day was parsed
+     */
+    ParsedForecast parse(String forecastJson, int julianStartDay, TimeZone timeZone,
+                         CancellationToken cancellation) throws ForecastParseException, CancelledException;
+}
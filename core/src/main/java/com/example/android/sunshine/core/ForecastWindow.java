@@ -0,0 +1,64 @@
+package com.example.android.sunshine.core;
+
+import java.util.TimeZone;
+
+/**
+ * How many days of forecast to keep for a location and how many of them to request on a sync.
+ *
+ * The daily forecast endpoint always starts at today, so a sync cannot ask for just the new
+ * days at the end of the horizon. Instead the whole horizon is requested only when the stored
+ * days no longer reach its end, which happens once a day as the horizon moves on. Other syncs
+ * request the first refresh days only, the near term whose values are still being revised.
+ */
+public class ForecastWindow {
+
+    // The most days the daily forecast endpoint returns.
+    public static final int MAX_DAYS = 16;
+
+    private final int mHorizonDays;
+    private final int mRefreshDays;
+
+    /**
+     * @param horizonDays days to keep, starting at today
+     * @param refreshDays days to request when the stored forecast already reaches the end of the
+     * horizon; pass horizonDays to always request everything
+     */
+    public ForecastWindow(int horizonDays, int refreshDays) {
+        if (horizonDays < 1 || horizonDays > MAX_DAYS || refreshDays < 1) {
+            throw new IllegalArgumentException("Invalid forecast window " + horizonDays + "/" + refreshDays);
+        }
+        mHorizonDays = horizonDays;
+        mRefreshDays = Math.min(refreshDays, horizonDays);
+    }
+
+    public int getHorizonDays() {
+        return mHorizonDays;
+    }
+
+    /**
+     * @return the days requested once the stored forecast reaches the end of the horizon
+     */
+    public int getRefreshDays() {
+        return mRefreshDays;
+    }
+
+    /**
+     * @param stored the stored days from julianStartDay onwards, in date order
+     * @param julianStartDay today
+     * @param timeZone the time zone stored dates are normalized in
+     * @return how many days, starting at today, the next request should ask for.
+     */
+    public int getDaysToRequest(ForecastBatch stored, int julianStartDay, TimeZone timeZone) {
+        int covered = 0;
+        for (int i = 0; i < stored.size() && covered < mHorizonDays; i++) {
+            long expected = SunshineDates.getStartOfJulianDay(julianStartDay + covered, timeZone);
+            if (stored.getDate(i) == expected) {
+                covered++;
+            } else if (stored.getDate(i) > expected) {
+                // A gap: the days after it don't help.
+                break;
+            }
+        }
+        return covered < mHorizonDays ? mHorizonDays : mRefreshDays;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.android.sunshine.core;
+
+/**
+ * Decides whether stored data is still fresh enough to show without fetching it again.
+ *
+ * Reads never wait for the network: whatever is stored is shown straight away, and data that
+ * is {@link Freshness#STALE} or {@link Freshness#MISSING} is revalidated in the background, the
+ * way a stale-while-revalidate cache does.
+ */
+public class FreshnessPolicy {
+
+    public enum Freshness {
+        // Fetched within the maximum age; shown as is.
+        FRESH,
+        // Older than the maximum age; shown, and fetched again.
+        STALE,
+        // Never fetched; whatever there is is shown, and it is fetched.
+        MISSING
+    }
+
+    private final long mMaxAgeMillis;
+
+    public FreshnessPolicy(long maxAgeMillis) {
+        if (maxAgeMillis <= 0) {
+            throw new IllegalArgumentException("Maximum age must be positive");
+        }
+        mMaxAgeMillis = maxAgeMillis;
+    }
+
+    public long getMaxAgeMillis() {
+        return mMaxAgeMillis;
+    }
+
+    /**
+     * @param fetchedAtMillis when the data was fetched, 0 if never
+     * @return how fresh that data is at nowMillis
+     */
+    public Freshness evaluate(long fetchedAtMillis, long nowMillis) {
+        if (fetchedAtMillis <= 0) {
+            return Freshness.MISSING;
+        }
+        if (fetchedAtMillis > nowMillis) {
+            // The clock went backwards; the age can't be trusted.
+            return Freshness.STALE;
+        }
+        return nowMillis - fetchedAtMillis > mMaxAgeMillis ? Freshness.STALE : Freshness.FRESH;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.android.sunshine.core;
+
+/**
+ * Geohash encoding of coordinates: a base 32 string whose every character halves the cell it
+ * names, alternately by longitude and latitude. Points that share a prefix lie in the same cell
+ * of that many characters, so nearby locations can be found with a range query over stored
+ * hashes. Points just either side of a cell border share a shorter prefix only.
+ */
+public final class GeoHash {
+
+    // 12 characters name a cell a few centimetres across, more than any coordinate here needs.
+    public static final int MAX_PRECISION = 12;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    // Sorts after every character of BASE32.
+    private static final char AFTER_BASE32 = '{';
+
+    private GeoHash() {
+    }
+
+    /**
+     * @param precision the length of the hash, 1 to {@link #MAX_PRECISION}
+     * @return the hash of the cell of that size containing latitude, longitude
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Invalid geohash precision " + precision);
+        }
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("Invalid coordinates " + latitude + "," + longitude);
+        }
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        boolean evenBit = true;
+        char[] hash = new char[precision];
+        for (int i = 0; i < precision; i++) {
+            int index = 0;
+            for (int bit = 0; bit < 5; bit++) {
+                index <<= 1;
+                if (evenBit) {
+                    double mid = (minLon + maxLon) / 2;
+                    if (longitude >= mid) {
+                        index |= 1;
+                        minLon = mid;
+                    } else {
+                        maxLon = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (latitude >= mid) {
+                        index |= 1;
+                        minLat = mid;
+                    } else {
+                        maxLat = mid;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+            hash[i] = BASE32[index];
+        }
+        return new String(hash);
+    }
+
+    /**
+     * @return a string that sorts after every hash inside cell and before every hash after it,
+     * so that cell &lt;= hash &lt; endOfCell(cell) selects the cell.
+     */
+    public static String endOfCell(String cell) {
+        return cell + AFTER_BASE32;
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.android.sunshine.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cuts the latency tail of a request by hedging: if the first request has not answered by the
+ * time most requests have (the {@link #getHedgeDelayMillis() hedge delay}, a high percentile of
+ * recent latencies), a second, equivalent request is sent, possibly to another endpoint. The
+ * first answer wins and the other request is cancelled.
+ *
+ * Only a slow request is hedged. One that fails is left to the caller's retries, unless a hedge
+ * is already in flight, in which case the hedge's answer is waited for.
+ */
+public class HedgedFetcher {
+
+    /**
+     * A request that can be abandoned from another thread.
+     */
+    public interface Request<T> {
+        T execute() throws IOException;
+
+        /**
+         * Makes a running {@link #execute()} give up as soon as it can. Called at most once,
+         * possibly before execute.
+         */
+        void cancel();
+    }
+
+    private final Executor mExecutor;
+    private final LatencyTracker mLatencies;
+    private final double mPercentile;
+    private final long mDefaultDelayMillis;
+    private final long mMinDelayMillis;
+
+    private final AtomicLong mRequests = new AtomicLong();
+    private final AtomicLong mHedges = new AtomicLong();
+    private final AtomicLong mHedgeWins = new AtomicLong();
+
+    /**
+     * @param executor runs the requests; needs a thread for each of two concurrent requests
+     * @param latencies where the latencies of answered requests are recorded
+     * @param percentile the latency percentile after which a request is hedged
+     * @param defaultDelayMillis the hedge delay until latencies has enough samples
+     * @param minDelayMillis the shortest hedge delay, so a fast network isn't hedged needlessly
+     */
+    public HedgedFetcher(Executor executor, LatencyTracker latencies, double percentile,
+                         long defaultDelayMillis, long minDelayMillis) {
+        mExecutor = executor;
+        mLatencies = latencies;
+        mPercentile = percentile;
+        mDefaultDelayMillis = defaultDelayMillis;
+        mMinDelayMillis = minDelayMillis;
+    }
+
+    /**
+     * @return how long a request may take before it is hedged.
+     */
+    public long getHedgeDelayMillis() {
+        long percentile = mLatencies.getPercentile(mPercentile);
+        return Math.max(mMinDelayMillis, percentile < 0 ? mDefaultDelayMillis : percentile);
+    }
+
+    /**
+     * Runs primary, and hedge too if primary is slow, and returns the first answer.
+     *
+     * @param hedge the request to send if primary is slow, null to never hedge
+     * @param timeoutMillis how long to wait for an answer in all
+     * @throws DeadlineExceededException if neither request answered within timeoutMillis
+     * @throws InterruptedIOException if the calling thread was interrupted while waiting
+     * @throws IOException the failure of the last request to fail
+     */
+    public <T> T fetch(Request<T> primary, Request<T> hedge, long timeoutMillis) throws IOException {
+        mRequests.incrementAndGet();
+        CompletionService<T> completion = new ExecutorCompletionService<T>(mExecutor);
+        long start = System.nanoTime();
+        long hedgeDelay = getHedgeDelayMillis();
+
+        Future<T> primaryFuture = completion.submit(timed(primary));
+        Future<T> hedgeFuture = null;
+        boolean primaryDone = false;
+        boolean hedgeDone = false;
+        try {
+            while (true) {
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                long wait = timeoutMillis - elapsed;
+                if (hedge != null && hedgeFuture == null) {
+                    wait = Math.min(wait, hedgeDelay - elapsed);
+                }
+
+                Future<T> done = wait > 0 ? completion.poll(wait, TimeUnit.MILLISECONDS) : completion.poll();
+                if (done == null) {
+                    elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    if (elapsed >= timeoutMillis) {
+                        throw new DeadlineExceededException(elapsed - timeoutMillis);
+                    }
+                    if (hedge != null && hedgeFuture == null && elapsed >= hedgeDelay) {
+                        mHedges.incrementAndGet();
+                        hedgeFuture = completion.submit(timed(hedge));
+                    }
+                    continue;
+                }
+
+                if (done == primaryFuture) {
+                    primaryDone = true;
+                } else {
+                    hedgeDone = true;
+                }
+                try {
+                    T result = done.get();
+                    if (done == hedgeFuture) {
+                        mHedgeWins.incrementAndGet();
+                    }
+                    return result;
+                } catch (ExecutionException e) {
+                    // Wait for the other request if it is in flight, otherwise give up.
+                    boolean otherRunning = done == primaryFuture ? hedgeFuture != null && !hedgeDone : !primaryDone;
+                    if (!otherRunning) {
+                        throw unwrap(e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a response");
+        } finally {
+            // Cancel whatever hasn't finished; the winner's connection is left to the pool.
+            if (!primaryDone) {
+                primary.cancel();
+                primaryFuture.cancel(true);
+            }
+            if (hedgeFuture != null && !hedgeDone) {
+                hedge.cancel();
+                hedgeFuture.cancel(true);
+            }
+        }
+    }
+
+    private <T> Callable<T> timed(final Request<T> request) {
+        return new Callable<T>() {
+            @Override
+            public T call() throws IOException {
+                long start = System.nanoTime();
+                T result = request.execute();
+                mLatencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return result;
+            }
+        };
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+
+    public long getRequestCount() {
+        return mRequests.get();
+    }
+
+    /**
+     * @return how many requests were slow enough to be hedged.
+     */
+    public long getHedgeCount() {
+        return mHedges.get();
+    }
+
+    /**
+     * @return how many hedges answered before the request they backed up.
+     */
+    public long getHedgeWinCount() {
+        return mHedgeWins.get();
+    }
+}
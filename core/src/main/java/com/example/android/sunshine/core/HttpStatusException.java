@@ -0,0 +1,28 @@
+package com.example.android.sunshine.core;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the server answers with anything but 200 OK.
+ */
+public class HttpStatusException extends IOException {
+
+    private final int mStatusCode;
+
+    public HttpStatusException(int statusCode, String message) {
+        super(statusCode + " " + message);
+        mStatusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return mStatusCode;
+    }
+
+    /**
+     * @return true for server errors and rate limiting, which may go away by themselves. Other
+     * client errors (bad key, unknown city) will fail the same way every time.
+     */
+    public boolean isRetryable() {
+        return mStatusCode >= 500 || mStatusCode == 429 || mStatusCode == 408;
+    }
+}
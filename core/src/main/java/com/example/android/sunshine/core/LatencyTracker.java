@@ -0,0 +1,53 @@
+package com.example.android.sunshine.core;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latencies of the most recent requests, so that percentiles follow the network the
+ * device is on now rather than one it was on an hour ago. Thread safe.
+ */
+public class LatencyTracker {
+
+    private final long[] mSamples;
+    private final int mMinSamples;
+
+    private int mNext;
+    private int mCount;
+
+    /**
+     * @param window how many of the latest samples to keep
+     * @param minSamples how many samples are needed before percentiles are reported
+     */
+    public LatencyTracker(int window, int minSamples) {
+        if (window < 1 || minSamples < 1 || minSamples > window) {
+            throw new IllegalArgumentException("Invalid latency window");
+        }
+        mSamples = new long[window];
+        mMinSamples = minSamples;
+    }
+
+    public synchronized void record(long latencyMillis) {
+        mSamples[mNext] = latencyMillis;
+        mNext = (mNext + 1) % mSamples.length;
+        mCount = Math.min(mCount + 1, mSamples.length);
+    }
+
+    public synchronized int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the latency that percentile of the kept samples did not exceed, or -1 if there are
+     * fewer than minSamples of them.
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (mCount < mMinSamples) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(mSamples, mCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * mCount) - 1;
+        return sorted[Math.max(0, Math.min(mCount - 1, index))];
+    }
+}
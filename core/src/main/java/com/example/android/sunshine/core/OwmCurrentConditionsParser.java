@@ -0,0 +1,105 @@
+package com.example.android.sunshine.core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes OpenWeatherMap's current weather response, see
+ * http://openweathermap.org/current, and the group response that carries the current weather
+ * of several cities at once.
+ */
+public class OwmCurrentConditionsParser {
+
+    static final String OWM_CITY_ID = "id";
+    static final String OWM_CITY_NAME = "name";
+    static final String OWM_COORD = "coord";
+    static final String OWM_LATITUDE = "lat";
+    static final String OWM_LONGITUDE = "lon";
+
+    // Observation time, in seconds since the epoch.
+    static final String OWM_DATE = "dt";
+
+    static final String OWM_MAIN = "main";
+    static final String OWM_TEMPERATURE = "temp";
+    static final String OWM_PRESSURE = "pressure";
+    static final String OWM_HUMIDITY = "humidity";
+
+    static final String OWM_WIND = "wind";
+    static final String OWM_WINDSPEED = "speed";
+    static final String OWM_WIND_DIRECTION = "deg";
+
+    static final String OWM_WEATHER = "weather";
+    static final String OWM_DESCRIPTION = "main";
+    static final String OWM_WEATHER_ID = "id";
+
+    // A group response lists one current weather object per city.
+    static final String OWM_LIST = "list";
+
+    public CurrentConditions parse(String currentJson) throws ForecastParseException {
+        try {
+            return parse(new JSONObject(currentJson));
+        } catch (JSONException e) {
+            throw new ForecastParseException("Unable to parse current conditions", e);
+        }
+    }
+
+    /**
+     * Decodes a group response, see {@link CityGroups}.
+     *
+     * @return the conditions of every city in the response, in response order. Cities the
+     * service doesn't know may be missing, so match them up by {@link CurrentConditions#cityId}.
+     */
+    public List<CurrentConditions> parseGroup(String groupJson) throws ForecastParseException {
+        try {
+            return parseGroup(groupJson, CancellationToken.NONE);
+        } catch (CancelledException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * As {@link #parseGroup(String)}, giving up between cities once cancellation is cancelled.
+     *
+     * @throws CancelledException if cancellation was cancelled before the last city was parsed
+     */
+    public List<CurrentConditions> parseGroup(String groupJson, CancellationToken cancellation)
+            throws ForecastParseException, CancelledException {
+        try {
+            JSONArray list = new JSONObject(groupJson).getJSONArray(OWM_LIST);
+            List<CurrentConditions> conditions = new ArrayList<CurrentConditions>(list.length());
+            for (int i = 0; i < list.length(); i++) {
+                cancellation.throwIfCancelled();
+                conditions.add(parse(list.getJSONObject(i)));
+            }
+            return conditions;
+        } catch (JSONException e) {
+            throw new ForecastParseException("Unable to parse grouped current conditions", e);
+        }
+    }
+
+    private CurrentConditions parse(JSONObject currentObject) throws JSONException {
+        JSONObject coord = currentObject.getJSONObject(OWM_COORD);
+        JSONObject main = currentObject.getJSONObject(OWM_MAIN);
+        JSONObject weatherObject = currentObject.getJSONArray(OWM_WEATHER).getJSONObject(0);
+        // The direction is left out when the air is calm.
+        JSONObject wind = currentObject.optJSONObject(OWM_WIND);
+
+        return new CurrentConditions(currentObject.optLong(OWM_CITY_ID, 0),
+                                     currentObject.getString(OWM_CITY_NAME),
+                                     coord.getDouble(OWM_LATITUDE),
+                                     coord.getDouble(OWM_LONGITUDE),
+                                     currentObject.getLong(OWM_DATE) * 1000,
+                                     main.getDouble(OWM_TEMPERATURE),
+                                     main.getInt(OWM_HUMIDITY),
+                                     main.getDouble(OWM_PRESSURE),
+                                     wind == null ? 0 : wind.optDouble(OWM_WINDSPEED, 0),
+                                     wind == null ? 0 : wind.optDouble(OWM_WIND_DIRECTION, 0),
+                                     weatherObject.getString(OWM_DESCRIPTION),
+                                     weatherObject.getInt(OWM_WEATHER_ID));
+    }
+}
+
@@ -0,0 +1,100 @@
+package com.example.android.sunshine.core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.TimeZone;
+
+/**
+ * Decodes OpenWeatherMap's daily forecast response, see
+ * http://openweathermap.org/API#forecast
+ */
+public class OwmForecastParser implements ForecastParser {
+
+    // These are the names of the JSON objects that need to be extracted.
+
+    // Location information
+    static final String OWM_CITY = "city";
+    static final String OWM_CITY_ID = "id";
+    static final String OWM_CITY_NAME = "name";
+    static final String OWM_COORD = "coord";
+
+    // Location coordinate
+    static final String OWM_LATITUDE = "lat";
+    static final String OWM_LONGITUDE = "lon";
+
+    // Weather information.  Each day's forecast info is an element of the "list" array.
+    static final String OWM_LIST = "list";
+
+    static final String OWM_PRESSURE = "pressure";
+    static final String OWM_HUMIDITY = "humidity";
+    static final String OWM_WINDSPEED = "speed";
+    static final String OWM_WIND_DIRECTION = "deg";
+
+    // All temperatures are children of the "temp" object.
+    static final String OWM_TEMPERATURE = "temp";
+    static final String OWM_MAX = "max";
+    static final String OWM_MIN = "min";
+
+    static final String OWM_WEATHER = "weather";
+    static final String OWM_DESCRIPTION = "main";
+    static final String OWM_WEATHER_ID = "id";
+
+    @Override
+    public ParsedForecast parse(String forecastJson, int julianStartDay, TimeZone timeZone)
+            throws ForecastParseException {
+        try {
+            return parse(forecastJson, julianStartDay, timeZone, CancellationToken.NONE);
+        } catch (CancelledException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Override
+    public ParsedForecast parse(String forecastJson, int julianStartDay, TimeZone timeZone,
+                                CancellationToken cancellation) throws ForecastParseException, CancelledException {
+        try {
+            JSONObject forecastObject = new JSONObject(forecastJson);
+            JSONArray weatherArray = forecastObject.getJSONArray(OWM_LIST);
+
+            JSONObject cityJson = forecastObject.getJSONObject(OWM_CITY);
+            String cityName = cityJson.getString(OWM_CITY_NAME);
+
+            JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
+            double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
+            double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
+
+            ForecastBatch days = new ForecastBatch(weatherArray.length());
+            for (int i = 0; i < weatherArray.length(); i++) {
+                cancellation.throwIfCancelled();
+
+                // Get the JSON object representing the day
+                JSONObject dayForecast = weatherArray.getJSONObject(i);
+
+                long dateTime = SunshineDates.getStartOfJulianDay(julianStartDay + i, timeZone);
+
+                // Description is in a child array called "weather", which is 1 element long.
+                // That element also contains a weather code.
+                JSONObject weatherObject = dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
+
+                // Temperatures are in a child object called "temp".  Try not to name variables
+                // "temp" when working with temperature.  It confuses everybody.
+                JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
+
+                days.add(dateTime,
+                         dayForecast.getDouble(OWM_PRESSURE),
+                         dayForecast.getInt(OWM_HUMIDITY),
+                         dayForecast.getDouble(OWM_WINDSPEED),
+                         dayForecast.getDouble(OWM_WIND_DIRECTION),
+                         temperatureObject.getDouble(OWM_MAX),
+                         temperatureObject.getDouble(OWM_MIN),
+                         weatherObject.getString(OWM_DESCRIPTION),
+                         weatherObject.getInt(OWM_WEATHER_ID));
+            }
+            return new ParsedForecast(cityJson.optLong(OWM_CITY_ID, 0), cityName, cityLatitude, cityLongitude, days);
+        } catch (JSONException e) {
+            throw new ForecastParseException("Unable to parse forecast", e);
+        }
+    }
+}
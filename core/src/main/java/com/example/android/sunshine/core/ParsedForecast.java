@@ -0,0 +1,21 @@
+package com.example.android.sunshine.core;
+
+/**
+ * A decoded forecast response: the city it resolved to and its days, in date order.
+ */
+public class ParsedForecast {
+    // The service's id for the city, 0 if it didn't send one.
+    public final long cityId;
+    public final String cityName;
+    public final double latitude;
+    public final double longitude;
+    public final ForecastBatch days;
+
+    public ParsedForecast(long cityId, String cityName, double latitude, double longitude, ForecastBatch days) {
+        this.cityId = cityId;
+        this.cityName = cityName;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.days = days;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.android.sunshine.core;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of making a request when the client's own {@link TokenBucket} has no token for
+ * it. Nothing was sent, so the request should be deferred rather than counted as a failure.
+ */
+public class RateLimitedException extends IOException {
+
+    private final long mRetryAtMillis;
+
+    public RateLimitedException(String endpoint, long retryAtMillis) {
+        super("Rate limited requests to " + endpoint);
+        mRetryAtMillis = retryAtMillis;
+    }
+
+    /**
+     * @return the wall clock time at which a token will be available for the request.
+     */
+    public long getRetryAtMillis() {
+        return mRetryAtMillis;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.android.sunshine.core;
+
+/**
+ * Decides which {@link RefreshTier}s a sync should fetch, given when each was last fetched.
+ *
+ * Periodic syncs run every {@link #getSyncIntervalMillis()}, the shortest tier interval, and are
+ * only roughly on time. A tier is therefore treated as due up to half a sync interval early, so
+ * that a six hour tier synced from an hourly schedule is fetched every sixth sync rather than
+ * every seventh.
+ */
+public class RefreshSchedule {
+
+    private final long mCurrentIntervalMillis;
+    private final long mDailyIntervalMillis;
+
+    public RefreshSchedule(long currentIntervalMillis, long dailyIntervalMillis) {
+        if (currentIntervalMillis <= 0 || dailyIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Refresh intervals must be positive");
+        }
+        mCurrentIntervalMillis = currentIntervalMillis;
+        mDailyIntervalMillis = dailyIntervalMillis;
+    }
+
+    public long getIntervalMillis(RefreshTier tier) {
+        return tier == RefreshTier.CURRENT ? mCurrentIntervalMillis : mDailyIntervalMillis;
+    }
+
+    /**
+     * @return how often periodic syncs should run to serve every tier.
+     */
+    public long getSyncIntervalMillis() {
+        return Math.min(mCurrentIntervalMillis, mDailyIntervalMillis);
+    }
+
+    /**
+     * @param lastFetchMillis when tier was last fetched successfully, 0 if never
+     * @return true if tier should be fetched by a sync running at nowMillis.
+     */
+    public boolean isDue(RefreshTier tier, long lastFetchMillis, long nowMillis) {
+        if (lastFetchMillis <= 0 || lastFetchMillis > nowMillis) {
+            // Never fetched, or the clock went backwards.
+            return true;
+        }
+        long slack = getSyncIntervalMillis() / 2;
+        return nowMillis - lastFetchMillis >= getIntervalMillis(tier) - slack;
+    }
+
+    /**
+     * @return how many times a day tier is fetched when periodic syncs run on time.
+     */
+    public double getFetchesPerDay(RefreshTier tier) {
+        long syncs = Math.max(1, Math.round((double) getIntervalMillis(tier) / getSyncIntervalMillis()));
+        return SunshineDates.DAY_IN_MILLIS / (double) (syncs * getSyncIntervalMillis());
+    }
+
+    /**
+     * Estimates daily data use from the size of one response of each tier.
+     */
+    public double getBytesPerDay(long currentResponseBytes, long dailyResponseBytes) {
+        return getFetchesPerDay(RefreshTier.CURRENT) * currentResponseBytes
+                + getFetchesPerDay(RefreshTier.DAILY) * dailyResponseBytes;
+    }
+}
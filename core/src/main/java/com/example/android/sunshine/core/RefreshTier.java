@@ -0,0 +1,15 @@
+package com.example.android.sunshine.core;
+
+/**
+ * The kinds of data a sync can fetch, each refreshed on its own interval.
+ */
+public enum RefreshTier {
+    /**
+     * Today's observed conditions, a small response that changes within hours.
+     */
+    CURRENT,
+    /**
+     * The multi-day daily forecast, a larger response that changes slowly.
+     */
+    DAILY
+}
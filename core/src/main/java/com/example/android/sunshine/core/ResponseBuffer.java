@@ -0,0 +1,84 @@
+package com.example.android.sunshine.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * A reusable, growable byte array that a response body is read into directly, with no
+ * intermediate chunks, lines or Strings. Get one from a {@link BufferPool}.
+ */
+public class ResponseBuffer {
+
+    private byte[] mBytes;
+    private int mLength;
+
+    public ResponseBuffer(int initialCapacity) {
+        mBytes = new byte[initialCapacity];
+    }
+
+    /**
+     * Replaces the contents with everything left in in. Does not close in.
+     *
+     * @throws ResponseTooLargeException if in holds more than maxBytes
+     */
+    public void readFrom(InputStream in, int maxBytes) throws IOException {
+        mLength = 0;
+        while (true) {
+            int limit = Math.min(mBytes.length, maxBytes);
+            if (mLength == limit) {
+                if (limit == maxBytes) {
+                    // Full at the cap: one more byte means the body is too large.
+                    if (in.read() != -1) {
+                        throw new ResponseTooLargeException(maxBytes);
+                    }
+                    return;
+                }
+                grow(Math.min(maxBytes, mBytes.length * 2));
+                limit = Math.min(mBytes.length, maxBytes);
+            }
+            int read = in.read(mBytes, mLength, limit - mLength);
+            if (read == -1) {
+                return;
+            }
+            mLength += read;
+        }
+    }
+
+    private void grow(int capacity) {
+        byte[] bytes = new byte[capacity];
+        System.arraycopy(mBytes, 0, bytes, 0, mLength);
+        mBytes = bytes;
+    }
+
+    public int length() {
+        return mLength;
+    }
+
+    public int capacity() {
+        return mBytes.length;
+    }
+
+    /**
+     * @return the backing array; only the first {@link #length()} bytes are valid.
+     */
+    public byte[] getBytes() {
+        return mBytes;
+    }
+
+    /**
+     * @return a stream over the contents, sharing the backing array.
+     */
+    public InputStream newInputStream() {
+        return new ByteArrayInputStream(mBytes, 0, mLength);
+    }
+
+    public String decode(Charset charset) {
+        return new String(mBytes, 0, mLength, charset);
+    }
+
+    public void clear() {
+        mLength = 0;
+    }
+}
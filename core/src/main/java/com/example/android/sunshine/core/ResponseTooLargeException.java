@@ -0,0 +1,13 @@
+package com.example.android.sunshine.core;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a response body is bigger than the client accepts. Retrying will not help.
+ */
+public class ResponseTooLargeException extends IOException {
+
+    public ResponseTooLargeException(long maxBytes) {
+        super("Response larger than " + maxBytes + " bytes");
+    }
+}
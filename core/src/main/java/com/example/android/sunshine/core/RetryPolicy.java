@@ -0,0 +1,44 @@
+package com.example.android.sunshine.core;
+
+import java.util.Random;
+
+/**
+ * Bounded exponential backoff with jitter. The n-th retry waits between half and all of
+ * min(maxDelay, baseDelay * 2^(n-1)), so clients that failed together do not retry together.
+ */
+public class RetryPolicy {
+
+    private final int mMaxAttempts;
+    private final long mBaseDelayMillis;
+    private final long mMaxDelayMillis;
+    private final Random mRandom;
+
+    /**
+     * @param maxAttempts total attempts, including the first one
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, Random random) {
+        if (maxAttempts < 1 || baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis) {
+            throw new IllegalArgumentException("Invalid retry policy");
+        }
+        mMaxAttempts = maxAttempts;
+        mBaseDelayMillis = baseDelayMillis;
+        mMaxDelayMillis = maxDelayMillis;
+        mRandom = random;
+    }
+
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    /**
+     * @param retry 1 for the first retry, 2 for the second...
+     * @return how long to wait before that retry.
+     */
+    public long getDelayMillis(int retry) {
+        // The cap is reached long before the shift could overflow.
+        long exponential = mBaseDelayMillis << Math.min(retry - 1, 30);
+        long cap = Math.min(mMaxDelayMillis, exponential);
+        long half = cap / 2;
+        return half + (long) (mRandom.nextDouble() * (cap - half));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.android.sunshine.core;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Julian day arithmetic used to normalize forecast dates, equivalent to what
+ * android.text.format.Time.getJulianDay/setJulianDay do but without the Android dependency.
+ */
+public final class SunshineDates {
+
+    public static final long DAY_IN_MILLIS = 1000L * 60 * 60 * 24;
+
+    // The Julian day of the Unix epoch, January 1st 1970.
+    public static final int EPOCH_JULIAN_DAY = 2440588;
+
+    private SunshineDates() {
+    }
+
+    /**
+     * @return the Julian day that millis falls on in timeZone.
+     */
+    public static int getJulianDay(long millis, TimeZone timeZone) {
+        long localMillis = millis + timeZone.getOffset(millis);
+        return (int) Math.floor((double) localMillis / DAY_IN_MILLIS) + EPOCH_JULIAN_DAY;
+    }
+
+    /**
+     * @return the millisecond time of midnight at the start of julianDay in timeZone.
+     */
+    public static long getStartOfJulianDay(int julianDay, TimeZone timeZone) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.setTimeInMillis((julianDay - EPOCH_JULIAN_DAY) * DAY_IN_MILLIS);
+
+        Calendar local = Calendar.getInstance(timeZone);
+        local.clear();
+        local.set(utc.get(Calendar.YEAR), utc.get(Calendar.MONTH), utc.get(Calendar.DAY_OF_MONTH));
+        return local.getTimeInMillis();
+    }
+
+    /**
+     * To make it easy to query for the exact date, all dates that go into the database are
+     * normalized to the start of their day.
+     *
+     * @return the start of the day that millis falls on in timeZone.
+     */
+    public static long normalizeDate(long millis, TimeZone timeZone) {
+        return getStartOfJulianDay(getJulianDay(millis, timeZone), timeZone);
+    }
+}
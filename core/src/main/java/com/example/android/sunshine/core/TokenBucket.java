@@ -0,0 +1,106 @@
+package com.example.android.sunshine.core;
+
+/**
+ * Token bucket rate limiter: every request takes a token, and tokens come back at a fixed rate
+ * up to the bucket's capacity, so bursts are allowed but the long run rate is bounded.
+ *
+ * The last {@link #getReservedTokens()} tokens are kept for {@link Priority#USER} requests, so
+ * background work running the bucket down never leaves a refresh the user asked for waiting.
+ *
+ * Times are passed in rather than read from the system clock so the bucket can be tested, and
+ * its state can be read out and restored so that it survives the process.
+ */
+public class TokenBucket {
+
+    public enum Priority {
+        USER, BACKGROUND
+    }
+
+    private final int mCapacity;
+    private final long mRefillMillis;
+    private final int mReservedTokens;
+
+    private double mTokens;
+    private long mUpdatedAt;
+
+    /**
+     * @param capacity the most tokens the bucket holds, and so the largest burst
+     * @param refillMillis how long each token takes to come back
+     * @param reservedTokens how many of the tokens only user requests may take
+     * @param tokens the tokens held at updatedAtMillis, e.g. as last saved
+     * @param updatedAtMillis when tokens was counted, 0 for a new, full bucket
+     */
+    public TokenBucket(int capacity, long refillMillis, int reservedTokens, double tokens, long updatedAtMillis) {
+        if (capacity < 1 || refillMillis <= 0 || reservedTokens < 0 || reservedTokens >= capacity) {
+            throw new IllegalArgumentException("Invalid token bucket");
+        }
+        mCapacity = capacity;
+        mRefillMillis = refillMillis;
+        mReservedTokens = reservedTokens;
+        mTokens = updatedAtMillis <= 0 ? capacity : Math.max(0, Math.min(capacity, tokens));
+        mUpdatedAt = updatedAtMillis;
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    public int getReservedTokens() {
+        return mReservedTokens;
+    }
+
+    /**
+     * @return the tokens held at nowMillis, including partly refilled ones.
+     */
+    public synchronized double getTokens(long nowMillis) {
+        refill(nowMillis);
+        return mTokens;
+    }
+
+    /**
+     * @return when the token count returned by {@link #getTokens(long)} was last brought up to
+     * date.
+     */
+    public synchronized long getUpdatedAtMillis() {
+        return mUpdatedAt;
+    }
+
+    /**
+     * Takes a token if one is available to priority.
+     *
+     * @return true if the request may be made now.
+     */
+    public synchronized boolean tryAcquire(Priority priority, long nowMillis) {
+        refill(nowMillis);
+        if (mTokens < 1 + floor(priority)) {
+            return false;
+        }
+        mTokens -= 1;
+        return true;
+    }
+
+    /**
+     * @return the earliest time at which {@link #tryAcquire} will succeed for priority, provided
+     * nobody else takes a token first.
+     */
+    public synchronized long getRetryAtMillis(Priority priority, long nowMillis) {
+        refill(nowMillis);
+        double missing = 1 + floor(priority) - mTokens;
+        if (missing <= 0) {
+            return nowMillis;
+        }
+        return nowMillis + (long) Math.ceil(missing * mRefillMillis);
+    }
+
+    private int floor(Priority priority) {
+        return priority == Priority.USER ? 0 : mReservedTokens;
+    }
+
+    private void refill(long nowMillis) {
+        // A clock set backwards earns no tokens; count from the new time.
+        if (nowMillis > mUpdatedAt && mUpdatedAt > 0) {
+            mTokens = Math.min(mCapacity, mTokens + (double) (nowMillis - mUpdatedAt) / mRefillMillis);
+        }
+        mUpdatedAt = nowMillis;
+    }
+}
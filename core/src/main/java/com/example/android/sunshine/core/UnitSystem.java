@@ -0,0 +1,39 @@
+package com.example.android.sunshine.core;
+
+/**
+ * Converts the metric values stored in the database to the units the user asked for.
+ */
+public enum UnitSystem {
+    METRIC {
+        @Override
+        public double temperature(double celsius) {
+            return celsius;
+        }
+
+        @Override
+        public float windSpeed(float kmh) {
+            return kmh;
+        }
+    },
+    IMPERIAL {
+        @Override
+        public double temperature(double celsius) {
+            return (celsius * 1.8) + 32;
+        }
+
+        @Override
+        public float windSpeed(float kmh) {
+            return .621371192237334f * kmh;
+        }
+    };
+
+    /**
+     * @return the temperature in this system's unit, degrees Celsius or Fahrenheit.
+     */
+    public abstract double temperature(double celsius);
+
+    /**
+     * @return the wind speed in this system's unit, km/h or mph.
+     */
+    public abstract float windSpeed(float kmh);
+}
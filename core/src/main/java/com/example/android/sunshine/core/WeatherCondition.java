@@ -0,0 +1,50 @@
+package com.example.android.sunshine.core;
+
+/**
+ * The groups of OpenWeatherMap condition codes that Sunshine has artwork for.
+ */
+public enum WeatherCondition {
+    STORM,
+    LIGHT_RAIN,
+    RAIN,
+    SNOW,
+    FOG,
+    CLEAR,
+    LIGHT_CLOUDS,
+    CLOUDS;
+
+    /**
+     * Maps a weather condition id returned by the OpenWeatherMap call to its group.
+     * Based on weather code data found at:
+     * http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
+     *
+     * @param weatherId from OpenWeatherMap API response
+     * @return the matching condition, or null if no relation is found.
+     */
+    public static WeatherCondition fromWeatherId(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return STORM;
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return LIGHT_RAIN;
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return RAIN;
+        } else if (weatherId == 511) {
+            return SNOW;
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return RAIN;
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return SNOW;
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return FOG;
+        } else if (weatherId == 781) {
+            return STORM;
+        } else if (weatherId == 800) {
+            return CLEAR;
+        } else if (weatherId == 801) {
+            return LIGHT_CLOUDS;
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return CLOUDS;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.android.sunshine.core;
+
+public final class Wind {
+
+    private static final String[] COMPASS_POINTS = {"N", "NE", "E", "SE", "S", "SW", "W", "NW"};
+
+    private Wind() {
+    }
+
+    /**
+     * From wind direction in meteorological degrees (0 is north, 90 is east), determine the
+     * compass direction as a string, e.g "NW". Anything below 22.5 or from 337.5 up counts as
+     * north.
+     *
+     * @return one of the eight compass points, or "Unknown" if degrees is not a number.
+     */
+    public static String getCompassDirection(float degrees) {
+        if (Float.isNaN(degrees)) {
+            return "Unknown";
+        }
+        if (degrees >= 337.5f || degrees < 22.5f) {
+            return COMPASS_POINTS[0];
+        }
+        // Each point covers 45 degrees centred on itself, so shift by half a sector first.
+        return COMPASS_POINTS[(int) ((degrees + 22.5f) / 45f)];
+    }
+}
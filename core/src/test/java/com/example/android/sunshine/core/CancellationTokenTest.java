@@ -0,0 +1,67 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CancellationTokenTest {
+
+    @Test
+    public void listenersRunOnceWhenCancelled() throws CancelledException {
+        CancellationToken cancellation = new CancellationToken();
+        CountingListener listener = new CountingListener();
+        cancellation.addListener(listener);
+        cancellation.throwIfCancelled();
+        assertFalse(cancellation.isCancelled());
+        assertEquals(0, cancellation.getCancelledAtNanos());
+
+        cancellation.cancel();
+        cancellation.cancel();
+
+        assertTrue(cancellation.isCancelled());
+        assertTrue(cancellation.getCancelledAtNanos() != 0);
+        assertEquals(1, listener.mCalls);
+    }
+
+    @Test
+    public void listenerAddedAfterCancelRunsStraightAway() {
+        CancellationToken cancellation = new CancellationToken();
+        cancellation.cancel();
+        CountingListener listener = new CountingListener();
+        cancellation.addListener(listener);
+        assertEquals(1, listener.mCalls);
+    }
+
+    @Test
+    public void removedListenerDoesNotRun() {
+        CancellationToken cancellation = new CancellationToken();
+        CountingListener listener = new CountingListener();
+        cancellation.addListener(listener);
+        cancellation.removeListener(listener);
+        cancellation.cancel();
+        assertEquals(0, listener.mCalls);
+    }
+
+    @Test(expected = CancelledException.class)
+    public void throwsOnceCancelled() throws CancelledException {
+        CancellationToken cancellation = new CancellationToken();
+        cancellation.cancel();
+        cancellation.throwIfCancelled();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void noneCannotBeCancelled() {
+        CancellationToken.NONE.cancel();
+    }
+
+    private static class CountingListener implements CancellationToken.Listener {
+        int mCalls;
+
+        @Override
+        public void onCancel() {
+            mCalls++;
+        }
+    }
+}
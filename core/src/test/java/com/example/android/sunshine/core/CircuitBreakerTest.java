@@ -0,0 +1,47 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private static final long OPEN_MILLIS = 60000;
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("forecast", 3, OPEN_MILLIS);
+        breaker.recordFailure(0);
+        breaker.recordFailure(0);
+        breaker.recordSuccess();
+        breaker.recordFailure(0);
+        breaker.recordFailure(0);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(0));
+
+        breaker.recordFailure(10);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState(10));
+        assertFalse(breaker.allowRequest(10));
+        assertEquals(10 + OPEN_MILLIS, breaker.getRetryAtMillis());
+    }
+
+    @Test
+    public void halfOpenLetsOneTrialThrough() {
+        CircuitBreaker breaker = new CircuitBreaker("forecast", 1, OPEN_MILLIS);
+        breaker.recordFailure(0);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState(OPEN_MILLIS));
+        assertTrue(breaker.allowRequest(OPEN_MILLIS));
+        assertFalse("Error: Second trial let through", breaker.allowRequest(OPEN_MILLIS));
+
+        // The trial fails, so the breaker opens for another period.
+        breaker.recordFailure(OPEN_MILLIS);
+        assertFalse(breaker.allowRequest(OPEN_MILLIS + 1));
+        assertTrue(breaker.allowRequest(2 * OPEN_MILLIS));
+
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(2 * OPEN_MILLIS));
+        assertTrue(breaker.allowRequest(2 * OPEN_MILLIS));
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CityGroupsTest {
+
+    @Test
+    public void splitsIntoFullGroupsAndRemainder() {
+        long[] ids = new long[45];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1000 + i;
+        }
+
+        List<long[]> groups = CityGroups.split(ids, CityGroups.MAX_CITIES);
+
+        assertEquals(3, groups.size());
+        assertEquals(20, groups.get(0).length);
+        assertEquals(20, groups.get(1).length);
+        assertEquals(5, groups.get(2).length);
+        assertEquals(1000, groups.get(0)[0]);
+        assertEquals(1020, groups.get(1)[0]);
+        assertEquals(1044, groups.get(2)[4]);
+    }
+
+    @Test
+    public void exactMultipleHasNoEmptyGroup() {
+        assertEquals(2, CityGroups.split(new long[40], CityGroups.MAX_CITIES).size());
+        assertTrue(CityGroups.split(new long[0], CityGroups.MAX_CITIES).isEmpty());
+    }
+
+    @Test
+    public void singleGroupKeepsOrder() {
+        List<long[]> groups = CityGroups.split(new long[] {3, 1, 2}, 20);
+        assertEquals(1, groups.size());
+        assertArrayEquals(new long[] {3, 1, 2}, groups.get(0));
+    }
+
+    @Test
+    public void formatsIdParam() {
+        assertEquals("524901,703448,2643743", CityGroups.toIdParam(new long[] {524901, 703448, 2643743}));
+        assertEquals("5375480", CityGroups.toIdParam(new long[] {5375480}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyGroups() {
+        CityGroups.split(new long[] {1}, 0);
+    }
+}
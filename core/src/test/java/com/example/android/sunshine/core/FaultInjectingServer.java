@@ -0,0 +1,174 @@
+package com.example.android.sunshine.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the forecast API that answers each request with the next queued fault,
+ * or with the forecast body once the queue is empty.
+ */
+class FaultInjectingServer {
+
+    enum Fault {
+        NONE, SERVICE_UNAVAILABLE, NOT_FOUND, UNAUTHORIZED, DROP_CONNECTION, SLOW_RESPONSE,
+        // A 500 whose body never ends.
+        ENDLESS_ERROR
+    }
+
+    static final long SLOW_RESPONSE_MILLIS = 1000;
+
+    private final HttpServer mServer;
+    private final Queue<Fault> mFaults = new ConcurrentLinkedQueue<Fault>();
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private volatile byte[] mBody = OwmForecastParserTest.FORECAST_JSON.getBytes(Charset.forName("UTF-8"));
+    private volatile Fault mDefaultFault = Fault.NONE;
+    private volatile boolean mGzip = true;
+    private final AtomicLong mBytesSent = new AtomicLong();
+    private final Set<Integer> mClientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+
+    FaultInjectingServer() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequests.incrementAndGet();
+                mClientPorts.add(exchange.getRemoteAddress().getPort());
+                Fault fault = mFaults.poll();
+                respond(exchange, fault == null ? mDefaultFault : fault);
+            }
+        });
+        mServer.start();
+    }
+
+    private void respond(HttpExchange exchange, Fault fault) throws IOException {
+        switch (fault) {
+            case SERVICE_UNAVAILABLE:
+                sendError(exchange, 503);
+                break;
+            case NOT_FOUND:
+                sendError(exchange, 404);
+                break;
+            case UNAUTHORIZED:
+                sendError(exchange, 401);
+                break;
+            case ENDLESS_ERROR:
+                sendEndlessError(exchange);
+                break;
+            case DROP_CONNECTION:
+                // Closing without a status line looks like a reset connection to the client.
+                break;
+            case SLOW_RESPONSE:
+                try {
+                    Thread.sleep(SLOW_RESPONSE_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // fall through
+            default:
+                byte[] body = mBody;
+                String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                if (mGzip && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                    body = gzip(body);
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+                mBytesSent.addAndGet(body.length);
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+        }
+        exchange.close();
+    }
+
+    private static void sendError(HttpExchange exchange, int status) throws IOException {
+        byte[] body = ("{\"cod\":\"" + status + "\"}").getBytes(Charset.forName("UTF-8"));
+        exchange.sendResponseHeaders(status, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+
+    private void sendEndlessError(HttpExchange exchange) throws IOException {
+        // A length of 0 sends the body chunked, with no end announced.
+        exchange.sendResponseHeaders(500, 0);
+        OutputStream out = exchange.getResponseBody();
+        byte[] chunk = new byte[8 * 1024];
+        try {
+            while (true) {
+                out.write(chunk);
+                mBytesSent.addAndGet(chunk.length);
+            }
+        } catch (IOException e) {
+            // The client hung up, as it should.
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        gzip.write(bytes);
+        gzip.close();
+        return out.toByteArray();
+    }
+
+    URL getUrl(String path) throws IOException {
+        return new URL("http", "127.0.0.1", mServer.getAddress().getPort(), path);
+    }
+
+    void enqueue(Fault... faults) {
+        for (Fault fault : faults) {
+            mFaults.add(fault);
+        }
+    }
+
+    void setDefaultFault(Fault fault) {
+        mDefaultFault = fault;
+    }
+
+    void setBody(byte[] body) {
+        mBody = body;
+    }
+
+    void setGzip(boolean gzip) {
+        mGzip = gzip;
+    }
+
+    /**
+     * @return response body bytes written, after compression.
+     */
+    long getBytesSent() {
+        return mBytesSent.get();
+    }
+
+    /**
+     * @return how many distinct client connections made requests.
+     */
+    int getConnectionCount() {
+        return mClientPorts.size();
+    }
+
+    int getRequestCount() {
+        return mRequests.get();
+    }
+
+    void stop() {
+        mServer.stop(0);
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.android.sunshine.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FetchRetrierTest {
+
+    private static final long OPEN_MILLIS = 15 * 60 * 1000;
+
+    private FaultInjectingServer mServer;
+    private FakeClock mClock;
+    private FetchRetrier mRetrier;
+    private CircuitBreaker mBreaker;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new FaultInjectingServer();
+        mClock = new FakeClock();
+        mRetrier = new FetchRetrier(new RetryPolicy(3, 1000, 8000, new Random(1)), mClock);
+        mBreaker = new CircuitBreaker("forecast", 5, OPEN_MILLIS);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+    }
+
+    @Test
+    public void retriesTransientFailuresWithBackoff() throws IOException {
+        mServer.enqueue(FaultInjectingServer.Fault.SERVICE_UNAVAILABLE, FaultInjectingServer.Fault.SERVICE_UNAVAILABLE);
+
+        String body = mRetrier.execute(mBreaker, get("/forecast"));
+
+        assertEquals(OwmForecastParserTest.FORECAST_JSON, body);
+        assertEquals(3, mRetrier.getAttempts());
+        assertEquals(2, mClock.sleeps.size());
+        assertTrue(mClock.sleeps.get(0) >= 500 && mClock.sleeps.get(0) <= 1000);
+        assertTrue(mClock.sleeps.get(1) >= 1000 && mClock.sleeps.get(1) <= 2000);
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState(mClock.now));
+    }
+
+    @Test
+    public void retriesDroppedConnections() throws IOException {
+        // HttpURLConnection quietly retries a dropped GET once by itself, so drop more often than that.
+        mServer.enqueue(FaultInjectingServer.Fault.DROP_CONNECTION, FaultInjectingServer.Fault.DROP_CONNECTION);
+
+        assertEquals(OwmForecastParserTest.FORECAST_JSON, mRetrier.execute(mBreaker, get("/forecast")));
+        assertTrue(mRetrier.getAttempts() > 1);
+    }
+
+    @Test
+    public void doesNotRetryClientErrors() throws IOException {
+        mServer.enqueue(FaultInjectingServer.Fault.NOT_FOUND);
+        try {
+            mRetrier.execute(mBreaker, get("/forecast"));
+            fail("Expected an HttpStatusException");
+        } catch (HttpStatusException e) {
+            assertEquals(404, e.getStatusCode());
+        }
+        assertEquals(1, mServer.getRequestCount());
+        assertTrue(mClock.sleeps.isEmpty());
+    }
+
+    @Test
+    public void breakerStopsRequestsToFailingEndpoint() throws IOException {
+        mServer.setDefaultFault(FaultInjectingServer.Fault.SERVICE_UNAVAILABLE);
+
+        // Three attempts per sync, so the fifth failure happens during the second sync.
+        for (int sync = 0; sync < 2; sync++) {
+            try {
+                mRetrier.execute(mBreaker, get("/forecast"));
+                fail("Expected the fetch to fail");
+            } catch (CircuitOpenException e) {
+                assertEquals(1, sync);
+            } catch (HttpStatusException e) {
+                assertEquals(0, sync);
+            }
+        }
+        assertEquals(5, mServer.getRequestCount());
+
+        try {
+            mRetrier.execute(mBreaker, get("/forecast"));
+            fail("Expected the breaker to be open");
+        } catch (CircuitOpenException e) {
+            assertEquals(mBreaker.getRetryAtMillis(), e.getRetryAtMillis());
+        }
+        assertEquals("Error: Request made while the breaker was open", 5, mServer.getRequestCount());
+
+        // After the open period one trial goes through and closes the breaker again.
+        mServer.setDefaultFault(FaultInjectingServer.Fault.NONE);
+        mClock.now = mBreaker.getRetryAtMillis();
+        mRetrier.execute(mBreaker, get("/forecast"));
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState(mClock.now));
+    }
+
+    @Test
+    public void rateLimitedAttemptIsNeitherRetriedNorAFailure() throws IOException {
+        try {
+            mRetrier.execute(mBreaker, new FetchRetrier.Attempt<String>() {
+                @Override
+                public String run() throws IOException {
+                    throw new RateLimitedException("forecast", mClock.now + 30000);
+                }
+            });
+            fail("Expected a RateLimitedException");
+        } catch (RateLimitedException e) {
+            assertEquals(mClock.now + 30000, e.getRetryAtMillis());
+        }
+        assertEquals(0, mRetrier.getAttempts());
+        assertTrue(mClock.sleeps.isEmpty());
+        assertEquals(CircuitBreaker.State.CLOSED, mBreaker.getState(mClock.now));
+    }
+
+    @Test
+    public void deadlineStopsRetries() throws IOException {
+        mServer.setDefaultFault(FaultInjectingServer.Fault.SERVICE_UNAVAILABLE);
+        // Room for the first retry's backoff (at most 1s) but not the second's (at least 1s).
+        Deadline deadline = Deadline.after(1500, mClock.now);
+        try {
+            mRetrier.execute(mBreaker, deadline, get("/forecast"));
+            fail("Expected an HttpStatusException");
+        } catch (HttpStatusException e) {
+            assertEquals(503, e.getStatusCode());
+        }
+        assertEquals(2, mRetrier.getAttempts());
+        assertEquals(1, mClock.sleeps.size());
+    }
+
+    @Test(expected = DeadlineExceededException.class)
+    public void expiredDeadlineSendsNothing() throws IOException {
+        try {
+            mRetrier.execute(mBreaker, Deadline.after(-1, mClock.now), get("/forecast"));
+        } finally {
+            assertEquals(0, mServer.getRequestCount());
+        }
+    }
+
+    @Test
+    public void cancelledAttemptIsNotRetriedOrCountedAsFailure() throws IOException {
+        FetchRetrier.Attempt<String> cancelled = new FetchRetrier.Attempt<String>() {
+            @Override
+            public String run() throws IOException {
+                throw new CancelledException();
+            }
+        };
+        for (int i = 0; i < 5; i++) {
+            try {
+                mRetrier.execute(mBreaker, cancelled);
+                fail("Expected a CancelledException");
+            } catch (CancelledException expected) {
+            }
+            assertEquals(1, mRetrier.getAttempts());
+        }
+        assertEquals(0, mClock.sleeps.size());
+        assertTrue(mBreaker.allowRequest(mClock.now));
+    }
+
+    @Test
+    public void attemptOutOfTimeIsNotRetriedOrCountedAsFailure() throws IOException {
+        FetchRetrier.Attempt<String> outOfTime = new FetchRetrier.Attempt<String>() {
+            @Override
+            public String run() throws IOException {
+                throw new DeadlineExceededException(100);
+            }
+        };
+        for (int i = 0; i < 5; i++) {
+            try {
+                mRetrier.execute(mBreaker, outOfTime);
+                fail("Expected a DeadlineExceededException");
+            } catch (DeadlineExceededException expected) {
+            }
+            assertEquals(1, mRetrier.getAttempts());
+        }
+        assertEquals(0, mClock.sleeps.size());
+        assertTrue(mBreaker.allowRequest(mClock.now));
+    }
+
+    private FetchRetrier.Attempt<String> get(final String path) throws IOException {
+        final URL url = mServer.getUrl(path);
+        return new FetchRetrier.Attempt<String>() {
+            @Override
+            public String run() throws IOException {
+                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+                try {
+                    int status = connection.getResponseCode();
+                    if (status != HttpURLConnection.HTTP_OK) {
+                        throw new HttpStatusException(status, connection.getResponseMessage());
+                    }
+                    InputStream in = connection.getInputStream();
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[4096];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, read);
+                    }
+                    in.close();
+                    return out.toString("UTF-8");
+                } finally {
+                    connection.disconnect();
+                }
+            }
+        };
+    }
+
+    private static class FakeClock implements FetchRetrier.Clock {
+        final List<Long> sleeps = new ArrayList<Long>();
+        long now = 1000000;
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+
+        @Override
+        public void sleep(long millis) {
+            sleeps.add(millis);
+            now += millis;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ForecastBatchTest {
+
+    @Test
+    public void growsAndKeepsColumnsAligned() {
+        ForecastBatch batch = new ForecastBatch(1);
+        for (int i = 0; i < 20; i++) {
+            batch.add(i * SunshineDates.DAY_IN_MILLIS, 1000 + i, 50 + i, i / 2.0, i * 10, 20 + i, 10 + i, "Day " + i, 800 + i);
+        }
+
+        assertEquals(20, batch.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i * SunshineDates.DAY_IN_MILLIS, batch.getDate(i));
+            assertEquals(1000 + i, batch.getPressure(i), 0);
+            assertEquals(50 + i, batch.getHumidity(i));
+            assertEquals(i / 2.0, batch.getWindSpeed(i), 0);
+            assertEquals(i * 10, batch.getWindDirection(i), 0);
+            assertEquals(20 + i, batch.getHigh(i), 0);
+            assertEquals(10 + i, batch.getLow(i), 0);
+            assertEquals("Day " + i, batch.getDescription(i));
+            assertEquals(800 + i, batch.getWeatherId(i));
+        }
+
+        DayForecast day = batch.getDay(7);
+        assertEquals(batch.getDate(7), day.date);
+        assertEquals("Day 7", day.description);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsIndexPastSize() {
+        ForecastBatch batch = new ForecastBatch(16);
+        batch.add(0, 0, 0, 0, 0, 0, 0, null, 0);
+        assertNull(batch.getDescription(0));
+        batch.getDate(1);
+    }
+}
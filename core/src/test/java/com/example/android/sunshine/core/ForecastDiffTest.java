@@ -0,0 +1,69 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ForecastDiffTest {
+
+    private static final long DAY = SunshineDates.DAY_IN_MILLIS;
+
+    private static void addDay(ForecastBatch batch, long date, double high) {
+        batch.add(date, 1012.8, 82, 3.1, 190, high, high - 7, "Rain", 500);
+    }
+
+    @Test
+    public void writesOnlyNewAndChangedDays() {
+        ForecastBatch stored = new ForecastBatch(3);
+        addDay(stored, 0, 15);
+        addDay(stored, DAY, 16);
+        addDay(stored, 2 * DAY, 17);
+
+        ForecastBatch fetched = new ForecastBatch(4);
+        addDay(fetched, 0, 15);
+        addDay(fetched, DAY, 18);
+        addDay(fetched, 2 * DAY, 17);
+        addDay(fetched, 3 * DAY, 19);
+
+        ForecastDiff diff = ForecastDiff.compare(stored, fetched);
+
+        assertEquals(2, diff.getUnchangedCount());
+        assertEquals(2, diff.getChanged().size());
+        assertEquals(DAY, diff.getChanged().getDate(0));
+        assertEquals(18, diff.getChanged().getHigh(0), 0);
+        assertEquals(3 * DAY, diff.getChanged().getDate(1));
+        assertEquals(4, diff.getMerged().size());
+        assertEquals(18, diff.getMerged().getHigh(1), 0);
+    }
+
+    @Test
+    public void keepsStoredDaysBeyondAShortRequest() {
+        ForecastBatch stored = new ForecastBatch(3);
+        addDay(stored, 0, 15);
+        addDay(stored, DAY, 16);
+        addDay(stored, 2 * DAY, 17);
+
+        ForecastBatch fetched = new ForecastBatch(1);
+        fetched.add(0, 1012.8, 82, 3.1, 190, 15, 8, "Clear", 800);
+
+        ForecastDiff diff = ForecastDiff.compare(stored, fetched);
+
+        assertEquals(0, diff.getUnchangedCount());
+        assertEquals(1, diff.getChanged().size());
+        assertEquals(3, diff.getMerged().size());
+        assertEquals(800, diff.getMerged().getWeatherId(0));
+        assertEquals(17, diff.getMerged().getHigh(2), 0);
+    }
+
+    @Test
+    public void nothingStoredWritesEverything() {
+        ForecastBatch fetched = new ForecastBatch(2);
+        addDay(fetched, 0, 15);
+        addDay(fetched, DAY, 16);
+
+        ForecastDiff diff = ForecastDiff.compare(new ForecastBatch(0), fetched);
+
+        assertEquals(2, diff.getChanged().size());
+        assertEquals(2, diff.getMerged().size());
+    }
+}
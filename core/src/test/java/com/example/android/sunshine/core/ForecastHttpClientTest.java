@@ -0,0 +1,187 @@
+package com.example.android.sunshine.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ForecastHttpClientTest {
+
+    private FaultInjectingServer mServer;
+    private ForecastHttpClient mClient;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new FaultInjectingServer();
+        mClient = new ForecastHttpClient(1000, 200, 64 * 1024);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+    }
+
+    @Test
+    public void decodesGzippedResponses() throws IOException {
+        assertEquals(OwmForecastParserTest.FORECAST_JSON, mClient.get(mServer.getUrl("/forecast")));
+
+        int plainBytes = OwmForecastParserTest.FORECAST_JSON.getBytes(Charset.forName("UTF-8")).length;
+        assertEquals(plainBytes, mClient.getBytesDecoded());
+        assertEquals(mServer.getBytesSent(), mClient.getBytesReceived());
+        assertTrue("Error: Response was not compressed", mClient.getBytesReceived() < plainBytes);
+    }
+
+    @Test
+    public void reusesConnections() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            mClient.get(mServer.getUrl("/forecast?q=" + i));
+        }
+        // Error responses are drained so they don't cost the connection either.
+        mServer.enqueue(FaultInjectingServer.Fault.NOT_FOUND);
+        try {
+            mClient.get(mServer.getUrl("/forecast"));
+            fail("Expected an HttpStatusException");
+        } catch (HttpStatusException e) {
+            assertEquals(404, e.getStatusCode());
+        }
+        mClient.get(mServer.getUrl("/forecast"));
+
+        assertEquals(7, mServer.getRequestCount());
+        assertEquals(1, mServer.getConnectionCount());
+        // Sequential requests all read into the same pooled buffer.
+        assertEquals(1, mClient.getBufferPool().getMissCount());
+    }
+
+    @Test(timeout = 5000)
+    public void stopsReadingLongErrorBodies() throws IOException {
+        mServer.enqueue(FaultInjectingServer.Fault.ENDLESS_ERROR);
+        try {
+            mClient.get(mServer.getUrl("/forecast"));
+            fail("Expected an HttpStatusException");
+        } catch (HttpStatusException e) {
+            assertEquals(500, e.getStatusCode());
+        }
+        // The half read connection is not reused.
+        mClient.get(mServer.getUrl("/forecast"));
+        assertEquals(2, mServer.getConnectionCount());
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void timesOutSlowResponses() throws IOException {
+        mServer.enqueue(FaultInjectingServer.Fault.SLOW_RESPONSE);
+        mClient.get(mServer.getUrl("/forecast"));
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void callTimeoutCapsDefaultTimeouts() throws IOException {
+        ForecastHttpClient patient = new ForecastHttpClient(5000, 5000, 64 * 1024);
+        mServer.enqueue(FaultInjectingServer.Fault.SLOW_RESPONSE);
+        patient.newCall(mServer.getUrl("/forecast"), 100).execute();
+    }
+
+    @Test
+    public void cancelAbandonsRunningCall() throws Exception {
+        ForecastHttpClient patient = new ForecastHttpClient(5000, 5000, 64 * 1024);
+        mServer.enqueue(FaultInjectingServer.Fault.SLOW_RESPONSE);
+        final ForecastHttpClient.Call call = patient.newCall(mServer.getUrl("/forecast"), 5000);
+        Thread canceller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                call.cancel();
+            }
+        });
+
+        long start = System.nanoTime();
+        canceller.start();
+        try {
+            call.execute();
+            fail("Expected an InterruptedIOException");
+        } catch (InterruptedIOException e) {
+            assertTrue(call.isCancelled());
+        }
+        long millis = (System.nanoTime() - start) / 1000000;
+        assertTrue("Error: Cancel took " + millis + "ms", millis < FaultInjectingServer.SLOW_RESPONSE_MILLIS);
+        canceller.join();
+    }
+
+    @Test
+    public void cancellationTokenStopsRunningRead() throws Exception {
+        ForecastHttpClient patient = new ForecastHttpClient(5000, 5000, 64 * 1024);
+        mServer.enqueue(FaultInjectingServer.Fault.SLOW_RESPONSE);
+        final CancellationToken cancellation = new CancellationToken();
+        ForecastHttpClient.Call call = patient.newCall(mServer.getUrl("/forecast"), 5000, cancellation);
+        Thread canceller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                cancellation.cancel();
+            }
+        });
+
+        canceller.start();
+        try {
+            call.execute();
+            fail("Expected a CancelledException");
+        } catch (CancelledException expected) {
+        }
+        long millis = (System.nanoTime() - cancellation.getCancelledAtNanos()) / 1000000;
+        assertTrue("Error: Read stopped " + millis + "ms after cancelling", millis < 1000);
+        canceller.join();
+    }
+
+    @Test(expected = CancelledException.class)
+    public void callOfCancelledTokenIsNeverSent() throws IOException {
+        CancellationToken cancellation = new CancellationToken();
+        cancellation.cancel();
+        try {
+            mClient.newCall(mServer.getUrl("/forecast"), 1000, cancellation).execute();
+        } finally {
+            assertEquals(0, mServer.getRequestCount());
+        }
+    }
+
+    @Test(expected = InterruptedIOException.class)
+    public void cancelledCallIsNeverSent() throws IOException {
+        ForecastHttpClient.Call call = mClient.newCall(mServer.getUrl("/forecast"), 1000);
+        call.cancel();
+        try {
+            call.execute();
+        } finally {
+            assertEquals(0, mServer.getRequestCount());
+        }
+    }
+
+    @Test
+    public void refusesOversizedResponses() throws IOException {
+        byte[] body = new byte[128 * 1024];
+        mServer.setBody(body);
+
+        // Caught from Content-Length, and while decompressing when that is the compressed size.
+        for (boolean gzip : new boolean[] {false, true}) {
+            mServer.setGzip(gzip);
+            try {
+                mClient.get(mServer.getUrl("/forecast"));
+                fail("Expected a ResponseTooLargeException");
+            } catch (ResponseTooLargeException e) {
+                // expected
+            }
+        }
+    }
+}
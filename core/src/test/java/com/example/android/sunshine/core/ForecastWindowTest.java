@@ -0,0 +1,63 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class ForecastWindowTest {
+
+    private static final TimeZone TIME_ZONE = TimeZone.getTimeZone("America/Los_Angeles");
+    private static final int TODAY = SunshineDates.EPOCH_JULIAN_DAY + 16424; // 2014-12-20
+
+    private static ForecastBatch storedDays(int firstDay, int days) {
+        ForecastBatch batch = new ForecastBatch(days);
+        for (int i = 0; i < days; i++) {
+            batch.add(SunshineDates.getStartOfJulianDay(TODAY + firstDay + i, TIME_ZONE),
+                    1012.8, 82, 3.1, 190, 15, 8, "Rain", 500);
+        }
+        return batch;
+    }
+
+    @Test
+    public void requestsTheHorizonUntilItIsCovered() {
+        ForecastWindow window = new ForecastWindow(14, 7);
+
+        assertEquals(14, window.getDaysToRequest(new ForecastBatch(0), TODAY, TIME_ZONE));
+        // Yesterday's sync stored through day 12 of today's horizon: day 13 is new.
+        assertEquals(14, window.getDaysToRequest(storedDays(0, 13), TODAY, TIME_ZONE));
+        assertEquals(7, window.getDaysToRequest(storedDays(0, 14), TODAY, TIME_ZONE));
+    }
+
+    @Test
+    public void gapsNeedTheWholeHorizon() {
+        ForecastWindow window = new ForecastWindow(7, 3);
+        ForecastBatch stored = storedDays(0, 3);
+        for (int i = 4; i < 8; i++) {
+            stored.add(SunshineDates.getStartOfJulianDay(TODAY + i, TIME_ZONE), 1012.8, 82, 3.1, 190, 15, 8, "Rain", 500);
+        }
+
+        assertEquals(7, window.getDaysToRequest(stored, TODAY, TIME_ZONE));
+    }
+
+    @Test
+    public void fullModeAlwaysRequestsTheHorizon() {
+        ForecastWindow window = new ForecastWindow(10, 10);
+
+        assertEquals(10, window.getDaysToRequest(storedDays(0, 10), TODAY, TIME_ZONE));
+    }
+
+    @Test
+    public void refreshIsCappedByTheHorizon() {
+        ForecastWindow window = new ForecastWindow(5, 7);
+
+        assertEquals(5, window.getRefreshDays());
+        assertEquals(5, window.getDaysToRequest(storedDays(0, 5), TODAY, TIME_ZONE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsHorizonBeyondTheService() {
+        new ForecastWindow(ForecastWindow.MAX_DAYS + 1, 7);
+    }
+}
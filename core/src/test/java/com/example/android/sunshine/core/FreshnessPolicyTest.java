@@ -0,0 +1,36 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FreshnessPolicyTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final long NOW = 1419120000000L;
+
+    private final FreshnessPolicy mPolicy = new FreshnessPolicy(12 * HOUR);
+
+    @Test
+    public void freshUpToTheMaximumAge() {
+        assertEquals(FreshnessPolicy.Freshness.FRESH, mPolicy.evaluate(NOW, NOW));
+        assertEquals(FreshnessPolicy.Freshness.FRESH, mPolicy.evaluate(NOW - 12 * HOUR, NOW));
+        assertEquals(FreshnessPolicy.Freshness.STALE, mPolicy.evaluate(NOW - 12 * HOUR - 1, NOW));
+    }
+
+    @Test
+    public void neverFetchedIsMissing() {
+        assertEquals(FreshnessPolicy.Freshness.MISSING, mPolicy.evaluate(0, NOW));
+    }
+
+    @Test
+    public void fetchedInTheFutureIsStale() {
+        // The clock was set back after the fetch.
+        assertEquals(FreshnessPolicy.Freshness.STALE, mPolicy.evaluate(NOW + HOUR, NOW));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveAge() {
+        new FreshnessPolicy(0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GeoHashTest {
+
+    @Test
+    public void encodesKnownPoints() {
+        assertEquals("ezs42", GeoHash.encode(42.6, -5.6, 5));
+        assertEquals("u4pruydqqvj", GeoHash.encode(57.64911, 10.40744, 11));
+    }
+
+    @Test
+    public void shorterPrecisionIsAPrefix() {
+        String full = GeoHash.encode(37.4220, -122.0841, GeoHash.MAX_PRECISION);
+        for (int precision = 1; precision < GeoHash.MAX_PRECISION; precision++) {
+            assertEquals(full.substring(0, precision), GeoHash.encode(37.4220, -122.0841, precision));
+        }
+    }
+
+    @Test
+    public void neighbouringPostalCodesShareACell() {
+        // Mountain View 94043 and Moffett Field 94035, a few kilometres apart.
+        assertEquals(GeoHash.encode(37.4056, -122.0775, 5), GeoHash.encode(37.4152, -122.0488, 5));
+        assertNotEquals(GeoHash.encode(37.4056, -122.0775, 6), GeoHash.encode(37.4152, -122.0488, 6));
+    }
+
+    @Test
+    public void neighboursAcrossACellBorderDontShareIt() {
+        // Mountain View 94041 is closer to 94043 than 94035 is, but across a border.
+        assertNotEquals(GeoHash.encode(37.4056, -122.0775, 5), GeoHash.encode(37.3893, -122.0783, 5));
+        assertEquals(GeoHash.encode(37.4056, -122.0775, 4), GeoHash.encode(37.3893, -122.0783, 4));
+    }
+
+    @Test
+    public void endOfCellBoundsEveryHashInTheCell() {
+        String cell = GeoHash.encode(64.7511, -147.353, 4);
+        String inside = GeoHash.encode(64.7511, -147.353, GeoHash.MAX_PRECISION);
+        String after = GeoHash.encode(64.7511, 170.0, GeoHash.MAX_PRECISION);
+
+        assertTrue(cell.compareTo(inside) <= 0);
+        assertTrue(inside.compareTo(GeoHash.endOfCell(cell)) < 0);
+        assertTrue(cell.substring(0, 3).concat("zzzzzzzzz").compareTo(GeoHash.endOfCell(cell.substring(0, 3))) < 0);
+        assertFalse(after.compareTo(cell) >= 0 && after.compareTo(GeoHash.endOfCell(cell)) < 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPrecisionBeyondMax() {
+        GeoHash.encode(0, 0, GeoHash.MAX_PRECISION + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidLatitude() {
+        GeoHash.encode(91, 0, 5);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.android.sunshine.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HedgedFetcherTest {
+
+    private static final long HEDGE_DELAY_MILLIS = 50;
+
+    private ExecutorService mExecutor;
+    private LatencyTracker mLatencies;
+    private HedgedFetcher mFetcher;
+
+    @Before
+    public void setUp() {
+        mExecutor = Executors.newCachedThreadPool();
+        mLatencies = new LatencyTracker(100, 10);
+        mFetcher = new HedgedFetcher(mExecutor, mLatencies, 95, HEDGE_DELAY_MILLIS, 10);
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void fastRequestIsNotHedged() throws IOException {
+        FakeRequest primary = new FakeRequest("primary", 0);
+        FakeRequest hedge = new FakeRequest("hedge", 0);
+
+        assertEquals("primary", mFetcher.fetch(primary, hedge, 1000));
+        assertFalse(hedge.mStarted);
+        assertFalse(primary.isCancelled());
+        assertEquals(0, mFetcher.getHedgeCount());
+        assertEquals(1, mLatencies.getCount());
+    }
+
+    @Test
+    public void slowRequestIsHedgedAndCancelled() throws IOException {
+        FakeRequest primary = new FakeRequest("primary", 5000);
+        FakeRequest hedge = new FakeRequest("hedge", 0);
+
+        long start = System.nanoTime();
+        assertEquals("hedge", mFetcher.fetch(primary, hedge, 10000));
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("Error: Hedge was sent after " + millis + "ms", millis >= HEDGE_DELAY_MILLIS && millis < 1000);
+        assertTrue("Error: Losing request was not cancelled", primary.isCancelled());
+        assertFalse(hedge.isCancelled());
+        assertEquals(1, mFetcher.getHedgeCount());
+        assertEquals(1, mFetcher.getHedgeWinCount());
+    }
+
+    @Test
+    public void primaryCanStillWinAfterHedging() throws IOException {
+        FakeRequest primary = new FakeRequest("primary", HEDGE_DELAY_MILLIS * 2);
+        FakeRequest hedge = new FakeRequest("hedge", 5000);
+
+        assertEquals("primary", mFetcher.fetch(primary, hedge, 10000));
+        assertTrue(hedge.isCancelled());
+        assertEquals(1, mFetcher.getHedgeCount());
+        assertEquals(0, mFetcher.getHedgeWinCount());
+    }
+
+    @Test
+    public void failedPrimaryWaitsForHedgeInFlight() throws IOException {
+        FakeRequest primary = new FakeRequest("primary", HEDGE_DELAY_MILLIS * 2);
+        primary.mFailure = new IOException("reset");
+        FakeRequest hedge = new FakeRequest("hedge", HEDGE_DELAY_MILLIS * 3);
+
+        assertEquals("hedge", mFetcher.fetch(primary, hedge, 10000));
+    }
+
+    @Test
+    public void fastFailureIsLeftToRetries() {
+        FakeRequest primary = new FakeRequest("primary", 0);
+        primary.mFailure = new IOException("reset");
+        FakeRequest hedge = new FakeRequest("hedge", 0);
+
+        try {
+            mFetcher.fetch(primary, hedge, 10000);
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertEquals("reset", e.getMessage());
+        }
+        assertFalse(hedge.mStarted);
+    }
+
+    @Test
+    public void timeoutCancelsEverything() throws IOException {
+        FakeRequest primary = new FakeRequest("primary", 5000);
+        FakeRequest hedge = new FakeRequest("hedge", 5000);
+
+        try {
+            mFetcher.fetch(primary, hedge, HEDGE_DELAY_MILLIS * 3);
+            fail("Expected a DeadlineExceededException");
+        } catch (DeadlineExceededException expected) {
+        }
+        assertTrue(primary.isCancelled());
+        assertTrue(hedge.isCancelled());
+    }
+
+    @Test
+    public void hedgeDelayFollowsRecentLatencies() {
+        assertEquals(HEDGE_DELAY_MILLIS, mFetcher.getHedgeDelayMillis());
+        for (int i = 1; i <= 100; i++) {
+            mLatencies.record(i * 10);
+        }
+        assertEquals(950, mFetcher.getHedgeDelayMillis());
+
+        // Never below the minimum, however fast the network.
+        for (int i = 0; i < 100; i++) {
+            mLatencies.record(1);
+        }
+        assertEquals(10, mFetcher.getHedgeDelayMillis());
+    }
+
+    /**
+     * Answers after a delay, unless cancelled first.
+     */
+    private static class FakeRequest implements HedgedFetcher.Request<String> {
+        private final String mResult;
+        private final long mDelayMillis;
+        private final CountDownLatch mCancelled = new CountDownLatch(1);
+
+        volatile boolean mStarted;
+        IOException mFailure;
+
+        FakeRequest(String result, long delayMillis) {
+            mResult = result;
+            mDelayMillis = delayMillis;
+        }
+
+        @Override
+        public String execute() throws IOException {
+            mStarted = true;
+            try {
+                if (mCancelled.await(mDelayMillis, TimeUnit.MILLISECONDS)) {
+                    throw new InterruptedIOException("cancelled");
+                }
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("interrupted");
+            }
+            if (mFailure != null) {
+                throw mFailure;
+            }
+            return mResult;
+        }
+
+        @Override
+        public void cancel() {
+            mCancelled.countDown();
+        }
+
+        boolean isCancelled() {
+            return mCancelled.getCount() == 0;
+        }
+    }
+}
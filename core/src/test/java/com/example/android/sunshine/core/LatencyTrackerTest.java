@@ -0,0 +1,33 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyTrackerTest {
+
+    @Test
+    public void reportsNothingUntilEnoughSamples() {
+        LatencyTracker tracker = new LatencyTracker(10, 3);
+        tracker.record(5);
+        tracker.record(7);
+        assertEquals(-1, tracker.getPercentile(50));
+        tracker.record(6);
+        assertEquals(6, tracker.getPercentile(50));
+        assertEquals(7, tracker.getPercentile(99));
+        assertEquals(5, tracker.getPercentile(0));
+    }
+
+    @Test
+    public void keepsOnlyRecentSamples() {
+        LatencyTracker tracker = new LatencyTracker(4, 1);
+        for (int i = 0; i < 4; i++) {
+            tracker.record(1000);
+        }
+        for (int i = 0; i < 4; i++) {
+            tracker.record(10);
+        }
+        assertEquals(4, tracker.getCount());
+        assertEquals(10, tracker.getPercentile(100));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class OwmCurrentConditionsParserTest {
+
+    static final String CURRENT_JSON = "{\"coord\":{\"lon\":-122.08,\"lat\":37.39},"
+            + "\"weather\":[{\"id\":801,\"main\":\"Clouds\",\"description\":\"few clouds\",\"icon\":\"02d\"}],"
+            + "\"base\":\"stations\",\"main\":{\"temp\":16.4,\"pressure\":1016,\"humidity\":64,"
+            + "\"temp_min\":14,\"temp_max\":19},\"visibility\":16093,\"wind\":{\"speed\":4.1,\"deg\":300},"
+            + "\"clouds\":{\"all\":20},\"dt\":1419120000,\"sys\":{\"country\":\"US\"},"
+            + "\"id\":5375480,\"name\":\"Mountain View\",\"cod\":200}";
+
+    @Test
+    public void parsesConditions() throws ForecastParseException {
+        CurrentConditions current = new OwmCurrentConditionsParser().parse(CURRENT_JSON);
+
+        assertEquals(5375480, current.cityId);
+        assertEquals("Mountain View", current.cityName);
+        assertEquals(37.39, current.latitude, 0);
+        assertEquals(-122.08, current.longitude, 0);
+        assertEquals(1419120000000L, current.observedAt);
+        assertEquals(16.4, current.temperature, 0);
+        assertEquals(64, current.humidity);
+        assertEquals(1016, current.pressure, 0);
+        assertEquals(4.1, current.windSpeed, 0);
+        assertEquals(300, current.windDirection, 0);
+        assertEquals("Clouds", current.description);
+        assertEquals(801, current.weatherId);
+    }
+
+    @Test
+    public void calmWindHasNoDirection() throws ForecastParseException {
+        CurrentConditions current = new OwmCurrentConditionsParser().parse(
+                CURRENT_JSON.replace("\"wind\":{\"speed\":4.1,\"deg\":300}", "\"wind\":{\"speed\":0}"));
+
+        assertEquals(0, current.windSpeed, 0);
+        assertEquals(0, current.windDirection, 0);
+    }
+
+    @Test
+    public void parsesGroup() throws ForecastParseException {
+        String second = CURRENT_JSON.replace("\"id\":5375480,\"name\":\"Mountain View\"",
+                                             "\"id\":5391959,\"name\":\"San Francisco\"");
+        List<CurrentConditions> group = new OwmCurrentConditionsParser().parseGroup(
+                "{\"cnt\":2,\"list\":[" + CURRENT_JSON + "," + second + "]}");
+
+        assertEquals(2, group.size());
+        assertEquals(5375480, group.get(0).cityId);
+        assertEquals(5391959, group.get(1).cityId);
+        assertEquals("San Francisco", group.get(1).cityName);
+        assertEquals(16.4, group.get(1).temperature, 0);
+    }
+
+    @Test(expected = ForecastParseException.class)
+    public void rejectsMalformedGroup() throws ForecastParseException {
+        new OwmCurrentConditionsParser().parseGroup(CURRENT_JSON);
+    }
+
+    @Test(expected = ForecastParseException.class)
+    public void rejectsMalformedResponse() throws ForecastParseException {
+        new OwmCurrentConditionsParser().parse("{\"cod\":\"404\",\"message\":\"city not found\"}");
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class OwmForecastParserTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final int JULIAN_START_DAY = SunshineDates.EPOCH_JULIAN_DAY + 16424; // 2014-12-20
+
+    static final String FORECAST_JSON = "{\"city\":{\"id\":5375480,\"name\":\"Mountain View\","
+            + "\"coord\":{\"lon\":-122.083847,\"lat\":37.386051},\"country\":\"US\"},"
+            + "\"cod\":\"200\",\"cnt\":2,\"list\":["
+            + "{\"dt\":1419105600,\"temp\":{\"day\":14.5,\"min\":8.12,\"max\":15.3},\"pressure\":1012.8,"
+            + "\"humidity\":82,\"weather\":[{\"id\":500,\"main\":\"Rain\",\"description\":\"light rain\"}],"
+            + "\"speed\":3.1,\"deg\":190},"
+            + "{\"dt\":1419192000,\"temp\":{\"day\":13.1,\"min\":7.5,\"max\":13.9},\"pressure\":1015.2,"
+            + "\"humidity\":75,\"weather\":[{\"id\":800,\"main\":\"Clear\",\"description\":\"sky is clear\"}],"
+            + "\"speed\":1.4,\"deg\":45}]}";
+
+    @Test
+    public void parsesCityAndDays() throws ForecastParseException {
+        ParsedForecast forecast = new OwmForecastParser().parse(FORECAST_JSON, JULIAN_START_DAY, UTC);
+
+        assertEquals(5375480, forecast.cityId);
+        assertEquals("Mountain View", forecast.cityName);
+        assertEquals(37.386051, forecast.latitude, 0);
+        assertEquals(-122.083847, forecast.longitude, 0);
+        assertEquals(2, forecast.days.size());
+
+        DayForecast first = forecast.days.getDay(0);
+        assertEquals(SunshineDates.getStartOfJulianDay(JULIAN_START_DAY, UTC), first.date);
+        assertEquals(1012.8, first.pressure, 0);
+        assertEquals(82, first.humidity);
+        assertEquals(3.1, first.windSpeed, 0);
+        assertEquals(190, first.windDirection, 0);
+        assertEquals(15.3, first.high, 0);
+        assertEquals(8.12, first.low, 0);
+        assertEquals("Rain", first.description);
+        assertEquals(500, first.weatherId);
+
+        DayForecast second = forecast.days.getDay(1);
+        assertEquals(first.date + SunshineDates.DAY_IN_MILLIS, second.date);
+        assertEquals(800, second.weatherId);
+    }
+
+    @Test
+    public void cancellationStopsBetweenDays() throws ForecastParseException {
+        // Cancels itself once the first day has been parsed.
+        CancellationToken cancellation = new CancellationToken() {
+            private int mChecks;
+
+            @Override
+            public void throwIfCancelled() throws CancelledException {
+                if (mChecks++ == 1) {
+                    cancel();
+                }
+                super.throwIfCancelled();
+            }
+        };
+        try {
+            new OwmForecastParser().parse(FORECAST_JSON, JULIAN_START_DAY, UTC, cancellation);
+            fail("Expected a CancelledException");
+        } catch (CancelledException expected) {
+        }
+    }
+
+    @Test(expected = ForecastParseException.class)
+    public void rejectsMalformedResponse() throws ForecastParseException {
+        new OwmForecastParser().parse("{\"cod\":\"404\",\"message\":\"city not found\"}", JULIAN_START_DAY, UTC);
+    }
+}
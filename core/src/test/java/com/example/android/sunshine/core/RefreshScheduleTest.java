@@ -0,0 +1,61 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RefreshScheduleTest {
+
+    private static final long HOUR = 60 * 60 * 1000;
+    private static final long NOW = 1419120000000L;
+
+    private final RefreshSchedule mSchedule = new RefreshSchedule(HOUR, 6 * HOUR);
+
+    @Test
+    public void syncsAtTheShortestInterval() {
+        assertEquals(HOUR, mSchedule.getSyncIntervalMillis());
+        assertEquals(HOUR, new RefreshSchedule(3 * HOUR, HOUR).getSyncIntervalMillis());
+    }
+
+    @Test
+    public void neverFetchedIsDue() {
+        assertTrue(mSchedule.isDue(RefreshTier.CURRENT, 0, NOW));
+        assertTrue(mSchedule.isDue(RefreshTier.DAILY, 0, NOW));
+    }
+
+    @Test
+    public void tiersFollowTheirOwnInterval() {
+        long lastFetch = NOW - HOUR;
+        assertTrue(mSchedule.isDue(RefreshTier.CURRENT, lastFetch, NOW));
+        assertFalse(mSchedule.isDue(RefreshTier.DAILY, lastFetch, NOW));
+        assertTrue(mSchedule.isDue(RefreshTier.DAILY, NOW - 6 * HOUR, NOW));
+    }
+
+    @Test
+    public void toleratesEarlySyncs() {
+        // The sync framework ran the periodic sync twenty minutes early.
+        long early = 20 * 60 * 1000;
+        assertTrue(mSchedule.isDue(RefreshTier.CURRENT, NOW - HOUR + early, NOW));
+        assertTrue(mSchedule.isDue(RefreshTier.DAILY, NOW - 6 * HOUR + early, NOW));
+        assertFalse(mSchedule.isDue(RefreshTier.DAILY, NOW - 5 * HOUR + early, NOW));
+    }
+
+    @Test
+    public void clockGoingBackwardsIsDue() {
+        assertTrue(mSchedule.isDue(RefreshTier.DAILY, NOW + HOUR, NOW));
+    }
+
+    @Test
+    public void estimatesBytesPerDay() {
+        assertEquals(24, mSchedule.getFetchesPerDay(RefreshTier.CURRENT), 0);
+        assertEquals(4, mSchedule.getFetchesPerDay(RefreshTier.DAILY), 0);
+        assertEquals(24 * 500 + 4 * 4000, mSchedule.getBytesPerDay(500, 4000), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyInterval() {
+        new RefreshSchedule(0, HOUR);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class ResponseBufferTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void growsToFitAndIsReused() throws IOException {
+        ResponseBuffer buffer = new ResponseBuffer(16);
+        buffer.readFrom(stream(OwmForecastParserTest.FORECAST_JSON), 64 * 1024);
+        assertEquals(OwmForecastParserTest.FORECAST_JSON, buffer.decode(UTF_8));
+
+        byte[] backing = buffer.getBytes();
+        buffer.readFrom(stream("{}"), 64 * 1024);
+        assertEquals("{}", buffer.decode(UTF_8));
+        assertSame("Error: Buffer reallocated for a smaller body", backing, buffer.getBytes());
+    }
+
+    @Test
+    public void acceptsBodiesExactlyAtTheCap() throws IOException {
+        for (int capacity : new int[] {4, 10, 64}) {
+            ResponseBuffer buffer = new ResponseBuffer(capacity);
+            buffer.readFrom(stream("0123456789"), 10);
+            assertEquals("0123456789", buffer.decode(UTF_8));
+        }
+    }
+
+    @Test(expected = ResponseTooLargeException.class)
+    public void refusesBodiesOverTheCap() throws IOException {
+        new ResponseBuffer(64).readFrom(stream("0123456789"), 9);
+    }
+
+    @Test
+    public void poolHandsBackReleasedBuffers() {
+        BufferPool pool = new BufferPool(1, 16, 32);
+        ResponseBuffer first = pool.acquire();
+        pool.release(first);
+        assertSame(first, pool.acquire());
+
+        // Too large to keep around.
+        ResponseBuffer large = new ResponseBuffer(64);
+        pool.release(large);
+        assertNotSame(large, pool.acquire());
+        assertEquals(1, pool.getHitCount());
+        assertEquals(2, pool.getMissCount());
+    }
+
+    private static ByteArrayInputStream stream(String value) {
+        return new ByteArrayInputStream(value.getBytes(UTF_8));
+    }
+}
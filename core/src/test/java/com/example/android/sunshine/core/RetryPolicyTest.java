@@ -0,0 +1,32 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void delaysGrowExponentiallyWithinJitterBounds() {
+        RetryPolicy policy = new RetryPolicy(5, 1000, 8000, new Random(1));
+        for (int i = 0; i < 100; i++) {
+            assertBetween(500, 1000, policy.getDelayMillis(1));
+            assertBetween(1000, 2000, policy.getDelayMillis(2));
+            assertBetween(2000, 4000, policy.getDelayMillis(3));
+        }
+    }
+
+    @Test
+    public void delaysAreCapped() {
+        RetryPolicy policy = new RetryPolicy(100, 1000, 8000, new Random(1));
+        for (int retry = 4; retry < 100; retry++) {
+            assertBetween(4000, 8000, policy.getDelayMillis(retry));
+        }
+    }
+
+    private static void assertBetween(long min, long max, long actual) {
+        assertTrue(actual + " not in [" + min + ", " + max + "]", actual >= min && actual <= max);
+    }
+}
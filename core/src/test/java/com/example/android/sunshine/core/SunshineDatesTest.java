@@ -0,0 +1,56 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class SunshineDatesTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final TimeZone LOS_ANGELES = TimeZone.getTimeZone("America/Los_Angeles");
+
+    @Test
+    public void epochIsItsOwnJulianDay() {
+        assertEquals(SunshineDates.EPOCH_JULIAN_DAY, SunshineDates.getJulianDay(0, UTC));
+        assertEquals(0, SunshineDates.getStartOfJulianDay(SunshineDates.EPOCH_JULIAN_DAY, UTC));
+    }
+
+    @Test
+    public void julianDayUsesLocalTime() {
+        // 2014-12-20 03:00 UTC is still the 19th in Los Angeles.
+        long millis = utcMillis(2014, Calendar.DECEMBER, 20, 3);
+        assertEquals(SunshineDates.getJulianDay(millis, UTC) - 1, SunshineDates.getJulianDay(millis, LOS_ANGELES));
+    }
+
+    @Test
+    public void normalizeDateReturnsLocalMidnight() {
+        long millis = utcMillis(2014, Calendar.DECEMBER, 20, 23);
+        long normalized = SunshineDates.normalizeDate(millis, LOS_ANGELES);
+
+        Calendar local = Calendar.getInstance(LOS_ANGELES);
+        local.setTimeInMillis(normalized);
+        assertEquals(20, local.get(Calendar.DAY_OF_MONTH));
+        assertEquals(0, local.get(Calendar.HOUR_OF_DAY));
+        assertEquals(0, local.get(Calendar.MINUTE));
+        assertEquals(normalized, SunshineDates.normalizeDate(normalized, LOS_ANGELES));
+    }
+
+    @Test
+    public void consecutiveJulianDaysAcrossDaylightSavingChange() {
+        // US daylight saving time ended on 2014-11-02, so that day is 25 hours long.
+        int julianDay = SunshineDates.getJulianDay(utcMillis(2014, Calendar.NOVEMBER, 2, 12), LOS_ANGELES);
+        long start = SunshineDates.getStartOfJulianDay(julianDay, LOS_ANGELES);
+        long next = SunshineDates.getStartOfJulianDay(julianDay + 1, LOS_ANGELES);
+        assertEquals(25 * 60 * 60 * 1000L, next - start);
+    }
+
+    private static long utcMillis(int year, int month, int day, int hour) {
+        Calendar calendar = Calendar.getInstance(UTC);
+        calendar.clear();
+        calendar.set(year, month, day, hour, 0);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketTest {
+
+    private static final long NOW = 1000 * 1000;
+    private static final long REFILL_MILLIS = 30 * 1000;
+
+    @Test
+    public void newBucketAllowsBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(5, REFILL_MILLIS, 0, 0, 0);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(bucket.tryAcquire(TokenBucket.Priority.BACKGROUND, NOW));
+        }
+        assertFalse(bucket.tryAcquire(TokenBucket.Priority.BACKGROUND, NOW));
+        assertFalse(bucket.tryAcquire(TokenBucket.Priority.USER, NOW));
+    }
+
+    @Test
+    public void refillsAtFixedRate() {
+        TokenBucket bucket = new TokenBucket(5, REFILL_MILLIS, 0, 0, NOW);
+        assertFalse(bucket.tryAcquire(TokenBucket.Priority.USER, NOW));
+        assertEquals(NOW + REFILL_MILLIS, bucket.getRetryAtMillis(TokenBucket.Priority.USER, NOW));
+
+        assertFalse(bucket.tryAcquire(TokenBucket.Priority.USER, NOW + REFILL_MILLIS - 1));
+        assertTrue(bucket.tryAcquire(TokenBucket.Priority.USER, NOW + REFILL_MILLIS));
+        assertFalse(bucket.tryAcquire(TokenBucket.Priority.USER, NOW + REFILL_MILLIS));
+
+        // Never more than the capacity, however long it has been.
+        assertEquals(5, bucket.getTokens(NOW + 100 * REFILL_MILLIS), 0);
+    }
+
+    @Test
+    public void reservedTokensAreForUserRequests() {
+        TokenBucket bucket = new TokenBucket(5, REFILL_MILLIS, 2, 0, 0);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bucket.tryAcquire(TokenBucket.Priority.BACKGROUND, NOW));
+        }
+        assertFalse(bucket.tryAcquire(TokenBucket.Priority.BACKGROUND, NOW));
+        assertEquals(NOW + REFILL_MILLIS, bucket.getRetryAtMillis(TokenBucket.Priority.BACKGROUND, NOW));
+        assertEquals(NOW, bucket.getRetryAtMillis(TokenBucket.Priority.USER, NOW));
+
+        assertTrue(bucket.tryAcquire(TokenBucket.Priority.USER, NOW));
+        assertTrue(bucket.tryAcquire(TokenBucket.Priority.USER, NOW));
+        assertFalse(bucket.tryAcquire(TokenBucket.Priority.USER, NOW));
+        // Background work waits for the reserve to fill back up first.
+        assertEquals(NOW + 3 * REFILL_MILLIS, bucket.getRetryAtMillis(TokenBucket.Priority.BACKGROUND, NOW));
+    }
+
+    @Test
+    public void restoresSavedState() {
+        TokenBucket bucket = new TokenBucket(5, REFILL_MILLIS, 0, 0, 0);
+        bucket.tryAcquire(TokenBucket.Priority.USER, NOW);
+        bucket.tryAcquire(TokenBucket.Priority.USER, NOW);
+
+        TokenBucket restored = new TokenBucket(5, REFILL_MILLIS, 0, bucket.getTokens(NOW), bucket.getUpdatedAtMillis());
+        assertEquals(3, restored.getTokens(NOW), 0);
+        assertEquals(3.5, restored.getTokens(NOW + REFILL_MILLIS / 2), 0);
+    }
+
+    @Test
+    public void clockSetBackEarnsNothing() {
+        TokenBucket bucket = new TokenBucket(5, REFILL_MILLIS, 0, 1, NOW);
+        assertEquals(1, bucket.getTokens(NOW - 10 * REFILL_MILLIS), 0);
+        assertEquals(2, bucket.getTokens(NOW - 9 * REFILL_MILLIS), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsReservingWholeBucket() {
+        new TokenBucket(5, REFILL_MILLIS, 5, 0, 0);
+    }
+}
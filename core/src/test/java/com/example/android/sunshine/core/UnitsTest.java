@@ -0,0 +1,36 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class UnitsTest {
+
+    @Test
+    public void convertsTemperature() {
+        assertEquals(21.5, UnitSystem.METRIC.temperature(21.5), 0);
+        assertEquals(32, UnitSystem.IMPERIAL.temperature(0), 1e-9);
+        assertEquals(212, UnitSystem.IMPERIAL.temperature(100), 1e-9);
+        assertEquals(-40, UnitSystem.IMPERIAL.temperature(-40), 1e-9);
+    }
+
+    @Test
+    public void convertsWindSpeed() {
+        assertEquals(10f, UnitSystem.METRIC.windSpeed(10f), 0);
+        assertEquals(6.2137f, UnitSystem.IMPERIAL.windSpeed(10f), 1e-4);
+    }
+
+    @Test
+    public void mapsDegreesToCompassPoints() {
+        assertEquals("N", Wind.getCompassDirection(0f));
+        assertEquals("N", Wind.getCompassDirection(350f));
+        assertEquals("NE", Wind.getCompassDirection(22.5f));
+        assertEquals("E", Wind.getCompassDirection(90f));
+        assertEquals("SE", Wind.getCompassDirection(157.4f));
+        assertEquals("S", Wind.getCompassDirection(180f));
+        assertEquals("SW", Wind.getCompassDirection(225f));
+        assertEquals("W", Wind.getCompassDirection(270f));
+        assertEquals("NW", Wind.getCompassDirection(337.4f));
+        assertEquals("Unknown", Wind.getCompassDirection(Float.NaN));
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class WeatherConditionTest {
+
+    @Test
+    public void mapsConditionCodes() {
+        assertEquals(WeatherCondition.STORM, WeatherCondition.fromWeatherId(211));
+        assertEquals(WeatherCondition.LIGHT_RAIN, WeatherCondition.fromWeatherId(301));
+        assertEquals(WeatherCondition.RAIN, WeatherCondition.fromWeatherId(502));
+        assertEquals(WeatherCondition.SNOW, WeatherCondition.fromWeatherId(511));
+        assertEquals(WeatherCondition.RAIN, WeatherCondition.fromWeatherId(521));
+        assertEquals(WeatherCondition.SNOW, WeatherCondition.fromWeatherId(612));
+        assertEquals(WeatherCondition.FOG, WeatherCondition.fromWeatherId(741));
+        assertEquals(WeatherCondition.FOG, WeatherCondition.fromWeatherId(761));
+        assertEquals(WeatherCondition.STORM, WeatherCondition.fromWeatherId(781));
+        assertEquals(WeatherCondition.CLEAR, WeatherCondition.fromWeatherId(800));
+        assertEquals(WeatherCondition.LIGHT_CLOUDS, WeatherCondition.fromWeatherId(801));
+        assertEquals(WeatherCondition.CLOUDS, WeatherCondition.fromWeatherId(804));
+    }
+
+    @Test
+    public void unknownCodesHaveNoCondition() {
+        assertNull(WeatherCondition.fromWeatherId(0));
+        assertNull(WeatherCondition.fromWeatherId(400));
+        assertNull(WeatherCondition.fromWeatherId(900));
+    }
+}